@@ -108,12 +108,16 @@ const CSRReview: React.FC = () => {
 
   const getStatusBadge = (status: CSRStatus) => {
     switch (status) {
+      case CSRStatus.RECEIVED:
+        return <span className="px-2 py-1 rounded text-xs bg-blue-600">Processing</span>;
       case CSRStatus.PENDING:
         return <span className="px-2 py-1 rounded text-xs bg-yellow-600">Pending</span>;
       case CSRStatus.APPROVED:
         return <span className="px-2 py-1 rounded text-xs bg-green-600">Approved</span>;
       case CSRStatus.REJECTED:
         return <span className="px-2 py-1 rounded text-xs bg-red-600">Rejected</span>;
+      case CSRStatus.INVALID:
+        return <span className="px-2 py-1 rounded text-xs bg-gray-600">Invalid</span>;
     }
   };
 
@@ -1,5 +1,5 @@
 import React, { useState, useEffect } from 'react';
-import { Certificate, CreateCertificateRequest, CertificateType } from '../types/certificate';
+import { Certificate, CreateCertificateRequest, CertificateType, RevocationReason, SubtreeRevocationJob } from '../types/certificate';
 import { certificateService, downloadFile } from '../services/certificateService';
 import { useAuth } from '../contexts/AuthContext';
 
@@ -10,6 +10,7 @@ const CertificateManagement: React.FC = () => {
   const [error, setError] = useState<string | null>(null);
   const [showCreateForm, setShowCreateForm] = useState(false);
   const [showRootForm, setShowRootForm] = useState(false);
+  const [subtreeJob, setSubtreeJob] = useState<SubtreeRevocationJob | null>(null);
 
   const isAdmin = user?.role === 'ADMIN';
   const isCA = user?.role === 'CA';
@@ -80,10 +81,10 @@ const CertificateManagement: React.FC = () => {
     }
   };
 
-  const handleExportCertificate = async (serialNumber: string, format: string, commonName: string) => {
+  const handleExportCertificate = async (serialNumber: string, format: string, commonName: string, extension: string = format) => {
     try {
       const blob = await certificateService.exportCertificate(serialNumber, format);
-      downloadFile(blob, `${commonName}.${format}`);
+      downloadFile(blob, `${commonName}.${extension}`);
     } catch (err) {
       setError(`Failed to export certificate as ${format}`);
       console.error(err);
@@ -108,14 +109,59 @@ const CertificateManagement: React.FC = () => {
     if (!password) return;
 
     try {
-      const blob = await certificateService.downloadApplicationProperties(serialNumber, password);
-      downloadFile(blob, `application-https-${commonName}.properties`);
+      const blob = await certificateService.downloadHttpsBundle(serialNumber, password);
+      downloadFile(blob, `https-${commonName}.zip`);
     } catch (err) {
       setError('Failed to download HTTPS configuration');
       console.error(err);
     }
   };
 
+  const handleRevokeCertificate = async (serialNumber: string, commonName: string) => {
+    if (!window.confirm(`Revoke certificate ${commonName}? This cannot be undone.`)) return;
+
+    try {
+      await certificateService.revokeCertificate(serialNumber, RevocationReason.UNSPECIFIED);
+      loadCertificates();
+    } catch (err: any) {
+      setError(err.response?.data || 'Failed to revoke certificate');
+      console.error(err);
+    }
+  };
+
+  const handleRenewCertificate = async (serialNumber: string, commonName: string) => {
+    if (!window.confirm(`Issue a renewed certificate for ${commonName}?`)) return;
+
+    try {
+      await certificateService.renewCertificate(serialNumber);
+      loadCertificates();
+    } catch (err: any) {
+      setError(err.response?.data || 'Failed to renew certificate');
+      console.error(err);
+    }
+  };
+
+  const handleRevokeSubtree = async (serialNumber: string, commonName: string) => {
+    if (!window.confirm(`Revoke ${commonName} and every certificate issued below it? This cannot be undone.`)) return;
+
+    try {
+      let job = await certificateService.revokeSubtree(serialNumber, RevocationReason.CA_COMPROMISE);
+      setSubtreeJob(job);
+      while (job.status === 'RUNNING') {
+        await new Promise(resolve => setTimeout(resolve, 1000));
+        job = await certificateService.getSubtreeRevocation(job.jobId);
+        setSubtreeJob(job);
+      }
+      if (job.status === 'FAILED') {
+        setError(job.error || 'Subtree revocation failed');
+      }
+      loadCertificates();
+    } catch (err: any) {
+      setError(err.response?.data || 'Failed to revoke certificate subtree');
+      console.error(err);
+    }
+  };
+
   const caCertificates = certificates.filter(cert => cert.isCa);
 
   if (loading) {
@@ -158,6 +204,16 @@ const CertificateManagement: React.FC = () => {
           </div>
         )}
 
+        {subtreeJob && (
+          <div className="bg-gray-700 text-white p-4 rounded mb-6">
+            Revoking subtree of {subtreeJob.rootSerialNumber}: {subtreeJob.revokedCertificates} / {subtreeJob.totalCertificates} certificates
+            ({subtreeJob.status})
+            {subtreeJob.status !== 'RUNNING' && (
+              <button onClick={() => setSubtreeJob(null)} className="ml-4 text-gray-300 hover:text-white">×</button>
+            )}
+          </div>
+        )}
+
         {/* Root CA Creation Form - Admin Only */}
         {showRootForm && isAdmin && (
           <div className="bg-gray-800 p-6 rounded mb-6">
@@ -325,6 +381,12 @@ const CertificateManagement: React.FC = () => {
                       }`}>
                       {cert.type}
                     </span>
+                    {cert.revoked && (
+                      <span className="ml-2 px-2 py-1 rounded text-xs bg-gray-600">REVOKED</span>
+                    )}
+                    {cert.renewedAt && !cert.revoked && (
+                      <span className="ml-2 px-2 py-1 rounded text-xs bg-blue-700">RENEWED</span>
+                    )}
                   </td>
                   <td className="p-4 text-gray-300 font-mono text-sm">{cert.serialNumber}</td>
                   <td className="p-4 text-gray-300">
@@ -344,6 +406,42 @@ const CertificateManagement: React.FC = () => {
                       >
                         DER
                       </button>
+                      <button
+                        onClick={() => handleExportCertificate(cert.serialNumber, 'pem-chain', cert.commonName, 'chain.pem')}
+                        className="bg-blue-500 hover:bg-blue-600 text-white px-2 py-1 rounded text-xs"
+                      >
+                        Chain (PEM)
+                      </button>
+                      <button
+                        onClick={() => handleExportCertificate(cert.serialNumber, 'p7b', cert.commonName)}
+                        className="bg-blue-500 hover:bg-blue-600 text-white px-2 py-1 rounded text-xs"
+                      >
+                        P7B
+                      </button>
+                      {!cert.revoked && cert.type !== 'ROOT_CA' && (isAdmin || isCA) && (
+                        <button
+                          onClick={() => handleRevokeCertificate(cert.serialNumber, cert.commonName)}
+                          className="bg-red-500 hover:bg-red-600 text-white px-2 py-1 rounded text-xs"
+                        >
+                          Revoke
+                        </button>
+                      )}
+                      {!cert.revoked && !cert.renewedAt && cert.type !== 'ROOT_CA' && (isAdmin || isCA) && (
+                        <button
+                          onClick={() => handleRenewCertificate(cert.serialNumber, cert.commonName)}
+                          className="bg-yellow-500 hover:bg-yellow-600 text-white px-2 py-1 rounded text-xs"
+                        >
+                          Renew
+                        </button>
+                      )}
+                      {cert.isCa && cert.type !== 'ROOT_CA' && (isAdmin || isCA) && (
+                        <button
+                          onClick={() => handleRevokeSubtree(cert.serialNumber, cert.commonName)}
+                          className="bg-red-700 hover:bg-red-800 text-white px-2 py-1 rounded text-xs"
+                        >
+                          Revoke Subtree
+                        </button>
+                      )}
                       {cert.isCa && isAdmin && (
                         <>
                           <button
@@ -71,12 +71,16 @@ const MyCSRs: React.FC = () => {
 
   const getStatusBadge = (status: CSRStatus) => {
     switch (status) {
+      case CSRStatus.RECEIVED:
+        return <span className="px-2 py-1 rounded text-xs bg-blue-600">Processing</span>;
       case CSRStatus.PENDING:
         return <span className="px-2 py-1 rounded text-xs bg-yellow-600">Pending</span>;
       case CSRStatus.APPROVED:
         return <span className="px-2 py-1 rounded text-xs bg-green-600">Approved</span>;
       case CSRStatus.REJECTED:
         return <span className="px-2 py-1 rounded text-xs bg-red-600">Rejected</span>;
+      case CSRStatus.INVALID:
+        return <span className="px-2 py-1 rounded text-xs bg-gray-600">Invalid</span>;
     }
   };
 
@@ -205,6 +209,14 @@ const MyCSRs: React.FC = () => {
                     {csr.status === CSRStatus.PENDING && (
                       <span className="text-yellow-400 text-sm">Awaiting review</span>
                     )}
+                    {csr.status === CSRStatus.RECEIVED && (
+                      <span className="text-blue-400 text-sm">Verifying CSR...</span>
+                    )}
+                    {csr.status === CSRStatus.INVALID && csr.failureReason && (
+                      <span className="text-red-400 text-sm">
+                        Invalid: {csr.failureReason}
+                      </span>
+                    )}
                   </td>
                 </tr>
               ))}
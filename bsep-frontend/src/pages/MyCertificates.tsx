@@ -24,10 +24,10 @@ const MyCertificates: React.FC = () => {
     }
   };
 
-  const handleExportCertificate = async (serialNumber: string, format: string, commonName: string) => {
+  const handleExportCertificate = async (serialNumber: string, format: string, commonName: string, extension: string = format) => {
     try {
       const blob = await certificateService.exportCertificate(serialNumber, format);
-      downloadFile(blob, `${commonName}.${format}`);
+      downloadFile(blob, `${commonName}.${extension}`);
     } catch (err) {
       setError(`Failed to export certificate as ${format}`);
       console.error(err);
@@ -98,6 +98,18 @@ const MyCertificates: React.FC = () => {
                       >
                         Download DER
                       </button>
+                      <button
+                        onClick={() => handleExportCertificate(cert.serialNumber, 'pem-chain', cert.commonName, 'chain.pem')}
+                        className="bg-blue-500 hover:bg-blue-600 text-white px-2 py-1 rounded text-xs"
+                      >
+                        Download Chain (PEM)
+                      </button>
+                      <button
+                        onClick={() => handleExportCertificate(cert.serialNumber, 'p7b', cert.commonName)}
+                        className="bg-blue-500 hover:bg-blue-600 text-white px-2 py-1 rounded text-xs"
+                      >
+                        Download P7B
+                      </button>
                     </div>
                   </td>
                 </tr>
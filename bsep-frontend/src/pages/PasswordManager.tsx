@@ -7,7 +7,7 @@ import { PasswordEntry, CreatePasswordEntryRequest } from '../types/passwordEntr
 import { Certificate } from '../types/certificate';
 import { UserDto } from '../types/user';
 import { SharePasswordRequest } from '../types/sharedPassword';
-import { decryptPassword, readFileAsText } from '../utils/cryptoUtils';
+import { decryptPassword, readFileAsText, unwrapDataKey } from '../utils/cryptoUtils';
 
 const PasswordManager: React.FC = () => {
   const [passwordEntries, setPasswordEntries] = useState<PasswordEntry[]>([]);
@@ -136,7 +136,7 @@ const PasswordManager: React.FC = () => {
     const decrypted: { [id: number]: string } = {};
     for (const entry of passwordEntries) {
       try {
-        const decryptedPassword = await decryptPassword(entry.encryptedPassword, key);
+        const decryptedPassword = await decryptPassword(entry.encryptedPassword, key, entry.wrappedKey);
         decrypted[entry.id] = decryptedPassword;
       } catch (err) {
         console.error(`Failed to decrypt password for entry ${entry.id}:`, err);
@@ -199,12 +199,20 @@ const PasswordManager: React.FC = () => {
     }
 
     try {
-      const shareRequest: SharePasswordRequest = {
-        passwordEntryId: selectedEntryToShare.id,
-        sharedWithUserId: selectedUserId,
-        sharedWithCertificateSerialNumber: selectedCertificateSerialNumber,
-        decryptedPassword: decryptedPassword,
-      };
+      // Envelope stavke se dele slanjem ključa podataka, lozinka ne napušta browser
+      const shareRequest: SharePasswordRequest = selectedEntryToShare.wrappedKey && privateKey
+        ? {
+            passwordEntryId: selectedEntryToShare.id,
+            sharedWithUserId: selectedUserId,
+            sharedWithCertificateSerialNumber: selectedCertificateSerialNumber,
+            dataKey: await unwrapDataKey(selectedEntryToShare.wrappedKey, privateKey),
+          }
+        : {
+            passwordEntryId: selectedEntryToShare.id,
+            sharedWithUserId: selectedUserId,
+            sharedWithCertificateSerialNumber: selectedCertificateSerialNumber,
+            decryptedPassword: decryptedPassword,
+          };
 
       await sharedPasswordService.sharePassword(shareRequest);
       setSuccess('Lozinka uspešno podeljena!');
@@ -90,7 +90,7 @@ const SharedPasswords: React.FC = () => {
     const decrypted: { [id: number]: string } = {};
     for (const entry of sharedPasswords) {
       try {
-        const decryptedPassword = await decryptPassword(entry.encryptedPassword, key);
+        const decryptedPassword = await decryptPassword(entry.encryptedPassword, key, entry.wrappedKey);
         decrypted[entry.id] = decryptedPassword;
       } catch (err) {
         console.error(`Failed to decrypt password for entry ${entry.id}:`, err);
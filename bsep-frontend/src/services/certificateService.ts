@@ -1,5 +1,5 @@
 import api from '../api/api';
-import { Certificate, CreateCertificateRequest, HttpsConfigurationResponse } from '../types/certificate';
+import { Certificate, CreateCertificateRequest, HttpsConfigurationResponse, RevocationReason, SubtreeRevocationJob } from '../types/certificate';
 
 export const certificateService = {
   // Get all certificates (Admin only)
@@ -38,6 +38,30 @@ export const certificateService = {
     return response.data;
   },
 
+  // Revoke a certificate
+  revokeCertificate: async (serialNumber: string, reason: RevocationReason): Promise<Certificate> => {
+    const response = await api.post(`/certificates/${serialNumber}/revoke`, { reason });
+    return response.data;
+  },
+
+  // Re-issue a certificate from the same parent CA with the same subject and SANs
+  renewCertificate: async (serialNumber: string): Promise<Certificate> => {
+    const response = await api.post(`/certificates/${serialNumber}/renew`);
+    return response.data;
+  },
+
+  // Revoke a CA certificate and everything issued below it (runs in the background)
+  revokeSubtree: async (serialNumber: string, reason: RevocationReason): Promise<SubtreeRevocationJob> => {
+    const response = await api.post(`/certificates/${serialNumber}/revoke-subtree`, { reason });
+    return response.data;
+  },
+
+  // Get progress of a subtree revocation
+  getSubtreeRevocation: async (jobId: string): Promise<SubtreeRevocationJob> => {
+    const response = await api.get(`/certificates/revoke-subtree/${jobId}`);
+    return response.data;
+  },
+
   // Export certificate in different formats
   exportCertificate: async (serialNumber: string, format: string = 'pem'): Promise<Blob> => {
     const response = await api.get(`/certificates/${serialNumber}/export`, {
@@ -64,6 +88,15 @@ export const certificateService = {
     return response.data;
   },
 
+  // Download ZIP with PKCS12 (full chain), PEM chain and application.properties
+  downloadHttpsBundle: async (serialNumber: string, keystorePassword: string, port: number = 8443): Promise<Blob> => {
+    const response = await api.get(`/certificates/${serialNumber}/https-bundle`, {
+      params: { keystorePassword, port },
+      responseType: 'blob'
+    });
+    return response.data;
+  },
+
   // Download application.properties
   downloadApplicationProperties: async (serialNumber: string, keystorePassword: string, port: number = 8443): Promise<Blob> => {
     const response = await api.get(`/certificates/${serialNumber}/application-properties`, {
@@ -1,5 +1,13 @@
 import api from '../api/api';
-import { PasswordEntry, CreatePasswordEntryRequest } from '../types/passwordEntry';
+import {
+  PasswordEntry,
+  CreatePasswordEntryRequest,
+  RekeyItem,
+  RekeyItemType,
+  RekeySession,
+  RekeyedItem,
+  StartRekeyRequest,
+} from '../types/passwordEntry';
 
 export const passwordManagerService = {
   // Get all password entries for current user
@@ -18,4 +26,48 @@ export const passwordManagerService = {
   deletePasswordEntry: async (entryId: number): Promise<void> => {
     await api.delete(`/password-manager/entries/${entryId}`);
   },
+
+  // Open a re-key session, or get the active one for the same certificates
+  startRekey: async (request: StartRekeyRequest): Promise<RekeySession> => {
+    const response = await api.post<RekeySession>('/password-manager/rekey', request);
+    return response.data;
+  },
+
+  getRekeySession: async (sessionId: number): Promise<RekeySession> => {
+    const response = await api.get<RekeySession>(`/password-manager/rekey/${sessionId}`);
+    return response.data;
+  },
+
+  // One page of items not re-keyed yet; a page shorter than the limit is the last one
+  getRekeyItems: async (
+    sessionId: number,
+    after?: { type: RekeyItemType; id: number },
+    limit?: number
+  ): Promise<RekeyItem[]> => {
+    const response = await api.get<string>(`/password-manager/rekey/${sessionId}/items`, {
+      params: { afterType: after?.type, afterId: after?.id, limit },
+      responseType: 'text',
+    });
+    return response.data
+      .split('\n')
+      .filter((line) => line.trim().length > 0)
+      .map((line) => JSON.parse(line) as RekeyItem);
+  },
+
+  // Saved in chunks on the server; sending the same items again just replaces them
+  submitRekeyBatch: async (sessionId: number, items: RekeyedItem[]): Promise<RekeySession> => {
+    const response = await api.post<RekeySession>(`/password-manager/rekey/${sessionId}/batches`, { items });
+    return response.data;
+  },
+
+  // Switches every item to the new certificate at once
+  commitRekey: async (sessionId: number): Promise<RekeySession> => {
+    const response = await api.post<RekeySession>(`/password-manager/rekey/${sessionId}/commit`);
+    return response.data;
+  },
+
+  abortRekey: async (sessionId: number): Promise<RekeySession> => {
+    const response = await api.delete<RekeySession>(`/password-manager/rekey/${sessionId}`);
+    return response.data;
+  },
 };
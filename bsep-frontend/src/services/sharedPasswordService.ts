@@ -1,5 +1,10 @@
 import api from '../api/api';
-import { SharedPasswordEntry, SharePasswordRequest } from '../types/sharedPassword';
+import {
+  BulkSharePasswordRequest,
+  BulkSharePasswordResponse,
+  SharedPasswordEntry,
+  SharePasswordRequest,
+} from '../types/sharedPassword';
 
 export const sharedPasswordService = {
   sharePassword: async (request: SharePasswordRequest): Promise<SharedPasswordEntry> => {
@@ -7,6 +12,11 @@ export const sharedPasswordService = {
     return response.data;
   },
 
+  bulkSharePasswords: async (request: BulkSharePasswordRequest): Promise<BulkSharePasswordResponse> => {
+    const response = await api.post<BulkSharePasswordResponse>('/shared-passwords/bulk', request);
+    return response.data;
+  },
+
   getSharedPasswords: async (): Promise<SharedPasswordEntry[]> => {
     const response = await api.get<SharedPasswordEntry[]>('/shared-passwords');
     return response.data;
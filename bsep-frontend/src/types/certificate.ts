@@ -13,9 +13,38 @@ export interface Certificate {
   ownerName?: string;
   issuerSerialNumber?: string;
   issuerCommonName?: string;
+  revoked: boolean;
+  revokedAt?: string;
+  revocationReason?: RevocationReason;
+  renewedAt?: string;
   certificateData?: string;
 }
 
+export enum RevocationReason {
+  UNSPECIFIED = 'UNSPECIFIED',
+  KEY_COMPROMISE = 'KEY_COMPROMISE',
+  CA_COMPROMISE = 'CA_COMPROMISE',
+  AFFILIATION_CHANGED = 'AFFILIATION_CHANGED',
+  SUPERSEDED = 'SUPERSEDED',
+  CESSATION_OF_OPERATION = 'CESSATION_OF_OPERATION',
+  CERTIFICATE_HOLD = 'CERTIFICATE_HOLD',
+  PRIVILEGE_WITHDRAWN = 'PRIVILEGE_WITHDRAWN',
+  AA_COMPROMISE = 'AA_COMPROMISE'
+}
+
+export interface SubtreeRevocationJob {
+  jobId: string;
+  rootSerialNumber: string;
+  reason: RevocationReason;
+  status: 'RUNNING' | 'COMPLETED' | 'FAILED';
+  totalCertificates: number;
+  revokedCertificates: number;
+  deactivatedAssignments: number;
+  startedAt: string;
+  finishedAt?: string;
+  error?: string;
+}
+
 export enum CertificateType {
   ROOT_CA = 'ROOT_CA',
   INTERMEDIATE_CA = 'INTERMEDIATE_CA',
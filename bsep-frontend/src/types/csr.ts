@@ -1,7 +1,9 @@
 export enum CSRStatus {
+  RECEIVED = 'RECEIVED',
   PENDING = 'PENDING',
   APPROVED = 'APPROVED',
-  REJECTED = 'REJECTED'
+  REJECTED = 'REJECTED',
+  INVALID = 'INVALID'
 }
 
 export interface CreateCSRRequest {
@@ -27,6 +29,7 @@ export interface CSRResponse {
   createdAt: string;
   reviewedAt?: string;
   rejectionReason?: string;
+  failureReason?: string;
   requesterEmail: string;
   reviewerEmail?: string;
   selectedCaCommonName?: string;
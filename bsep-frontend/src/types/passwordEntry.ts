@@ -3,6 +3,7 @@ export interface PasswordEntry {
   website: string;
   username: string;
   encryptedPassword: string;
+  wrappedKey?: string | null;
   certificateSerialNumber: string;
   certificateCommonName: string;
   createdAt: string;
@@ -21,3 +22,43 @@ export interface DecryptedPasswordEntry {
   username: string;
   decryptedPassword: string;
 }
+
+export type RekeyItemType = 'ENTRY' | 'SHARED';
+
+export type RekeySessionStatus = 'ACTIVE' | 'COMMITTED' | 'ABORTED';
+
+export interface StartRekeyRequest {
+  oldCertificateSerialNumber: string;
+  newCertificateSerialNumber: string;
+}
+
+export interface RekeySession {
+  id: number;
+  status: RekeySessionStatus;
+  oldCertificateSerialNumber: string;
+  newCertificateSerialNumber: string;
+  totalItems: number;
+  stagedItems: number;
+  rekeyedItems: number;
+  checkpointType: RekeyItemType | null;
+  checkpointId: number | null;
+  createdAt: string;
+  updatedAt: string;
+  completedAt: string | null;
+}
+
+// One NDJSON line of a re-key page, still encrypted for the old certificate
+export interface RekeyItem {
+  type: RekeyItemType;
+  id: number;
+  encryptedPassword: string;
+  wrappedKey: string | null;
+}
+
+// Envelope items only need a new wrappedKey; legacy items send a new encryptedPassword
+export interface RekeyedItem {
+  type: RekeyItemType;
+  id: number;
+  encryptedPassword?: string;
+  wrappedKey?: string;
+}
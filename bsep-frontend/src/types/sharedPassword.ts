@@ -3,6 +3,7 @@ export interface SharedPasswordEntry {
   website: string;
   username: string;
   encryptedPassword: string;
+  wrappedKey?: string | null;
   sharedByUserEmail: string;
   sharedByUserName: string;
   sharedWithCertificateSerialNumber: string;
@@ -14,5 +15,26 @@ export interface SharePasswordRequest {
   passwordEntryId: number;
   sharedWithUserId: number;
   sharedWithCertificateSerialNumber: string;
-  decryptedPassword: string;
+  decryptedPassword?: string;
+  dataKey?: string;
+}
+
+// Svaka stavka se deli sa svakim primaocem
+export interface BulkSharePasswordRequest {
+  entries: {
+    passwordEntryId: number;
+    dataKey?: string;
+    decryptedPassword?: string;
+  }[];
+  recipients: {
+    userId: number;
+    certificateSerialNumber: string;
+  }[];
+}
+
+export interface BulkSharePasswordResponse {
+  entries: number;
+  recipients: number;
+  shared: number;
+  durationMs: number;
 }
@@ -0,0 +1,35 @@
+#!/usr/bin/env bash
+# Compares TLS handshake cost on the HTTPS connector with session resumption off (-new) and on (-reuse),
+# for TLS 1.3 and TLS 1.2, using openssl s_time.
+#
+#   scripts/tls-handshake-benchmark.sh [host:port] [seconds]
+#
+# With TOKEN set to an admin JWT the connector's handshake counters are printed before and after,
+# so the server side resumption rate can be checked against the client side numbers.
+set -euo pipefail
+
+TARGET="${1:-localhost:8443}"
+SECONDS_PER_RUN="${2:-10}"
+
+status() {
+  if [[ -n "${TOKEN:-}" ]]; then
+    curl -sk -H "Authorization: Bearer ${TOKEN}" "https://${TARGET}/certificates/server-tls" \
+      | grep -o '"\(handshakes\|fullHandshakes\|resumedHandshakes\|resumptionRate\)":[0-9.]*' | paste -sd' ' -
+  fi
+}
+
+run() {
+  local mode="$1" version="$2"
+  # -www reads a response, otherwise TLS 1.3 tickets never arrive and -reuse cannot resume
+  local rate
+  rate=$(openssl s_time -connect "${TARGET}" -www / "${mode}" ${version} -time "${SECONDS_PER_RUN}" 2>/dev/null \
+    | grep -m1 'connections/user sec' | sed 's/.*; \([0-9.]*\) connections\/user sec.*/\1/')
+  printf '%-8s %-8s %12s handshakes/s (client CPU)\n' "${version:--tls1_3}" "${mode}" "${rate:-n/a}"
+}
+
+status
+for version in "-tls1_3" "-tls1_2"; do
+  run -new "${version}"
+  run -reuse "${version}"
+done
+status
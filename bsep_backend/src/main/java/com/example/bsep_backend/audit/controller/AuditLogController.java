@@ -0,0 +1,38 @@
+package com.example.bsep_backend.audit.controller;
+
+import com.example.bsep_backend.audit.domain.AuditRecord;
+import com.example.bsep_backend.audit.dto.AuditVerificationResponse;
+import com.example.bsep_backend.audit.service.AuditLogService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.List;
+
+@RestController
+@RequestMapping("/audit")
+@RequiredArgsConstructor
+public class AuditLogController {
+
+    private final AuditLogService auditLogService;
+
+    @GetMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<AuditRecord>> getRecords(
+            @RequestParam(defaultValue = "1") long from,
+            @RequestParam(defaultValue = "" + Long.MAX_VALUE) long to) throws IOException {
+        List<AuditRecord> records = auditLogService.getRecords(from, to);
+        return ResponseEntity.ok(records);
+    }
+
+    @GetMapping("/verify")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<AuditVerificationResponse> verify(
+            @RequestParam(defaultValue = "1") long from,
+            @RequestParam(defaultValue = "" + Long.MAX_VALUE) long to) throws IOException {
+        AuditVerificationResponse response = auditLogService.verify(from, to);
+        return ResponseEntity.ok(response);
+    }
+}
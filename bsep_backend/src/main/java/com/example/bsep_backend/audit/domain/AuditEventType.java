@@ -0,0 +1,14 @@
+package com.example.bsep_backend.audit.domain;
+
+public enum AuditEventType {
+    ROOT_CERTIFICATE_ISSUED,
+    CERTIFICATE_ISSUED,
+    CERTIFICATE_REVOKED,
+    CERTIFICATE_SUBTREE_REVOKED,
+    CERTIFICATE_RENEWED,
+    CSR_APPROVED,
+    CSR_REJECTED,
+    CA_ASSIGNED,
+    CA_ASSIGNMENT_REVOKED,
+    SESSION_REVOKED
+}
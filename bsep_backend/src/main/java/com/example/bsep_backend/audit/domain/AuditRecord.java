@@ -0,0 +1,31 @@
+package com.example.bsep_backend.audit.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.SortedMap;
+
+/**
+ * One line of the audit log. The hash covers every other field (including previousHash),
+ * serialized in the fixed property order below, which chains each record to the one before it.
+ */
+@Data
+@Builder(toBuilder = true)
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({"sequence", "timestamp", "type", "actor", "subject", "details", "previousHash", "hash"})
+public class AuditRecord {
+    private long sequence;
+    private String timestamp;
+    private AuditEventType type;
+    private String actor;
+    private String subject;
+    private SortedMap<String, String> details;
+    private String previousHash;
+    private String hash;
+}
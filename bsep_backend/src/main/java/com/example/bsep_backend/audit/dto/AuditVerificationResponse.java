@@ -0,0 +1,15 @@
+package com.example.bsep_backend.audit.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class AuditVerificationResponse {
+    private boolean valid;
+    private long fromSequence;
+    private long toSequence;
+    private long checkedRecords;
+    private Long firstInvalidSequence;
+    private String message;
+}
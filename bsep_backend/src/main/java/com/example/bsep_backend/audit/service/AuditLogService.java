@@ -0,0 +1,372 @@
+package com.example.bsep_backend.audit.service;
+
+import com.example.bsep_backend.audit.domain.AuditEventType;
+import com.example.bsep_backend.audit.domain.AuditRecord;
+import com.example.bsep_backend.audit.dto.AuditVerificationResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+
+/**
+ * Append-only, hash-chained audit log for PKI operations.
+ * <p>
+ * Callers only enqueue events; a single writer thread assigns sequence numbers, chains the
+ * SHA-256 hashes and appends whole batches to the log file with one fsync per batch
+ * (group commit). Events recorded inside a transaction are enqueued after it commits.
+ * A sparse in-memory index (sequence -> file offset) keeps range scans from reading the whole file.
+ */
+@Service
+@Slf4j
+public class AuditLogService {
+
+    private static final String GENESIS_HASH = "0".repeat(64);
+    private static final int INDEX_INTERVAL = 256;
+    private static final int MAX_SCAN_RECORDS = 10_000;
+    private static final PendingEvent STOP = new PendingEvent(null, null, null, null, null, null);
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
+    @Value("${audit.log.path:audit}")
+    private String auditLogPath;
+
+    @Value("${audit.log.max-batch-size:512}")
+    private int maxBatchSize;
+
+    private final BlockingQueue<PendingEvent> queue = new LinkedBlockingQueue<>();
+    private final ConcurrentSkipListMap<Long, Long> sparseIndex = new ConcurrentSkipListMap<>();
+
+    private Path logFile;
+    private FileChannel channel;
+    private Thread writerThread;
+
+    // Only touched by the writer thread after startup
+    private long lastSequence;
+    private String lastHash = GENESIS_HASH;
+
+    // Everything below this offset is fsynced and safe to read
+    private volatile long committedBytes;
+
+    @PostConstruct
+    void start() throws IOException {
+        Path directory = Paths.get(auditLogPath);
+        Files.createDirectories(directory);
+        logFile = directory.resolve("audit.log");
+
+        recover();
+
+        channel = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.position(committedBytes);
+
+        writerThread = new Thread(this::writeLoop, "audit-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+
+        log.info("Audit log opened at {} (last sequence: {})", logFile, lastSequence);
+    }
+
+    @PreDestroy
+    void stop() throws IOException {
+        // Poison pill instead of interrupt - an interrupt would close the FileChannel mid-write
+        queue.add(STOP);
+        try {
+            writerThread.join(10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    public CompletableFuture<AuditRecord> record(AuditEventType type, String actor, String subject, Map<String, ?> details) {
+        TreeMap<String, String> sortedDetails = new TreeMap<>();
+        if (details != null) {
+            details.forEach((key, value) -> sortedDetails.put(key, value != null ? value.toString() : null));
+        }
+        PendingEvent event = new PendingEvent(type, actor, subject, sortedDetails, Instant.now(), new CompletableFuture<>());
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    queue.add(event);
+                }
+            });
+        } else {
+            queue.add(event);
+        }
+        return event.result();
+    }
+
+    /**
+     * Records an event on behalf of the currently authenticated user.
+     */
+    public CompletableFuture<AuditRecord> record(AuditEventType type, String subject, Map<String, ?> details) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String actor = authentication != null ? authentication.getName() : "system";
+        return record(type, actor, subject, details);
+    }
+
+    public List<AuditRecord> getRecords(long fromSequence, long toSequence) throws IOException {
+        List<AuditRecord> records = new ArrayList<>();
+        long to = Math.min(toSequence, fromSequence + MAX_SCAN_RECORDS - 1);
+        scan(fromSequence, to, records::add);
+        return records;
+    }
+
+    public AuditVerificationResponse verify(long fromSequence, long toSequence) throws IOException {
+        long from = Math.max(fromSequence, 1);
+        // The record before the range is needed to check the first link
+        long scanFrom = Math.max(from - 1, 1);
+
+        ChainVerifier verifier = new ChainVerifier(from);
+        scan(scanFrom, toSequence, verifier);
+
+        return AuditVerificationResponse.builder()
+                .valid(verifier.firstInvalid == null)
+                .fromSequence(from)
+                .toSequence(Math.min(toSequence, verifier.lastSequence))
+                .checkedRecords(verifier.checked)
+                .firstInvalidSequence(verifier.firstInvalid)
+                .message(verifier.firstInvalid == null ? "Audit chain is intact" : verifier.reason)
+                .build();
+    }
+
+    private void writeLoop() {
+        List<PendingEvent> batch = new ArrayList<>(maxBatchSize);
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, maxBatchSize - batch.size());
+            stopping = batch.removeIf(event -> event == STOP);
+            if (!batch.isEmpty()) {
+                commit(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<PendingEvent> batch) {
+        long sequence = lastSequence;
+        String previousHash = lastHash;
+        long offset = committedBytes;
+
+        List<AuditRecord> records = new ArrayList<>(batch.size());
+        Map<Long, Long> newIndexEntries = new TreeMap<>();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(batch.size() * 256);
+
+        try {
+            for (PendingEvent event : batch) {
+                sequence++;
+                AuditRecord record = AuditRecord.builder()
+                        .sequence(sequence)
+                        .timestamp(event.timestamp().toString())
+                        .type(event.type())
+                        .actor(event.actor())
+                        .subject(event.subject())
+                        .details(event.details())
+                        .previousHash(previousHash)
+                        .build();
+                record.setHash(computeHash(record));
+                previousHash = record.getHash();
+
+                if (sequence % INDEX_INTERVAL == 1) {
+                    newIndexEntries.put(sequence, offset + buffer.size());
+                }
+                buffer.write(objectMapper.writeValueAsBytes(record));
+                buffer.write('\n');
+                records.add(record);
+            }
+
+            ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(false);
+        } catch (Exception e) {
+            log.error("Failed to write {} audit records", batch.size(), e);
+            try {
+                // Drop the partially written batch so the chain stays consistent
+                channel.truncate(committedBytes);
+                channel.position(committedBytes);
+            } catch (IOException truncateError) {
+                log.error("Failed to roll back audit log to offset {}", committedBytes, truncateError);
+            }
+            batch.forEach(event -> event.result().completeExceptionally(e));
+            return;
+        }
+
+        lastSequence = sequence;
+        lastHash = previousHash;
+        sparseIndex.putAll(newIndexEntries);
+        committedBytes = offset + buffer.size();
+
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).result().complete(records.get(i));
+        }
+    }
+
+    private void scan(long fromSequence, long toSequence, Consumer<AuditRecord> consumer) throws IOException {
+        if (fromSequence > toSequence) {
+            return;
+        }
+        long limit = committedBytes;
+        Map.Entry<Long, Long> start = sparseIndex.floorEntry(fromSequence);
+        long startOffset = start != null ? start.getValue() : 0;
+
+        try (FileChannel readChannel = FileChannel.open(logFile, StandardOpenOption.READ)) {
+            readChannel.position(startOffset);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    Channels.newInputStream(readChannel), StandardCharsets.UTF_8));
+
+            long position = startOffset;
+            String line;
+            while (position < limit && (line = reader.readLine()) != null) {
+                position += line.getBytes(StandardCharsets.UTF_8).length + 1;
+                AuditRecord record = objectMapper.readValue(line, AuditRecord.class);
+                if (record.getSequence() < fromSequence) {
+                    continue;
+                }
+                if (record.getSequence() > toSequence) {
+                    break;
+                }
+                consumer.accept(record);
+            }
+        }
+    }
+
+    private void recover() throws IOException {
+        if (!Files.exists(logFile)) {
+            committedBytes = 0;
+            return;
+        }
+
+        long position = 0;
+        try (BufferedReader reader = Files.newBufferedReader(logFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                AuditRecord record;
+                try {
+                    record = objectMapper.readValue(line, AuditRecord.class);
+                } catch (IOException e) {
+                    log.warn("Discarding incomplete audit record at offset {}", position);
+                    break;
+                }
+                if (record.getSequence() % INDEX_INTERVAL == 1) {
+                    sparseIndex.put(record.getSequence(), position);
+                }
+                lastSequence = record.getSequence();
+                lastHash = record.getHash();
+                position += line.getBytes(StandardCharsets.UTF_8).length + 1;
+            }
+        }
+
+        if (position < Files.size(logFile)) {
+            // Torn write from a crash - cut the file back to the last complete record
+            try (FileChannel truncateChannel = FileChannel.open(logFile, StandardOpenOption.WRITE)) {
+                truncateChannel.truncate(position);
+            }
+        }
+        committedBytes = position;
+    }
+
+    private String computeHash(AuditRecord record) throws Exception {
+        AuditRecord unsigned = record.toBuilder().hash(null).build();
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        return HexFormat.of().formatHex(digest.digest(objectMapper.writeValueAsBytes(unsigned)));
+    }
+
+    private class ChainVerifier implements Consumer<AuditRecord> {
+        private final long from;
+        private String expectedPreviousHash;
+        private long expectedSequence;
+        private long checked;
+        private long lastSequence;
+        private Long firstInvalid;
+        private String reason;
+
+        private ChainVerifier(long from) {
+            this.from = from;
+            this.expectedSequence = from == 1 ? 1 : from - 1;
+            this.expectedPreviousHash = from == 1 ? GENESIS_HASH : null;
+        }
+
+        @Override
+        public void accept(AuditRecord record) {
+            if (firstInvalid != null) {
+                return;
+            }
+            lastSequence = record.getSequence();
+
+            if (record.getSequence() != expectedSequence) {
+                fail(expectedSequence, "Missing audit record " + expectedSequence);
+                return;
+            }
+            expectedSequence++;
+
+            if (record.getSequence() < from) {
+                // Anchor record before the requested range
+                expectedPreviousHash = record.getHash();
+                return;
+            }
+
+            checked++;
+            try {
+                if (!record.getPreviousHash().equals(expectedPreviousHash)) {
+                    fail(record.getSequence(), "Broken hash chain at record " + record.getSequence());
+                } else if (!computeHash(record).equals(record.getHash())) {
+                    fail(record.getSequence(), "Record " + record.getSequence() + " was modified");
+                }
+            } catch (Exception e) {
+                fail(record.getSequence(), "Cannot verify record " + record.getSequence() + ": " + e.getMessage());
+            }
+            expectedPreviousHash = record.getHash();
+        }
+
+        private void fail(long sequence, String message) {
+            firstInvalid = sequence;
+            reason = message;
+        }
+    }
+
+    private record PendingEvent(AuditEventType type, String actor, String subject,
+                                TreeMap<String, String> details, Instant timestamp,
+                                CompletableFuture<AuditRecord> result) {
+    }
+}
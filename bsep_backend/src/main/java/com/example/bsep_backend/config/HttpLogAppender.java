@@ -1,45 +1,349 @@
 package com.example.bsep_backend.config;
 
 import ch.qos.logback.classic.spi.ILoggingEvent;
-import ch.qos.logback.core.AppenderBase;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.web.client.RestTemplate;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
 
-public class HttpLogAppender extends AppenderBase<ILoggingEvent> {
+/**
+ * Salje logove na Node.js log server u paketima (gzip NDJSON) preko jedne keep-alive konekcije.
+ * append() samo ubacuje dogadjaj u ogranicen red i nikad ne blokira nit koja loguje -
+ * ako je red pun, dogadjaj se odbacuje i broji.
+ * <p>
+ * Kad server nije dostupan, paketi idu u {@link LogSpool} na disku i salju se redom kad
+ * se server vrati. Dok je server nedostupan ne pokusavamo konekciju za svaki paket,
+ * vec tek posle backoff perioda, pa ispad servera ne usporava ni shipper nit.
+ */
+public class HttpLogAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
 
-    private String url = "http://localhost:3001/api/logs";
-    private RestTemplate restTemplate = new RestTemplate();
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private String url = "http://localhost:3001/api/logs/bulk";
+    private int queueSize = 8192;
+    private int batchSize = 256;
+    private long flushIntervalMs = 1000;
+    private long connectTimeoutMs = 2000;
+    private long requestTimeoutMs = 5000;
+    private String spoolDirectory = "log-spool";
+    private long spoolSegmentBytes = 4L * 1024 * 1024;
+    private long maxSpoolBytes = 64L * 1024 * 1024;
+    private long replayRequestBytes = 1024 * 1024;
+    private long initialBackoffMs = 1000;
+    private long maxBackoffMs = 60000;
+
+    private BlockingQueue<LogRecord> queue;
+    private HttpClient httpClient;
+    private Thread shipperThread;
+    private volatile boolean running;
+
+    private LogSpool spool;
+    private long backoffMs;
+    private long nextAttemptAt;
+
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private long lastReportedDrops;
+
+    @Override
+    public void start() {
+        if (isStarted()) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueSize);
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .build();
+
+        backoffMs = initialBackoffMs;
+        if (spoolDirectory != null && !spoolDirectory.isBlank()) {
+            try {
+                spool = new LogSpool(Paths.get(spoolDirectory), spoolSegmentBytes, maxSpoolBytes);
+            } catch (IOException e) {
+                System.err.println("Log spool disabled, cannot open " + spoolDirectory + ": " + e.getMessage());
+            }
+        }
+
+        running = true;
+        shipperThread = new Thread(this::shipLoop, "http-log-shipper");
+        shipperThread.setDaemon(true);
+        shipperThread.start();
+        super.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) {
+            return;
+        }
+        super.stop();
+        running = false;
+        shipperThread.interrupt();
+        try {
+            shipperThread.join(flushIntervalMs + requestTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (spool != null) {
+            spool.close();
+        }
+    }
 
     @Override
     protected void append(ILoggingEvent event) {
+        LogRecord record = new LogRecord(
+                event.getTimeStamp(),
+                event.getLevel().toString(),
+                event.getLoggerName(),
+                event.getFormattedMessage(),
+                event.getThreadName());
+
+        if (!queue.offer(record)) {
+            droppedEvents.incrementAndGet();
+        }
+    }
+
+    private void shipLoop() {
+        List<LogRecord> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                fillBatch(batch);
+            } catch (InterruptedException e) {
+                // Gasenje - posaljemo ono sto je ostalo u redu
+                running = false;
+                queue.drainTo(batch);
+            }
+            replaySpool();
+            if (!batch.isEmpty()) {
+                ship(batch);
+                batch.clear();
+            }
+            reportDrops();
+        }
+    }
+
+    /**
+     * Paket se zatvara kad dostigne batchSize ili kad istekne flushIntervalMs od prvog dogadjaja.
+     */
+    private void fillBatch(List<LogRecord> batch) throws InterruptedException {
+        LogRecord first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            if (batch.size() >= batchSize) {
+                break;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            LogRecord next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void ship(List<LogRecord> batch) {
+        byte[] payload;
         try {
-            Map<String, String> logData = new HashMap<>();
-            logData.put("timestamp", LocalDateTime.now().format(DateTimeFormatter.ISO_DATE_TIME));
-            logData.put("level", event.getLevel().toString());
-            logData.put("logger", event.getLoggerName());
-            logData.put("message", event.getFormattedMessage());
-            logData.put("thread", event.getThreadName());
+            payload = encodeBatch(batch);
+        } catch (IOException e) {
+            System.err.println("Failed to encode " + batch.size() + " logs: " + e.getMessage());
+            return;
+        }
+
+        if (spool == null) {
+            if (isSinkAvailable()) {
+                send(payload);
+            }
+            return;
+        }
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
+        // Dok spool nije prazan novi paketi idu iza njega, da bi redosled ostao ocuvan
+        if (spool.isEmpty() && isSinkAvailable() && send(payload)) {
+            return;
+        }
+
+        try {
+            spool.append(payload);
+        } catch (IOException e) {
+            System.err.println("Failed to spool " + batch.size() + " logs: " + e.getMessage());
+        }
+    }
+
+    private void replaySpool() {
+        if (spool == null || spool.isEmpty() || !isSinkAvailable()) {
+            return;
+        }
+        try {
+            spool.replay(this::send, replayRequestBytes);
+        } catch (IOException e) {
+            System.err.println("Failed to replay log spool: " + e.getMessage());
+        }
+    }
 
-            HttpEntity<Map<String, String>> request = new HttpEntity<>(logData, headers);
-            restTemplate.postForEntity(url, request, String.class);
+    private boolean send(byte[] payload) {
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                    .timeout(Duration.ofMillis(requestTimeoutMs))
+                    .header("Content-Type", "application/x-ndjson")
+                    .header("Content-Encoding", "gzip")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(payload))
+                    .build();
 
+            HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() >= 500) {
+                markSinkDown("HTTP " + response.statusCode());
+                return false;
+            }
+            if (response.statusCode() / 100 != 2) {
+                // Server je odbio sadrzaj - ponovno slanje ne bi pomoglo
+                System.err.println("Log server rejected log batch: HTTP " + response.statusCode());
+            }
+            markSinkUp();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+            return false;
         } catch (Exception e) {
             // Ne logujemo grešku da ne napravimo beskonačnu petlju
-            System.err.println("Failed to send log to server: " + e.getMessage());
+            markSinkDown(e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean isSinkAvailable() {
+        return System.currentTimeMillis() >= nextAttemptAt;
+    }
+
+    private void markSinkUp() {
+        if (nextAttemptAt != 0) {
+            System.err.println("Log server reachable again");
+        }
+        backoffMs = initialBackoffMs;
+        nextAttemptAt = 0;
+    }
+
+    private void markSinkDown(String reason) {
+        if (nextAttemptAt == 0) {
+            System.err.println("Log server unreachable, spooling logs to disk: " + reason);
+        } else {
+            backoffMs = Math.min(backoffMs * 2, maxBackoffMs);
+        }
+        nextAttemptAt = System.currentTimeMillis() + backoffMs;
+    }
+
+    private byte[] encodeBatch(List<LogRecord> batch) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(batch.size() * 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(baos);
+             JsonGenerator generator = JSON_FACTORY.createGenerator(gzip)) {
+            generator.setRootValueSeparator(null);
+            for (LogRecord record : batch) {
+                generator.writeStartObject();
+                generator.writeStringField("timestamp", formatTimestamp(record.timestamp()));
+                generator.writeStringField("level", record.level());
+                generator.writeStringField("logger", record.logger());
+                generator.writeStringField("message", record.message());
+                generator.writeStringField("thread", record.thread());
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            }
+        }
+        return baos.toByteArray();
+    }
+
+    private void reportDrops() {
+        long dropped = droppedEvents.get();
+        if (dropped != lastReportedDrops) {
+            System.err.println("Log queue full, dropped " + (dropped - lastReportedDrops) + " log events");
+            lastReportedDrops = dropped;
         }
     }
 
+    private static String formatTimestamp(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault())
+                .format(DateTimeFormatter.ISO_DATE_TIME);
+    }
+
+    public long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+
     public void setUrl(String url) {
         this.url = url;
     }
+
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public void setFlushIntervalMs(long flushIntervalMs) {
+        this.flushIntervalMs = flushIntervalMs;
+    }
+
+    public void setConnectTimeoutMs(long connectTimeoutMs) {
+        this.connectTimeoutMs = connectTimeoutMs;
+    }
+
+    public void setRequestTimeoutMs(long requestTimeoutMs) {
+        this.requestTimeoutMs = requestTimeoutMs;
+    }
+
+    public void setSpoolDirectory(String spoolDirectory) {
+        this.spoolDirectory = spoolDirectory;
+    }
+
+    public void setSpoolSegmentBytes(long spoolSegmentBytes) {
+        this.spoolSegmentBytes = spoolSegmentBytes;
+    }
+
+    public void setMaxSpoolBytes(long maxSpoolBytes) {
+        this.maxSpoolBytes = maxSpoolBytes;
+    }
+
+    public void setReplayRequestBytes(long replayRequestBytes) {
+        this.replayRequestBytes = replayRequestBytes;
+    }
+
+    public void setInitialBackoffMs(long initialBackoffMs) {
+        this.initialBackoffMs = initialBackoffMs;
+    }
+
+    public void setMaxBackoffMs(long maxBackoffMs) {
+        this.maxBackoffMs = maxBackoffMs;
+    }
+
+    private record LogRecord(long timestamp, String level, String logger, String message, String thread) {
+    }
 }
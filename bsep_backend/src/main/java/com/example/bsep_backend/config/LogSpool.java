@@ -0,0 +1,279 @@
+package com.example.bsep_backend.config;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Append-only disk spool za pakete logova dok log server nije dostupan.
+ * <p>
+ * Paketi (vec gzip-ovan NDJSON) se upisuju u segment fajlove kao [duzina][bajtovi].
+ * Checkpoint fajl cuva poziciju (segment, offset) prvog paketa koji jos nije poslat,
+ * tako da se posle restarta nastavlja tamo gde se stalo. Ukupna velicina je ogranicena -
+ * kad se predje maxSpoolBytes brisu se najstariji segmenti.
+ * Klasu koristi samo shipper nit iz {@link HttpLogAppender}, pa nije thread-safe.
+ */
+class LogSpool {
+
+    interface BatchSender {
+        boolean send(byte[] payload);
+    }
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".spool";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    private final Path directory;
+    private final long segmentMaxBytes;
+    private final long maxSpoolBytes;
+
+    // segmentId -> velicina fajla
+    private final TreeMap<Long, Long> segments = new TreeMap<>();
+    private long totalBytes;
+
+    private long checkpointSegment;
+    private long checkpointOffset;
+
+    private DataOutputStream writer;
+    private long writerSegment = -1;
+
+    private long evictedSegments;
+
+    LogSpool(Path directory, long segmentMaxBytes, long maxSpoolBytes) throws IOException {
+        this.directory = directory;
+        this.segmentMaxBytes = segmentMaxBytes;
+        this.maxSpoolBytes = maxSpoolBytes;
+
+        Files.createDirectories(directory);
+        loadSegments();
+        loadCheckpoint();
+    }
+
+    boolean isEmpty() {
+        if (segments.isEmpty()) {
+            return true;
+        }
+        return segments.size() == 1
+                && segments.firstKey() == checkpointSegment
+                && segments.firstEntry().getValue() <= checkpointOffset;
+    }
+
+    long getTotalBytes() {
+        return totalBytes;
+    }
+
+    long getEvictedSegments() {
+        return evictedSegments;
+    }
+
+    void append(byte[] payload) throws IOException {
+        // Posle restarta uvek pocinjemo novi segment, da eventualni nepotpun zapis
+        // na kraju starog segmenta ne pokvari format
+        if (writer == null || segments.get(writerSegment) >= segmentMaxBytes) {
+            long segmentId;
+            if (segments.isEmpty()) {
+                segmentId = checkpointSegment;
+                saveCheckpoint(segmentId, 0);
+            } else {
+                segmentId = segments.lastKey() + 1;
+            }
+            openWriter(segmentId);
+            segments.put(segmentId, 0L);
+        }
+
+        writer.writeInt(payload.length);
+        writer.write(payload);
+        writer.flush();
+
+        long written = Integer.BYTES + payload.length;
+        segments.merge(writerSegment, written, Long::sum);
+        totalBytes += written;
+
+        evictOldestIfNeeded();
+    }
+
+    /**
+     * Salje spool redom, vise paketa spojenih u jedan zahtev (konkatenirani gzip clanovi
+     * su validan gzip tok). Vraca false ako slanje nije uspelo - pozicija ostaje na
+     * prvom neposlatom paketu.
+     */
+    boolean replay(BatchSender sender, long maxRequestBytes) throws IOException {
+        while (!isEmpty()) {
+            Long segmentId = segments.ceilingKey(checkpointSegment);
+            if (segmentId == null) {
+                return true;
+            }
+            if (segmentId != checkpointSegment) {
+                saveCheckpoint(segmentId, 0);
+            }
+
+            List<byte[]> payloads = new ArrayList<>();
+            long nextOffset = readPayloads(segmentId, checkpointOffset, maxRequestBytes, payloads);
+
+            if (payloads.isEmpty()) {
+                if (segmentId.equals(segments.lastKey())) {
+                    return true;
+                }
+                deleteSegment(segmentId);
+                continue;
+            }
+
+            if (!sender.send(concat(payloads))) {
+                return false;
+            }
+            saveCheckpoint(segmentId, nextOffset);
+
+            if (nextOffset >= segments.get(segmentId) && !segmentId.equals(segments.lastKey())) {
+                deleteSegment(segmentId);
+            }
+        }
+        resetIfDrained();
+        return true;
+    }
+
+    void close() {
+        closeWriter();
+    }
+
+    private long readPayloads(long segmentId, long offset, long maxRequestBytes, List<byte[]> payloads) throws IOException {
+        long position = offset;
+        long collected = 0;
+        try (InputStream in = Files.newInputStream(segmentPath(segmentId))) {
+            in.skipNBytes(offset);
+            DataInputStream data = new DataInputStream(in);
+            while (collected < maxRequestBytes) {
+                int length;
+                try {
+                    length = data.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                try {
+                    data.readFully(payload);
+                } catch (EOFException e) {
+                    // Nepotpun zapis (pad pri upisu) - ignorisemo ostatak segmenta
+                    break;
+                }
+                payloads.add(payload);
+                position += Integer.BYTES + length;
+                collected += length;
+            }
+        }
+        return position;
+    }
+
+    private void evictOldestIfNeeded() throws IOException {
+        while (totalBytes > maxSpoolBytes && segments.size() > 1) {
+            long oldest = segments.firstKey();
+            deleteSegment(oldest);
+            evictedSegments++;
+            if (checkpointSegment <= oldest) {
+                saveCheckpoint(segments.firstKey(), 0);
+            }
+        }
+    }
+
+    private void deleteSegment(long segmentId) throws IOException {
+        if (writerSegment == segmentId) {
+            closeWriter();
+        }
+        Long size = segments.remove(segmentId);
+        if (size != null) {
+            totalBytes -= size;
+        }
+        Files.deleteIfExists(segmentPath(segmentId));
+    }
+
+    private void resetIfDrained() throws IOException {
+        // Sve je poslato - brisemo i poslednji segment da spool ne raste bez potrebe
+        if (segments.size() == 1 && isEmpty()) {
+            long last = segments.lastKey();
+            deleteSegment(last);
+            saveCheckpoint(last + 1, 0);
+        }
+    }
+
+    private void openWriter(long segmentId) throws IOException {
+        closeWriter();
+        OutputStream out = Files.newOutputStream(segmentPath(segmentId),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        writer = new DataOutputStream(new BufferedOutputStream(out));
+        writerSegment = segmentId;
+    }
+
+    private void closeWriter() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException ignored) {
+            }
+            writer = null;
+            writerSegment = -1;
+        }
+    }
+
+    private void loadSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                String name = file.getFileName().toString();
+                if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    long id = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+                    long size = Files.size(file);
+                    segments.put(id, size);
+                    totalBytes += size;
+                }
+            }
+        }
+    }
+
+    private void loadCheckpoint() throws IOException {
+        Path file = directory.resolve(CHECKPOINT_FILE);
+        if (Files.exists(file)) {
+            String[] parts = Files.readString(file, StandardCharsets.UTF_8).trim().split(" ");
+            checkpointSegment = Long.parseLong(parts[0]);
+            checkpointOffset = Long.parseLong(parts[1]);
+        } else if (!segments.isEmpty()) {
+            checkpointSegment = segments.firstKey();
+            checkpointOffset = 0;
+        }
+    }
+
+    private void saveCheckpoint(long segmentId, long offset) throws IOException {
+        checkpointSegment = segmentId;
+        checkpointOffset = offset;
+        Path tmp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        Files.writeString(tmp, segmentId + " " + offset, StandardCharsets.UTF_8);
+        Files.move(tmp, directory.resolve(CHECKPOINT_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path segmentPath(long segmentId) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, segmentId, SEGMENT_SUFFIX));
+    }
+
+    private static byte[] concat(List<byte[]> payloads) {
+        if (payloads.size() == 1) {
+            return payloads.get(0);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] payload : payloads) {
+            out.writeBytes(payload);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.bsep_backend.config;
+
+import org.apache.tomcat.util.net.SSLContext;
+import org.apache.tomcat.util.net.SSLHostConfigCertificate;
+import org.apache.tomcat.util.net.SSLUtil;
+import org.apache.tomcat.util.net.jsse.JSSEImplementation;
+import org.apache.tomcat.util.net.jsse.JSSEUtil;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLServerSocketFactory;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509ExtendedKeyManager;
+import java.net.Socket;
+import java.security.KeyManagementException;
+import java.security.NoSuchAlgorithmException;
+import java.security.Principal;
+import java.security.PrivateKey;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tomcat JSSE implementation for the HTTPS connector that applies the TLS profile's session cache
+ * settings and counts handshakes.
+ * <p>
+ * Tomcat instantiates it by class name, so settings and counters are static. Session settings are
+ * applied to every SSL context the connector builds, including the ones rebuilt when the SSL bundle
+ * is reloaded. Every connection gets its own SSLEngine, so engines created are handshakes started.
+ * The server's private key is only read in a full handshake, a resumed one reuses the session
+ * secret, so key reads are full handshakes and the rest were resumed.
+ */
+public class ProfiledJsseImplementation extends JSSEImplementation {
+
+    private static final LongAdder HANDSHAKES = new LongAdder();
+    private static final LongAdder FULL_HANDSHAKES = new LongAdder();
+
+    private static volatile int sessionCacheSize = -1;
+    private static volatile int sessionTimeoutSeconds = -1;
+
+    static void configureSessions(int cacheSize, int timeoutSeconds) {
+        sessionCacheSize = cacheSize;
+        sessionTimeoutSeconds = timeoutSeconds;
+    }
+
+    public static long handshakes() {
+        return HANDSHAKES.sum();
+    }
+
+    public static long fullHandshakes() {
+        return FULL_HANDSHAKES.sum();
+    }
+
+    public static int sessionCacheSize() {
+        return sessionCacheSize;
+    }
+
+    public static int sessionTimeoutSeconds() {
+        return sessionTimeoutSeconds;
+    }
+
+    @Override
+    public SSLUtil getSSLUtil(SSLHostConfigCertificate certificate) {
+        return new ProfiledJsseUtil(certificate);
+    }
+
+    private static final class ProfiledJsseUtil extends JSSEUtil {
+
+        ProfiledJsseUtil(SSLHostConfigCertificate certificate) {
+            super(certificate);
+        }
+
+        @Override
+        public KeyManager[] getKeyManagers() throws Exception {
+            KeyManager[] keyManagers = super.getKeyManagers();
+            if (keyManagers != null) {
+                for (int i = 0; i < keyManagers.length; i++) {
+                    if (keyManagers[i] instanceof X509ExtendedKeyManager keyManager) {
+                        keyManagers[i] = new CountingKeyManager(keyManager);
+                    }
+                }
+            }
+            return keyManagers;
+        }
+
+        @Override
+        public SSLContext createSSLContextInternal(List<String> negotiableProtocols) throws NoSuchAlgorithmException {
+            return new CountingSSLContext(super.createSSLContextInternal(negotiableProtocols));
+        }
+
+        // JSSE treats 0 as unlimited for both values, negative leaves Tomcat's settings in place
+        @Override
+        public void configureSessionContext(SSLSessionContext sslSessionContext) {
+            super.configureSessionContext(sslSessionContext);
+            if (sessionCacheSize >= 0) {
+                sslSessionContext.setSessionCacheSize(sessionCacheSize);
+            }
+            if (sessionTimeoutSeconds >= 0) {
+                sslSessionContext.setSessionTimeout(sessionTimeoutSeconds);
+            }
+        }
+    }
+
+    private static final class CountingSSLContext implements SSLContext {
+        private final SSLContext delegate;
+
+        CountingSSLContext(SSLContext delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void init(KeyManager[] kms, TrustManager[] tms, SecureRandom sr) throws KeyManagementException {
+            delegate.init(kms, tms, sr);
+        }
+
+        @Override
+        public void destroy() {
+            delegate.destroy();
+        }
+
+        @Override
+        public SSLSessionContext getServerSessionContext() {
+            return delegate.getServerSessionContext();
+        }
+
+        @Override
+        public SSLEngine createSSLEngine() {
+            HANDSHAKES.increment();
+            return delegate.createSSLEngine();
+        }
+
+        @Override
+        public SSLServerSocketFactory getServerSocketFactory() {
+            return delegate.getServerSocketFactory();
+        }
+
+        @Override
+        public SSLParameters getSupportedSSLParameters() {
+            return delegate.getSupportedSSLParameters();
+        }
+
+        @Override
+        public X509Certificate[] getCertificateChain(String alias) {
+            return delegate.getCertificateChain(alias);
+        }
+
+        @Override
+        public X509Certificate[] getAcceptedIssuers() {
+            return delegate.getAcceptedIssuers();
+        }
+    }
+
+    private static final class CountingKeyManager extends X509ExtendedKeyManager {
+        private final X509ExtendedKeyManager delegate;
+
+        CountingKeyManager(X509ExtendedKeyManager delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public PrivateKey getPrivateKey(String alias) {
+            FULL_HANDSHAKES.increment();
+            return delegate.getPrivateKey(alias);
+        }
+
+        @Override
+        public X509Certificate[] getCertificateChain(String alias) {
+            return delegate.getCertificateChain(alias);
+        }
+
+        @Override
+        public String chooseEngineServerAlias(String keyType, Principal[] issuers, SSLEngine engine) {
+            return delegate.chooseEngineServerAlias(keyType, issuers, engine);
+        }
+
+        @Override
+        public String chooseServerAlias(String keyType, Principal[] issuers, Socket socket) {
+            return delegate.chooseServerAlias(keyType, issuers, socket);
+        }
+
+        @Override
+        public String[] getServerAliases(String keyType, Principal[] issuers) {
+            return delegate.getServerAliases(keyType, issuers);
+        }
+
+        @Override
+        public String chooseEngineClientAlias(String[] keyType, Principal[] issuers, SSLEngine engine) {
+            return delegate.chooseEngineClientAlias(keyType, issuers, engine);
+        }
+
+        @Override
+        public String chooseClientAlias(String[] keyType, Principal[] issuers, Socket socket) {
+            return delegate.chooseClientAlias(keyType, issuers, socket);
+        }
+
+        @Override
+        public String[] getClientAliases(String keyType, Principal[] issuers) {
+            return delegate.getClientAliases(keyType, issuers);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.example.bsep_backend.config;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.spi.AppenderAttachable;
+import ch.qos.logback.core.spi.AppenderAttachableImpl;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asinhroni appender nad unapred alociranim ring buffer-om (po uzoru na Disruptor),
+ * zamena za logback AsyncAppender koji koristi ArrayBlockingQueue i zakljucava na svakom logu.
+ * <p>
+ * Producenti zauzimaju sekvencu CAS-om nad kursorom, upisuju dogadjaj u slot koji se
+ * ponovo koristi i objavljuju ga upisom sekvence u niz dostupnosti. Jedna potrosacka nit
+ * cita slotove redom i prosledjuje ih zakacenim appender-ima. Kad je buffer pun dogadjaj se
+ * odbacuje (neverBlock=true) ili producent ceka da se oslobodi mesto.
+ */
+public class RingBufferAppender extends UnsynchronizedAppenderBase<ILoggingEvent>
+        implements AppenderAttachable<ILoggingEvent> {
+
+    public enum WaitStrategy {
+        BUSY_SPIN,
+        YIELDING,
+        SLEEPING
+    }
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+
+    private final AppenderAttachableImpl<ILoggingEvent> appenders = new AppenderAttachableImpl<>();
+
+    private int bufferSize = 8192;
+    private WaitStrategy waitStrategy = WaitStrategy.SLEEPING;
+    private long sleepNanos = 100_000;
+    private boolean neverBlock = true;
+
+    private Slot[] slots;
+    private AtomicLongArray published;
+    private int mask;
+
+    private final AtomicLong cursor = new AtomicLong(-1);
+    private final AtomicLong consumed = new AtomicLong(-1);
+    private final AtomicLong droppedEvents = new AtomicLong();
+
+    private Thread consumerThread;
+    private volatile boolean running;
+
+    @Override
+    public void start() {
+        if (isStarted()) {
+            return;
+        }
+        if (Integer.bitCount(bufferSize) != 1) {
+            addError("bufferSize must be a power of two, got " + bufferSize);
+            return;
+        }
+
+        slots = new Slot[bufferSize];
+        published = new AtomicLongArray(bufferSize);
+        for (int i = 0; i < bufferSize; i++) {
+            slots[i] = new Slot();
+            published.set(i, -1);
+        }
+        mask = bufferSize - 1;
+
+        running = true;
+        consumerThread = new Thread(this::consumeLoop, "log-ring-consumer-" + getName());
+        consumerThread.setDaemon(true);
+        consumerThread.start();
+        super.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) {
+            return;
+        }
+        super.stop();
+        running = false;
+        LockSupport.unpark(consumerThread);
+        try {
+            consumerThread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        appenders.detachAndStopAllAppenders();
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        event.prepareForDeferredProcessing();
+
+        long sequence;
+        int idle = 0;
+        while (true) {
+            long current = cursor.get();
+            long next = current + 1;
+            if (next - bufferSize > consumed.get()) {
+                // Buffer je pun
+                if (neverBlock) {
+                    droppedEvents.incrementAndGet();
+                    return;
+                }
+                idle = idle(idle);
+                continue;
+            }
+            if (cursor.compareAndSet(current, next)) {
+                sequence = next;
+                break;
+            }
+        }
+
+        int index = (int) sequence & mask;
+        slots[index].event = event;
+        published.lazySet(index, sequence);
+    }
+
+    private void consumeLoop() {
+        long nextSequence = 0;
+        int idle = 0;
+        while (true) {
+            int index = (int) nextSequence & mask;
+            if (published.get(index) == nextSequence) {
+                Slot slot = slots[index];
+                ILoggingEvent event = slot.event;
+                slot.event = null;
+                try {
+                    appenders.appendLoopOnAppenders(event);
+                } catch (RuntimeException e) {
+                    addError("Appender failed while processing ring buffer event", e);
+                }
+                consumed.lazySet(nextSequence);
+                nextSequence++;
+                idle = 0;
+            } else if (!running && cursor.get() < nextSequence) {
+                return;
+            } else {
+                idle = idle(idle);
+            }
+        }
+    }
+
+    private int idle(int counter) {
+        switch (waitStrategy) {
+            case BUSY_SPIN -> Thread.onSpinWait();
+            case YIELDING -> {
+                if (counter < SPIN_TRIES) {
+                    Thread.onSpinWait();
+                } else {
+                    Thread.yield();
+                }
+            }
+            case SLEEPING -> {
+                if (counter < SPIN_TRIES) {
+                    Thread.onSpinWait();
+                } else if (counter < SPIN_TRIES + YIELD_TRIES) {
+                    Thread.yield();
+                } else {
+                    LockSupport.parkNanos(sleepNanos);
+                    return counter;
+                }
+            }
+        }
+        return counter + 1;
+    }
+
+    public long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    public void setWaitStrategy(String waitStrategy) {
+        this.waitStrategy = WaitStrategy.valueOf(waitStrategy.trim().toUpperCase().replace('-', '_'));
+    }
+
+    public void setSleepNanos(long sleepNanos) {
+        this.sleepNanos = sleepNanos;
+    }
+
+    public void setNeverBlock(boolean neverBlock) {
+        this.neverBlock = neverBlock;
+    }
+
+    @Override
+    public void addAppender(Appender<ILoggingEvent> newAppender) {
+        appenders.addAppender(newAppender);
+    }
+
+    @Override
+    public Iterator<Appender<ILoggingEvent>> iteratorForAppenders() {
+        return appenders.iteratorForAppenders();
+    }
+
+    @Override
+    public Appender<ILoggingEvent> getAppender(String name) {
+        return appenders.getAppender(name);
+    }
+
+    @Override
+    public boolean isAttached(Appender<ILoggingEvent> appender) {
+        return appenders.isAttached(appender);
+    }
+
+    @Override
+    public void detachAndStopAllAppenders() {
+        appenders.detachAndStopAllAppenders();
+    }
+
+    @Override
+    public boolean detachAppender(Appender<ILoggingEvent> appender) {
+        return appenders.detachAppender(appender);
+    }
+
+    @Override
+    public boolean detachAppender(String name) {
+        return appenders.detachAppender(name);
+    }
+
+    // Slot se alocira jednom i ponovo koristi za svaki krug buffer-a
+    private static final class Slot {
+        private ILoggingEvent event;
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.bsep_backend.config;
+
+import org.apache.coyote.http11.AbstractHttp11JsseProtocol;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * TLS session settings of the HTTPS connector. Protocols, HTTP/2 and the identity come from the
+ * server.* properties and the "server" SSL bundle; see {@link ProfiledJsseImplementation}.
+ */
+@Configuration
+public class TlsProfileConfig {
+
+    private static final String SESSION_TICKETS_PROPERTY = "jdk.tls.server.enableSessionTicketExtension";
+
+    @Value("${tls.session-cache-size:20480}")
+    private int sessionCacheSize;
+
+    @Value("${tls.session-timeout-seconds:86400}")
+    private int sessionTimeoutSeconds;
+
+    @Value("${tls.session-tickets:true}")
+    private boolean sessionTickets;
+
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> tlsProfileCustomizer() {
+        return factory -> {
+            // JSSE reads this once, when the first SSL context is created; a -D flag still wins
+            if (System.getProperty(SESSION_TICKETS_PROPERTY) == null) {
+                System.setProperty(SESSION_TICKETS_PROPERTY, String.valueOf(sessionTickets));
+            }
+            ProfiledJsseImplementation.configureSessions(sessionCacheSize, sessionTimeoutSeconds);
+            factory.addConnectorCustomizers(connector -> {
+                if (connector.getProtocolHandler() instanceof AbstractHttp11JsseProtocol<?> protocol) {
+                    protocol.setSslImplementationName(ProfiledJsseImplementation.class.getName());
+                }
+            });
+        };
+    }
+
+    public static boolean sessionTicketsEnabled() {
+        return Boolean.parseBoolean(System.getProperty(SESSION_TICKETS_PROPERTY, "true"));
+    }
+}
@@ -2,6 +2,8 @@ package com.example.bsep_backend.mapper;
 
 import com.example.bsep_backend.domain.User;
 import com.example.bsep_backend.dto.UserDto;
+import com.example.bsep_backend.pki.domain.CertificateSigningRequest;
+import com.example.bsep_backend.pki.dto.CSRResponse;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -17,4 +19,25 @@ public class EntityMapper {
         userDto.setCreatedAt(user.getCreatedAt());
         return userDto;
     }
+
+    public CSRResponse mapCSRToResponse(CertificateSigningRequest csr) {
+        return CSRResponse.builder()
+                .id(csr.getId())
+                .commonName(csr.getCommonName())
+                .organization(csr.getOrganization())
+                .country(csr.getCountry())
+                .requestedType(null) // No longer stored in CSR - CA decides during review
+                .validityDays(csr.getRequestedValidityDays())
+                .status(csr.getStatus())
+                .createdAt(csr.getCreatedAt())
+                .reviewedAt(csr.getReviewedAt())
+                .rejectionReason(csr.getRejectionReason())
+                .failureReason(csr.getFailureReason())
+                .requesterEmail(csr.getRequester().getEmail())
+                .reviewerEmail(csr.getReviewer() != null ? csr.getReviewer().getEmail() : null)
+                .selectedCaCommonName(null) // No longer stored in CSR - CA decides during review
+                .issuedCertificateSerialNumber(csr.getIssuedCertificate() != null ?
+                        csr.getIssuedCertificate().getSerialNumber() : null)
+                .build();
+    }
 }
@@ -1,15 +1,22 @@
 package com.example.bsep_backend.passwordmanager.controller;
 
 import com.example.bsep_backend.domain.User;
+import com.example.bsep_backend.passwordmanager.domain.RekeyItemType;
 import com.example.bsep_backend.passwordmanager.dto.CreatePasswordEntryRequest;
 import com.example.bsep_backend.passwordmanager.dto.PasswordEntryResponse;
+import com.example.bsep_backend.passwordmanager.dto.RekeyBatchRequest;
+import com.example.bsep_backend.passwordmanager.dto.RekeySessionResponse;
+import com.example.bsep_backend.passwordmanager.dto.StartRekeyRequest;
 import com.example.bsep_backend.passwordmanager.service.PasswordManagerService;
+import com.example.bsep_backend.passwordmanager.service.VaultRekeyService;
 import com.example.bsep_backend.security.user.AuthUser;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -19,6 +26,7 @@ import java.util.List;
 public class PasswordManagerController {
 
     private final PasswordManagerService passwordManagerService;
+    private final VaultRekeyService vaultRekeyService;
 
     @PostMapping("/entries")
     public ResponseEntity<?> createPasswordEntry(
@@ -53,4 +61,80 @@ public class PasswordManagerController {
             return ResponseEntity.badRequest().body("Error deleting password entry: " + e.getMessage());
         }
     }
+
+    @PostMapping("/rekey")
+    public ResponseEntity<?> startRekey(
+            @AuthenticationPrincipal AuthUser authUser,
+            @RequestBody StartRekeyRequest request) {
+        try {
+            User user = authUser.getUser();
+            RekeySessionResponse response = vaultRekeyService.start(request, user);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error starting re-key: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/rekey/{sessionId}")
+    public ResponseEntity<RekeySessionResponse> getRekeySession(
+            @AuthenticationPrincipal AuthUser authUser,
+            @PathVariable Long sessionId) {
+        User user = authUser.getUser();
+        return ResponseEntity.ok(vaultRekeyService.getSession(sessionId, user));
+    }
+
+    // Stranica stavki koje još nisu ponovo enkriptovane, kao NDJSON
+    @GetMapping("/rekey/{sessionId}/items")
+    public ResponseEntity<StreamingResponseBody> getRekeyItems(
+            @AuthenticationPrincipal AuthUser authUser,
+            @PathVariable Long sessionId,
+            @RequestParam(required = false) RekeyItemType afterType,
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(required = false) Integer limit) {
+        User user = authUser.getUser();
+        StreamingResponseBody body = vaultRekeyService.streamPendingItems(sessionId, afterType, afterId, limit, user);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
+    @PostMapping("/rekey/{sessionId}/batches")
+    public ResponseEntity<?> stageRekeyBatch(
+            @AuthenticationPrincipal AuthUser authUser,
+            @PathVariable Long sessionId,
+            @RequestBody RekeyBatchRequest request) {
+        try {
+            User user = authUser.getUser();
+            RekeySessionResponse response = vaultRekeyService.stage(sessionId, request, user);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error saving re-keyed items: " + e.getMessage());
+        }
+    }
+
+    @PostMapping("/rekey/{sessionId}/commit")
+    public ResponseEntity<?> commitRekey(
+            @AuthenticationPrincipal AuthUser authUser,
+            @PathVariable Long sessionId) {
+        try {
+            User user = authUser.getUser();
+            RekeySessionResponse response = vaultRekeyService.commit(sessionId, user);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error committing re-key: " + e.getMessage());
+        }
+    }
+
+    @DeleteMapping("/rekey/{sessionId}")
+    public ResponseEntity<?> abortRekey(
+            @AuthenticationPrincipal AuthUser authUser,
+            @PathVariable Long sessionId) {
+        try {
+            User user = authUser.getUser();
+            RekeySessionResponse response = vaultRekeyService.abort(sessionId, user);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error aborting re-key: " + e.getMessage());
+        }
+    }
 }
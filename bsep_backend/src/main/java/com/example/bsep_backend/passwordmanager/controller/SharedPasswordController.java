@@ -1,8 +1,11 @@
 package com.example.bsep_backend.passwordmanager.controller;
 
 import com.example.bsep_backend.domain.User;
+import com.example.bsep_backend.passwordmanager.dto.BulkSharePasswordRequest;
+import com.example.bsep_backend.passwordmanager.dto.BulkSharePasswordResponse;
 import com.example.bsep_backend.passwordmanager.dto.SharePasswordRequest;
 import com.example.bsep_backend.passwordmanager.dto.SharedPasswordEntryResponse;
+import com.example.bsep_backend.passwordmanager.service.BulkPasswordShareService;
 import com.example.bsep_backend.passwordmanager.service.SharedPasswordService;
 import com.example.bsep_backend.security.user.AuthUser;
 import jakarta.validation.Valid;
@@ -19,6 +22,7 @@ import java.util.List;
 public class SharedPasswordController {
 
     private final SharedPasswordService sharedPasswordService;
+    private final BulkPasswordShareService bulkPasswordShareService;
 
     @PostMapping
     public ResponseEntity<?> sharePassword(
@@ -33,6 +37,19 @@ public class SharedPasswordController {
         }
     }
 
+    @PostMapping("/bulk")
+    public ResponseEntity<?> bulkSharePasswords(
+            @AuthenticationPrincipal AuthUser authUser,
+            @RequestBody BulkSharePasswordRequest request) {
+        try {
+            User user = authUser.getUser();
+            BulkSharePasswordResponse response = bulkPasswordShareService.share(request, user);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error sharing passwords: " + e.getMessage());
+        }
+    }
+
     @GetMapping
     public ResponseEntity<List<SharedPasswordEntryResponse>> getSharedPasswords(
             @AuthenticationPrincipal AuthUser authUser) {
@@ -30,6 +30,10 @@ public class PasswordEntry {
     @Column(columnDefinition = "TEXT", nullable = false)
     private String encryptedPassword;
 
+    // AES ključ podataka wrap-ovan RSA-OAEP-om; null za stare stavke enkriptovane direktno RSA-om
+    @Column(name = "wrapped_key", columnDefinition = "TEXT")
+    private String wrappedKey;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "owner_id", nullable = false)
     private User owner;
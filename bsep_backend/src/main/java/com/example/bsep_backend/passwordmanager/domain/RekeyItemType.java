@@ -0,0 +1,9 @@
+package com.example.bsep_backend.passwordmanager.domain;
+
+/**
+ * Vrsta stavke u re-key sesiji; redosled konstanti je redosled kojim se stavke strimuju.
+ */
+public enum RekeyItemType {
+    ENTRY,
+    SHARED
+}
@@ -0,0 +1,73 @@
+package com.example.bsep_backend.passwordmanager.domain;
+
+import com.example.bsep_backend.domain.User;
+import com.example.bsep_backend.pki.domain.Certificate;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Prelazak trezora jednog korisnika sa starog na novi sertifikat.
+ * <p>
+ * Klijent preuzima šifrate vezane za stari sertifikat, ponovo ih enkriptuje za novi i vraća ih u
+ * batch-evima koji se čuvaju u rekey_staged_items; stavke ostaju vezane za stari sertifikat sve dok
+ * commit u jednoj transakciji ne prepiše šifrate i ne prebaci ih na novi. Checkpoint je poslednja
+ * sačuvana stavka (vrsta, id).
+ */
+@Data
+@Entity
+@Table(name = "rekey_sessions")
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class RekeySession {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "owner_id", nullable = false)
+    private User owner;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "old_certificate_id", nullable = false)
+    private Certificate oldCertificate;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "new_certificate_id", nullable = false)
+    private Certificate newCertificate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private RekeySessionStatus status;
+
+    // Broj stavki vezanih za stari sertifikat u trenutku otvaranja sesije
+    @Column(name = "total_items")
+    private long totalItems;
+
+    @Column(name = "staged_items")
+    private long stagedItems;
+
+    @Column(name = "rekeyed_items")
+    private long rekeyedItems;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "checkpoint_type")
+    private RekeyItemType checkpointType;
+
+    @Column(name = "checkpoint_id")
+    private Long checkpointId;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+}
@@ -0,0 +1,7 @@
+package com.example.bsep_backend.passwordmanager.domain;
+
+public enum RekeySessionStatus {
+    ACTIVE,
+    COMMITTED,
+    ABORTED
+}
@@ -0,0 +1,39 @@
+package com.example.bsep_backend.passwordmanager.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Ponovo enkriptovana stavka koja čeka commit re-key sesije. Upisuje se i čita samo preko
+ * RekeyBatchRepository; jedinstveni ključ omogućava da se isti batch bezbedno pošalje ponovo.
+ */
+@Data
+@Entity
+@Table(name = "rekey_staged_items",
+        uniqueConstraints = @UniqueConstraint(name = "uk_rekey_staged_item",
+                columnNames = {"session_id", "item_type", "item_id"}))
+@AllArgsConstructor
+@NoArgsConstructor
+public class RekeyStagedItem {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "session_id", nullable = false)
+    private Long sessionId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "item_type", nullable = false)
+    private RekeyItemType itemType;
+
+    @Column(name = "item_id", nullable = false)
+    private Long itemId;
+
+    @Column(name = "encrypted_password", columnDefinition = "TEXT", nullable = false)
+    private String encryptedPassword;
+
+    @Column(name = "wrapped_key", columnDefinition = "TEXT")
+    private String wrappedKey;
+}
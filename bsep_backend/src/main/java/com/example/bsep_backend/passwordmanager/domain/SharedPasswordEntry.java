@@ -34,6 +34,10 @@ public class SharedPasswordEntry {
     @Column(columnDefinition = "TEXT", nullable = false)
     private String encryptedPassword;
 
+    // AES ključ podataka wrap-ovan RSA-OAEP-om; null za stare stavke enkriptovane direktno RSA-om
+    @Column(name = "wrapped_key", columnDefinition = "TEXT")
+    private String wrappedKey;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "shared_by_user_id", nullable = false)
     private User sharedByUser;
@@ -0,0 +1,37 @@
+package com.example.bsep_backend.passwordmanager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Svaka stavka se deli sa svakim primaocem (entries × recipients).
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkSharePasswordRequest {
+    private List<Entry> entries;
+    private List<Recipient> recipients;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Entry {
+        private Long passwordEntryId;
+        private String dataKey; // Ključ podataka (Base64) za envelope stavke
+        private String decryptedPassword; // Za stare stavke bez wrap-ovanog ključa
+    }
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Recipient {
+        private Long userId;
+        private String certificateSerialNumber;
+    }
+}
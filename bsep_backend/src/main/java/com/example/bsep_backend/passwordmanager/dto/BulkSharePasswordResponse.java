@@ -0,0 +1,17 @@
+package com.example.bsep_backend.passwordmanager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkSharePasswordResponse {
+    private int entries;
+    private int recipients;
+    private int shared;
+    private long durationMs;
+}
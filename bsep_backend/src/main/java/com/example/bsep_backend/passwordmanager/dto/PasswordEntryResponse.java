@@ -16,6 +16,7 @@ public class PasswordEntryResponse {
     private String website;
     private String username;
     private String encryptedPassword;
+    private String wrappedKey;
     private String certificateSerialNumber;
     private String certificateCommonName;
     private LocalDateTime createdAt;
@@ -0,0 +1,31 @@
+package com.example.bsep_backend.passwordmanager.dto;
+
+import com.example.bsep_backend.passwordmanager.domain.RekeyItemType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Stavke ponovo enkriptovane za novi sertifikat. Envelope stavkama je dovoljan novi wrap-ovan ključ
+ * (šifrat ostaje isti); stare stavke šalju novi šifrat.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class RekeyBatchRequest {
+    private List<Item> items;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Item {
+        private RekeyItemType type;
+        private Long id;
+        private String encryptedPassword; // Null zadržava postojeći šifrat
+        private String wrappedKey; // Ključ podataka wrap-ovan javnim ključem novog sertifikata
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.bsep_backend.passwordmanager.dto;
+
+import com.example.bsep_backend.passwordmanager.domain.RekeyItemType;
+import com.example.bsep_backend.passwordmanager.domain.RekeySessionStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class RekeySessionResponse {
+    private Long id;
+    private RekeySessionStatus status;
+    private String oldCertificateSerialNumber;
+    private String newCertificateSerialNumber;
+    private long totalItems;
+    private long stagedItems;
+    private long rekeyedItems;
+    private RekeyItemType checkpointType;
+    private Long checkpointId;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime completedAt;
+}
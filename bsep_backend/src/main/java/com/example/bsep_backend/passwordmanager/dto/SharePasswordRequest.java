@@ -14,4 +14,5 @@ public class SharePasswordRequest {
     private Long sharedWithUserId;
     private String sharedWithCertificateSerialNumber;
     private String decryptedPassword; // Dekriptovana lozinka sa fronta
+    private String dataKey; // Ključ podataka (Base64) koji je front unwrap-ovao; dovoljan umesto lozinke za envelope stavke
 }
@@ -16,6 +16,7 @@ public class SharedPasswordEntryResponse {
     private String website;
     private String username;
     private String encryptedPassword;
+    private String wrappedKey;
     private String sharedByUserEmail;
     private String sharedByUserName;
     private String sharedWithCertificateSerialNumber;
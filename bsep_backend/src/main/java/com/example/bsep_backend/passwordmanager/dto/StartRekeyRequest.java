@@ -0,0 +1,15 @@
+package com.example.bsep_backend.passwordmanager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class StartRekeyRequest {
+    private String oldCertificateSerialNumber;
+    private String newCertificateSerialNumber;
+}
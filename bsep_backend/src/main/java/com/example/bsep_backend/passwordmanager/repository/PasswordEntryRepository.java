@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -16,4 +17,9 @@ public interface PasswordEntryRepository extends JpaRepository<PasswordEntry, Lo
            "LEFT JOIN FETCH pe.certificate " +
            "WHERE pe.owner.id = :ownerId")
     List<PasswordEntry> findByOwnerIdWithCertificate(@Param("ownerId") Long ownerId);
+
+    @Query("SELECT pe FROM PasswordEntry pe " +
+           "LEFT JOIN FETCH pe.owner " +
+           "WHERE pe.id IN :ids")
+    List<PasswordEntry> findByIdInWithOwner(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,177 @@
+package com.example.bsep_backend.passwordmanager.repository;
+
+import com.example.bsep_backend.passwordmanager.domain.RekeyItemType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * JDBC upiti re-key sesije: stranice stavki koje još nisu ponovo enkriptovane, upis batch-eva u
+ * rekey_staged_items i prebacivanje na novi sertifikat jednim UPDATE ... FROM po tabeli.
+ * <p>
+ * Stavke se strimuju redom (ENTRY pa SHARED, pa po id-ju), a svaka grana ima svoj LIMIT kako bi
+ * stranica išla preko indeksa bez sortiranja celog trezora.
+ */
+@Repository
+@RequiredArgsConstructor
+public class RekeyBatchRepository {
+
+    private static final String PENDING_ITEMS_SQL = "SELECT item_type, id, encrypted_password, wrapped_key FROM (" +
+            "(SELECT 'ENTRY' AS item_type, 0 AS item_order, pe.id, pe.encrypted_password, pe.wrapped_key " +
+            "FROM password_entries pe WHERE pe.owner_id = ? AND pe.certificate_id = ? AND pe.id > ? " +
+            "AND NOT EXISTS (SELECT 1 FROM rekey_staged_items s " +
+            "WHERE s.session_id = ? AND s.item_type = 'ENTRY' AND s.item_id = pe.id) " +
+            "ORDER BY pe.id LIMIT ?) " +
+            "UNION ALL " +
+            "(SELECT 'SHARED', 1, sp.id, sp.encrypted_password, sp.wrapped_key " +
+            "FROM shared_password_entries sp WHERE sp.shared_with_user_id = ? AND sp.shared_with_certificate_id = ? AND sp.id > ? " +
+            "AND NOT EXISTS (SELECT 1 FROM rekey_staged_items s " +
+            "WHERE s.session_id = ? AND s.item_type = 'SHARED' AND s.item_id = sp.id) " +
+            "ORDER BY sp.id LIMIT ?)" +
+            ") items ORDER BY item_order, id LIMIT ?";
+
+    private static final String COUNT_ITEMS_SQL = "SELECT " +
+            "(SELECT COUNT(*) FROM password_entries WHERE owner_id = ? AND certificate_id = ?) + " +
+            "(SELECT COUNT(*) FROM shared_password_entries WHERE shared_with_user_id = ? AND shared_with_certificate_id = ?)";
+
+    private static final String COUNT_PENDING_SQL = "SELECT " +
+            "(SELECT COUNT(*) FROM password_entries pe WHERE pe.owner_id = ? AND pe.certificate_id = ? " +
+            "AND NOT EXISTS (SELECT 1 FROM rekey_staged_items s " +
+            "WHERE s.session_id = ? AND s.item_type = 'ENTRY' AND s.item_id = pe.id)) + " +
+            "(SELECT COUNT(*) FROM shared_password_entries sp WHERE sp.shared_with_user_id = ? AND sp.shared_with_certificate_id = ? " +
+            "AND NOT EXISTS (SELECT 1 FROM rekey_staged_items s " +
+            "WHERE s.session_id = ? AND s.item_type = 'SHARED' AND s.item_id = sp.id))";
+
+    // Red se upisuje samo ako stavka i dalje pripada korisniku i starom sertifikatu; bez novog šifrata
+    // zadržava se postojeći, što je dozvoljeno samo envelope stavkama (menja se samo wrap-ovan ključ)
+    private static final String STAGE_ENTRY_SQL = "INSERT INTO rekey_staged_items " +
+            "(session_id, item_type, item_id, encrypted_password, wrapped_key) " +
+            "SELECT ?, 'ENTRY', pe.id, COALESCE(?, pe.encrypted_password), ? FROM password_entries pe " +
+            "WHERE pe.id = ? AND pe.owner_id = ? AND pe.certificate_id = ? " +
+            "AND (? IS NOT NULL OR pe.wrapped_key IS NOT NULL) " +
+            "ON CONFLICT (session_id, item_type, item_id) DO UPDATE " +
+            "SET encrypted_password = EXCLUDED.encrypted_password, wrapped_key = EXCLUDED.wrapped_key";
+
+    private static final String STAGE_SHARED_SQL = "INSERT INTO rekey_staged_items " +
+            "(session_id, item_type, item_id, encrypted_password, wrapped_key) " +
+            "SELECT ?, 'SHARED', sp.id, COALESCE(?, sp.encrypted_password), ? FROM shared_password_entries sp " +
+            "WHERE sp.id = ? AND sp.shared_with_user_id = ? AND sp.shared_with_certificate_id = ? " +
+            "AND (? IS NOT NULL OR sp.wrapped_key IS NOT NULL) " +
+            "ON CONFLICT (session_id, item_type, item_id) DO UPDATE " +
+            "SET encrypted_password = EXCLUDED.encrypted_password, wrapped_key = EXCLUDED.wrapped_key";
+
+    private static final String COUNT_STAGED_SQL = "SELECT COUNT(*) FROM rekey_staged_items WHERE session_id = ?";
+
+    private static final String SWITCH_ENTRIES_SQL = "UPDATE password_entries pe " +
+            "SET encrypted_password = s.encrypted_password, wrapped_key = s.wrapped_key, certificate_id = ? " +
+            "FROM rekey_staged_items s " +
+            "WHERE s.session_id = ? AND s.item_type = 'ENTRY' AND s.item_id = pe.id " +
+            "AND pe.owner_id = ? AND pe.certificate_id = ?";
+
+    private static final String SWITCH_SHARED_SQL = "UPDATE shared_password_entries sp " +
+            "SET encrypted_password = s.encrypted_password, wrapped_key = s.wrapped_key, shared_with_certificate_id = ? " +
+            "FROM rekey_staged_items s " +
+            "WHERE s.session_id = ? AND s.item_type = 'SHARED' AND s.item_id = sp.id " +
+            "AND sp.shared_with_user_id = ? AND sp.shared_with_certificate_id = ?";
+
+    private static final String DELETE_STAGED_SQL = "DELETE FROM rekey_staged_items WHERE session_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public record Item(RekeyItemType type, Long id, String encryptedPassword, String wrappedKey) {
+    }
+
+    /**
+     * Prosleđuje do limit stavaka vezanih za stari sertifikat koje još nisu sačuvane u sesiji,
+     * posle kursora (afterType, afterId); bez kursora kreće od početka.
+     */
+    public void forEachPending(Long sessionId, Long ownerId, Long oldCertificateId,
+                               RekeyItemType afterType, long afterId, int limit, Consumer<Item> consumer) {
+        long entryAfterId = afterId(RekeyItemType.ENTRY, afterType, afterId);
+        long sharedAfterId = afterId(RekeyItemType.SHARED, afterType, afterId);
+        jdbcTemplate.query(PENDING_ITEMS_SQL, (RowCallbackHandler) resultSet -> consumer.accept(new Item(
+                        RekeyItemType.valueOf(resultSet.getString("item_type")), resultSet.getLong("id"),
+                        resultSet.getString("encrypted_password"), resultSet.getString("wrapped_key"))),
+                ownerId, oldCertificateId, entryAfterId, sessionId, limit,
+                ownerId, oldCertificateId, sharedAfterId, sessionId, limit,
+                limit);
+    }
+
+    // Grane pre kursora se preskaču celom dužinom, grana kursora kreće posle njegovog id-ja
+    private static long afterId(RekeyItemType branch, RekeyItemType afterType, long afterId) {
+        if (afterType == null || afterType.ordinal() < branch.ordinal()) {
+            return 0;
+        }
+        return afterType == branch ? afterId : Long.MAX_VALUE;
+    }
+
+    public long countItems(Long ownerId, Long certificateId) {
+        Long count = jdbcTemplate.queryForObject(COUNT_ITEMS_SQL, Long.class,
+                ownerId, certificateId, ownerId, certificateId);
+        return count != null ? count : 0;
+    }
+
+    public long countPending(Long sessionId, Long ownerId, Long oldCertificateId) {
+        Long count = jdbcTemplate.queryForObject(COUNT_PENDING_SQL, Long.class,
+                ownerId, oldCertificateId, sessionId, ownerId, oldCertificateId, sessionId);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Upisuje (ili zamenjuje) stavke jednog chunk-a i vraća stavke koje nisu upisane, jer ne pripadaju
+     * korisniku i starom sertifikatu ili im nedostaje novi šifrat.
+     */
+    public List<Item> stageAll(Long sessionId, Long ownerId, Long oldCertificateId, List<Item> items) {
+        List<Item> entries = items.stream().filter(item -> item.type() == RekeyItemType.ENTRY).toList();
+        List<Item> shared = items.stream().filter(item -> item.type() == RekeyItemType.SHARED).toList();
+        List<Item> rejected = new ArrayList<>();
+        stage(STAGE_ENTRY_SQL, sessionId, ownerId, oldCertificateId, entries, rejected);
+        stage(STAGE_SHARED_SQL, sessionId, ownerId, oldCertificateId, shared, rejected);
+        return rejected;
+    }
+
+    private void stage(String sql, Long sessionId, Long ownerId, Long oldCertificateId,
+                       List<Item> items, List<Item> rejected) {
+        if (items.isEmpty()) {
+            return;
+        }
+        int[][] counts = jdbcTemplate.batchUpdate(sql, items, items.size(), (statement, item) -> {
+            statement.setLong(1, sessionId);
+            statement.setString(2, item.encryptedPassword());
+            statement.setString(3, item.wrappedKey());
+            statement.setLong(4, item.id());
+            statement.setLong(5, ownerId);
+            statement.setLong(6, oldCertificateId);
+            statement.setString(7, item.encryptedPassword());
+        });
+        for (int i = 0; i < items.size(); i++) {
+            if (counts[0][i] == 0) {
+                rejected.add(items.get(i));
+            }
+        }
+    }
+
+    public long countStaged(Long sessionId) {
+        Long count = jdbcTemplate.queryForObject(COUNT_STAGED_SQL, Long.class, sessionId);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Prepisuje šifrate sačuvanim vrednostima i prebacuje stavke na novi sertifikat; vraća broj
+     * prebačenih stavki. Mora se pozvati u transakciji zajedno sa proverom da ništa ne nedostaje.
+     */
+    public int switchCertificate(Long sessionId, Long ownerId, Long oldCertificateId, Long newCertificateId) {
+        int entries = jdbcTemplate.update(SWITCH_ENTRIES_SQL, newCertificateId, sessionId, ownerId, oldCertificateId);
+        int shared = jdbcTemplate.update(SWITCH_SHARED_SQL, newCertificateId, sessionId, ownerId, oldCertificateId);
+        return entries + shared;
+    }
+
+    public void deleteStaged(Long sessionId) {
+        jdbcTemplate.update(DELETE_STAGED_SQL, sessionId);
+    }
+}
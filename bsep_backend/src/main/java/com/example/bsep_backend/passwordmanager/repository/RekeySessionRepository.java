@@ -0,0 +1,30 @@
+package com.example.bsep_backend.passwordmanager.repository;
+
+import com.example.bsep_backend.passwordmanager.domain.RekeySession;
+import com.example.bsep_backend.passwordmanager.domain.RekeySessionStatus;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface RekeySessionRepository extends JpaRepository<RekeySession, Long> {
+
+    @Query("SELECT s FROM RekeySession s " +
+           "JOIN FETCH s.oldCertificate " +
+           "JOIN FETCH s.newCertificate " +
+           "WHERE s.id = :id AND s.owner.id = :ownerId")
+    Optional<RekeySession> findByIdAndOwnerIdWithCertificates(@Param("id") Long id, @Param("ownerId") Long ownerId);
+
+    // Zaključava sesiju do kraja transakcije, da se batch-evi i commit iste sesije ne bi preplitali
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM RekeySession s WHERE s.id = :id AND s.owner.id = :ownerId")
+    Optional<RekeySession> findByIdAndOwnerIdForUpdate(@Param("id") Long id, @Param("ownerId") Long ownerId);
+
+    Optional<RekeySession> findFirstByOwnerIdAndOldCertificateIdAndStatus(Long ownerId, Long oldCertificateId,
+                                                                           RekeySessionStatus status);
+}
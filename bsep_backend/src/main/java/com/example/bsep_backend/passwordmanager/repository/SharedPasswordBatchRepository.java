@@ -0,0 +1,46 @@
+package com.example.bsep_backend.passwordmanager.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * JDBC batch insert za deljene lozinke. Entitet koristi IDENTITY id-jeve, pa bi ih Hibernate
+ * upisivao jedan po jedan; grupno deljenje šalje sve redove u batch-evima.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SharedPasswordBatchRepository {
+
+    private static final String INSERT_SQL = "INSERT INTO shared_password_entries " +
+            "(original_entry_id, website, username, encrypted_password, wrapped_key, " +
+            "shared_by_user_id, shared_with_user_id, shared_with_certificate_id, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final int BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public record Row(Long originalEntryId, String website, String username, String encryptedPassword,
+                      String wrappedKey, Long sharedByUserId, Long sharedWithUserId, Long certificateId,
+                      LocalDateTime createdAt) {
+    }
+
+    public void insertAll(List<Row> rows) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows, BATCH_SIZE, (statement, row) -> {
+            statement.setLong(1, row.originalEntryId());
+            statement.setString(2, row.website());
+            statement.setString(3, row.username());
+            statement.setString(4, row.encryptedPassword());
+            statement.setString(5, row.wrappedKey());
+            statement.setLong(6, row.sharedByUserId());
+            statement.setLong(7, row.sharedWithUserId());
+            statement.setLong(8, row.certificateId());
+            statement.setTimestamp(9, Timestamp.valueOf(row.createdAt()));
+        });
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.bsep_backend.passwordmanager.service;
+
+import com.example.bsep_backend.domain.User;
+import com.example.bsep_backend.exception.NotFoundException;
+import com.example.bsep_backend.passwordmanager.domain.PasswordEntry;
+import com.example.bsep_backend.passwordmanager.dto.BulkSharePasswordRequest;
+import com.example.bsep_backend.passwordmanager.dto.BulkSharePasswordResponse;
+import com.example.bsep_backend.passwordmanager.repository.PasswordEntryRepository;
+import com.example.bsep_backend.passwordmanager.repository.SharedPasswordBatchRepository;
+import com.example.bsep_backend.pki.domain.Certificate;
+import com.example.bsep_backend.pki.repository.CertificateRepository;
+import com.example.bsep_backend.pki.service.RevocationIndex;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.security.PublicKey;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Grupno deljenje: svaka stavka sa svakim primaocem u jednom zahtevu.
+ * <p>
+ * Stavke i sertifikati primalaca se učitavaju sa po jednim upitom, svaki sertifikat se parsira
+ * jednom, a svaka stavka se proveri (ili zapečati) jednom bez obzira na broj primalaca. Ključevi
+ * podataka se wrap-uju paralelno po primaocu, a redovi upisuju JDBC batch-evima u jednoj transakciji,
+ * tako da se deli sve ili ništa.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BulkPasswordShareService {
+
+    private final PasswordEntryRepository passwordEntryRepository;
+    private final CertificateRepository certificateRepository;
+    private final SharedPasswordBatchRepository sharedPasswordBatchRepository;
+    private final RevocationIndex revocationIndex;
+    private final RSAPasswordEncryptionService rsaPasswordEncryptionService;
+    private final EnvelopeEncryptionService envelopeEncryptionService;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${password-manager.bulk-share.max-shares:10000}")
+    private int maxShares;
+
+    @Value("${password-manager.bulk-share.threads:0}")
+    private int threads;
+
+    private TransactionTemplate transactionTemplate;
+    private ExecutorService workers;
+
+    // Šifrat stavke i njen ključ podataka, zajednički za sve primaoce
+    private record SealedEntry(PasswordEntry entry, String ciphertext, byte[] dataKey) {
+    }
+
+    private record Recipient(Long userId, Certificate certificate, PublicKey publicKey) {
+    }
+
+    @PostConstruct
+    void start() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCounter = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "password-share-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void stop() {
+        workers.shutdownNow();
+    }
+
+    public BulkSharePasswordResponse share(BulkSharePasswordRequest request, User sharingUser) throws Exception {
+        long started = System.currentTimeMillis();
+        List<BulkSharePasswordRequest.Entry> entryItems = distinctEntries(request.getEntries());
+        List<BulkSharePasswordRequest.Recipient> recipientItems = distinctRecipients(request.getRecipients());
+        if (entryItems.isEmpty() || recipientItems.isEmpty()) {
+            throw new IllegalArgumentException("At least one entry and one recipient are required");
+        }
+        if ((long) entryItems.size() * recipientItems.size() > maxShares) {
+            throw new IllegalArgumentException("At most " + maxShares + " shares are allowed per request");
+        }
+
+        List<SealedEntry> entries = sealEntries(entryItems, sharingUser);
+        List<Recipient> recipients = loadRecipients(recipientItems);
+
+        List<Future<List<SharedPasswordBatchRepository.Row>>> futures = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (Recipient recipient : recipients) {
+            futures.add(workers.submit(() -> wrapFor(recipient, entries, sharingUser, now)));
+        }
+        List<SharedPasswordBatchRepository.Row> rows = new ArrayList<>(entries.size() * recipients.size());
+        try {
+            for (Future<List<SharedPasswordBatchRepository.Row>> future : futures) {
+                rows.addAll(future.get());
+            }
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> sharedPasswordBatchRepository.insertAll(rows));
+
+        long durationMs = System.currentTimeMillis() - started;
+        log.info("User {} shared {} entries with {} recipients ({} rows) in {} ms",
+                sharingUser.getEmail(), entries.size(), recipients.size(), rows.size(), durationMs);
+        return BulkSharePasswordResponse.builder()
+                .entries(entries.size())
+                .recipients(recipients.size())
+                .shared(rows.size())
+                .durationMs(durationMs)
+                .build();
+    }
+
+    // Ista stavka navedena više puta bi upisala više redova za isti par (stavka, primalac)
+    private static List<BulkSharePasswordRequest.Entry> distinctEntries(List<BulkSharePasswordRequest.Entry> items) {
+        if (items == null) {
+            return List.of();
+        }
+        Map<Long, BulkSharePasswordRequest.Entry> byId = new LinkedHashMap<>();
+        for (BulkSharePasswordRequest.Entry item : items) {
+            byId.putIfAbsent(item.getPasswordEntryId(), item);
+        }
+        return new ArrayList<>(byId.values());
+    }
+
+    private static List<BulkSharePasswordRequest.Recipient> distinctRecipients(List<BulkSharePasswordRequest.Recipient> items) {
+        if (items == null) {
+            return List.of();
+        }
+        Map<Long, BulkSharePasswordRequest.Recipient> byUserId = new LinkedHashMap<>();
+        for (BulkSharePasswordRequest.Recipient item : items) {
+            BulkSharePasswordRequest.Recipient previous = byUserId.putIfAbsent(item.getUserId(), item);
+            if (previous != null && !Objects.equals(previous.getCertificateSerialNumber(), item.getCertificateSerialNumber())) {
+                throw new IllegalArgumentException("Recipient " + item.getUserId() + " is listed with more than one certificate");
+            }
+        }
+        return new ArrayList<>(byUserId.values());
+    }
+
+    private List<SealedEntry> sealEntries(List<BulkSharePasswordRequest.Entry> items, User sharingUser) throws Exception {
+        Map<Long, PasswordEntry> entriesById = passwordEntryRepository.findByIdInWithOwner(
+                        items.stream().map(BulkSharePasswordRequest.Entry::getPasswordEntryId).distinct().toList())
+                .stream()
+                .collect(Collectors.toMap(PasswordEntry::getId, Function.identity()));
+
+        List<SealedEntry> sealed = new ArrayList<>(items.size());
+        for (BulkSharePasswordRequest.Entry item : items) {
+            PasswordEntry entry = entriesById.get(item.getPasswordEntryId());
+            if (entry == null) {
+                throw new NotFoundException("Password entry " + item.getPasswordEntryId() + " not found");
+            }
+            if (!entry.getOwner().getId().equals(sharingUser.getId())) {
+                throw new IllegalArgumentException("You can only share your own password entries");
+            }
+            if (item.getDataKey() != null && entry.getWrappedKey() != null) {
+                byte[] dataKey = EnvelopeEncryptionService.decodeDataKey(item.getDataKey());
+                if (!envelopeEncryptionService.opens(dataKey, entry.getEncryptedPassword())) {
+                    throw new IllegalArgumentException("Data key does not match password entry " + entry.getId());
+                }
+                sealed.add(new SealedEntry(entry, entry.getEncryptedPassword(), dataKey));
+            } else if (item.getDecryptedPassword() != null) {
+                byte[] dataKey = envelopeEncryptionService.generateDataKey();
+                sealed.add(new SealedEntry(entry, envelopeEncryptionService.encrypt(dataKey, item.getDecryptedPassword()), dataKey));
+            } else {
+                throw new IllegalArgumentException("Either the data key or the decrypted password is required for entry " + entry.getId());
+            }
+        }
+        return sealed;
+    }
+
+    private List<Recipient> loadRecipients(List<BulkSharePasswordRequest.Recipient> items) throws Exception {
+        Map<String, Certificate> certificates = certificateRepository.findBySerialNumberInWithOwnerAndIssuer(
+                        items.stream().map(BulkSharePasswordRequest.Recipient::getCertificateSerialNumber).distinct().toList())
+                .stream()
+                .collect(Collectors.toMap(Certificate::getSerialNumber, Function.identity()));
+
+        Map<String, PublicKey> publicKeys = new HashMap<>();
+        List<Recipient> recipients = new ArrayList<>(items.size());
+        for (BulkSharePasswordRequest.Recipient item : items) {
+            Certificate certificate = certificates.get(item.getCertificateSerialNumber());
+            if (certificate == null) {
+                throw new NotFoundException("Certificate " + item.getCertificateSerialNumber() + " not found");
+            }
+            if (!certificate.getOwner().getId().equals(item.getUserId())) {
+                throw new IllegalArgumentException("Certificate " + certificate.getSerialNumber() + " does not belong to the target user");
+            }
+            // Povučeni sertifikat se ne sme koristiti za enkripciju
+            if (revocationIndex.isRevoked(certificate)) {
+                throw new IllegalArgumentException("Certificate " + certificate.getSerialNumber() + " has been revoked");
+            }
+            PublicKey publicKey = publicKeys.get(certificate.getSerialNumber());
+            if (publicKey == null) {
+                publicKey = rsaPasswordEncryptionService.getPublicKey(certificate.getCertificateData());
+                publicKeys.put(certificate.getSerialNumber(), publicKey);
+            }
+            recipients.add(new Recipient(item.getUserId(), certificate, publicKey));
+        }
+        return recipients;
+    }
+
+    private List<SharedPasswordBatchRepository.Row> wrapFor(Recipient recipient, List<SealedEntry> entries,
+                                                             User sharingUser, LocalDateTime now) throws Exception {
+        List<SharedPasswordBatchRepository.Row> rows = new ArrayList<>(entries.size());
+        for (SealedEntry sealed : entries) {
+            PasswordEntry entry = sealed.entry();
+            rows.add(new SharedPasswordBatchRepository.Row(entry.getId(), entry.getWebsite(), entry.getUsername(),
+                    sealed.ciphertext(), rsaPasswordEncryptionService.wrapKey(sealed.dataKey(), recipient.publicKey()),
+                    sharingUser.getId(), recipient.userId(), recipient.certificate().getId(), now));
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.bsep_backend.passwordmanager.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Hibridna (envelope) enkripcija stavki password manager-a.
+ * <p>
+ * Svaka stavka ima svoj AES-256 ključ podataka; tajna se enkriptuje AES-GCM-om, a RSA-OAEP-om se
+ * enkriptuje samo ključ, jednom po sertifikatu primaoca. Veličina tajne zato nije ograničena
+ * veličinom RSA ključa, a deljenje ponovo wrap-uje samo ključ dok šifrat ostaje isti.
+ * Format šifrata je Base64(IV || ciphertext || tag), isto što Web Crypto AES-GCM očekuje.
+ */
+@Service
+@RequiredArgsConstructor
+public class EnvelopeEncryptionService {
+
+    private static final int KEY_BYTES = 32;
+    private static final int IV_BYTES = 12;
+    private static final int TAG_BITS = 128;
+
+    private final RSAPasswordEncryptionService rsaPasswordEncryptionService;
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * Šifrat tajne i njen ključ podataka wrap-ovan za jedan sertifikat.
+     */
+    public record Envelope(String ciphertext, String wrappedKey) {
+    }
+
+    /**
+     * Enkriptuje tajnu novim ključem podataka i wrap-uje ključ javnim ključem iz sertifikata.
+     */
+    public Envelope seal(String secret, String base64CertData) throws Exception {
+        byte[] dataKey = generateDataKey();
+        return new Envelope(encrypt(dataKey, secret), rsaPasswordEncryptionService.wrapKey(dataKey, base64CertData));
+    }
+
+    public byte[] generateDataKey() {
+        byte[] dataKey = new byte[KEY_BYTES];
+        random.nextBytes(dataKey);
+        return dataKey;
+    }
+
+    public String encrypt(byte[] dataKey, String secret) throws GeneralSecurityException {
+        byte[] iv = new byte[IV_BYTES];
+        random.nextBytes(iv);
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(dataKey, "AES"), new GCMParameterSpec(TAG_BITS, iv));
+        byte[] encrypted = cipher.doFinal(secret.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(ByteBuffer.allocate(iv.length + encrypted.length)
+                .put(iv).put(encrypted).array());
+    }
+
+    /**
+     * Proverava da ključ podataka koji je poslao klijent zaista otvara šifrat (GCM tag), pre nego
+     * što se wrap-uje za novog primaoca.
+     */
+    public boolean opens(byte[] dataKey, String ciphertext) {
+        try {
+            byte[] data = Base64.getDecoder().decode(ciphertext);
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(dataKey, "AES"),
+                    new GCMParameterSpec(TAG_BITS, data, 0, IV_BYTES));
+            cipher.doFinal(data, IV_BYTES, data.length - IV_BYTES);
+            return true;
+        } catch (AEADBadTagException | IllegalArgumentException e) {
+            return false;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES-GCM is not available", e);
+        }
+    }
+
+    public static byte[] decodeDataKey(String base64DataKey) {
+        byte[] dataKey;
+        try {
+            dataKey = Base64.getDecoder().decode(base64DataKey);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Data key is not valid Base64");
+        }
+        if (dataKey.length != KEY_BYTES) {
+            throw new IllegalArgumentException("Data key must be " + KEY_BYTES + " bytes");
+        }
+        return dataKey;
+    }
+}
@@ -8,6 +8,7 @@ import com.example.bsep_backend.passwordmanager.dto.PasswordEntryResponse;
 import com.example.bsep_backend.passwordmanager.repository.PasswordEntryRepository;
 import com.example.bsep_backend.pki.domain.Certificate;
 import com.example.bsep_backend.pki.repository.CertificateRepository;
+import com.example.bsep_backend.pki.service.RevocationIndex;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -24,7 +25,8 @@ public class PasswordManagerService {
 
     private final PasswordEntryRepository passwordEntryRepository;
     private final CertificateRepository certificateRepository;
-    private final RSAPasswordEncryptionService rsaPasswordEncryptionService;
+    private final RevocationIndex revocationIndex;
+    private final EnvelopeEncryptionService envelopeEncryptionService;
 
     @Transactional
     public PasswordEntryResponse createPasswordEntry(CreatePasswordEntryRequest request, User user) throws Exception {
@@ -42,9 +44,14 @@ public class PasswordManagerService {
             throw new IllegalArgumentException("You can only use your own certificates");
         }
 
+        // Povučeni sertifikat se ne sme koristiti za enkripciju
+        if (revocationIndex.isRevoked(certificate)) {
+            throw new IllegalArgumentException("Certificate " + certificate.getSerialNumber() + " has been revoked");
+        }
+
         log.info("Starting password encryption...");
-        // Enkriptuj lozinku javnim ključem iz sertifikata
-        String encryptedPassword = rsaPasswordEncryptionService.encryptPassword(
+        // Enkriptuj lozinku ključem podataka, a ključ javnim ključem iz sertifikata
+        EnvelopeEncryptionService.Envelope envelope = envelopeEncryptionService.seal(
                 request.getPassword(),
                 certificate.getCertificateData()
         );
@@ -54,7 +61,8 @@ public class PasswordManagerService {
         PasswordEntry passwordEntry = PasswordEntry.builder()
                 .website(request.getWebsite())
                 .username(request.getUsername())
-                .encryptedPassword(encryptedPassword)
+                .encryptedPassword(envelope.ciphertext())
+                .wrappedKey(envelope.wrappedKey())
                 .owner(user)
                 .certificate(certificate)
                 .createdAt(LocalDateTime.now())
@@ -93,6 +101,7 @@ public class PasswordManagerService {
                 .website(entry.getWebsite())
                 .username(entry.getUsername())
                 .encryptedPassword(entry.getEncryptedPassword())
+                .wrappedKey(entry.getWrappedKey())
                 .certificateSerialNumber(entry.getCertificate().getSerialNumber())
                 .certificateCommonName(entry.getCertificate().getCommonName())
                 .createdAt(entry.getCreatedAt())
@@ -21,41 +21,51 @@ public class RSAPasswordEncryptionService {
      * @return Base64 enkodovana enkriptovana lozinka
      */
     public String encryptPassword(String password, String base64CertData) throws Exception {
-        log.info("=== Starting password encryption ===");
-        log.info("Password length: {}", password.length());
-        log.info("Certificate data length: {}", base64CertData.length());
+        return encrypt(password.getBytes("UTF-8"), base64CertData);
+    }
+
+    /**
+     * Enkriptuje (wrap-uje) AES ključ podataka javnim ključem iz sertifikata
+     * @param dataKey Sirovi AES ključ
+     * @param base64CertData Base64 enkodovani X509 sertifikat iz baze
+     * @return Base64 enkodovan wrap-ovan ključ
+     */
+    public String wrapKey(byte[] dataKey, String base64CertData) throws Exception {
+        return encrypt(dataKey, base64CertData);
+    }
+
+    /**
+     * Isto kao {@link #wrapKey(byte[], String)} za javni ključ koji je pozivalac već izvukao,
+     * da se sertifikat ne parsira za svaki ključ
+     */
+    public String wrapKey(byte[] dataKey, PublicKey publicKey) throws Exception {
+        return encrypt(dataKey, publicKey);
+    }
+
+    public PublicKey getPublicKey(String base64CertData) throws Exception {
+        return getX509Certificate(base64CertData).getPublicKey();
+    }
 
+    private String encrypt(byte[] data, String base64CertData) throws Exception {
         // Izvuci X509 sertifikat iz Base64 stringa
         X509Certificate certificate = getX509Certificate(base64CertData);
-        log.info("Certificate parsed successfully. Subject: {}", certificate.getSubjectX500Principal().getName());
 
         // Izvuci javni ključ iz sertifikata
         PublicKey publicKey = certificate.getPublicKey();
-        String publicKeyBase64 = Base64.getEncoder().encodeToString(publicKey.getEncoded());
-        log.info("Public key extracted. Algorithm: {}, Format: {}",
-                publicKey.getAlgorithm(), publicKey.getFormat());
-        log.info("Public key modulus (first 200 chars): {}", publicKey.toString().substring(0, Math.min(200, publicKey.toString().length())));
-        log.info("Public key (Base64 DER format): {}", publicKeyBase64);
+        log.debug("Encrypting with public key of {} ({})",
+                certificate.getSubjectX500Principal().getName(), publicKey.getAlgorithm());
+        return encrypt(data, publicKey);
+    }
 
-        // Enkriptuj lozinku koristeći RSA-OAEP sa SHA-1 (default za Web Crypto API)
+    private String encrypt(byte[] data, PublicKey publicKey) throws Exception {
+        // Enkriptuj koristeći RSA-OAEP sa SHA-1 (default za Web Crypto API)
         Cipher cipher = Cipher.getInstance("RSA/ECB/OAEPWithSHA-1AndMGF1Padding");
-        log.info("Cipher created with transformation: RSA/ECB/OAEPWithSHA-1AndMGF1Padding");
-
         cipher.init(Cipher.ENCRYPT_MODE, publicKey);
-        log.info("Cipher initialized in ENCRYPT_MODE");
-
-        byte[] passwordBytes = password.getBytes("UTF-8");
-        log.info("Password bytes length: {}", passwordBytes.length);
-
-        byte[] encryptedBytes = cipher.doFinal(passwordBytes);
-        log.info("Encryption completed. Encrypted bytes length: {}", encryptedBytes.length);
 
-        // Vrati enkriptovanu lozinku kao Base64 string
-        String encryptedPassword = Base64.getEncoder().encodeToString(encryptedBytes);
-        log.info("Base64 encoded encrypted password length: {}", encryptedPassword.length());
-        log.info("=== Password encryption completed successfully ===");
+        byte[] encryptedBytes = cipher.doFinal(data);
 
-        return encryptedPassword;
+        // Vrati enkriptovane bajtove kao Base64 string
+        return Base64.getEncoder().encodeToString(encryptedBytes);
     }
 
     private X509Certificate getX509Certificate(String base64CertData) throws Exception {
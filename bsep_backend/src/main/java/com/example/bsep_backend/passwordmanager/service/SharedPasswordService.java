@@ -10,6 +10,7 @@ import com.example.bsep_backend.passwordmanager.repository.PasswordEntryReposito
 import com.example.bsep_backend.passwordmanager.repository.SharedPasswordEntryRepository;
 import com.example.bsep_backend.pki.domain.Certificate;
 import com.example.bsep_backend.pki.repository.CertificateRepository;
+import com.example.bsep_backend.pki.service.RevocationIndex;
 import com.example.bsep_backend.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -28,8 +29,10 @@ public class SharedPasswordService {
     private final SharedPasswordEntryRepository sharedPasswordEntryRepository;
     private final PasswordEntryRepository passwordEntryRepository;
     private final CertificateRepository certificateRepository;
+    private final RevocationIndex revocationIndex;
     private final UserRepository userRepository;
     private final RSAPasswordEncryptionService rsaPasswordEncryptionService;
+    private final EnvelopeEncryptionService envelopeEncryptionService;
 
     @Transactional
     public SharedPasswordEntryResponse sharePassword(SharePasswordRequest request, User sharingUser) throws Exception {
@@ -59,21 +62,38 @@ public class SharedPasswordService {
             throw new IllegalArgumentException("Selected certificate does not belong to the target user");
         }
 
+        // Povučeni sertifikat se ne sme koristiti za enkripciju
+        if (revocationIndex.isRevoked(sharedWithCertificate)) {
+            throw new IllegalArgumentException("Certificate " + sharedWithCertificate.getSerialNumber() + " has been revoked");
+        }
+
         log.info("Encrypting password with certificate: {} (SN: {})",
                 sharedWithCertificate.getCommonName(), sharedWithCertificate.getSerialNumber());
 
-        // Enkriptuj dekriptovanu lozinku sa javnim ključem primaoca
-        String encryptedPassword = rsaPasswordEncryptionService.encryptPassword(
-                request.getDecryptedPassword(),
-                sharedWithCertificate.getCertificateData()
-        );
+        // Envelope stavka: isti šifrat, ključ podataka se wrap-uje javnim ključem primaoca.
+        // Inače (stare stavke) se dekriptovana lozinka zapečati novim ključem.
+        EnvelopeEncryptionService.Envelope envelope;
+        if (request.getDataKey() != null && originalEntry.getWrappedKey() != null) {
+            byte[] dataKey = EnvelopeEncryptionService.decodeDataKey(request.getDataKey());
+            if (!envelopeEncryptionService.opens(dataKey, originalEntry.getEncryptedPassword())) {
+                throw new IllegalArgumentException("Data key does not match the password entry");
+            }
+            envelope = new EnvelopeEncryptionService.Envelope(originalEntry.getEncryptedPassword(),
+                    rsaPasswordEncryptionService.wrapKey(dataKey, sharedWithCertificate.getCertificateData()));
+        } else if (request.getDecryptedPassword() != null) {
+            envelope = envelopeEncryptionService.seal(request.getDecryptedPassword(),
+                    sharedWithCertificate.getCertificateData());
+        } else {
+            throw new IllegalArgumentException("Either the data key or the decrypted password is required");
+        }
 
         // Kreiraj shared entry
         SharedPasswordEntry sharedEntry = SharedPasswordEntry.builder()
                 .originalEntry(originalEntry)
                 .website(originalEntry.getWebsite())
                 .username(originalEntry.getUsername())
-                .encryptedPassword(encryptedPassword)
+                .encryptedPassword(envelope.ciphertext())
+                .wrappedKey(envelope.wrappedKey())
                 .sharedByUser(sharingUser)
                 .sharedWithUser(sharedWithUser)
                 .sharedWithCertificate(sharedWithCertificate)
@@ -118,6 +138,7 @@ public class SharedPasswordService {
                 .website(entry.getWebsite())
                 .username(entry.getUsername())
                 .encryptedPassword(entry.getEncryptedPassword())
+                .wrappedKey(entry.getWrappedKey())
                 .sharedByUserEmail(entry.getSharedByUser().getEmail())
                 .sharedByUserName(entry.getSharedByUser().getName() + " " + entry.getSharedByUser().getSurname())
                 .sharedWithCertificateSerialNumber(entry.getSharedWithCertificate().getSerialNumber())
@@ -0,0 +1,321 @@
+package com.example.bsep_backend.passwordmanager.service;
+
+import com.example.bsep_backend.domain.User;
+import com.example.bsep_backend.exception.InvalidRequestException;
+import com.example.bsep_backend.exception.NotFoundException;
+import com.example.bsep_backend.passwordmanager.domain.RekeyItemType;
+import com.example.bsep_backend.passwordmanager.domain.RekeySession;
+import com.example.bsep_backend.passwordmanager.domain.RekeySessionStatus;
+import com.example.bsep_backend.passwordmanager.dto.RekeyBatchRequest;
+import com.example.bsep_backend.passwordmanager.dto.RekeySessionResponse;
+import com.example.bsep_backend.passwordmanager.dto.StartRekeyRequest;
+import com.example.bsep_backend.passwordmanager.repository.RekeyBatchRepository;
+import com.example.bsep_backend.passwordmanager.repository.RekeySessionRepository;
+import com.example.bsep_backend.pki.domain.Certificate;
+import com.example.bsep_backend.pki.repository.CertificateRepository;
+import com.example.bsep_backend.pki.service.RevocationIndex;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Grupni prelazak trezora na novi sertifikat uz pomoć klijenta, koji jedini ima privatni ključ.
+ * <p>
+ * Protokol: otvori sesiju (stari i novi sertifikat), preuzmi stranice NDJSON stavki vezanih za stari
+ * sertifikat, pošalji ih nazad ponovo enkriptovane i na kraju commit. Batch se upisuje u chunk-ovima,
+ * svaki u svojoj transakciji sa pomeranjem checkpoint-a, pa prekinut prenos ne gubi ono što je već
+ * sačuvano; stranice uvek sadrže samo stavke koje još nisu sačuvane, tako da se nastavlja prostim
+ * ponovnim preuzimanjem. Stavke ostaju na starom sertifikatu do commit-a, koji u jednoj transakciji
+ * proveri da ništa ne nedostaje i prebaci sve na novi sertifikat.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class VaultRekeyService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final RekeySessionRepository rekeySessionRepository;
+    private final RekeyBatchRepository rekeyBatchRepository;
+    private final CertificateRepository certificateRepository;
+    private final RevocationIndex revocationIndex;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${password-manager.rekey.page-size:1000}")
+    private int defaultPageSize;
+
+    @Value("${password-manager.rekey.max-page-size:5000}")
+    private int maxPageSize;
+
+    @Value("${password-manager.rekey.max-batch-items:5000}")
+    private int maxBatchItems;
+
+    @Value("${password-manager.rekey.chunk-size:500}")
+    private int chunkSize;
+
+    private TransactionTemplate transactionTemplate;
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Otvara sesiju ili vraća već otvorenu sesiju za isti par sertifikata, da bi klijent mogao
+     * da nastavi posle prekida.
+     */
+    @Transactional
+    public RekeySessionResponse start(StartRekeyRequest request, User user) {
+        Certificate oldCertificate = certificateRepository.findBySerialNumber(request.getOldCertificateSerialNumber())
+                .orElseThrow(() -> new NotFoundException("Old certificate not found"));
+        Certificate newCertificate = certificateRepository.findBySerialNumber(request.getNewCertificateSerialNumber())
+                .orElseThrow(() -> new NotFoundException("New certificate not found"));
+        if (!oldCertificate.getOwner().getId().equals(user.getId())
+                || !newCertificate.getOwner().getId().equals(user.getId())) {
+            throw new IllegalArgumentException("You can only re-key between your own certificates");
+        }
+        if (oldCertificate.getId().equals(newCertificate.getId())) {
+            throw new IllegalArgumentException("The new certificate must differ from the old one");
+        }
+        // Stari sertifikat sme biti povučen ili istekao, novi mora biti važeći
+        checkUsable(newCertificate);
+
+        RekeySession existing = rekeySessionRepository.findFirstByOwnerIdAndOldCertificateIdAndStatus(
+                user.getId(), oldCertificate.getId(), RekeySessionStatus.ACTIVE).orElse(null);
+        if (existing != null) {
+            if (!existing.getNewCertificate().getId().equals(newCertificate.getId())) {
+                throw new InvalidRequestException("Re-key session " + existing.getId()
+                        + " to another certificate is already active, abort it first");
+            }
+            return mapToResponse(existing);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        RekeySession session = rekeySessionRepository.save(RekeySession.builder()
+                .owner(user)
+                .oldCertificate(oldCertificate)
+                .newCertificate(newCertificate)
+                .status(RekeySessionStatus.ACTIVE)
+                .totalItems(rekeyBatchRepository.countItems(user.getId(), oldCertificate.getId()))
+                .createdAt(now)
+                .updatedAt(now)
+                .build());
+        log.info("User {} opened re-key session {} from certificate {} to {} ({} items)", user.getEmail(),
+                session.getId(), oldCertificate.getSerialNumber(), newCertificate.getSerialNumber(), session.getTotalItems());
+        return mapToResponse(session);
+    }
+
+    @Transactional(readOnly = true)
+    public RekeySessionResponse getSession(Long sessionId, User user) {
+        return mapToResponse(rekeySessionRepository.findByIdAndOwnerIdWithCertificates(sessionId, user.getId())
+                .orElseThrow(() -> new NotFoundException("Re-key session not found")));
+    }
+
+    /**
+     * Vraća telo koje strimuje jednu stranicu stavki koje još nisu sačuvane, kao NDJSON
+     * ({"type","id","encryptedPassword","wrappedKey"} po liniji). Sledeća stranica se traži sa
+     * kursorom poslednje linije; stranica kraća od limita je poslednja.
+     */
+    public StreamingResponseBody streamPendingItems(Long sessionId, RekeyItemType afterType, Long afterId,
+                                                    Integer limit, User user) {
+        if ((afterType == null) != (afterId == null)) {
+            throw new InvalidRequestException("afterType and afterId must be given together");
+        }
+        int pageSize = limit != null ? limit : defaultPageSize;
+        if (pageSize < 1 || pageSize > maxPageSize) {
+            throw new InvalidRequestException("limit must be between 1 and " + maxPageSize);
+        }
+        Long oldCertificateId = readOnlyTransaction.execute(status -> {
+            RekeySession session = rekeySessionRepository.findByIdAndOwnerIdWithCertificates(sessionId, user.getId())
+                    .orElseThrow(() -> new NotFoundException("Re-key session not found"));
+            requireActive(session);
+            return session.getOldCertificate().getId();
+        });
+        long after = afterId != null ? afterId : 0;
+
+        return outputStream -> {
+            long[] written = {0};
+            // Zatvaranje generatora flush-uje, ali ostavlja stream odgovora otvoren
+            try (JsonGenerator json = JSON_FACTORY.createGenerator(new BufferedOutputStream(outputStream, BUFFER_SIZE), JsonEncoding.UTF8)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+                json.setRootValueSeparator(null);
+                rekeyBatchRepository.forEachPending(sessionId, user.getId(), oldCertificateId, afterType, after, pageSize, item -> {
+                    try {
+                        json.writeStartObject();
+                        json.writeStringField("type", item.type().name());
+                        json.writeNumberField("id", item.id());
+                        json.writeStringField("encryptedPassword", item.encryptedPassword());
+                        json.writeStringField("wrappedKey", item.wrappedKey());
+                        json.writeEndObject();
+                        json.writeRaw('\n');
+                        written[0]++;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+            log.debug("Re-key session {} streamed {} items", sessionId, written[0]);
+        };
+    }
+
+    /**
+     * Čuva ponovo enkriptovane stavke u chunk-ovima od po chunkSize, svaki u svojoj transakciji.
+     * Ponovno slanje iste stavke samo zamenjuje sačuvanu vrednost.
+     */
+    public RekeySessionResponse stage(Long sessionId, RekeyBatchRequest request, User user) {
+        List<RekeyBatchRequest.Item> items = request.getItems() != null ? request.getItems() : List.of();
+        if (items.isEmpty()) {
+            throw new IllegalArgumentException("At least one item is required");
+        }
+        if (items.size() > maxBatchItems) {
+            throw new IllegalArgumentException("At most " + maxBatchItems + " items are allowed per batch");
+        }
+        List<RekeyBatchRepository.Item> rows = new ArrayList<>(items.size());
+        for (RekeyBatchRequest.Item item : items) {
+            if (item.getType() == null || item.getId() == null) {
+                throw new IllegalArgumentException("Every item needs a type and an id");
+            }
+            if (item.getEncryptedPassword() == null && item.getWrappedKey() == null) {
+                throw new IllegalArgumentException("Item " + item.getType() + " " + item.getId()
+                        + " needs a new wrapped key or ciphertext");
+            }
+            rows.add(new RekeyBatchRepository.Item(item.getType(), item.getId(),
+                    item.getEncryptedPassword(), item.getWrappedKey()));
+        }
+
+        long started = System.currentTimeMillis();
+        for (int from = 0; from < rows.size(); from += chunkSize) {
+            List<RekeyBatchRepository.Item> chunk = rows.subList(from, Math.min(from + chunkSize, rows.size()));
+            int saved = from;
+            transactionTemplate.executeWithoutResult(status -> {
+                RekeySession session = lockActive(sessionId, user);
+                List<RekeyBatchRepository.Item> rejected = rekeyBatchRepository.stageAll(
+                        session.getId(), user.getId(), session.getOldCertificate().getId(), chunk);
+                if (!rejected.isEmpty()) {
+                    RekeyBatchRepository.Item first = rejected.get(0);
+                    throw new IllegalArgumentException(rejected.size() + " items were rejected, first " + first.type()
+                            + " " + first.id() + ": not bound to the old certificate or missing a new ciphertext ("
+                            + saved + " items before its chunk were saved)");
+                }
+                advanceCheckpoint(session, chunk);
+                session.setStagedItems(rekeyBatchRepository.countStaged(session.getId()));
+                session.setUpdatedAt(LocalDateTime.now());
+            });
+        }
+        log.info("Re-key session {} staged {} items in {} ms", sessionId, rows.size(),
+                System.currentTimeMillis() - started);
+        return getSession(sessionId, user);
+    }
+
+    /**
+     * Prebacuje sve stavke na novi sertifikat u jednoj transakciji. Ako neka stavka vezana za stari
+     * sertifikat još nije sačuvana (npr. dodata posle otvaranja sesije), ništa se ne menja.
+     */
+    @Transactional
+    public RekeySessionResponse commit(Long sessionId, User user) {
+        RekeySession session = lockActive(sessionId, user);
+        Long oldCertificateId = session.getOldCertificate().getId();
+        checkUsable(session.getNewCertificate());
+
+        long pending = rekeyBatchRepository.countPending(session.getId(), user.getId(), oldCertificateId);
+        if (pending > 0) {
+            throw new InvalidRequestException(pending + " items are not re-keyed yet, fetch and send them before committing");
+        }
+        int switched = rekeyBatchRepository.switchCertificate(session.getId(), user.getId(), oldCertificateId,
+                session.getNewCertificate().getId());
+        rekeyBatchRepository.deleteStaged(session.getId());
+
+        LocalDateTime now = LocalDateTime.now();
+        session.setStatus(RekeySessionStatus.COMMITTED);
+        session.setRekeyedItems(switched);
+        session.setUpdatedAt(now);
+        session.setCompletedAt(now);
+        log.info("Re-key session {} of user {} committed, {} items moved to certificate {}", session.getId(),
+                user.getEmail(), switched, session.getNewCertificate().getSerialNumber());
+        return mapToResponse(session);
+    }
+
+    @Transactional
+    public RekeySessionResponse abort(Long sessionId, User user) {
+        RekeySession session = lockActive(sessionId, user);
+        rekeyBatchRepository.deleteStaged(session.getId());
+        LocalDateTime now = LocalDateTime.now();
+        session.setStatus(RekeySessionStatus.ABORTED);
+        session.setStagedItems(0);
+        session.setUpdatedAt(now);
+        session.setCompletedAt(now);
+        log.info("Re-key session {} of user {} aborted", session.getId(), user.getEmail());
+        return mapToResponse(session);
+    }
+
+    private RekeySession lockActive(Long sessionId, User user) {
+        RekeySession session = rekeySessionRepository.findByIdAndOwnerIdForUpdate(sessionId, user.getId())
+                .orElseThrow(() -> new NotFoundException("Re-key session not found"));
+        requireActive(session);
+        return session;
+    }
+
+    private void requireActive(RekeySession session) {
+        if (session.getStatus() != RekeySessionStatus.ACTIVE) {
+            throw new InvalidRequestException("Re-key session " + session.getId() + " is " + session.getStatus());
+        }
+    }
+
+    private void checkUsable(Certificate certificate) {
+        if (revocationIndex.isRevoked(certificate)) {
+            throw new IllegalArgumentException("Certificate " + certificate.getSerialNumber() + " has been revoked");
+        }
+        if (certificate.getNotAfter() != null && certificate.getNotAfter().isBefore(LocalDateTime.now())) {
+            throw new IllegalArgumentException("Certificate " + certificate.getSerialNumber() + " has expired");
+        }
+    }
+
+    // Checkpoint je najdalja sačuvana stavka u redosledu strimovanja
+    private static void advanceCheckpoint(RekeySession session, List<RekeyBatchRepository.Item> chunk) {
+        for (RekeyBatchRepository.Item item : chunk) {
+            RekeyItemType type = session.getCheckpointType();
+            if (type == null || item.type().ordinal() > type.ordinal()
+                    || (item.type() == type && item.id() > session.getCheckpointId())) {
+                session.setCheckpointType(item.type());
+                session.setCheckpointId(item.id());
+            }
+        }
+    }
+
+    private RekeySessionResponse mapToResponse(RekeySession session) {
+        return RekeySessionResponse.builder()
+                .id(session.getId())
+                .status(session.getStatus())
+                .oldCertificateSerialNumber(session.getOldCertificate().getSerialNumber())
+                .newCertificateSerialNumber(session.getNewCertificate().getSerialNumber())
+                .totalItems(session.getTotalItems())
+                .stagedItems(session.getStagedItems())
+                .rekeyedItems(session.getRekeyedItems())
+                .checkpointType(session.getCheckpointType())
+                .checkpointId(session.getCheckpointId())
+                .createdAt(session.getCreatedAt())
+                .updatedAt(session.getUpdatedAt())
+                .completedAt(session.getCompletedAt())
+                .build();
+    }
+}
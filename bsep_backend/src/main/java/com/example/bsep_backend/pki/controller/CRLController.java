@@ -0,0 +1,62 @@
+package com.example.bsep_backend.pki.controller;
+
+import com.example.bsep_backend.pki.service.CRLService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Public CRL distribution point. Relying parties poll these, so responses carry an ETag and a
+ * max-age matching the time until the CRL is due for refresh.
+ */
+@RestController
+@RequestMapping("/crl")
+@RequiredArgsConstructor
+public class CRLController {
+
+    private static final MediaType PKIX_CRL = MediaType.parseMediaType("application/pkix-crl");
+
+    private final CRLService crlService;
+
+    @GetMapping("/{caSerialNumber}")
+    public ResponseEntity<byte[]> getCRL(
+            @PathVariable String caSerialNumber,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        return respond(crlService.getFullCRL(caSerialNumber), ifNoneMatch);
+    }
+
+    @GetMapping("/{caSerialNumber}/delta")
+    public ResponseEntity<byte[]> getDeltaCRL(
+            @PathVariable String caSerialNumber,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        return respond(crlService.getDeltaCRL(caSerialNumber), ifNoneMatch);
+    }
+
+    private ResponseEntity<byte[]> respond(CRLService.PublishedCRL crl, String ifNoneMatch) {
+        long maxAge = Math.max(0, Duration.between(Instant.now(), crl.refreshAt()).getSeconds());
+        CacheControl cacheControl = CacheControl.maxAge(Duration.ofSeconds(maxAge)).cachePublic();
+
+        if (EntityTags.matchesIfNoneMatch(ifNoneMatch, crl.etag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(crl.etag())
+                    .cacheControl(cacheControl)
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .eTag(crl.etag())
+                .cacheControl(cacheControl)
+                .lastModified(crl.thisUpdate())
+                .contentType(PKIX_CRL)
+                .body(crl.encoded());
+    }
+}
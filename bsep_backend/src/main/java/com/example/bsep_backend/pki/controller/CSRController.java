@@ -1,22 +1,40 @@
 package com.example.bsep_backend.pki.controller;
 
 import com.example.bsep_backend.domain.User;
+import com.example.bsep_backend.exception.EntityExistsException;
+import com.example.bsep_backend.exception.InvalidRequestException;
 import com.example.bsep_backend.pki.domain.CSRStatus;
+import com.example.bsep_backend.pki.dto.AutoApprovalMetricsResponse;
+import com.example.bsep_backend.pki.dto.BulkReviewCSRRequest;
+import com.example.bsep_backend.pki.dto.BulkReviewCSRResponse;
+import com.example.bsep_backend.pki.dto.CSRPipelineMetricsResponse;
 import com.example.bsep_backend.pki.dto.CSRResponse;
 import com.example.bsep_backend.pki.dto.CreateCSRRequest;
 import com.example.bsep_backend.pki.dto.ReviewCSRRequest;
 import com.example.bsep_backend.pki.dto.UploadCSRRequest;
+import com.example.bsep_backend.pki.service.CSRAutoApprovalService;
+import com.example.bsep_backend.pki.service.CSRBulkReviewService;
+import com.example.bsep_backend.pki.service.CSRBundleUploadService;
+import com.example.bsep_backend.pki.service.CSRIngestionPipeline;
 import com.example.bsep_backend.pki.service.CSRService;
+import com.example.bsep_backend.pki.service.CSRStatusNotifier;
 import com.example.bsep_backend.security.user.AuthUser;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
@@ -24,7 +42,15 @@ import java.util.List;
 @RequiredArgsConstructor
 public class CSRController {
 
+    private static final String CSR_BUNDLE_PEM = "application/x-pem-file";
+    private static final String CSR_BUNDLE_NDJSON = "application/x-ndjson";
+
     private final CSRService csrService;
+    private final CSRBundleUploadService bundleUploadService;
+    private final CSRBulkReviewService bulkReviewService;
+    private final CSRIngestionPipeline ingestionPipeline;
+    private final CSRStatusNotifier statusNotifier;
+    private final CSRAutoApprovalService autoApprovalService;
 
 //    @PostMapping
 //    public ResponseEntity<?> createCSR(
@@ -47,12 +73,71 @@ public class CSRController {
         try {
             User user = authUser.getUser();
             CSRResponse response = csrService.uploadCSR(csrFile, validityDays, user);
-            return ResponseEntity.ok(response);
+            return ResponseEntity.accepted().body(response);
+        } catch (EntityExistsException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Error creating CSR: " + e.getMessage());
         }
     }
 
+    @PostMapping(value = "/upload/bundle",
+            consumes = {CSR_BUNDLE_PEM, MediaType.TEXT_PLAIN_VALUE, CSR_BUNDLE_NDJSON},
+            produces = CSR_BUNDLE_NDJSON)
+    public ResponseEntity<StreamingResponseBody> uploadCSRBundle(
+            @AuthenticationPrincipal AuthUser authUser,
+            @RequestParam("validityDays") Integer validityDays,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            HttpServletRequest request) throws IOException {
+        if (validityDays < 1) {
+            throw new InvalidRequestException("Validity days must be positive");
+        }
+        User user = authUser.getUser();
+        InputStream body = request.getInputStream();
+        CSRBundleUploadService.Format format = contentType.startsWith(CSR_BUNDLE_NDJSON)
+                ? CSRBundleUploadService.Format.NDJSON
+                : CSRBundleUploadService.Format.PEM;
+
+        StreamingResponseBody results = out -> bundleUploadService.upload(body, format, validityDays, user, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(CSR_BUNDLE_NDJSON))
+                .body(results);
+    }
+
+    @GetMapping("/{id}/status")
+    public ResponseEntity<CSRResponse> getCSRStatus(
+            @PathVariable Long id,
+            @AuthenticationPrincipal AuthUser authUser) {
+        CSRResponse csr = csrService.getCSRStatus(id, authUser.getUser());
+        return ResponseEntity.ok(csr);
+    }
+
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeToCSRStatus(
+            @PathVariable Long id,
+            @AuthenticationPrincipal AuthUser authUser) {
+        User user = authUser.getUser();
+        csrService.getCSRStatus(id, user);
+        SseEmitter emitter = statusNotifier.subscribe(id);
+
+        // Status is read again after subscribing so an update published in between is not missed
+        CSRResponse latest = csrService.getCSRStatus(id, user);
+        statusNotifier.send(emitter, latest, CSRStatusNotifier.isTerminal(latest.getStatus()));
+        return emitter;
+    }
+
+    @GetMapping("/pipeline/metrics")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<CSRPipelineMetricsResponse> getPipelineMetrics() {
+        return ResponseEntity.ok(ingestionPipeline.getMetrics());
+    }
+
+    @GetMapping("/auto-approval/metrics")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<AutoApprovalMetricsResponse> getAutoApprovalMetrics() {
+        return ResponseEntity.ok(autoApprovalService.getMetrics());
+    }
+
     @GetMapping("/my")
     public ResponseEntity<List<CSRResponse>> getMyCSRs(@AuthenticationPrincipal AuthUser authUser) {
         User user = authUser.getUser();
@@ -99,4 +184,18 @@ public class CSRController {
             return ResponseEntity.badRequest().body("Error reviewing CSR: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    @PostMapping("/review/bulk")
+    @PreAuthorize("hasRole('CA') or hasRole('ADMIN')")
+    public ResponseEntity<?> reviewCSRs(
+            @AuthenticationPrincipal AuthUser authUser,
+            @Valid @RequestBody BulkReviewCSRRequest request) {
+        try {
+            User reviewer = authUser.getUser();
+            BulkReviewCSRResponse response = bulkReviewService.review(request, reviewer);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error reviewing CSRs: " + e.getMessage());
+        }
+    }
+}
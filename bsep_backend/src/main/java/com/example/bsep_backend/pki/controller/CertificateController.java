@@ -1,23 +1,53 @@
 package com.example.bsep_backend.pki.controller;
 
 import com.example.bsep_backend.domain.User;
+import com.example.bsep_backend.exception.InvalidRequestException;
 import com.example.bsep_backend.pki.domain.Certificate;
+import com.example.bsep_backend.pki.domain.CertificateType;
+import com.example.bsep_backend.pki.domain.RevocationReason;
+import com.example.bsep_backend.pki.dto.BatchChainValidationRequest;
+import com.example.bsep_backend.pki.dto.BatchChainValidationResponse;
+import com.example.bsep_backend.pki.dto.ChainValidationResponse;
 import com.example.bsep_backend.pki.dto.CreateCertificateRequest;
 import com.example.bsep_backend.pki.dto.CertificateResponse;
 import com.example.bsep_backend.pki.dto.CertificateExportResponse;
+import com.example.bsep_backend.pki.dto.ExpirySchedulerResponse;
+import com.example.bsep_backend.pki.dto.FingerprintBackfillResponse;
+import com.example.bsep_backend.pki.dto.PublicKeyLookupResponse;
+import com.example.bsep_backend.pki.dto.RenewalMetricsResponse;
+import com.example.bsep_backend.pki.dto.RevocationIndexResponse;
+import com.example.bsep_backend.pki.dto.RevokeCertificateRequest;
+import com.example.bsep_backend.pki.dto.ServerTlsStatusResponse;
+import com.example.bsep_backend.pki.dto.SubtreeRevocationResponse;
+import com.example.bsep_backend.pki.service.CertificateBulkExportService;
+import com.example.bsep_backend.pki.service.CertificateExpiryScheduler;
+import com.example.bsep_backend.pki.service.ChainValidationService;
+import com.example.bsep_backend.pki.service.CertificateRenewalService;
 import com.example.bsep_backend.pki.service.CertificateExportService;
 import com.example.bsep_backend.pki.service.CertificateService;
 import com.example.bsep_backend.pki.service.HttpsConfigurationService;
+import com.example.bsep_backend.pki.service.KeyFingerprintBackfillService;
+import com.example.bsep_backend.pki.service.KeyFingerprintIndex;
+import com.example.bsep_backend.pki.service.RevocationIndex;
+import com.example.bsep_backend.pki.service.ServerTlsIdentityService;
+import com.example.bsep_backend.pki.service.SubtreeRevocationService;
 import com.example.bsep_backend.pki.dto.HttpsConfigurationResponse;
 import com.example.bsep_backend.security.user.AuthUser;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -26,9 +56,21 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class CertificateController {
 
+    // An issued certificate and its chain never change; private because exports require authentication
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(Duration.ofDays(365)).cachePrivate().immutable();
+
     private final CertificateService certificateService;
     private final CertificateExportService certificateExportService;
     private final HttpsConfigurationService httpsConfigurationService;
+    private final KeyFingerprintIndex fingerprintIndex;
+    private final KeyFingerprintBackfillService fingerprintBackfillService;
+    private final RevocationIndex revocationIndex;
+    private final SubtreeRevocationService subtreeRevocationService;
+    private final CertificateExpiryScheduler expiryScheduler;
+    private final CertificateRenewalService renewalService;
+    private final ChainValidationService chainValidationService;
+    private final CertificateBulkExportService bulkExportService;
+    private final ServerTlsIdentityService serverTlsIdentityService;
 
     @PostMapping("/root")
     @PreAuthorize("hasRole('ADMIN')")
@@ -83,6 +125,89 @@ public class CertificateController {
         return ResponseEntity.ok(caCertificates);
     }
 
+    @GetMapping("/fingerprint/{spkiSha256}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<PublicKeyLookupResponse> findByFingerprint(@PathVariable String spkiSha256) {
+        return ResponseEntity.ok(fingerprintIndex.findBySpkiSha256(spkiSha256));
+    }
+
+    @GetMapping("/ski/{subjectKeyIdentifier}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<PublicKeyLookupResponse> findBySubjectKeyIdentifier(@PathVariable String subjectKeyIdentifier) {
+        return ResponseEntity.ok(fingerprintIndex.findBySubjectKeyIdentifier(subjectKeyIdentifier));
+    }
+
+    @PostMapping("/fingerprints/backfill")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<FingerprintBackfillResponse> backfillFingerprints() {
+        return ResponseEntity.accepted().body(fingerprintBackfillService.trigger());
+    }
+
+    @GetMapping("/fingerprints/backfill")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<FingerprintBackfillResponse> getFingerprintBackfillStatus() {
+        return ResponseEntity.ok(fingerprintBackfillService.getStatus());
+    }
+
+    @GetMapping("/revocation-index")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<RevocationIndexResponse> getRevocationIndexStats() {
+        return ResponseEntity.ok(revocationIndex.getStats());
+    }
+
+    @GetMapping("/expiry-scheduler")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ExpirySchedulerResponse> getExpirySchedulerStatus() {
+        return ResponseEntity.ok(expiryScheduler.getStatus());
+    }
+
+    @PostMapping("/renewals")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<RenewalMetricsResponse> startRenewalWave() {
+        return ResponseEntity.accepted().body(renewalService.trigger());
+    }
+
+    @GetMapping("/renewals")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<RenewalMetricsResponse> getRenewalMetrics() {
+        return ResponseEntity.ok(renewalService.getMetrics());
+    }
+
+    @GetMapping("/server-tls")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ServerTlsStatusResponse> getServerTlsStatus() {
+        return ResponseEntity.ok(serverTlsIdentityService.getStatus());
+    }
+
+    @PostMapping("/server-tls/rotate")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ServerTlsStatusResponse> rotateServerTlsIdentity() {
+        return ResponseEntity.ok(serverTlsIdentityService.rotateNow());
+    }
+
+    @PostMapping("/{serialNumber}/renew")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('CA')")
+    public ResponseEntity<CertificateResponse> renewCertificate(
+            @AuthenticationPrincipal AuthUser authUser,
+            @PathVariable String serialNumber) throws Exception {
+        return ResponseEntity.ok(renewalService.renew(serialNumber, authUser.getUser()));
+    }
+
+    @GetMapping("/{serialNumber}/validate")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<ChainValidationResponse> validateChain(
+            @PathVariable String serialNumber,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        return ResponseEntity.ok(chainValidationService.validate(serialNumber, at));
+    }
+
+    @PostMapping("/validate")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<BatchChainValidationResponse> validateChains(
+            @Valid @RequestBody BatchChainValidationRequest request) {
+        return ResponseEntity.ok(chainValidationService.validateAll(request.getSerialNumbers(), request.getAt()));
+    }
+
     @PostMapping("/sign")
     @PreAuthorize("hasRole('ADMIN') or hasRole('CA')")
     public ResponseEntity<?> signCertificate(
@@ -97,12 +222,58 @@ public class CertificateController {
         }
     }
 
+    @PostMapping("/{serialNumber}/revoke")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<CertificateResponse> revokeCertificate(
+            @AuthenticationPrincipal AuthUser authUser,
+            @PathVariable String serialNumber,
+            @RequestBody(required = false) RevokeCertificateRequest request) {
+        RevocationReason reason = request != null && request.getReason() != null
+                ? request.getReason() : RevocationReason.UNSPECIFIED;
+        return ResponseEntity.ok(certificateService.revokeCertificate(serialNumber, reason, authUser.getUser()));
+    }
+
+    @PostMapping("/{serialNumber}/revoke-subtree")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('CA')")
+    public ResponseEntity<SubtreeRevocationResponse> revokeSubtree(
+            @AuthenticationPrincipal AuthUser authUser,
+            @PathVariable String serialNumber,
+            @RequestBody(required = false) RevokeCertificateRequest request) {
+        RevocationReason reason = request != null && request.getReason() != null
+                ? request.getReason() : RevocationReason.UNSPECIFIED;
+        return ResponseEntity.accepted().body(subtreeRevocationService.revokeSubtree(serialNumber, reason, authUser.getUser()));
+    }
+
+    @GetMapping("/revoke-subtree/{jobId}")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('CA')")
+    public ResponseEntity<SubtreeRevocationResponse> getSubtreeRevocation(
+            @AuthenticationPrincipal AuthUser authUser,
+            @PathVariable String jobId) {
+        return ResponseEntity.ok(subtreeRevocationService.getJob(jobId, authUser.getUser()));
+    }
+
     @GetMapping("/{serialNumber}/export")
     public ResponseEntity<byte[]> exportCertificate(
             @PathVariable String serialNumber,
-            @RequestParam(defaultValue = "pem") String format) {
+            @RequestParam(defaultValue = "pem") String format,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        // Answered from the export cache without any database or crypto work
+        String cachedETag = ifNoneMatch != null ? certificateExportService.getCachedETag(serialNumber, format) : null;
+        if (cachedETag != null && EntityTags.matchesIfNoneMatch(ifNoneMatch, cachedETag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(cachedETag)
+                    .cacheControl(IMMUTABLE)
+                    .build();
+        }
+
         try {
             CertificateExportResponse exportResponse = certificateExportService.exportCertificate(serialNumber, format);
+            if (EntityTags.matchesIfNoneMatch(ifNoneMatch, exportResponse.getEtag())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(exportResponse.getEtag())
+                        .cacheControl(IMMUTABLE)
+                        .build();
+            }
 
             HttpHeaders headers = new HttpHeaders();
             headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + exportResponse.getFilename() + "\"");
@@ -110,6 +281,8 @@ public class CertificateController {
 
             return ResponseEntity.ok()
                     .headers(headers)
+                    .eTag(exportResponse.getEtag())
+                    .cacheControl(IMMUTABLE)
                     .body(exportResponse.getContent());
 
         } catch (Exception e) {
@@ -117,6 +290,29 @@ public class CertificateController {
         }
     }
 
+    @GetMapping("/bulk-export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> bulkExport(
+            @RequestParam(defaultValue = "zip") String format,
+            @RequestParam(required = false) String organization,
+            @RequestParam(required = false) String issuerSerialNumber,
+            @RequestParam(required = false) CertificateType type,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime issuedFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime issuedTo) {
+        CertificateBulkExportService.Format exportFormat = switch (format.toLowerCase()) {
+            case "zip" -> CertificateBulkExportService.Format.ZIP;
+            case "ndjson" -> CertificateBulkExportService.Format.NDJSON;
+            default -> throw new InvalidRequestException("Unsupported format: " + format + ", try zip or ndjson");
+        };
+        StreamingResponseBody body = bulkExportService.export(exportFormat, organization, issuerSerialNumber, type,
+                issuedFrom, issuedTo);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"certificates." + format.toLowerCase() + "\"")
+                .contentType(MediaType.parseMediaType(exportFormat == CertificateBulkExportService.Format.ZIP
+                        ? "application/zip" : "application/x-ndjson"))
+                .body(body);
+    }
+
     @GetMapping("/{serialNumber}/keystore")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<byte[]> exportKeystore(
@@ -151,6 +347,19 @@ public class CertificateController {
         }
     }
 
+    @GetMapping("/{serialNumber}/https-bundle")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> getHttpsConfigurationBundle(
+            @PathVariable String serialNumber,
+            @RequestParam String keystorePassword,
+            @RequestParam(defaultValue = "8443") int port) {
+        StreamingResponseBody bundle = httpsConfigurationService.exportHttpsConfigurationBundle(serialNumber, keystorePassword, port);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"https-" + serialNumber + ".zip\"")
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .body(bundle);
+    }
+
     @GetMapping("/{serialNumber}/application-properties")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<String> getApplicationProperties(
@@ -0,0 +1,28 @@
+package com.example.bsep_backend.pki.controller;
+
+import org.springframework.http.ETag;
+
+/**
+ * Conditional request handling shared by the download endpoints.
+ */
+final class EntityTags {
+
+    private EntityTags() {
+    }
+
+    /**
+     * If-None-Match is a list of entity tags or "*", compared weakly (RFC 9110, section 13.1.2).
+     */
+    static boolean matchesIfNoneMatch(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        ETag current = ETag.create(etag);
+        for (ETag candidate : ETag.parse(ifNoneMatch)) {
+            if (candidate.isWildcard() || candidate.compare(current, false)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
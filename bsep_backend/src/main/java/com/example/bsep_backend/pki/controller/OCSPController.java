@@ -0,0 +1,82 @@
+package com.example.bsep_backend.pki.controller;
+
+import com.example.bsep_backend.pki.dto.OCSPMetricsResponse;
+import com.example.bsep_backend.pki.service.OCSPResponderService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+/**
+ * OCSP endpoint (RFC 6960 appendix A). GET requests carry the base64 request in the path and get
+ * HTTP caching headers so that proxies can serve repeated queries (RFC 5019).
+ */
+@RestController
+@RequestMapping("/ocsp")
+@RequiredArgsConstructor
+public class OCSPController {
+
+    private static final String OCSP_REQUEST = "application/ocsp-request";
+    private static final MediaType OCSP_RESPONSE = MediaType.parseMediaType("application/ocsp-response");
+
+    private final OCSPResponderService ocspResponderService;
+
+    @PostMapping(consumes = OCSP_REQUEST)
+    public ResponseEntity<byte[]> respond(@RequestBody byte[] request) {
+        OCSPResponderService.OCSPResponse response = ocspResponderService.respond(request);
+        return ResponseEntity.ok()
+                .contentType(OCSP_RESPONSE)
+                .body(response.encoded());
+    }
+
+    @GetMapping("/metrics")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<OCSPMetricsResponse> getMetrics() {
+        return ResponseEntity.ok(ocspResponderService.getMetrics());
+    }
+
+    // The base64 request may itself contain '/', so the whole remaining path is the request
+    @GetMapping("/**")
+    public ResponseEntity<byte[]> respondToGet(HttpServletRequest httpRequest) {
+        String prefix = httpRequest.getContextPath() + "/ocsp/";
+        String encoded = URLDecoder.decode(httpRequest.getRequestURI().substring(prefix.length()), StandardCharsets.UTF_8);
+
+        byte[] request;
+        try {
+            request = Base64.getDecoder().decode(encoded);
+        } catch (IllegalArgumentException e) {
+            request = new byte[0];
+        }
+
+        OCSPResponderService.OCSPResponse response = ocspResponderService.respond(request);
+        if (!response.isCacheable()) {
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noStore())
+                    .contentType(OCSP_RESPONSE)
+                    .body(response.encoded());
+        }
+
+        long maxAge = Math.max(0, Duration.between(Instant.now(), response.refreshAt()).getSeconds());
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(Duration.ofSeconds(maxAge)).cachePublic().noTransform())
+                .lastModified(response.thisUpdate())
+                .headers(headers -> headers.setExpires(response.nextUpdate().atZone(ZoneOffset.UTC)))
+                .eTag(response.etag())
+                .contentType(OCSP_RESPONSE)
+                .body(response.encoded());
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.bsep_backend.pki.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.security.cert.X509Certificate;
+
+/**
+ * Everything needed to sign with a CA, resolved once: the CA entity, its parsed certificate and
+ * the unlocked private key. Read-only, so it can be shared by parallel signing workers.
+ */
+@Getter
+@AllArgsConstructor
+public class CASigningContext {
+    private final Certificate ca;
+    private final X509Certificate caCertificate;
+    private final Issuer issuer;
+}
@@ -1,7 +1,9 @@
 package com.example.bsep_backend.pki.domain;
 
 public enum CSRStatus {
+    RECEIVED,
     PENDING,
     APPROVED,
-    REJECTED
+    REJECTED,
+    INVALID
 }
\ No newline at end of file
@@ -12,7 +12,12 @@ import java.time.LocalDateTime;
 
 @Data
 @Entity
-@Table(name = "certificates")
+@Table(name = "certificates", indexes = {
+        @Index(name = "idx_certificates_spki_sha256", columnList = "spki_sha256"),
+        @Index(name = "idx_certificates_ski", columnList = "subject_key_identifier"),
+        @Index(name = "idx_certificates_not_after", columnList = "not_after"),
+        @Index(name = "idx_certificates_renewed_from", columnList = "renewed_from_id", unique = true)
+})
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
@@ -30,7 +35,7 @@ public class Certificate {
     @Column(nullable = false)
     private LocalDateTime notBefore;
 
-    @Column(nullable = false)
+    @Column(name = "not_after", nullable = false)
     private LocalDateTime notAfter;
 
     @Enumerated(EnumType.STRING)
@@ -55,6 +60,37 @@ public class Certificate {
     @Column(nullable = false)
     private String organization;
 
+    // Lowercase hex, see KeyFingerprints
+    @Column(name = "spki_sha256", length = 64)
+    private String spkiSha256;
+
+    @Column(name = "subject_key_identifier", length = 128)
+    private String subjectKeyIdentifier;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt = LocalDateTime.now();
+
+    @Column(name = "revoked_at")
+    private LocalDateTime revokedAt;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "revocation_reason")
+    private RevocationReason revocationReason;
+
+    // Set on the new certificate; the unique index allows only one successor per certificate
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "renewed_from_id")
+    private Certificate renewedFrom;
+
+    // Set on the old certificate once its successor is stored
+    @Column(name = "renewed_at")
+    private LocalDateTime renewedAt;
+
+    // Claimed by a renewal worker until this time, so concurrent renewals of one certificate are fenced
+    @Column(name = "renewal_lease_until")
+    private LocalDateTime renewalLeaseUntil;
+
+    public boolean isRevoked() {
+        return revokedAt != null;
+    }
 }
\ No newline at end of file
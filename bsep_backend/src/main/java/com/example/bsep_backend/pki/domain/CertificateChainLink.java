@@ -0,0 +1,7 @@
+package com.example.bsep_backend.pki.domain;
+
+/**
+ * The columns needed to assemble a chain from issuer links, loaded without the entity and its associations.
+ */
+public record CertificateChainLink(Long id, String serialNumber, Long issuerId, boolean isCa, String certificateData) {
+}
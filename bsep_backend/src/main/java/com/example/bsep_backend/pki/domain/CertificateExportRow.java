@@ -0,0 +1,13 @@
+package com.example.bsep_backend.pki.domain;
+
+import java.time.LocalDateTime;
+
+/**
+ * One certificate as written by the bulk export, loaded as a projection so streaming it does not
+ * fill the persistence context.
+ */
+public record CertificateExportRow(Long id, String serialNumber, String commonName, String organization,
+                                   CertificateType type, boolean isCa, LocalDateTime notBefore,
+                                   LocalDateTime notAfter, LocalDateTime revokedAt, String issuerSerialNumber,
+                                   String certificateData) {
+}
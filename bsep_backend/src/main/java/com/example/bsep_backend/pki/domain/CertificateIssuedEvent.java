@@ -0,0 +1,15 @@
+package com.example.bsep_backend.pki.domain;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published when a certificate is stored, so in-memory schedules can track it without rescanning
+ * the certificates table.
+ */
+public record CertificateIssuedEvent(Long certificateId, String serialNumber, Long issuerId, LocalDateTime notAfter) {
+
+    public static CertificateIssuedEvent of(Certificate certificate) {
+        return new CertificateIssuedEvent(certificate.getId(), certificate.getSerialNumber(),
+                certificate.getIssuer() != null ? certificate.getIssuer().getId() : null, certificate.getNotAfter());
+    }
+}
@@ -12,7 +12,10 @@ import java.util.List;
 
 @Data
 @Entity
-@Table(name = "certificate_signing_requests")
+@Table(name = "certificate_signing_requests", indexes = {
+        @Index(name = "idx_csr_spki_sha256", columnList = "spki_sha256"),
+        @Index(name = "idx_csr_ski", columnList = "subject_key_identifier")
+})
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
@@ -24,13 +27,11 @@ public class CertificateSigningRequest {
     @Column(columnDefinition = "TEXT", nullable = false)
     private String csrData;
 
-    @Column(nullable = false)
+    // Filled in once the ingestion pipeline has parsed the CSR (RECEIVED -> PENDING)
     private String commonName;
 
-    @Column(nullable = false)
     private String organization;
 
-    @Column(nullable = false)
     private String country;
 
     @Enumerated(EnumType.STRING)
@@ -49,6 +50,9 @@ public class CertificateSigningRequest {
     @Column(name = "rejection_reason")
     private String rejectionReason;
 
+    @Column(name = "failure_reason")
+    private String failureReason;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "requester_id", nullable = false)
     private User requester;
@@ -62,4 +66,11 @@ public class CertificateSigningRequest {
     private Certificate issuedCertificate;
 
     private List<String> subjectAlternativeNames;
+
+    // Lowercase hex, see KeyFingerprints
+    @Column(name = "spki_sha256", length = 64)
+    private String spkiSha256;
+
+    @Column(name = "subject_key_identifier", length = 128)
+    private String subjectKeyIdentifier;
 }
\ No newline at end of file
@@ -0,0 +1,14 @@
+package com.example.bsep_backend.pki.domain;
+
+import java.time.LocalDateTime;
+
+/**
+ * Revocation-relevant columns of a certificate, loaded without the entity and its associations.
+ */
+public record CertificateStatus(String serialNumber, Long issuerId, LocalDateTime revokedAt,
+                                RevocationReason revocationReason) {
+
+    public boolean isRevoked() {
+        return revokedAt != null;
+    }
+}
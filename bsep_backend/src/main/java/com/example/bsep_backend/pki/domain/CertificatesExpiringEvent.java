@@ -0,0 +1,15 @@
+package com.example.bsep_backend.pki.domain;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Published in batches when certificates reach one of the configured expiry lead times.
+ */
+public record CertificatesExpiringEvent(Duration leadTime, List<ExpiringCertificate> certificates) {
+
+    public record ExpiringCertificate(Long id, String serialNumber, String commonName, Long issuerId,
+                                      Long ownerId, boolean isCa, LocalDateTime notAfter) {
+    }
+}
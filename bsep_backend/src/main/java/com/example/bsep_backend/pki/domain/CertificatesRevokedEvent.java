@@ -0,0 +1,20 @@
+package com.example.bsep_backend.pki.domain;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Published after revocations are committed, so CRL and status caches can drop stale data.
+ * Serial numbers are grouped by the id of the issuing CA certificate.
+ */
+public record CertificatesRevokedEvent(Map<Long, List<String>> serialNumbersByIssuer) {
+
+    public static CertificatesRevokedEvent of(Long issuerId, String serialNumber) {
+        return new CertificatesRevokedEvent(Map.of(issuerId, List.of(serialNumber)));
+    }
+
+    public Set<Long> issuerIds() {
+        return serialNumbersByIssuer.keySet();
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.bsep_backend.pki.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Append-only record of revocations per issuing CA. CRLs are built by replaying the entries after
+ * the last one already applied, so publishing never scans the certificates table.
+ */
+@Data
+@Entity
+@Table(name = "revocation_journal", indexes = {
+        @Index(name = "idx_revocation_journal_issuer", columnList = "issuer_id, id")
+})
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class RevocationJournalEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "issuer_id", nullable = false)
+    private Certificate issuer;
+
+    @Column(nullable = false)
+    private String serialNumber;
+
+    @Column(name = "revoked_at", nullable = false)
+    private LocalDateTime revokedAt;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private RevocationReason reason;
+}
@@ -0,0 +1,26 @@
+package com.example.bsep_backend.pki.domain;
+
+import org.bouncycastle.asn1.x509.CRLReason;
+
+// RFC 5280 CRLReason codes
+public enum RevocationReason {
+    UNSPECIFIED(CRLReason.unspecified),
+    KEY_COMPROMISE(CRLReason.keyCompromise),
+    CA_COMPROMISE(CRLReason.cACompromise),
+    AFFILIATION_CHANGED(CRLReason.affiliationChanged),
+    SUPERSEDED(CRLReason.superseded),
+    CESSATION_OF_OPERATION(CRLReason.cessationOfOperation),
+    CERTIFICATE_HOLD(CRLReason.certificateHold),
+    PRIVILEGE_WITHDRAWN(CRLReason.privilegeWithdrawn),
+    AA_COMPROMISE(CRLReason.aACompromise);
+
+    private final int code;
+
+    RevocationReason(int code) {
+        this.code = code;
+    }
+
+    public int getCode() {
+        return code;
+    }
+}
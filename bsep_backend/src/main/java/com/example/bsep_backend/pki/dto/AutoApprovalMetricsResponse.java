@@ -0,0 +1,19 @@
+package com.example.bsep_backend.pki.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.Map;
+
+@Data
+@Builder
+public class AutoApprovalMetricsResponse {
+
+    private boolean enabled;
+    private long evaluated;
+    private long matched;
+    private long issued;
+    private long issueFailures;
+    private double averageEvaluationMicros;
+    private Map<String, Long> ruleHits;
+}
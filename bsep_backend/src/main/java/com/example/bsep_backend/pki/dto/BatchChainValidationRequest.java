@@ -0,0 +1,17 @@
+package com.example.bsep_backend.pki.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+public class BatchChainValidationRequest {
+
+    @NotEmpty(message = "At least one serial number is required")
+    private List<String> serialNumbers;
+
+    // Defaults to now
+    private LocalDateTime at;
+}
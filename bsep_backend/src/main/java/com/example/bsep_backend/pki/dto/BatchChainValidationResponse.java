@@ -0,0 +1,17 @@
+package com.example.bsep_backend.pki.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class BatchChainValidationResponse {
+
+    private int valid;
+    private int invalid;
+    private int cached;
+    private long durationMs;
+    private List<ChainValidationResponse> results;
+}
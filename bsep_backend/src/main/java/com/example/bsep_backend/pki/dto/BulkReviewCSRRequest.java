@@ -0,0 +1,21 @@
+package com.example.bsep_backend.pki.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BulkReviewCSRRequest {
+
+    @NotEmpty(message = "At least one CSR id is required")
+    private List<Long> csrIds;
+
+    @NotNull(message = "Approval decision is required")
+    private Boolean approved;
+
+    private String rejectionReason;
+
+    private String selectedCaSerialNumber;
+}
@@ -0,0 +1,29 @@
+package com.example.bsep_backend.pki.dto;
+
+import com.example.bsep_backend.pki.domain.CSRStatus;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class BulkReviewCSRResponse {
+
+    private int approved;
+    private int rejected;
+    private int failed;
+    private long durationMs;
+    private List<ItemResult> results;
+
+    @Data
+    @Builder
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class ItemResult {
+        private Long csrId;
+        private CSRStatus status;
+        private String issuedCertificateSerialNumber;
+        private String error;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.bsep_backend.pki.dto;
+
+import com.example.bsep_backend.pki.domain.CSRStatus;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CSRBundleItemResult {
+
+    private int index;
+    private CSRStatus status;
+    private Long csrId;
+    private String commonName;
+    private String issuedCertificateSerialNumber;
+    private String error;
+}
@@ -0,0 +1,29 @@
+package com.example.bsep_backend.pki.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.Map;
+
+@Data
+@Builder
+public class CSRPipelineMetricsResponse {
+
+    private int workers;
+    private int activeWorkers;
+    private int queueDepth;
+    private int queueCapacity;
+    private long submitted;
+    private long rejected;
+    private long completed;
+    private long invalid;
+    private Map<String, StageMetrics> stages;
+
+    @Data
+    @Builder
+    public static class StageMetrics {
+        private long processed;
+        private long failed;
+        private double averageMillis;
+    }
+}
@@ -21,6 +21,7 @@ public class CSRResponse {
     private LocalDateTime createdAt;
     private LocalDateTime reviewedAt;
     private String rejectionReason;
+    private String failureReason;
     private String requesterEmail;
     private String reviewerEmail;
     private String selectedCaCommonName;
@@ -11,4 +11,5 @@ public class CertificateExportResponse {
     private String contentType;
     private byte[] content;
     private String format;
+    private String etag;
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package com.example.bsep_backend.pki.dto;
 
 import com.example.bsep_backend.pki.domain.CertificateType;
+import com.example.bsep_backend.pki.domain.RevocationReason;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Builder;
 import lombok.Data;
@@ -32,6 +33,14 @@ public class CertificateResponse {
     private String issuerSerialNumber;
     private String issuerCommonName;
 
+    // Revocation status
+    private boolean revoked;
+    private LocalDateTime revokedAt;
+    private RevocationReason revocationReason;
+
+    // Set once a successor has been issued by renewal
+    private LocalDateTime renewedAt;
+
     // Optional: Certificate data for download (only when specifically requested)
     private String certificateData;
 }
\ No newline at end of file
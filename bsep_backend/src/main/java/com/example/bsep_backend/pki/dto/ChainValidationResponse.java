@@ -0,0 +1,35 @@
+package com.example.bsep_backend.pki.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder(toBuilder = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ChainValidationResponse {
+
+    public enum Status {
+        VALID,
+        EXPIRED,
+        NOT_YET_VALID,
+        REVOKED,
+        INVALID_SIGNATURE,
+        UNTRUSTED,
+        INVALID,
+        NOT_FOUND
+    }
+
+    private String serialNumber;
+    private boolean valid;
+    private Status status;
+    private String message;
+    // Serial numbers from the leaf up to the root
+    private List<String> chain;
+    private String failedSerialNumber;
+    private LocalDateTime validatedAt;
+    private boolean cached;
+}
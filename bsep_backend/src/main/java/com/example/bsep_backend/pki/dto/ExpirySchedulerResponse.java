@@ -0,0 +1,22 @@
+package com.example.bsep_backend.pki.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+public class ExpirySchedulerResponse {
+
+    private boolean enabled;
+    private boolean loaded;
+    private List<String> leadTimes;
+    private long trackedNotifications;
+    private LocalDateTime windowEnd;
+    private long fired;
+    private long skipped;
+    private long emailsQueued;
+    private long emailFailures;
+}
@@ -0,0 +1,15 @@
+package com.example.bsep_backend.pki.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class FingerprintBackfillResponse {
+
+    private boolean running;
+    private long certificatesUpdated;
+    private long csrsUpdated;
+    private long failed;
+    private long durationMs;
+}
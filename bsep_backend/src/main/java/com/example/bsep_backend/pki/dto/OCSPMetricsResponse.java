@@ -0,0 +1,17 @@
+package com.example.bsep_backend.pki.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class OCSPMetricsResponse {
+
+    private long requests;
+    private long cacheHits;
+    private long signed;
+    private long refreshed;
+    private long errors;
+    private int cachedResponses;
+    private int responders;
+}
@@ -0,0 +1,16 @@
+package com.example.bsep_backend.pki.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class PublicKeyLookupResponse {
+
+    private String spkiSha256;
+    private String subjectKeyIdentifier;
+    private List<CertificateResponse> certificates;
+    private List<CSRResponse> csrs;
+}
@@ -0,0 +1,26 @@
+package com.example.bsep_backend.pki.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+public class RenewalMetricsResponse {
+
+    private boolean enabled;
+    private boolean running;
+    private long waves;
+    private long candidates;
+    private long renewed;
+    private long failed;
+    private long fenced;
+    private long skipped;
+    private double averageSignMillis;
+    private LocalDateTime lastWaveStartedAt;
+    private long lastWaveDurationMs;
+    private long lastWaveRenewed;
+    private long lastWaveSkipped;
+    private double lastWaveThroughputPerSecond;
+}
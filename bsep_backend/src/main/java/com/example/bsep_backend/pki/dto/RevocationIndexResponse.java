@@ -0,0 +1,19 @@
+package com.example.bsep_backend.pki.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class RevocationIndexResponse {
+
+    private boolean loaded;
+    private boolean offHeap;
+    private int certificateAuthorities;
+    private long revokedSerials;
+    private long pendingMerge;
+    private long sortedArrayBytes;
+    private long lookups;
+    private long fallbackLookups;
+    private long loadDurationMs;
+}
@@ -0,0 +1,10 @@
+package com.example.bsep_backend.pki.dto;
+
+import com.example.bsep_backend.pki.domain.RevocationReason;
+import lombok.Data;
+
+@Data
+public class RevokeCertificateRequest {
+
+    private RevocationReason reason = RevocationReason.UNSPECIFIED;
+}
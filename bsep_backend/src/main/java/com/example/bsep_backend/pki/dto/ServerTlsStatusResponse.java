@@ -0,0 +1,41 @@
+package com.example.bsep_backend.pki.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+public class ServerTlsStatusResponse {
+
+    private boolean enabled;
+    private String bundleName;
+    private String serialNumber;
+    private String subject;
+    private LocalDateTime notAfter;
+    private LocalDateTime renewAt;
+    private String keystoreFile;
+    private long reloads;
+    private long rotations;
+    private long failures;
+    private LocalDateTime lastReloadAt;
+    private String lastReloadReason;
+    private String lastError;
+    private String rotationSkippedReason;
+    private int probeHandshakes;
+    private double handshakeMillisBeforeP50;
+    private double handshakeMillisBeforeMax;
+    private double handshakeMillisAfterP50;
+    private double handshakeMillisAfterMax;
+    private int failedHandshakes;
+    private String servedSerialNumber;
+    private String keyAlgorithm;
+    private long handshakes;
+    private long fullHandshakes;
+    private long resumedHandshakes;
+    private double resumptionRate;
+    private int sessionCacheSize;
+    private int sessionTimeoutSeconds;
+    private boolean sessionTickets;
+}
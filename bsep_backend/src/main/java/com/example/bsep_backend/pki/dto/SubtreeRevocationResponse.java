@@ -0,0 +1,29 @@
+package com.example.bsep_backend.pki.dto;
+
+import com.example.bsep_backend.pki.domain.RevocationReason;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+public class SubtreeRevocationResponse {
+
+    public enum Status {
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    private String jobId;
+    private String rootSerialNumber;
+    private RevocationReason reason;
+    private Status status;
+    private long totalCertificates;
+    private long revokedCertificates;
+    private long deactivatedAssignments;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String error;
+}
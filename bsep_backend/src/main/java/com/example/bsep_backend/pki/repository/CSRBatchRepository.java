@@ -0,0 +1,90 @@
+package com.example.bsep_backend.pki.repository;
+
+import com.example.bsep_backend.pki.domain.CertificateSigningRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JDBC batch insert for CSRs. The entity uses IDENTITY ids, which makes Hibernate insert rows
+ * one statement at a time; bundle uploads go through here to send a whole chunk in one batch
+ * and still get the generated ids back.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CSRBatchRepository {
+
+    private static final String INSERT_SQL = "INSERT INTO certificate_signing_requests " +
+            "(csr_data, common_name, organization, country, status, requested_validity_days, " +
+            "created_at, requester_id, subject_alternative_names, spki_sha256, subject_key_identifier) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String APPROVE_SQL = "UPDATE certificate_signing_requests " +
+            "SET status = 'APPROVED', issued_certificate_id = ?, reviewer_id = ?, reviewed_at = ? " +
+            "WHERE id = ? AND status = 'PENDING'";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public record Approval(Long csrId, Long certificateId, Long reviewerId, LocalDateTime reviewedAt) {
+    }
+
+    public List<Long> insertAll(List<CertificateSigningRequest> csrs) {
+        if (csrs.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.execute((ConnectionCallback<List<Long>>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL, new String[]{"id"})) {
+                for (CertificateSigningRequest csr : csrs) {
+                    statement.setString(1, csr.getCsrData());
+                    statement.setString(2, csr.getCommonName());
+                    statement.setString(3, csr.getOrganization());
+                    statement.setString(4, csr.getCountry());
+                    statement.setString(5, csr.getStatus().name());
+                    statement.setObject(6, csr.getRequestedValidityDays(), Types.INTEGER);
+                    statement.setTimestamp(7, Timestamp.valueOf(csr.getCreatedAt()));
+                    statement.setLong(8, csr.getRequester().getId());
+                    List<String> sans = csr.getSubjectAlternativeNames();
+                    if (sans == null) {
+                        statement.setNull(9, Types.ARRAY);
+                    } else {
+                        Array array = connection.createArrayOf("varchar", sans.toArray());
+                        statement.setArray(9, array);
+                    }
+                    statement.setString(10, csr.getSpkiSha256());
+                    statement.setString(11, csr.getSubjectKeyIdentifier());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+
+                List<Long> ids = new ArrayList<>(csrs.size());
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    while (keys.next()) {
+                        ids.add(keys.getLong(1));
+                    }
+                }
+                return ids;
+            }
+        });
+    }
+
+    public void markApproved(List<Approval> approvals) {
+        if (approvals.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = approvals.stream()
+                .map(approval -> new Object[]{approval.certificateId(), approval.reviewerId(),
+                        Timestamp.valueOf(approval.reviewedAt()), approval.csrId()})
+                .toList();
+        jdbcTemplate.batchUpdate(APPROVE_SQL, rows);
+    }
+}
@@ -3,11 +3,17 @@ package com.example.bsep_backend.pki.repository;
 import com.example.bsep_backend.domain.User;
 import com.example.bsep_backend.pki.domain.CSRStatus;
 import com.example.bsep_backend.pki.domain.CertificateSigningRequest;
+import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface CSRRepository extends JpaRepository<CertificateSigningRequest, Long> {
@@ -52,4 +58,50 @@ public interface CSRRepository extends JpaRepository<CertificateSigningRequest,
            "WHERE csr.organization = :organization AND csr.status = :status " +
            "ORDER BY csr.createdAt DESC")
     List<CertificateSigningRequest> findByOrganizationAndStatusWithDetails(String organization, CSRStatus status);
-}
\ No newline at end of file
+
+    @Query("SELECT csr.id FROM CertificateSigningRequest csr " +
+           "WHERE csr.status = :status AND csr.createdAt < :before " +
+           "ORDER BY csr.id")
+    List<Long> findIdsByStatusCreatedBefore(CSRStatus status, LocalDateTime before, Pageable pageable);
+
+    @Query("SELECT csr FROM CertificateSigningRequest csr " +
+           "JOIN FETCH csr.requester " +
+           "WHERE csr.id IN :ids")
+    List<CertificateSigningRequest> findAllByIdWithRequester(Collection<Long> ids);
+
+    @Query("SELECT csr FROM CertificateSigningRequest csr " +
+           "JOIN FETCH csr.requester " +
+           "WHERE csr.id = :id")
+    Optional<CertificateSigningRequest> findByIdWithRequester(Long id);
+
+    // Review paths lock the rows and re-check the status, so a CSR is approved or rejected only once
+    // across reviewers, auto-approval and instances. Ordered by id so concurrent batches cannot deadlock.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT csr FROM CertificateSigningRequest csr WHERE csr.id IN :ids ORDER BY csr.id")
+    List<CertificateSigningRequest> findAllByIdForUpdate(Collection<Long> ids);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT csr FROM CertificateSigningRequest csr WHERE csr.id = :id")
+    Optional<CertificateSigningRequest> findByIdForUpdate(Long id);
+
+    @Query("SELECT csr.id FROM CertificateSigningRequest csr " +
+           "WHERE csr.spkiSha256 = :spkiSha256 AND csr.status IN :statuses AND csr.id <> :excludeId")
+    List<Long> findIdsBySpkiSha256AndStatusIn(String spkiSha256, Collection<CSRStatus> statuses, Long excludeId,
+                                             Pageable pageable);
+
+    @Query("SELECT csr FROM CertificateSigningRequest csr " +
+           "JOIN FETCH csr.requester " +
+           "LEFT JOIN FETCH csr.reviewer " +
+           "LEFT JOIN FETCH csr.issuedCertificate " +
+           "WHERE csr.spkiSha256 = :spkiSha256 " +
+           "ORDER BY csr.createdAt DESC")
+    List<CertificateSigningRequest> findBySpkiSha256WithDetails(String spkiSha256);
+
+    @Query("SELECT csr FROM CertificateSigningRequest csr " +
+           "JOIN FETCH csr.requester " +
+           "LEFT JOIN FETCH csr.reviewer " +
+           "LEFT JOIN FETCH csr.issuedCertificate " +
+           "WHERE csr.subjectKeyIdentifier = :subjectKeyIdentifier " +
+           "ORDER BY csr.createdAt DESC")
+    List<CertificateSigningRequest> findBySubjectKeyIdentifierWithDetails(String subjectKeyIdentifier);
+}
@@ -1,14 +1,24 @@
 package com.example.bsep_backend.pki.repository;
 
 import com.example.bsep_backend.pki.domain.Certificate;
+import com.example.bsep_backend.pki.domain.CertificateChainLink;
+import com.example.bsep_backend.pki.domain.CertificateExportRow;
+import com.example.bsep_backend.pki.domain.CertificateStatus;
 import com.example.bsep_backend.pki.domain.CertificateType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface CertificateRepository extends JpaRepository<Certificate, Long> {
@@ -29,4 +39,51 @@ public interface CertificateRepository extends JpaRepository<Certificate, Long>
 
     @Query("SELECT c FROM Certificate c LEFT JOIN FETCH c.owner LEFT JOIN FETCH c.issuer WHERE c.issuer IN :parentCertificates")
     List<Certificate> findByIssuerIn(@Param("parentCertificates") List<Certificate> parentCertificates);
-}
\ No newline at end of file
+
+    @Query("SELECT c FROM Certificate c LEFT JOIN FETCH c.owner LEFT JOIN FETCH c.issuer WHERE c.spkiSha256 = :spkiSha256")
+    List<Certificate> findBySpkiSha256WithOwnerAndIssuer(@Param("spkiSha256") String spkiSha256);
+
+    @Query("SELECT c FROM Certificate c LEFT JOIN FETCH c.owner LEFT JOIN FETCH c.issuer WHERE c.subjectKeyIdentifier = :subjectKeyIdentifier")
+    List<Certificate> findBySubjectKeyIdentifierWithOwnerAndIssuer(@Param("subjectKeyIdentifier") String subjectKeyIdentifier);
+
+    @Query("SELECT c.serialNumber FROM Certificate c WHERE c.spkiSha256 = :spkiSha256 AND c.notAfter > :now AND c.revokedAt IS NULL")
+    List<String> findValidSerialNumbersBySpkiSha256(@Param("spkiSha256") String spkiSha256,
+                                                    @Param("now") LocalDateTime now,
+                                                    Pageable pageable);
+
+    @Query("SELECT c FROM Certificate c LEFT JOIN FETCH c.owner LEFT JOIN FETCH c.issuer WHERE c.id IN :ids")
+    List<Certificate> findByIdInWithOwnerAndIssuer(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT c FROM Certificate c LEFT JOIN FETCH c.owner LEFT JOIN FETCH c.issuer WHERE c.serialNumber IN :serialNumbers")
+    List<Certificate> findBySerialNumberInWithOwnerAndIssuer(@Param("serialNumbers") Collection<String> serialNumbers);
+
+    @Query("SELECT new com.example.bsep_backend.pki.domain.CertificateChainLink(c.id, c.serialNumber, i.id, c.isCa, c.certificateData) " +
+           "FROM Certificate c LEFT JOIN c.issuer i WHERE c.serialNumber IN :serialNumbers")
+    List<CertificateChainLink> findChainLinksBySerialNumbers(@Param("serialNumbers") Collection<String> serialNumbers);
+
+    @Query("SELECT new com.example.bsep_backend.pki.domain.CertificateChainLink(c.id, c.serialNumber, i.id, c.isCa, c.certificateData) " +
+           "FROM Certificate c LEFT JOIN c.issuer i WHERE c.id IN :ids")
+    List<CertificateChainLink> findChainLinksByIds(@Param("ids") Collection<Long> ids);
+
+    // Must be consumed inside a transaction; the fetch size keeps the driver reading through a cursor
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.example.bsep_backend.pki.domain.CertificateExportRow(c.id, c.serialNumber, c.commonName, " +
+           "c.organization, c.type, c.isCa, c.notBefore, c.notAfter, c.revokedAt, i.serialNumber, c.certificateData) " +
+           "FROM Certificate c LEFT JOIN c.issuer i " +
+           "WHERE (:organization IS NULL OR c.organization = :organization) " +
+           "AND (:type IS NULL OR c.type = :type) " +
+           "AND (:issuedFrom IS NULL OR c.notBefore >= :issuedFrom) " +
+           "AND (:issuedTo IS NULL OR c.notBefore < :issuedTo) " +
+           "AND (:allIssuers = true OR c.id IN :subtreeCaIds OR i.id IN :subtreeCaIds) " +
+           "ORDER BY c.id")
+    Stream<CertificateExportRow> streamForExport(@Param("organization") String organization,
+                                                 @Param("type") CertificateType type,
+                                                 @Param("issuedFrom") LocalDateTime issuedFrom,
+                                                 @Param("issuedTo") LocalDateTime issuedTo,
+                                                 @Param("allIssuers") boolean allIssuers,
+                                                 @Param("subtreeCaIds") Collection<Long> subtreeCaIds);
+
+    @Query("SELECT new com.example.bsep_backend.pki.domain.CertificateStatus(c.serialNumber, c.issuer.id, c.revokedAt, c.revocationReason) " +
+           "FROM Certificate c WHERE c.serialNumber IN :serialNumbers")
+    List<CertificateStatus> findStatusesBySerialNumbers(@Param("serialNumbers") Collection<String> serialNumbers);
+}
@@ -0,0 +1,15 @@
+package com.example.bsep_backend.pki.repository;
+
+import com.example.bsep_backend.pki.domain.RevocationJournalEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface RevocationJournalRepository extends JpaRepository<RevocationJournalEntry, Long> {
+
+    @Query("SELECT e FROM RevocationJournalEntry e WHERE e.issuer.id = :issuerId AND e.id > :afterId ORDER BY e.id")
+    List<RevocationJournalEntry> findByIssuerIdAfter(Long issuerId, Long afterId);
+}
@@ -0,0 +1,41 @@
+package com.example.bsep_backend.pki.service;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "pki.auto-approval")
+public class AutoApprovalProperties {
+
+    private boolean enabled = false;
+
+    // CA used by rules that do not name their own
+    private String caSerialNumber;
+
+    // How long an unlocked CA key is kept for auto-approval before it is loaded again
+    private long signingContextTtlMs = 300_000;
+
+    private List<Rule> rules = new ArrayList<>();
+
+    /**
+     * A CSR matches a rule when it satisfies every criterion that is set on it. Unset criteria match anything.
+     */
+    @Data
+    public static class Rule {
+        private String name;
+        // Matched against the requester's account organization, which must also be the CSR's O=
+        private List<String> organizations = new ArrayList<>();
+        private String commonNamePattern;
+        // The CSR needs at least one SAN and every SAN must end with one of these (e.g. ".devices.example.com")
+        private List<String> sanSuffixes = new ArrayList<>();
+        private List<String> keyAlgorithms = new ArrayList<>();
+        private Integer minKeySize;
+        private Integer maxValidityDays;
+        private String caSerialNumber;
+    }
+}
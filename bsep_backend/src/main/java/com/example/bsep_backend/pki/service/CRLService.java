@@ -0,0 +1,256 @@
+package com.example.bsep_backend.pki.service;
+
+import com.example.bsep_backend.exception.InvalidRequestException;
+import com.example.bsep_backend.exception.NotFoundException;
+import com.example.bsep_backend.pki.domain.Certificate;
+import com.example.bsep_backend.pki.domain.CertificatesRevokedEvent;
+import com.example.bsep_backend.pki.domain.RevocationJournalEntry;
+import com.example.bsep_backend.pki.repository.CertificateRepository;
+import com.example.bsep_backend.pki.repository.RevocationJournalRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.AuthorityKeyIdentifier;
+import org.bouncycastle.asn1.x509.CRLNumber;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.SubjectKeyIdentifier;
+import org.bouncycastle.cert.X509CRLHolder;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cert.X509v2CRLBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigInteger;
+import java.security.PrivateKey;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes a full CRL and a delta CRL per CA.
+ * <p>
+ * Each CA keeps its revoked entries in memory and replays the revocation journal from a cursor.
+ * Journal ids are taken at insert, not at commit, so a transaction can commit a lower id after a
+ * higher one was read; the cursor therefore trails by journalLagMs and the overlap is deduplicated
+ * by serial number. New revocations produce a delta CRL against the current full CRL; the
+ * full CRL is re-signed when its refresh interval passes or the delta grows past maxDeltaEntries.
+ * The signed DER is cached, so serving a CRL whose content has not changed never signs or encodes
+ * anything.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CRLService {
+
+    private static final String SIGNATURE_ALGORITHM = "SHA256WithRSAEncryption";
+
+    private final CertificateRepository certificateRepository;
+    private final RevocationJournalRepository revocationJournalRepository;
+    private final KeyStoreService keyStoreService;
+
+    @Value("${pki.crl.full-refresh-ms:3600000}")
+    private long fullRefreshMs;
+
+    @Value("${pki.crl.full-validity-ms:86400000}")
+    private long fullValidityMs;
+
+    @Value("${pki.crl.delta-validity-ms:900000}")
+    private long deltaValidityMs;
+
+    @Value("${pki.crl.max-delta-entries:1000}")
+    private int maxDeltaEntries;
+
+    // Longest expected time between a journal insert and its commit
+    @Value("${pki.crl.journal-lag-ms:300000}")
+    private long journalLagMs;
+
+    private final Map<String, CrlState> states = new ConcurrentHashMap<>();
+
+    // Epoch millis, kept strictly increasing so CRL numbers also grow across restarts
+    private final AtomicLong lastCrlNumber = new AtomicLong();
+
+    public record PublishedCRL(byte[] encoded, BigInteger crlNumber, String etag, Instant thisUpdate,
+                               Instant nextUpdate, Instant refreshAt) {
+    }
+
+    public PublishedCRL getFullCRL(String caSerialNumber) {
+        CrlState state = state(caSerialNumber);
+        PublishedCRL full = state.full;
+        if (full != null && !state.dirty && Instant.now().isBefore(full.refreshAt())) {
+            return full;
+        }
+        synchronized (state) {
+            refresh(state);
+            return state.full;
+        }
+    }
+
+    public PublishedCRL getDeltaCRL(String caSerialNumber) {
+        CrlState state = state(caSerialNumber);
+        PublishedCRL full = state.full;
+        PublishedCRL delta = state.delta;
+        Instant now = Instant.now();
+        if (full != null && delta != null && !state.dirty
+                && now.isBefore(full.refreshAt()) && now.isBefore(delta.refreshAt())) {
+            return delta;
+        }
+        synchronized (state) {
+            refresh(state);
+            return state.delta;
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCertificatesRevoked(CertificatesRevokedEvent event) {
+        for (CrlState state : states.values()) {
+            if (event.issuerIds().contains(state.caId)) {
+                state.dirty = true;
+            }
+        }
+    }
+
+    private CrlState state(String caSerialNumber) {
+        CrlState state = states.get(caSerialNumber);
+        if (state != null) {
+            return state;
+        }
+        Certificate ca = certificateRepository.findBySerialNumber(caSerialNumber)
+                .orElseThrow(() -> new NotFoundException("CA certificate not found"));
+        if (!ca.isCa()) {
+            throw new InvalidRequestException("Certificate " + caSerialNumber + " is not a CA certificate");
+        }
+        try {
+            X509CertificateHolder holder = new X509CertificateHolder(Base64.getDecoder().decode(ca.getCertificateData()));
+            SubjectKeyIdentifier ski = SubjectKeyIdentifier.fromExtensions(holder.getExtensions());
+            AuthorityKeyIdentifier aki = ski != null ? new AuthorityKeyIdentifier(ski.getKeyIdentifier()) : null;
+            CrlState created = new CrlState(ca.getId(), caSerialNumber, holder.getSubject(), aki);
+            CrlState existing = states.putIfAbsent(caSerialNumber, created);
+            return existing != null ? existing : created;
+        } catch (Exception e) {
+            throw new IllegalStateException("CA certificate " + caSerialNumber + " cannot be parsed", e);
+        }
+    }
+
+    // Callers hold the state's monitor
+    private void refresh(CrlState state) {
+        Instant now = Instant.now();
+
+        // Cleared before reading the journal so a revocation committed meanwhile marks it dirty again
+        state.dirty = false;
+        // Anything committed since the previous read was inserted after previousRead - lag
+        List<RevocationJournalEntry> journal = revocationJournalRepository.findByIssuerIdAfter(state.caId,
+                state.settledJournalId(state.lastReadMillis - journalLagMs));
+        state.lastReadMillis = now.toEpochMilli();
+        int added = 0;
+        for (RevocationJournalEntry entry : journal) {
+            BigInteger serial = new BigInteger(entry.getSerialNumber());
+            RevokedEntry revoked = new RevokedEntry(serial,
+                    Date.from(entry.getRevokedAt().atZone(ZoneId.systemDefault()).toInstant()),
+                    entry.getReason().getCode());
+            if (state.revoked.putIfAbsent(serial, revoked) == null) {
+                state.sinceFull.add(revoked);
+                added++;
+            }
+            state.lastJournalId = Math.max(state.lastJournalId, entry.getId());
+        }
+        state.cursors.addLast(new long[]{now.toEpochMilli(), state.lastJournalId});
+
+        boolean fullDue = state.full == null
+                || !now.isBefore(state.full.refreshAt())
+                || state.sinceFull.size() > maxDeltaEntries;
+        boolean deltaDue = fullDue || added > 0 || state.delta == null || !now.isBefore(state.delta.refreshAt());
+        if (!deltaDue) {
+            return;
+        }
+
+        try {
+            PrivateKey signingKey = keyStoreService.getPrivateKey(state.caSerialNumber);
+            if (fullDue) {
+                state.full = sign(state, signingKey, state.revoked.values(), null, now, fullValidityMs, fullRefreshMs);
+                state.sinceFull.clear();
+                log.info("Published full CRL {} for CA {} with {} entries",
+                        state.full.crlNumber(), state.caSerialNumber, state.revoked.size());
+            }
+            state.delta = sign(state, signingKey, state.sinceFull, state.full.crlNumber(), now,
+                    deltaValidityMs, deltaValidityMs / 2);
+            log.debug("Published delta CRL {} for CA {} with {} entries",
+                    state.delta.crlNumber(), state.caSerialNumber, state.sinceFull.size());
+        } catch (Exception e) {
+            state.dirty = true;
+            throw new IllegalStateException("Failed to sign CRL for CA " + state.caSerialNumber, e);
+        }
+    }
+
+    private PublishedCRL sign(CrlState state, PrivateKey signingKey, Collection<RevokedEntry> entries,
+                              BigInteger baseCrlNumber, Instant now, long validityMs, long refreshMs) throws Exception {
+        BigInteger crlNumber = BigInteger.valueOf(
+                lastCrlNumber.updateAndGet(last -> Math.max(last + 1, System.currentTimeMillis())));
+        Instant nextUpdate = now.plusMillis(validityMs);
+
+        X509v2CRLBuilder builder = new X509v2CRLBuilder(state.issuerName, Date.from(now));
+        builder.setNextUpdate(Date.from(nextUpdate));
+        for (RevokedEntry entry : entries) {
+            builder.addCRLEntry(entry.serial(), entry.revokedAt(), entry.reason());
+        }
+        if (state.authorityKeyIdentifier != null) {
+            builder.addExtension(Extension.authorityKeyIdentifier, false, state.authorityKeyIdentifier);
+        }
+        builder.addExtension(Extension.cRLNumber, false, new CRLNumber(crlNumber));
+        if (baseCrlNumber != null) {
+            builder.addExtension(Extension.deltaCRLIndicator, true, new CRLNumber(baseCrlNumber));
+        }
+
+        X509CRLHolder crl = builder.build(new JcaContentSignerBuilder(SIGNATURE_ALGORITHM).setProvider("BC").build(signingKey));
+        String etag = "\"" + state.caSerialNumber + "-" + crlNumber + "\"";
+        return new PublishedCRL(crl.getEncoded(), crlNumber, etag, now, nextUpdate, now.plusMillis(refreshMs));
+    }
+
+    private record RevokedEntry(BigInteger serial, Date revokedAt, int reason) {
+    }
+
+    private static final class CrlState {
+        private final Long caId;
+        private final String caSerialNumber;
+        private final X500Name issuerName;
+        private final AuthorityKeyIdentifier authorityKeyIdentifier;
+
+        private final Map<BigInteger, RevokedEntry> revoked = new LinkedHashMap<>();
+        private final List<RevokedEntry> sinceFull = new ArrayList<>();
+        private long lastJournalId;
+        // (epoch millis, lastJournalId) after each read, oldest first
+        private final Deque<long[]> cursors = new ArrayDeque<>();
+        private long settledJournalId;
+        private long lastReadMillis;
+
+        private volatile boolean dirty = true;
+        private volatile PublishedCRL full;
+        private volatile PublishedCRL delta;
+
+        CrlState(Long caId, String caSerialNumber, X500Name issuerName, AuthorityKeyIdentifier authorityKeyIdentifier) {
+            this.caId = caId;
+            this.caSerialNumber = caSerialNumber;
+            this.issuerName = issuerName;
+            this.authorityKeyIdentifier = authorityKeyIdentifier;
+        }
+
+        // The cursor as it was at cutoffMillis; ids at or below it were allocated before that time
+        long settledJournalId(long cutoffMillis) {
+            while (!cursors.isEmpty() && cursors.peekFirst()[0] <= cutoffMillis) {
+                settledJournalId = cursors.pollFirst()[1];
+            }
+            return settledJournalId;
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.example.bsep_backend.pki.service;
+
+import com.example.bsep_backend.audit.domain.AuditEventType;
+import com.example.bsep_backend.audit.service.AuditLogService;
+import com.example.bsep_backend.domain.User;
+import com.example.bsep_backend.exception.NotFoundException;
+import com.example.bsep_backend.pki.domain.CASigningContext;
+import com.example.bsep_backend.pki.domain.Certificate;
+import com.example.bsep_backend.pki.domain.CertificateSigningRequest;
+import com.example.bsep_backend.pki.domain.CertificatesRevokedEvent;
+import com.example.bsep_backend.pki.dto.AutoApprovalMetricsResponse;
+import com.example.bsep_backend.pki.repository.CertificateRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Approves routine CSRs without a human reviewer.
+ * <p>
+ * Rules from {@link AutoApprovalProperties} are compiled once at startup into predicates
+ * (sets, a precompiled regex, lowercased suffixes), so evaluating a CSR is a handful of
+ * comparisons. Matching CSRs are signed by the rule's CA on behalf of the CA owner; the unlocked
+ * CA key is cached for signingContextTtlMs instead of being derived again for every CSR.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CSRAutoApprovalService {
+
+    public static final String AUDIT_ACTOR = "auto-approval";
+
+    private final AutoApprovalProperties properties;
+    private final CertificateRepository certificateRepository;
+    private final CertificateService certificateService;
+    private final AuditLogService auditLogService;
+
+    private List<CompiledRule> rules = List.of();
+    private final Map<String, CachedContext> signingContexts = new ConcurrentHashMap<>();
+
+    private final LongAdder evaluated = new LongAdder();
+    private final LongAdder matched = new LongAdder();
+    private final LongAdder evaluationNanos = new LongAdder();
+    private final LongAdder issued = new LongAdder();
+    private final LongAdder issueFailures = new LongAdder();
+
+    public record Decision(String ruleName, String caSerialNumber) {
+    }
+
+    public record Approval(Decision decision, CASigningContext context, User signer,
+                           CertificateService.IssuedCertificate issued) {
+    }
+
+    @PostConstruct
+    void compile() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        List<CompiledRule> compiled = new ArrayList<>();
+        for (int i = 0; i < properties.getRules().size(); i++) {
+            compiled.add(compileRule(properties.getRules().get(i), i));
+        }
+        rules = List.copyOf(compiled);
+        log.info("CSR auto-approval enabled with {} rules", rules.size());
+    }
+
+    public boolean isEnabled() {
+        return !rules.isEmpty();
+    }
+
+    /**
+     * Returns the first matching rule, or null when the CSR needs a human reviewer.
+     */
+    public Decision evaluate(CSRParser.ParsedCSR csr, int validityDays, User requester) {
+        if (rules.isEmpty()) {
+            return null;
+        }
+        long start = System.nanoTime();
+        try {
+            for (CompiledRule rule : rules) {
+                if (rule.matches(new Candidate(csr, validityDays, requester.getOrganization()))) {
+                    rule.hits.increment();
+                    matched.increment();
+                    return new Decision(rule.name, rule.caSerialNumber);
+                }
+            }
+            return null;
+        } finally {
+            evaluated.increment();
+            evaluationNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Signs the certificate for a matched CSR without touching the database. Returns null
+     * (and leaves the CSR for manual review) if the CA cannot be used.
+     */
+    public Approval issue(CertificateSigningRequest csr, Decision decision) {
+        try {
+            CachedContext cached = signingContext(decision.caSerialNumber());
+            CertificateService.IssuedCertificate result = certificateService.issueFromCSR(csr, cached.context, cached.signer);
+            return new Approval(decision, cached.context, cached.signer, result);
+        } catch (Exception e) {
+            issueFailures.increment();
+            log.warn("Auto-approval of CSR {} by rule {} failed, leaving it for manual review: {}",
+                    csr.getId(), decision.ruleName(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Stores the issued certificate. Must run inside the transaction that moves the CSR to APPROVED.
+     */
+    public Certificate save(Approval approval, Long csrId) {
+        Certificate certificate = certificateService.saveIssued(approval.issued(), approval.context(), approval.signer());
+        issued.increment();
+        auditLogService.record(AuditEventType.CSR_APPROVED, AUDIT_ACTOR, "csr:" + csrId, Map.of(
+                "rule", approval.decision().ruleName(),
+                "issuerSerialNumber", approval.context().getCa().getSerialNumber(),
+                "issuedSerialNumber", certificate.getSerialNumber()));
+        return certificate;
+    }
+
+    // A revoked CA must not keep signing from its cached context until the TTL runs out
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCertificatesRevoked(CertificatesRevokedEvent event) {
+        if (signingContexts.isEmpty()) {
+            return;
+        }
+        event.serialNumbersByIssuer().values().forEach(serialNumbers -> serialNumbers.forEach(signingContexts::remove));
+    }
+
+    public AutoApprovalMetricsResponse getMetrics() {
+        Map<String, Long> ruleHits = new LinkedHashMap<>();
+        rules.forEach(rule -> ruleHits.put(rule.name, rule.hits.sum()));
+        long count = evaluated.sum();
+
+        return AutoApprovalMetricsResponse.builder()
+                .enabled(isEnabled())
+                .evaluated(count)
+                .matched(matched.sum())
+                .issued(issued.sum())
+                .issueFailures(issueFailures.sum())
+                .averageEvaluationMicros(count == 0 ? 0 : evaluationNanos.sum() / 1000.0 / count)
+                .ruleHits(ruleHits)
+                .build();
+    }
+
+    private CachedContext signingContext(String caSerialNumber) throws Exception {
+        CachedContext cached = signingContexts.get(caSerialNumber);
+        if (cached != null && cached.expiresAt > System.currentTimeMillis()) {
+            return cached;
+        }
+
+        // Concurrent misses may unlock the key twice; the last one wins, which is harmless
+        Certificate ca = certificateRepository.findBySerialNumber(caSerialNumber)
+                .orElseThrow(() -> new NotFoundException("Auto-approval CA not found: " + caSerialNumber));
+        User signer = ca.getOwner();
+        CASigningContext context = certificateService.prepareSigningContext(ca, signer);
+
+        CachedContext fresh = new CachedContext(context, signer,
+                System.currentTimeMillis() + properties.getSigningContextTtlMs());
+        signingContexts.put(caSerialNumber, fresh);
+        return fresh;
+    }
+
+    private CompiledRule compileRule(AutoApprovalProperties.Rule rule, int index) {
+        String name = rule.getName() != null ? rule.getName() : "rule-" + index;
+        String caSerialNumber = rule.getCaSerialNumber() != null ? rule.getCaSerialNumber() : properties.getCaSerialNumber();
+        if (caSerialNumber == null || caSerialNumber.isBlank()) {
+            throw new IllegalStateException("Auto-approval rule " + name + " has no CA serial number");
+        }
+
+        List<Predicate<Candidate>> checks = new ArrayList<>();
+
+        if (!rule.getOrganizations().isEmpty()) {
+            // O= is chosen by the requester, so it only counts when it names the requester's own organization
+            Set<String> organizations = Set.copyOf(rule.getOrganizations());
+            checks.add(candidate -> candidate.requesterOrganization != null
+                    && organizations.contains(candidate.requesterOrganization)
+                    && candidate.requesterOrganization.equals(candidate.csr.organization()));
+        }
+        if (rule.getCommonNamePattern() != null) {
+            Pattern pattern = Pattern.compile(rule.getCommonNamePattern());
+            checks.add(candidate -> pattern.matcher(candidate.csr.commonName()).matches());
+        }
+        if (!rule.getSanSuffixes().isEmpty()) {
+            List<String> suffixes = rule.getSanSuffixes().stream()
+                    .map(suffix -> suffix.toLowerCase(Locale.ROOT))
+                    .toList();
+            // allMatch holds for an empty list, a CSR without SANs must not pass
+            checks.add(candidate -> !candidate.csr.subjectAlternativeNames().isEmpty()
+                    && candidate.csr.subjectAlternativeNames().stream()
+                    .map(san -> san.toLowerCase(Locale.ROOT))
+                    .allMatch(san -> suffixes.stream().anyMatch(san::endsWith)));
+        }
+        if (!rule.getKeyAlgorithms().isEmpty()) {
+            Set<String> algorithms = rule.getKeyAlgorithms().stream()
+                    .map(algorithm -> algorithm.toUpperCase(Locale.ROOT))
+                    .collect(Collectors.toUnmodifiableSet());
+            checks.add(candidate -> algorithms.contains(candidate.csr.keyAlgorithm().toUpperCase(Locale.ROOT)));
+        }
+        if (rule.getMinKeySize() != null) {
+            int minKeySize = rule.getMinKeySize();
+            checks.add(candidate -> candidate.csr.keySize() >= minKeySize);
+        }
+        if (rule.getMaxValidityDays() != null) {
+            int maxValidityDays = rule.getMaxValidityDays();
+            checks.add(candidate -> candidate.validityDays <= maxValidityDays);
+        }
+
+        if (checks.isEmpty()) {
+            throw new IllegalStateException("Auto-approval rule " + name + " has no criteria and would approve every CSR");
+        }
+        return new CompiledRule(name, caSerialNumber, checks);
+    }
+
+    private record Candidate(CSRParser.ParsedCSR csr, int validityDays, String requesterOrganization) {
+    }
+
+    private static final class CompiledRule {
+        private final String name;
+        private final String caSerialNumber;
+        private final List<Predicate<Candidate>> checks;
+        private final LongAdder hits = new LongAdder();
+
+        CompiledRule(String name, String caSerialNumber, List<Predicate<Candidate>> checks) {
+            this.name = name;
+            this.caSerialNumber = caSerialNumber;
+            this.checks = List.copyOf(checks);
+        }
+
+        boolean matches(Candidate candidate) {
+            for (Predicate<Candidate> check : checks) {
+                if (!check.test(candidate)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private record CachedContext(CASigningContext context, User signer, long expiresAt) {
+    }
+}
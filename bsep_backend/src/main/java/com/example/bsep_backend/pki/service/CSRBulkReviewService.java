@@ -0,0 +1,330 @@
+package com.example.bsep_backend.pki.service;
+
+import com.example.bsep_backend.audit.domain.AuditEventType;
+import com.example.bsep_backend.audit.service.AuditLogService;
+import com.example.bsep_backend.domain.User;
+import com.example.bsep_backend.domain.UserRole;
+import com.example.bsep_backend.exception.InvalidRequestException;
+import com.example.bsep_backend.exception.NotFoundException;
+import com.example.bsep_backend.mapper.EntityMapper;
+import com.example.bsep_backend.pki.domain.CASigningContext;
+import com.example.bsep_backend.pki.domain.CSRStatus;
+import com.example.bsep_backend.pki.domain.Certificate;
+import com.example.bsep_backend.pki.domain.CertificateSigningRequest;
+import com.example.bsep_backend.pki.dto.BulkReviewCSRRequest;
+import com.example.bsep_backend.pki.dto.BulkReviewCSRResponse;
+import com.example.bsep_backend.pki.dto.CSRResponse;
+import com.example.bsep_backend.pki.repository.CSRRepository;
+import com.example.bsep_backend.pki.repository.CertificateRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Reviews many CSRs against one CA in a single request.
+ * <p>
+ * The CA is loaded, access-checked and unlocked once. CSR verification, signing and the EE
+ * keystore key derivation run in parallel on a pool sized to the CPU count, while the request
+ * thread commits the finished certificates in chunks. A failing CSR or chunk only affects its
+ * own outcome.
+ * <p>
+ * Each chunk locks its CSR rows and stores only those still PENDING; a CSR reviewed in the meantime
+ * (single review, auto-approval, another request or instance) is reported as failed and its signed
+ * certificate is discarded.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CSRBulkReviewService {
+
+    private final CSRRepository csrRepository;
+    private final CertificateRepository certificateRepository;
+    private final CertificateService certificateService;
+    private final AuditLogService auditLogService;
+    private final CSRStatusNotifier statusNotifier;
+    private final EntityMapper entityMapper;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${pki.csr-review.signing-threads:0}")
+    private int signingThreads;
+
+    @Value("${pki.csr-review.batch-size:100}")
+    private int batchSize;
+
+    @Value("${pki.csr-review.max-csrs:5000}")
+    private int maxCsrs;
+
+    private ExecutorService signingPool;
+    private TransactionTemplate transactionTemplate;
+
+    // CSRs being reviewed by a bulk request on this instance, so overlapping requests do not both sign;
+    // the row locks taken when committing are what keeps a CSR from being reviewed twice
+    private final Set<Long> inReview = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    void start() {
+        int threads = signingThreads > 0 ? signingThreads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCounter = new AtomicInteger();
+        signingPool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "csr-review-sign-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PreDestroy
+    void stop() {
+        signingPool.shutdownNow();
+    }
+
+    public BulkReviewCSRResponse review(BulkReviewCSRRequest request, User reviewer) throws Exception {
+        boolean approve = request.getApproved();
+        if (approve && request.getSelectedCaSerialNumber() == null) {
+            throw new InvalidRequestException("Selected CA is required when approving CSRs");
+        }
+        if (!approve && (request.getRejectionReason() == null || request.getRejectionReason().isBlank())) {
+            throw new InvalidRequestException("Rejection reason is required when rejecting CSRs");
+        }
+
+        Set<Long> ids = new LinkedHashSet<>(request.getCsrIds());
+        if (ids.size() > maxCsrs) {
+            throw new InvalidRequestException("At most " + maxCsrs + " CSRs can be reviewed at once");
+        }
+
+        long start = System.nanoTime();
+        Map<Long, BulkReviewCSRResponse.ItemResult> results = new LinkedHashMap<>();
+        List<Long> claimed = new ArrayList<>();
+        try {
+            List<CertificateSigningRequest> eligible = selectEligible(ids, reviewer, results, claimed);
+            if (approve) {
+                approveAll(eligible, request.getSelectedCaSerialNumber(), reviewer, results);
+            } else {
+                rejectAll(eligible, request.getRejectionReason(), reviewer, results);
+            }
+        } finally {
+            claimed.forEach(inReview::remove);
+        }
+
+        int approved = 0;
+        int rejected = 0;
+        int failed = 0;
+        for (BulkReviewCSRResponse.ItemResult result : results.values()) {
+            if (result.getError() != null) {
+                failed++;
+            } else if (result.getStatus() == CSRStatus.APPROVED) {
+                approved++;
+            } else if (result.getStatus() == CSRStatus.REJECTED) {
+                rejected++;
+            }
+        }
+
+        long durationMs = (System.nanoTime() - start) / 1_000_000;
+        log.info("Bulk review by {}: {} approved, {} rejected, {} failed in {} ms",
+                reviewer.getEmail(), approved, rejected, failed, durationMs);
+
+        return BulkReviewCSRResponse.builder()
+                .approved(approved)
+                .rejected(rejected)
+                .failed(failed)
+                .durationMs(durationMs)
+                .results(new ArrayList<>(results.values()))
+                .build();
+    }
+
+    private List<CertificateSigningRequest> selectEligible(Set<Long> ids, User reviewer,
+                                                           Map<Long, BulkReviewCSRResponse.ItemResult> results,
+                                                           List<Long> claimed) {
+        Map<Long, CertificateSigningRequest> found = csrRepository.findAllByIdWithRequester(ids).stream()
+                .collect(Collectors.toMap(CertificateSigningRequest::getId, Function.identity()));
+
+        List<CertificateSigningRequest> eligible = new ArrayList<>();
+        for (Long id : ids) {
+            CertificateSigningRequest csr = found.get(id);
+            if (csr == null) {
+                results.put(id, failure(id, null, "CSR not found"));
+            } else if (csr.getStatus() != CSRStatus.PENDING) {
+                results.put(id, failure(id, csr.getStatus(), "CSR has already been reviewed"));
+            } else if (reviewer.getRole() == UserRole.CA && !csr.getOrganization().equals(reviewer.getOrganization())) {
+                results.put(id, failure(id, csr.getStatus(), "CA users can only review CSRs from their organization"));
+            } else if (!inReview.add(id)) {
+                results.put(id, failure(id, csr.getStatus(), "CSR is being reviewed by another request"));
+            } else {
+                claimed.add(id);
+                results.put(id, null);
+                eligible.add(csr);
+            }
+        }
+        return eligible;
+    }
+
+    private void approveAll(List<CertificateSigningRequest> csrs, String caSerialNumber, User reviewer,
+                            Map<Long, BulkReviewCSRResponse.ItemResult> results) throws Exception {
+        if (csrs.isEmpty()) {
+            return;
+        }
+        Certificate selectedCA = certificateRepository.findBySerialNumber(caSerialNumber)
+                .orElseThrow(() -> new NotFoundException("Selected CA not found"));
+        CASigningContext context = certificateService.prepareSigningContext(selectedCA, reviewer);
+
+        List<Future<CertificateService.IssuedCertificate>> futures = new ArrayList<>(csrs.size());
+        for (CertificateSigningRequest csr : csrs) {
+            futures.add(signingPool.submit(() -> certificateService.issueFromCSR(csr, context, reviewer)));
+        }
+
+        for (int from = 0; from < csrs.size(); from += batchSize) {
+            int to = Math.min(from + batchSize, csrs.size());
+            List<CertificateService.IssuedCertificate> chunk = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                CertificateSigningRequest csr = csrs.get(i);
+                try {
+                    chunk.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    log.warn("Failed to issue certificate for CSR {}: {}", csr.getId(), cause.getMessage());
+                    results.put(csr.getId(), failure(csr.getId(), CSRStatus.PENDING, cause.getMessage()));
+                }
+            }
+            commitApprovals(chunk, context, reviewer, results);
+        }
+    }
+
+    private void commitApprovals(List<CertificateService.IssuedCertificate> chunk, CASigningContext context, User reviewer,
+                                 Map<Long, BulkReviewCSRResponse.ItemResult> results) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        Map<Long, BulkReviewCSRResponse.ItemResult> outcomes = new LinkedHashMap<>();
+        List<CSRResponse> reviewed = new ArrayList<>(chunk.size());
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                outcomes.clear();
+                reviewed.clear();
+                Map<Long, CertificateSigningRequest> locked = lockPending(
+                        chunk.stream().map(issued -> issued.csr().getId()).toList(), outcomes);
+                LocalDateTime reviewedAt = LocalDateTime.now();
+                for (CertificateService.IssuedCertificate issued : chunk) {
+                    CertificateSigningRequest csr = locked.get(issued.csr().getId());
+                    if (csr == null) {
+                        continue;
+                    }
+                    Certificate certificate = certificateService.saveIssued(issued, context, reviewer);
+                    csr.setReviewer(reviewer);
+                    csr.setReviewedAt(reviewedAt);
+                    csr.setStatus(CSRStatus.APPROVED);
+                    csr.setIssuedCertificate(certificate);
+                    reviewed.add(entityMapper.mapCSRToResponse(csr));
+                    outcomes.put(csr.getId(), BulkReviewCSRResponse.ItemResult.builder()
+                            .csrId(csr.getId())
+                            .status(CSRStatus.APPROVED)
+                            .issuedCertificateSerialNumber(certificate.getSerialNumber())
+                            .build());
+
+                    auditLogService.record(AuditEventType.CSR_APPROVED, reviewer.getEmail(), "csr:" + csr.getId(), Map.of(
+                            "commonName", csr.getCommonName(),
+                            "issuerSerialNumber", context.getCa().getSerialNumber(),
+                            "issuedSerialNumber", certificate.getSerialNumber()));
+                }
+            });
+        } catch (RuntimeException e) {
+            log.error("Failed to commit {} approved CSRs", chunk.size(), e);
+            for (CertificateService.IssuedCertificate issued : chunk) {
+                Long id = issued.csr().getId();
+                results.put(id, failure(id, CSRStatus.PENDING, "Failed to store issued certificate"));
+            }
+            return;
+        }
+
+        results.putAll(outcomes);
+        reviewed.forEach(statusNotifier::publish);
+    }
+
+    /**
+     * Locks the CSR rows for the rest of the transaction and returns those still PENDING. The others
+     * were reviewed since they were selected and get a failed outcome.
+     */
+    private Map<Long, CertificateSigningRequest> lockPending(List<Long> ids,
+                                                             Map<Long, BulkReviewCSRResponse.ItemResult> outcomes) {
+        Map<Long, CertificateSigningRequest> pending = new LinkedHashMap<>();
+        for (CertificateSigningRequest csr : csrRepository.findAllByIdForUpdate(ids)) {
+            if (csr.getStatus() == CSRStatus.PENDING) {
+                pending.put(csr.getId(), csr);
+            } else {
+                outcomes.put(csr.getId(), failure(csr.getId(), csr.getStatus(), "CSR has already been reviewed"));
+            }
+        }
+        for (Long id : ids) {
+            if (!pending.containsKey(id) && !outcomes.containsKey(id)) {
+                outcomes.put(id, failure(id, null, "CSR not found"));
+            }
+        }
+        return pending;
+    }
+
+    private void rejectAll(List<CertificateSigningRequest> csrs, String reason, User reviewer,
+                           Map<Long, BulkReviewCSRResponse.ItemResult> results) {
+        for (int from = 0; from < csrs.size(); from += batchSize) {
+            List<CertificateSigningRequest> chunk = csrs.subList(from, Math.min(from + batchSize, csrs.size()));
+            Map<Long, BulkReviewCSRResponse.ItemResult> outcomes = new LinkedHashMap<>();
+            List<CSRResponse> reviewed = new ArrayList<>(chunk.size());
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    outcomes.clear();
+                    reviewed.clear();
+                    Map<Long, CertificateSigningRequest> locked = lockPending(
+                            chunk.stream().map(CertificateSigningRequest::getId).toList(), outcomes);
+                    LocalDateTime reviewedAt = LocalDateTime.now();
+                    for (CertificateSigningRequest csr : locked.values()) {
+                        csr.setReviewer(reviewer);
+                        csr.setReviewedAt(reviewedAt);
+                        csr.setStatus(CSRStatus.REJECTED);
+                        csr.setRejectionReason(reason);
+                        reviewed.add(entityMapper.mapCSRToResponse(csr));
+                        outcomes.put(csr.getId(), BulkReviewCSRResponse.ItemResult.builder()
+                                .csrId(csr.getId())
+                                .status(CSRStatus.REJECTED)
+                                .build());
+                        auditLogService.record(AuditEventType.CSR_REJECTED, reviewer.getEmail(), "csr:" + csr.getId(), Map.of(
+                                "commonName", csr.getCommonName(),
+                                "reason", reason));
+                    }
+                });
+            } catch (RuntimeException e) {
+                log.error("Failed to commit {} rejected CSRs", chunk.size(), e);
+                chunk.forEach(csr -> results.put(csr.getId(), failure(csr.getId(), CSRStatus.PENDING, "Failed to store review")));
+                continue;
+            }
+            results.putAll(outcomes);
+            reviewed.forEach(statusNotifier::publish);
+        }
+    }
+
+    private BulkReviewCSRResponse.ItemResult failure(Long csrId, CSRStatus status, String error) {
+        return BulkReviewCSRResponse.ItemResult.builder()
+                .csrId(csrId)
+                .status(status)
+                .error(error)
+                .build();
+    }
+}
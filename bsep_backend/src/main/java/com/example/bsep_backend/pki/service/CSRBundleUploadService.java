@@ -0,0 +1,412 @@
+package com.example.bsep_backend.pki.service;
+
+import com.example.bsep_backend.domain.User;
+import com.example.bsep_backend.exception.InvalidRequestException;
+import com.example.bsep_backend.pki.domain.CSRStatus;
+import com.example.bsep_backend.pki.domain.Certificate;
+import com.example.bsep_backend.pki.domain.CertificateSigningRequest;
+import com.example.bsep_backend.pki.dto.CSRBundleItemResult;
+import com.example.bsep_backend.pki.repository.CSRBatchRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.pkcs.PKCS10CertificationRequest;
+import org.bouncycastle.util.io.pem.PemObject;
+import org.bouncycastle.util.io.pem.PemReader;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bulk CSR upload for device onboarding.
+ * <p>
+ * The bundle (concatenated PEM or NDJSON) is read item by item straight from the request stream.
+ * Signature verification runs on a shared pool with at most maxInFlight items per upload in memory,
+ * verified CSRs are inserted in JDBC batches, and one result line per item is streamed back
+ * after each batch commits, in input order. Keys that already have a CSR or a valid certificate, or
+ * that appear twice in the bundle, are reported INVALID. CSRs matching an auto-approval rule are
+ * signed on the same workers and come back APPROVED.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CSRBundleUploadService {
+
+    public enum Format {
+        PEM,
+        NDJSON
+    }
+
+    private static final Set<String> CSR_PEM_TYPES = Set.of("CERTIFICATE REQUEST", "NEW CERTIFICATE REQUEST");
+
+    private final CSRParser csrParser;
+    private final CSRBatchRepository csrBatchRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
+    private final CSRAutoApprovalService autoApprovalService;
+    private final KeyFingerprintIndex fingerprintIndex;
+
+    @Value("${pki.csr-bundle.verify-threads:0}")
+    private int verifyThreads;
+
+    @Value("${pki.csr-bundle.max-in-flight:64}")
+    private int maxInFlight;
+
+    @Value("${pki.csr-bundle.batch-size:200}")
+    private int batchSize;
+
+    @Value("${pki.csr-bundle.max-items:10000}")
+    private int maxItems;
+
+    private ExecutorService verifyPool;
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    void start() {
+        int threads = verifyThreads > 0 ? verifyThreads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCounter = new AtomicInteger();
+        verifyPool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "csr-bundle-verify-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PreDestroy
+    void stop() {
+        verifyPool.shutdownNow();
+    }
+
+    public void upload(InputStream in, Format format, int defaultValidityDays, User requester, OutputStream out) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.US_ASCII));
+        BundleItemReader items = format == Format.NDJSON
+                ? new NdjsonItemReader(reader, defaultValidityDays)
+                : new PemItemReader(reader, defaultValidityDays);
+
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.setRootValueSeparator(null);
+
+        Reservations reservations = new Reservations();
+        Deque<Future<ItemOutcome>> window = new ArrayDeque<>();
+        List<ItemOutcome> chunk = new ArrayList<>(batchSize);
+        int[] totals = new int[2];
+        int index = 0;
+
+        try {
+            while (true) {
+                BundleItem item;
+                try {
+                    item = items.next(index);
+                } catch (IOException | RuntimeException e) {
+                    // The rest of the stream cannot be parsed, report it and stop
+                    writeResult(generator, CSRBundleItemResult.builder()
+                            .index(index)
+                            .status(CSRStatus.INVALID)
+                            .error("Bundle could not be read past this item: " + e.getMessage())
+                            .build());
+                    break;
+                }
+                if (item == null) {
+                    break;
+                }
+                if (index >= maxItems) {
+                    writeResult(generator, CSRBundleItemResult.builder()
+                            .index(index)
+                            .status(CSRStatus.INVALID)
+                            .error("Bundle exceeds the limit of " + maxItems + " CSRs")
+                            .build());
+                    break;
+                }
+                index++;
+
+                window.add(verifyPool.submit(() -> verify(item, requester, reservations)));
+                if (window.size() >= maxInFlight) {
+                    collect(window.poll(), chunk);
+                    if (chunk.size() >= batchSize) {
+                        persist(chunk, generator, totals);
+                    }
+                }
+            }
+
+            while (!window.isEmpty()) {
+                collect(window.poll(), chunk);
+                if (chunk.size() >= batchSize) {
+                    persist(chunk, generator, totals);
+                }
+            }
+            persist(chunk, generator, totals);
+        } finally {
+            window.forEach(future -> future.cancel(true));
+            // Every accepted CSR is committed by now, so the index itself rejects later duplicates
+            reservations.releaseAll();
+            generator.flush();
+        }
+
+        log.info("CSR bundle from {}: {} accepted, {} invalid", requester.getEmail(), totals[0], totals[1]);
+    }
+
+    private ItemOutcome verify(BundleItem item, User requester, Reservations reservations) {
+        if (item.error() != null) {
+            return new ItemOutcome(item.index(), null, null, item.error());
+        }
+        try {
+            PKCS10CertificationRequest csr = csrParser.decode(item.content());
+            csrParser.verifySignature(csr);
+            CSRParser.ParsedCSR parsed = csrParser.extract(csr);
+
+            if (!reservations.claim(parsed.spkiSha256())) {
+                return new ItemOutcome(item.index(), null, null,
+                        "Public key appears more than once in this bundle or is being uploaded concurrently");
+            }
+            String duplicate = fingerprintIndex.findDuplicate(parsed.spkiSha256(),
+                    KeyFingerprintIndex.UPLOAD_BLOCKING_STATUSES, null);
+            if (duplicate != null) {
+                return new ItemOutcome(item.index(), null, null, duplicate);
+            }
+
+            CertificateSigningRequest entity = CertificateSigningRequest.builder()
+                    .csrData(Base64.getEncoder().encodeToString(parsed.encoded()))
+                    .commonName(parsed.commonName())
+                    .organization(parsed.organization())
+                    .country(parsed.country())
+                    .subjectAlternativeNames(parsed.subjectAlternativeNames())
+                    .spkiSha256(parsed.spkiSha256())
+                    .subjectKeyIdentifier(parsed.subjectKeyIdentifier())
+                    .requestedValidityDays(item.validityDays())
+                    .status(CSRStatus.PENDING)
+                    .createdAt(LocalDateTime.now())
+                    .requester(requester)
+                    .build();
+
+            CSRAutoApprovalService.Approval approval = null;
+            CSRAutoApprovalService.Decision decision = autoApprovalService.evaluate(parsed, item.validityDays(), requester);
+            if (decision != null) {
+                approval = autoApprovalService.issue(entity, decision);
+            }
+            return new ItemOutcome(item.index(), entity, approval, null);
+        } catch (InvalidRequestException e) {
+            return new ItemOutcome(item.index(), null, null, e.getMessage());
+        }
+    }
+
+    private void collect(Future<ItemOutcome> future, List<ItemOutcome> chunk) throws IOException {
+        try {
+            chunk.add(future.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("CSR bundle upload interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("CSR verification failed unexpectedly", e.getCause());
+        }
+    }
+
+    private void persist(List<ItemOutcome> chunk, JsonGenerator generator, int[] totals) throws IOException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        List<CertificateSigningRequest> valid = chunk.stream()
+                .filter(outcome -> outcome.csr() != null)
+                .map(ItemOutcome::csr)
+                .toList();
+
+        List<Long> ids = transactionTemplate.execute(status -> csrBatchRepository.insertAll(valid));
+        for (int i = 0; i < valid.size(); i++) {
+            valid.get(i).setId(ids.get(i));
+        }
+        Map<Long, String> approved = saveApprovals(chunk);
+
+        for (ItemOutcome outcome : chunk) {
+            if (outcome.csr() != null) {
+                totals[0]++;
+                String issuedSerialNumber = approved.get(outcome.csr().getId());
+                writeResult(generator, CSRBundleItemResult.builder()
+                        .index(outcome.index())
+                        .status(issuedSerialNumber != null ? CSRStatus.APPROVED : CSRStatus.PENDING)
+                        .csrId(outcome.csr().getId())
+                        .commonName(outcome.csr().getCommonName())
+                        .issuedCertificateSerialNumber(issuedSerialNumber)
+                        .build());
+            } else {
+                totals[1]++;
+                writeResult(generator, CSRBundleItemResult.builder()
+                        .index(outcome.index())
+                        .status(CSRStatus.INVALID)
+                        .error(outcome.error())
+                        .build());
+            }
+        }
+        generator.flush();
+        chunk.clear();
+    }
+
+    // Separate transaction after the CSRs are committed, so a failed issuance leaves them PENDING
+    private Map<Long, String> saveApprovals(List<ItemOutcome> chunk) {
+        List<ItemOutcome> approvals = chunk.stream()
+                .filter(outcome -> outcome.approval() != null)
+                .toList();
+        if (approvals.isEmpty()) {
+            return Map.of();
+        }
+        try {
+            return transactionTemplate.execute(status -> {
+                LocalDateTime reviewedAt = LocalDateTime.now();
+                Map<Long, String> issued = new HashMap<>();
+                List<CSRBatchRepository.Approval> rows = new ArrayList<>(approvals.size());
+                for (ItemOutcome outcome : approvals) {
+                    Long csrId = outcome.csr().getId();
+                    Certificate certificate = autoApprovalService.save(outcome.approval(), csrId);
+                    rows.add(new CSRBatchRepository.Approval(csrId, certificate.getId(),
+                            outcome.approval().signer().getId(), reviewedAt));
+                    issued.put(csrId, certificate.getSerialNumber());
+                }
+                csrBatchRepository.markApproved(rows);
+                return issued;
+            });
+        } catch (RuntimeException e) {
+            log.error("Failed to store {} auto-approved certificates, CSRs stay pending", approvals.size(), e);
+            return Map.of();
+        }
+    }
+
+    private void writeResult(JsonGenerator generator, CSRBundleItemResult result) throws IOException {
+        objectMapper.writeValue(generator, result);
+        generator.writeRaw('\n');
+    }
+
+    private record BundleItem(int index, byte[] content, int validityDays, String error) {
+    }
+
+    private record ItemOutcome(int index, CertificateSigningRequest csr, CSRAutoApprovalService.Approval approval,
+                               String error) {
+    }
+
+    /**
+     * Fingerprints claimed by one upload. Workers still running after the upload ended must not
+     * claim new keys, or nobody would release them.
+     */
+    private final class Reservations {
+        private final Set<String> held = new HashSet<>();
+        private boolean closed;
+
+        synchronized boolean claim(String spkiSha256) {
+            if (closed || !fingerprintIndex.reserve(spkiSha256)) {
+                return false;
+            }
+            held.add(spkiSha256);
+            return true;
+        }
+
+        synchronized void releaseAll() {
+            closed = true;
+            held.forEach(fingerprintIndex::release);
+            held.clear();
+        }
+    }
+
+    private interface BundleItemReader {
+        BundleItem next(int index) throws IOException;
+    }
+
+    private static final class PemItemReader implements BundleItemReader {
+        private final PemReader pemReader;
+        private final int validityDays;
+
+        PemItemReader(BufferedReader reader, int validityDays) {
+            this.pemReader = new PemReader(reader);
+            this.validityDays = validityDays;
+        }
+
+        @Override
+        public BundleItem next(int index) throws IOException {
+            PemObject pemObject = pemReader.readPemObject();
+            if (pemObject == null) {
+                return null;
+            }
+            if (!CSR_PEM_TYPES.contains(pemObject.getType())) {
+                return new BundleItem(index, null, validityDays, "Unexpected PEM block: " + pemObject.getType());
+            }
+            return new BundleItem(index, pemObject.getContent(), validityDays, null);
+        }
+    }
+
+    /**
+     * One JSON object per line: {"csr": "<PEM or base64 DER>", "validityDays": 365}.
+     * validityDays is optional and falls back to the request parameter.
+     */
+    private final class NdjsonItemReader implements BundleItemReader {
+        private final BufferedReader reader;
+        private final int validityDays;
+
+        NdjsonItemReader(BufferedReader reader, int validityDays) {
+            this.reader = reader;
+            this.validityDays = validityDays;
+        }
+
+        @Override
+        public BundleItem next(int index) throws IOException {
+            String line;
+            do {
+                line = reader.readLine();
+                if (line == null) {
+                    return null;
+                }
+            } while (line.isBlank());
+
+            JsonNode node;
+            try {
+                node = objectMapper.readTree(line);
+            } catch (IOException e) {
+                return new BundleItem(index, null, validityDays, "Line is not valid JSON");
+            }
+
+            String csr = node.path("csr").asText(null);
+            if (csr == null || csr.isBlank()) {
+                return new BundleItem(index, null, validityDays, "Missing csr field");
+            }
+            int itemValidity = node.path("validityDays").asInt(validityDays);
+            if (itemValidity < 1) {
+                return new BundleItem(index, null, itemValidity, "Validity days must be positive");
+            }
+
+            byte[] content;
+            if (csr.contains("-----BEGIN")) {
+                content = csr.getBytes(StandardCharsets.US_ASCII);
+            } else {
+                try {
+                    content = Base64.getMimeDecoder().decode(csr);
+                } catch (IllegalArgumentException e) {
+                    return new BundleItem(index, null, itemValidity, "csr is neither PEM nor base64 DER");
+                }
+            }
+            return new BundleItem(index, content, itemValidity, null);
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package com.example.bsep_backend.pki.service;
+
+import com.example.bsep_backend.exception.InvalidRequestException;
+import com.example.bsep_backend.mapper.EntityMapper;
+import com.example.bsep_backend.pki.domain.CSRStatus;
+import com.example.bsep_backend.pki.domain.Certificate;
+import com.example.bsep_backend.pki.domain.CertificateSigningRequest;
+import com.example.bsep_backend.pki.dto.CSRPipelineMetricsResponse;
+import com.example.bsep_backend.pki.dto.CSRResponse;
+import com.example.bsep_backend.pki.repository.CSRRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.pkcs.PKCS10CertificationRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Processes uploaded CSRs off the request thread.
+ * <p>
+ * The upload only stores the raw bytes with status RECEIVED. A bounded worker pool then runs
+ * PARSE -> VERIFY -> EXTRACT -> DEDUPLICATE -> PERSIST and moves the CSR to PENDING, or to INVALID
+ * with a failure reason. CSRs matching an auto-approval rule continue to AUTO_APPROVE and end up
+ * APPROVED. When the queue is full the submission is dropped and the stale sweeper picks the row
+ * up later, so an upload is never lost, only delayed.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CSRIngestionPipeline {
+
+    public enum Stage {
+        PARSE,
+        VERIFY,
+        EXTRACT,
+        DEDUPLICATE,
+        PERSIST,
+        AUTO_APPROVE
+    }
+
+    private final CSRRepository csrRepository;
+    private final CSRParser csrParser;
+    private final CSRStatusNotifier notifier;
+    private final EntityMapper entityMapper;
+    private final CSRAutoApprovalService autoApprovalService;
+    private final KeyFingerprintIndex fingerprintIndex;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${pki.csr-pipeline.workers:4}")
+    private int workers;
+
+    @Value("${pki.csr-pipeline.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${pki.csr-pipeline.stale-after-ms:30000}")
+    private long staleAfterMs;
+
+    @Value("${pki.csr-pipeline.sweep-batch-size:500}")
+    private int sweepBatchSize;
+
+    private ThreadPoolExecutor executor;
+    private TransactionTemplate transactionTemplate;
+
+    // Keeps the upload path and the sweeper from processing the same CSR twice
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final Map<Stage, StageCounter> stageCounters = new EnumMap<>(Stage.class);
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder invalid = new LongAdder();
+
+    @PostConstruct
+    void start() {
+        for (Stage stage : Stage.values()) {
+            stageCounters.put(stage, new StageCounter());
+        }
+        transactionTemplate = new TransactionTemplate(transactionManager);
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "csr-pipeline-" + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        log.info("CSR ingestion pipeline started with {} workers, queue capacity {}", workers, queueCapacity);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            // Leftover RECEIVED rows are resubmitted by the sweeper after restart
+            executor.shutdownNow();
+        }
+    }
+
+    public boolean submit(Long csrId) {
+        if (!inFlight.add(csrId)) {
+            return true;
+        }
+        try {
+            executor.execute(() -> process(csrId));
+            submitted.increment();
+            return true;
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(csrId);
+            rejected.increment();
+            log.warn("CSR pipeline queue full, CSR {} will be picked up by the sweeper", csrId);
+            return false;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${pki.csr-pipeline.sweep-interval-ms:30000}",
+            initialDelayString = "${pki.csr-pipeline.sweep-interval-ms:30000}")
+    public void resubmitStale() {
+        LocalDateTime before = LocalDateTime.now().minusNanos(TimeUnit.MILLISECONDS.toNanos(staleAfterMs));
+        List<Long> stale = csrRepository.findIdsByStatusCreatedBefore(CSRStatus.RECEIVED, before,
+                PageRequest.of(0, sweepBatchSize));
+        int resubmitted = 0;
+        for (Long id : stale) {
+            if (inFlight.contains(id)) {
+                continue;
+            }
+            if (!submit(id)) {
+                break;
+            }
+            resubmitted++;
+        }
+        if (resubmitted > 0) {
+            log.info("Resubmitted {} stale RECEIVED CSRs to the pipeline", resubmitted);
+        }
+    }
+
+    public CSRPipelineMetricsResponse getMetrics() {
+        Map<String, CSRPipelineMetricsResponse.StageMetrics> stages = new LinkedHashMap<>();
+        stageCounters.forEach((stage, counter) -> stages.put(stage.name(), counter.snapshot()));
+
+        return CSRPipelineMetricsResponse.builder()
+                .workers(workers)
+                .activeWorkers(executor.getActiveCount())
+                .queueDepth(executor.getQueue().size())
+                .queueCapacity(queueCapacity)
+                .submitted(submitted.sum())
+                .rejected(rejected.sum())
+                .completed(completed.sum())
+                .invalid(invalid.sum())
+                .stages(stages)
+                .build();
+    }
+
+    private void process(Long csrId) {
+        try {
+            CertificateSigningRequest received = csrRepository.findByIdWithRequester(csrId).orElse(null);
+            if (received == null || received.getStatus() != CSRStatus.RECEIVED) {
+                return;
+            }
+
+            CSRParser.ParsedCSR parsed;
+            try {
+                byte[] content = Base64.getDecoder().decode(received.getCsrData());
+                PKCS10CertificationRequest csr = timed(Stage.PARSE, () -> csrParser.decode(content));
+                timed(Stage.VERIFY, () -> {
+                    csrParser.verifySignature(csr);
+                    return null;
+                });
+                parsed = timed(Stage.EXTRACT, () -> csrParser.extract(csr));
+            } catch (InvalidRequestException e) {
+                CSRResponse response = timed(Stage.PERSIST, () -> markInvalid(csrId, e.getMessage()));
+                invalid.increment();
+                publish(response);
+                return;
+            }
+
+            // Another worker is accepting the same key; the sweeper retries this CSR once that one is stored
+            if (!fingerprintIndex.reserve(parsed.spkiSha256())) {
+                log.debug("Public key of CSR {} is being ingested by another worker, deferring", csrId);
+                return;
+            }
+            CSRResponse response;
+            try {
+                String duplicate = timed(Stage.DEDUPLICATE, () -> fingerprintIndex.findDuplicate(parsed.spkiSha256(),
+                        KeyFingerprintIndex.PIPELINE_BLOCKING_STATUSES, csrId));
+                if (duplicate != null) {
+                    response = timed(Stage.PERSIST, () -> markInvalid(csrId, duplicate));
+                    invalid.increment();
+                    publish(response);
+                    return;
+                }
+                response = timed(Stage.PERSIST, () -> markPending(csrId, parsed));
+            } finally {
+                fingerprintIndex.release(parsed.spkiSha256());
+            }
+            completed.increment();
+
+            CSRAutoApprovalService.Decision decision =
+                    autoApprovalService.evaluate(parsed, received.getRequestedValidityDays(), received.getRequester());
+
+            if (response != null && decision != null) {
+                applyParsed(received, parsed);
+                CSRResponse approved = timed(Stage.AUTO_APPROVE, () -> autoApprove(received, decision));
+                if (approved != null) {
+                    response = approved;
+                }
+            }
+            publish(response);
+        } catch (RuntimeException e) {
+            // The row stays RECEIVED and the sweeper retries it
+            log.error("CSR pipeline failed for CSR {}", csrId, e);
+        } finally {
+            inFlight.remove(csrId);
+        }
+    }
+
+    private CSRResponse markPending(Long csrId, CSRParser.ParsedCSR parsed) {
+        return transactionTemplate.execute(status -> {
+            CertificateSigningRequest csr = csrRepository.findById(csrId).orElse(null);
+            if (csr == null || csr.getStatus() != CSRStatus.RECEIVED) {
+                return null;
+            }
+            applyParsed(csr, parsed);
+            log.info("CSR {} accepted with common name: {}", csrId, parsed.commonName());
+            return entityMapper.mapCSRToResponse(csr);
+        });
+    }
+
+    private void applyParsed(CertificateSigningRequest csr, CSRParser.ParsedCSR parsed) {
+        csr.setCsrData(Base64.getEncoder().encodeToString(parsed.encoded()));
+        csr.setCommonName(parsed.commonName());
+        csr.setOrganization(parsed.organization());
+        csr.setCountry(parsed.country());
+        csr.setSubjectAlternativeNames(parsed.subjectAlternativeNames());
+        csr.setSpkiSha256(parsed.spkiSha256());
+        csr.setSubjectKeyIdentifier(parsed.subjectKeyIdentifier());
+        csr.setStatus(CSRStatus.PENDING);
+    }
+
+    // Signing happens outside the transaction; only storing the result holds a connection
+    private CSRResponse autoApprove(CertificateSigningRequest parsedCsr, CSRAutoApprovalService.Decision decision) {
+        CSRAutoApprovalService.Approval approval = autoApprovalService.issue(parsedCsr, decision);
+        if (approval == null) {
+            return null;
+        }
+        return transactionTemplate.execute(status -> {
+            // Locked so a concurrent review cannot approve or reject it at the same time
+            CertificateSigningRequest csr = csrRepository.findByIdForUpdate(parsedCsr.getId()).orElse(null);
+            if (csr == null || csr.getStatus() != CSRStatus.PENDING) {
+                return null;
+            }
+            Certificate certificate = autoApprovalService.save(approval, csr.getId());
+            csr.setReviewer(approval.signer());
+            csr.setReviewedAt(LocalDateTime.now());
+            csr.setStatus(CSRStatus.APPROVED);
+            csr.setIssuedCertificate(certificate);
+            log.info("CSR {} auto-approved by rule {}, certificate {} issued",
+                    csr.getId(), decision.ruleName(), certificate.getSerialNumber());
+            return entityMapper.mapCSRToResponse(csr);
+        });
+    }
+
+    private CSRResponse markInvalid(Long csrId, String reason) {
+        return transactionTemplate.execute(status -> {
+            CertificateSigningRequest csr = csrRepository.findById(csrId).orElse(null);
+            if (csr == null || csr.getStatus() != CSRStatus.RECEIVED) {
+                return null;
+            }
+            csr.setStatus(CSRStatus.INVALID);
+            csr.setFailureReason(reason);
+            log.warn("CSR {} rejected by pipeline: {}", csrId, reason);
+            return entityMapper.mapCSRToResponse(csr);
+        });
+    }
+
+    private void publish(CSRResponse response) {
+        if (response != null) {
+            notifier.publish(response);
+        }
+    }
+
+    private <T> T timed(Stage stage, Supplier<T> action) {
+        StageCounter counter = stageCounters.get(stage);
+        long start = System.nanoTime();
+        try {
+            T result = action.get();
+            counter.processed.increment();
+            return result;
+        } catch (RuntimeException e) {
+            counter.failed.increment();
+            throw e;
+        } finally {
+            counter.totalNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    private static final class StageCounter {
+        private final LongAdder processed = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+
+        CSRPipelineMetricsResponse.StageMetrics snapshot() {
+            long count = processed.sum() + failed.sum();
+            return CSRPipelineMetricsResponse.StageMetrics.builder()
+                    .processed(processed.sum())
+                    .failed(failed.sum())
+                    .averageMillis(count == 0 ? 0 : totalNanos.sum() / 1_000_000.0 / count)
+                    .build();
+        }
+    }
+}
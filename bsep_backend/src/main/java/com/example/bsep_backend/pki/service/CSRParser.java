@@ -0,0 +1,201 @@
+package com.example.bsep_backend.pki.service;
+
+import com.example.bsep_backend.exception.InvalidRequestException;
+import org.bouncycastle.asn1.ASN1Encodable;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.ASN1String;
+import org.bouncycastle.asn1.pkcs.Attribute;
+import org.bouncycastle.asn1.pkcs.PKCSObjectIdentifiers;
+import org.bouncycastle.asn1.x500.RDN;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.edec.EdECObjectIdentifiers;
+import org.bouncycastle.asn1.pkcs.RSAPublicKey;
+import org.bouncycastle.asn1.x500.style.BCStyle;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.Extensions;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
+import org.bouncycastle.asn1.x9.ECNamedCurveTable;
+import org.bouncycastle.asn1.x9.X9ECParameters;
+import org.bouncycastle.asn1.x9.X9ObjectIdentifiers;
+import org.bouncycastle.operator.jcajce.JcaContentVerifierProviderBuilder;
+import org.bouncycastle.pkcs.PKCS10CertificationRequest;
+import org.bouncycastle.util.io.pem.PemObject;
+import org.bouncycastle.util.io.pem.PemReader;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stateless PKCS#10 parsing helpers shared by the synchronous and pipelined CSR paths.
+ * Every failure is reported as {@link InvalidRequestException} with a message that can be shown to the requester.
+ */
+@Component
+public class CSRParser {
+
+    private static final String PEM_MARKER = "-----BEGIN";
+
+    public record ParsedCSR(byte[] encoded,
+                            String commonName,
+                            String organization,
+                            String country,
+                            List<String> subjectAlternativeNames,
+                            String keyAlgorithm,
+                            int keySize,
+                            String spkiSha256,
+                            String subjectKeyIdentifier) {
+    }
+
+    public PKCS10CertificationRequest decode(byte[] content) {
+        byte[] der = content;
+        String text = new String(content, StandardCharsets.US_ASCII);
+        if (text.contains(PEM_MARKER)) {
+            try (PemReader pemReader = new PemReader(new StringReader(text))) {
+                PemObject pemObject = pemReader.readPemObject();
+                if (pemObject == null) {
+                    throw new InvalidRequestException("CSR PEM block is malformed");
+                }
+                der = pemObject.getContent();
+            } catch (IOException e) {
+                throw new InvalidRequestException("CSR PEM block is malformed: " + e.getMessage());
+            }
+        }
+
+        try {
+            return new PKCS10CertificationRequest(der);
+        } catch (IOException | RuntimeException e) {
+            throw new InvalidRequestException("CSR is not a valid PKCS#10 structure");
+        }
+    }
+
+    public void verifySignature(PKCS10CertificationRequest csr) {
+        boolean valid;
+        try {
+            valid = csr.isSignatureValid(new JcaContentVerifierProviderBuilder().build(csr.getSubjectPublicKeyInfo()));
+        } catch (Exception e) {
+            throw new InvalidRequestException("CSR signature could not be verified: " + e.getMessage());
+        }
+        if (!valid) {
+            throw new InvalidRequestException("Invalid CSR signature");
+        }
+    }
+
+    public ParsedCSR extract(PKCS10CertificationRequest csr) {
+        X500Name subject = csr.getSubject();
+        String commonName = getRDNValue(subject, BCStyle.CN);
+        String organization = getRDNValue(subject, BCStyle.O);
+        String country = getRDNValue(subject, BCStyle.C);
+
+        if (commonName == null || organization == null || country == null) {
+            throw new InvalidRequestException("CSR subject must contain CN, O and C");
+        }
+
+        List<String> subjectAlternativeNames;
+        try {
+            subjectAlternativeNames = extractSANs(csr);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("CSR extension request is malformed");
+        }
+
+        byte[] encoded;
+        try {
+            encoded = csr.getEncoded();
+        } catch (IOException e) {
+            throw new InvalidRequestException("CSR could not be re-encoded");
+        }
+        SubjectPublicKeyInfo publicKeyInfo = csr.getSubjectPublicKeyInfo();
+        byte[] spki = encodePublicKey(publicKeyInfo);
+        return new ParsedCSR(encoded, commonName, organization, country, subjectAlternativeNames,
+                keyAlgorithm(publicKeyInfo), keySize(publicKeyInfo),
+                KeyFingerprints.spkiSha256(spki), KeyFingerprints.subjectKeyIdentifier(spki));
+    }
+
+    /**
+     * Fingerprint of the CSR's public key without verifying its signature; cheap enough for the upload path.
+     */
+    public String spkiSha256(PKCS10CertificationRequest csr) {
+        return KeyFingerprints.spkiSha256(encodePublicKey(csr.getSubjectPublicKeyInfo()));
+    }
+
+    public ParsedCSR parse(byte[] content) {
+        PKCS10CertificationRequest csr = decode(content);
+        verifySignature(csr);
+        return extract(csr);
+    }
+
+    private byte[] encodePublicKey(SubjectPublicKeyInfo publicKeyInfo) {
+        try {
+            return publicKeyInfo.getEncoded();
+        } catch (IOException e) {
+            throw new InvalidRequestException("CSR public key is malformed");
+        }
+    }
+
+    private String keyAlgorithm(SubjectPublicKeyInfo publicKeyInfo) {
+        ASN1ObjectIdentifier algorithm = publicKeyInfo.getAlgorithm().getAlgorithm();
+        if (PKCSObjectIdentifiers.rsaEncryption.equals(algorithm)) {
+            return "RSA";
+        } else if (X9ObjectIdentifiers.id_ecPublicKey.equals(algorithm)) {
+            return "EC";
+        } else if (EdECObjectIdentifiers.id_Ed25519.equals(algorithm)) {
+            return "Ed25519";
+        } else if (EdECObjectIdentifiers.id_Ed448.equals(algorithm)) {
+            return "Ed448";
+        }
+        return algorithm.getId();
+    }
+
+    private int keySize(SubjectPublicKeyInfo publicKeyInfo) {
+        ASN1ObjectIdentifier algorithm = publicKeyInfo.getAlgorithm().getAlgorithm();
+        try {
+            if (PKCSObjectIdentifiers.rsaEncryption.equals(algorithm)) {
+                return RSAPublicKey.getInstance(publicKeyInfo.parsePublicKey()).getModulus().bitLength();
+            } else if (X9ObjectIdentifiers.id_ecPublicKey.equals(algorithm)) {
+                ASN1Encodable parameters = publicKeyInfo.getAlgorithm().getParameters();
+                if (parameters instanceof ASN1ObjectIdentifier curve) {
+                    X9ECParameters curveParameters = ECNamedCurveTable.getByOID(curve);
+                    return curveParameters != null ? curveParameters.getCurve().getFieldSize() : 0;
+                }
+                return X9ECParameters.getInstance(parameters).getCurve().getFieldSize();
+            } else if (EdECObjectIdentifiers.id_Ed25519.equals(algorithm)) {
+                return 256;
+            } else if (EdECObjectIdentifiers.id_Ed448.equals(algorithm)) {
+                return 448;
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            throw new InvalidRequestException("CSR public key is malformed");
+        }
+        return 0;
+    }
+
+    private List<String> extractSANs(PKCS10CertificationRequest csr) {
+        List<String> result = new ArrayList<>();
+        for (Attribute attribute : csr.getAttributes(PKCSObjectIdentifiers.pkcs_9_at_extensionRequest)) {
+            for (ASN1Encodable value : attribute.getAttributeValues()) {
+                GeneralNames names = GeneralNames.fromExtensions(Extensions.getInstance(value), Extension.subjectAlternativeName);
+                if (names != null) {
+                    for (GeneralName name : names.getNames()) {
+                        result.add(name.getName().toString());
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private String getRDNValue(X500Name name, ASN1ObjectIdentifier oid) {
+        RDN[] rdns = name.getRDNs(oid);
+        if (rdns != null && rdns.length > 0) {
+            ASN1Encodable value = rdns[0].getFirst().getValue();
+            if (value instanceof ASN1String) {
+                return ((ASN1String) value).getString();
+            }
+        }
+        return null;
+    }
+}
@@ -25,6 +25,8 @@ public interface CSRService {
 
     CSRResponse getCSRById(Long csrId);
 
+    CSRResponse getCSRStatus(Long csrId, User user);
+
     List<CSRResponse> getCSRsForUser(User user);
 
     List<CSRResponse> getCSRsByStatusForUser(CSRStatus status, User user);
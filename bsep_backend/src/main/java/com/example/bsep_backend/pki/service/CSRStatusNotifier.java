@@ -0,0 +1,90 @@
+package com.example.bsep_backend.pki.service;
+
+import com.example.bsep_backend.pki.domain.CSRStatus;
+import com.example.bsep_backend.pki.dto.CSRResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Pushes status changes of a CSR to subscribed clients over Server-Sent Events, from the pipeline
+ * (PENDING, INVALID, auto-approval) and from reviews. The stream stays open until a terminal status
+ * (APPROVED, REJECTED or INVALID) is sent; emitters are dropped then, so nothing is kept per CSR
+ * afterwards.
+ */
+@Component
+@Slf4j
+public class CSRStatusNotifier {
+
+    private static final long EMITTER_TIMEOUT_MS = 5 * 60 * 1000L;
+
+    private final Map<Long, List<SseEmitter>> emitters = new ConcurrentHashMap<>();
+
+    public SseEmitter subscribe(Long csrId) {
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MS);
+        emitters.computeIfAbsent(csrId, id -> new CopyOnWriteArrayList<>()).add(emitter);
+        emitter.onCompletion(() -> remove(csrId, emitter));
+        emitter.onTimeout(() -> remove(csrId, emitter));
+        emitter.onError(e -> remove(csrId, emitter));
+        return emitter;
+    }
+
+    public void send(SseEmitter emitter, CSRResponse response, boolean terminal) {
+        try {
+            emitter.send(SseEmitter.event().name("status").data(response));
+            if (terminal) {
+                emitter.complete();
+            }
+        } catch (IOException | IllegalStateException e) {
+            emitter.completeWithError(e);
+        }
+    }
+
+    public void publish(CSRResponse response) {
+        boolean terminal = isTerminal(response.getStatus());
+        List<SseEmitter> subscribers = terminal ? emitters.remove(response.getId()) : emitters.get(response.getId());
+        if (subscribers == null) {
+            return;
+        }
+        log.debug("Notifying {} subscribers about CSR {} -> {}", subscribers.size(), response.getId(), response.getStatus());
+        for (SseEmitter emitter : subscribers) {
+            send(emitter, response, terminal);
+        }
+    }
+
+    /**
+     * Publishes once the surrounding transaction commits, so subscribers never see a status that is
+     * rolled back. Publishes right away outside a transaction.
+     */
+    public void publishAfterCommit(CSRResponse response) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish(response);
+                }
+            });
+        } else {
+            publish(response);
+        }
+    }
+
+    public static boolean isTerminal(CSRStatus status) {
+        return status == CSRStatus.APPROVED || status == CSRStatus.REJECTED || status == CSRStatus.INVALID;
+    }
+
+    private void remove(Long csrId, SseEmitter emitter) {
+        emitters.computeIfPresent(csrId, (id, list) -> {
+            list.remove(emitter);
+            return list.isEmpty() ? null : list;
+        });
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.bsep_backend.pki.service;
+
+import com.example.bsep_backend.exception.InvalidRequestException;
+import com.example.bsep_backend.exception.NotFoundException;
+import com.example.bsep_backend.pki.domain.CertificateExportRow;
+import com.example.bsep_backend.pki.domain.CertificateType;
+import com.example.bsep_backend.pki.repository.CertificateRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Exports any number of certificates in one response.
+ * <p>
+ * Rows are read through a database cursor (a JPA stream of projections with a fetch size) inside a
+ * read-only transaction and written to the response as they arrive, so memory use does not depend on
+ * how many certificates match. An issuer filter selects the whole subtree below that CA; its CA ids
+ * are resolved with one recursive query before the response starts, so the streamed query needs no
+ * recursion and a bad filter is still reported with a proper status.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CertificateBulkExportService {
+
+    private static final String SUBTREE_CA_IDS_SQL = "WITH RECURSIVE subtree AS (" +
+            "SELECT id FROM certificates WHERE serial_number = ? AND is_ca = true " +
+            "UNION ALL " +
+            "SELECT c.id FROM certificates c JOIN subtree s ON c.issuer_id = s.id WHERE c.is_ca = true) " +
+            "SELECT id FROM subtree";
+
+    public enum Format {
+        ZIP,
+        NDJSON
+    }
+
+    private final CertificateRepository certificateRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${pki.bulk-export.certificates-per-file:1000}")
+    private int certificatesPerFile;
+
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    void init() {
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Validates the filters and returns the body that streams the matching certificates. Filters
+     * left null are not applied.
+     */
+    public StreamingResponseBody export(Format format, String organization, String issuerSerialNumber,
+                                        CertificateType type, LocalDateTime issuedFrom, LocalDateTime issuedTo) {
+        if (issuedFrom != null && issuedTo != null && !issuedFrom.isBefore(issuedTo)) {
+            throw new InvalidRequestException("issuedFrom must be before issuedTo");
+        }
+        boolean allIssuers = issuerSerialNumber == null;
+        // Never empty, an empty IN list is not portable
+        List<Long> subtreeCaIds = List.of(-1L);
+        if (!allIssuers) {
+            subtreeCaIds = jdbcTemplate.queryForList(SUBTREE_CA_IDS_SQL, Long.class, issuerSerialNumber);
+            if (subtreeCaIds.isEmpty()) {
+                throw new NotFoundException("Issuer CA certificate not found");
+            }
+        }
+        List<Long> caIds = subtreeCaIds;
+
+        return outputStream -> {
+            long started = System.currentTimeMillis();
+            Long exported = readOnlyTransaction.execute(status -> {
+                try (Stream<CertificateExportRow> rows = certificateRepository.streamForExport(
+                        organization, type, issuedFrom, issuedTo, allIssuers, caIds)) {
+                    return format == Format.ZIP
+                            ? CertificateBulkExportWriter.writeZip(rows, outputStream, certificatesPerFile)
+                            : CertificateBulkExportWriter.writeNdjson(rows, outputStream);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            log.info("Bulk export wrote {} certificates as {} in {} ms", exported, format,
+                    System.currentTimeMillis() - started);
+        };
+    }
+}
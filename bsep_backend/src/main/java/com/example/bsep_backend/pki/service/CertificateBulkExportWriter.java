@@ -0,0 +1,109 @@
+package com.example.bsep_backend.pki.service;
+
+import com.example.bsep_backend.pki.domain.CertificateExportRow;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes streamed certificate rows as NDJSON or as a ZIP of PEM bundles, one row at a time.
+ * <p>
+ * Nothing is collected: each row is encoded straight into a fixed size buffer in front of the
+ * response stream. PEM is produced by wrapping the stored Base64 at 64 characters, so certificates
+ * are never decoded. The ZIP holds one bundle per entriesPerFile certificates rather than one entry
+ * per certificate, because ZipOutputStream keeps every entry in memory for the central directory.
+ */
+final class CertificateBulkExportWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private CertificateBulkExportWriter() {
+    }
+
+    /**
+     * Writes one JSON object per line and returns the number of rows written.
+     */
+    static long writeNdjson(Stream<CertificateExportRow> rows, OutputStream out) throws IOException {
+        long count = 0;
+        // Closing the generator flushes but leaves the caller's stream open
+        try (JsonGenerator json = JSON_FACTORY.createGenerator(new BufferedOutputStream(out, BUFFER_SIZE), JsonEncoding.UTF8)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+            json.setRootValueSeparator(null);
+            Iterator<CertificateExportRow> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                CertificateExportRow row = iterator.next();
+                json.writeStartObject();
+                json.writeStringField("serialNumber", row.serialNumber());
+                json.writeStringField("commonName", row.commonName());
+                json.writeStringField("organization", row.organization());
+                json.writeStringField("type", row.type() != null ? row.type().name() : null);
+                json.writeBooleanField("ca", row.isCa());
+                json.writeStringField("issuerSerialNumber", row.issuerSerialNumber());
+                json.writeStringField("notBefore", String.valueOf(row.notBefore()));
+                json.writeStringField("notAfter", String.valueOf(row.notAfter()));
+                json.writeBooleanField("revoked", row.revokedAt() != null);
+                json.writeStringField("certificate", row.certificateData());
+                json.writeEndObject();
+                json.writeRaw('\n');
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Writes certificates-000001.pem, certificates-000002.pem, ... each holding up to entriesPerFile
+     * certificates, and returns the number of rows written.
+     */
+    static long writeZip(Stream<CertificateExportRow> rows, OutputStream out, int entriesPerFile) throws IOException {
+        long count = 0;
+        int part = 0;
+        BufferedOutputStream buffered = new BufferedOutputStream(out, BUFFER_SIZE);
+        ZipOutputStream zip = new ZipOutputStream(buffered);
+        // Flushed before every new entry, the writer never holds more than its own buffer
+        Writer writer = new OutputStreamWriter(zip, StandardCharsets.US_ASCII);
+        Iterator<CertificateExportRow> iterator = rows.iterator();
+        while (iterator.hasNext()) {
+            CertificateExportRow row = iterator.next();
+            if (count % entriesPerFile == 0) {
+                writer.flush();
+                zip.putNextEntry(new ZipEntry(String.format("certificates-%06d.pem", ++part)));
+            }
+            writer.write("# ");
+            writer.write(row.serialNumber());
+            writer.write(' ');
+            // Not every certificate has a CN, the serial number labels those
+            String label = row.commonName() != null ? row.commonName() : row.serialNumber();
+            writer.write(label.replace('\n', ' '));
+            writer.write('\n');
+            appendPem(writer, row.certificateData());
+            count++;
+        }
+        writer.flush();
+        // Finished rather than closed, the response stream belongs to the caller
+        zip.finish();
+        buffered.flush();
+        return count;
+    }
+
+    private static void appendPem(Writer writer, String base64) throws IOException {
+        writer.write("-----BEGIN CERTIFICATE-----\n");
+        for (int from = 0; from < base64.length(); from += 64) {
+            writer.write(base64, from, Math.min(64, base64.length() - from));
+            writer.write('\n');
+        }
+        writer.write("-----END CERTIFICATE-----\n");
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.bsep_backend.pki.service;
+
+import com.example.bsep_backend.exception.NotFoundException;
+import com.example.bsep_backend.pki.domain.Certificate;
+import com.example.bsep_backend.pki.domain.CertificateChainLink;
+import com.example.bsep_backend.pki.domain.CertificateIssuedEvent;
+import com.example.bsep_backend.pki.domain.CertificatesRevokedEvent;
+import com.example.bsep_backend.pki.repository.CertificateRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.ByteArrayInputStream;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assembles certificate chains (leaf first, root last) from the issuer links and caches them per
+ * leaf serial number.
+ * <p>
+ * The chain above each CA is cached by CA id as well, so a leaf below a known CA costs one query
+ * and one parse no matter how deep the hierarchy is. Revocation drops every cached chain containing
+ * a revoked certificate and issuance drops the entry of the issued serial.
+ */
+@Service
+@RequiredArgsConstructor
+public class CertificateChainCache {
+
+    private final CertificateRepository certificateRepository;
+
+    @Value("${pki.chain-cache.max-entries:50000}")
+    private int maxEntries;
+
+    @Value("${pki.chain-validation.max-depth:16}")
+    private int maxDepth;
+
+    private final Map<String, Chain> chains = new ConcurrentHashMap<>();
+    private final Map<Long, Chain> caChains = new ConcurrentHashMap<>();
+
+    private record Chain(List<String> serialNumbers, List<X509Certificate> certificates) {
+    }
+
+    public List<X509Certificate> getChain(String serialNumber) {
+        Chain chain = chains.get(serialNumber);
+        if (chain == null) {
+            CertificateChainLink leaf = certificateRepository.findChainLinksBySerialNumbers(List.of(serialNumber)).stream()
+                    .findFirst()
+                    .orElseThrow(() -> new NotFoundException("Certificate not found"));
+            chain = extend(leaf, leaf.issuerId() != null ? caChain(leaf.issuerId(), 1) : null);
+            put(chains, serialNumber, chain);
+        }
+        return chain.certificates();
+    }
+
+    /**
+     * Same as {@link #getChain(String)} for a certificate that is already loaded, so only the issuers
+     * may need a query.
+     */
+    public List<X509Certificate> getChain(Certificate certificate) {
+        Chain chain = chains.get(certificate.getSerialNumber());
+        if (chain == null) {
+            Long issuerId = certificate.getIssuer() != null ? certificate.getIssuer().getId() : null;
+            CertificateChainLink leaf = new CertificateChainLink(certificate.getId(), certificate.getSerialNumber(),
+                    issuerId, certificate.isCa(), certificate.getCertificateData());
+            chain = extend(leaf, issuerId != null ? caChain(issuerId, 1) : null);
+            put(chains, certificate.getSerialNumber(), chain);
+        }
+        return chain.certificates();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCertificatesRevoked(CertificatesRevokedEvent event) {
+        Set<String> revoked = new HashSet<>();
+        event.serialNumbersByIssuer().values().forEach(revoked::addAll);
+        chains.values().removeIf(chain -> chain.serialNumbers().stream().anyMatch(revoked::contains));
+        caChains.values().removeIf(chain -> chain.serialNumbers().stream().anyMatch(revoked::contains));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCertificateIssued(CertificateIssuedEvent event) {
+        chains.remove(event.serialNumber());
+    }
+
+    private Chain caChain(long id, int depth) {
+        Chain cached = caChains.get(id);
+        if (cached != null) {
+            return cached;
+        }
+        if (depth > maxDepth) {
+            throw new IllegalStateException("Certificate chain is deeper than " + maxDepth);
+        }
+        CertificateChainLink link = certificateRepository.findChainLinksByIds(List.of(id)).stream()
+                .findFirst()
+                .orElseThrow(() -> new NotFoundException("Issuer certificate not found"));
+        Chain chain = extend(link, link.issuerId() != null ? caChain(link.issuerId(), depth + 1) : null);
+        put(caChains, id, chain);
+        return chain;
+    }
+
+    private static Chain extend(CertificateChainLink link, Chain parent) {
+        List<String> serialNumbers = new ArrayList<>();
+        List<X509Certificate> certificates = new ArrayList<>();
+        serialNumbers.add(link.serialNumber());
+        certificates.add(parse(link));
+        if (parent != null) {
+            serialNumbers.addAll(parent.serialNumbers());
+            certificates.addAll(parent.certificates());
+        }
+        return new Chain(List.copyOf(serialNumbers), List.copyOf(certificates));
+    }
+
+    private <K> void put(Map<K, Chain> cache, K key, Chain chain) {
+        if (cache.size() >= maxEntries) {
+            cache.clear();
+        }
+        cache.put(key, chain);
+    }
+
+    private static X509Certificate parse(CertificateChainLink link) {
+        try {
+            return (X509Certificate) CertificateFactory.getInstance("X.509")
+                    .generateCertificate(new ByteArrayInputStream(Base64.getDecoder().decode(link.certificateData())));
+        } catch (CertificateException e) {
+            throw new IllegalStateException("Stored certificate " + link.serialNumber() + " could not be parsed", e);
+        }
+    }
+}
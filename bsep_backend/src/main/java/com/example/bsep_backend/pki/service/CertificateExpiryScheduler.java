@@ -0,0 +1,320 @@
+package com.example.bsep_backend.pki.service;
+
+import com.example.bsep_backend.domain.User;
+import com.example.bsep_backend.pki.domain.Certificate;
+import com.example.bsep_backend.pki.domain.CertificateIssuedEvent;
+import com.example.bsep_backend.pki.domain.CertificatesExpiringEvent;
+import com.example.bsep_backend.pki.dto.ExpirySchedulerResponse;
+import com.example.bsep_backend.pki.repository.CertificateRepository;
+import com.example.bsep_backend.service.intr.EmailService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends expiry notifications at the configured lead times before each certificate's notAfter.
+ * <p>
+ * Notifications are kept in an {@link ExpiryTimingWheel}. Only those due within pki.expiry.horizon
+ * are held in memory: the window is filled from the not_after index when the application starts and
+ * extended in steps as time passes, while certificates issued in between are added from
+ * {@link CertificateIssuedEvent}. Memory therefore depends on how many notifications fall inside the
+ * horizon (16 bytes each), not on the total number of certificates. Every tick the due entries are
+ * loaded in batches, revoked certificates are skipped, and each batch results in one
+ * {@link CertificatesExpiringEvent} per lead time and one email per certificate owner.
+ * Notifications that fell due while the application was down are not sent afterwards.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CertificateExpiryScheduler {
+
+    private static final String SELECT_EXPIRING_SQL = "SELECT id, not_after FROM certificates " +
+            "WHERE not_after > ? AND not_after <= ? AND revoked_at IS NULL";
+
+    // Payload layout: certificate id in the upper bits, lead time index in the lowest LEAD_BITS
+    private static final int LEAD_BITS = 4;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final CertificateRepository certificateRepository;
+    private final EmailService emailService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${pki.expiry.enabled:true}")
+    private boolean enabled;
+
+    @Value("${pki.expiry.lead-times:30d,7d,1d}")
+    private String[] leadTimeValues;
+
+    @Value("${pki.expiry.tick-ms:60000}")
+    private long tickMs;
+
+    @Value("${pki.expiry.horizon-ms:172800000}")
+    private long horizonMs;
+
+    @Value("${pki.expiry.batch-size:500}")
+    private int batchSize;
+
+    @Value("${pki.expiry.send-emails:true}")
+    private boolean sendEmails;
+
+    private Duration[] leadTimes;
+    private ExpiryTimingWheel wheel;
+    private TransactionTemplate readOnlyTransaction;
+    private ExecutorService mailExecutor;
+
+    // Notifications with a fire time up to this instant have been loaded into the wheel
+    private long windowEndMs;
+    private volatile boolean loaded;
+
+    private final LongAdder fired = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder emailsQueued = new LongAdder();
+    private final LongAdder emailFailures = new LongAdder();
+
+    @PostConstruct
+    void init() {
+        leadTimes = Arrays.stream(leadTimeValues)
+                .map(String::trim)
+                .map(DurationStyle::detectAndParse)
+                .sorted(Comparator.reverseOrder())
+                .toArray(Duration[]::new);
+        if (leadTimes.length >= 1 << LEAD_BITS) {
+            throw new IllegalStateException("At most " + ((1 << LEAD_BITS) - 1) + " expiry lead times are supported");
+        }
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        mailExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "expiry-mail");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void stop() {
+        mailExecutor.shutdownNow();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void bootstrap() {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            wheel = new ExpiryTimingWheel(tickMs, now);
+            windowEndMs = now;
+            extendWindow(now + horizonMs);
+            loaded = true;
+            log.info("Expiry scheduler tracking {} notifications due within {} ms", wheel.size(), horizonMs);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCertificateIssued(CertificateIssuedEvent event) {
+        if (!loaded) {
+            return;
+        }
+        long notAfterMs = toEpochMs(event.notAfter());
+        synchronized (this) {
+            // Notifications past the window are picked up by the query that extends it
+            for (int i = 0; i < leadTimes.length; i++) {
+                long fireAtMs = notAfterMs - leadTimes[i].toMillis();
+                if (fireAtMs <= windowEndMs) {
+                    wheel.add(fireAtMs, pack(event.certificateId(), i));
+                }
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${pki.expiry.tick-ms:60000}", initialDelayString = "${pki.expiry.tick-ms:60000}")
+    public void tick() {
+        if (!loaded) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        LongList due = new LongList();
+        synchronized (this) {
+            wheel.advanceTo(now, due::add);
+            // Extend in steps of a tenth of the horizon so the query runs rarely and covers a small range
+            if (now + horizonMs - windowEndMs >= horizonMs / 10) {
+                extendWindow(now + horizonMs);
+            }
+        }
+        if (due.size == 0) {
+            return;
+        }
+
+        long[] payloads = due.toSortedArray();
+        for (int from = 0; from < payloads.length; from += batchSize) {
+            try {
+                notifyBatch(Arrays.copyOfRange(payloads, from, Math.min(from + batchSize, payloads.length)));
+            } catch (RuntimeException e) {
+                log.error("Failed to send expiry notifications", e);
+            }
+        }
+    }
+
+    public ExpirySchedulerResponse getStatus() {
+        synchronized (this) {
+            return ExpirySchedulerResponse.builder()
+                    .enabled(enabled)
+                    .loaded(loaded)
+                    .leadTimes(Arrays.stream(leadTimes).map(Duration::toString).toList())
+                    .trackedNotifications(wheel != null ? wheel.size() : 0)
+                    .windowEnd(loaded ? toLocalDateTime(windowEndMs) : null)
+                    .fired(fired.sum())
+                    .skipped(skipped.sum())
+                    .emailsQueued(emailsQueued.sum())
+                    .emailFailures(emailFailures.sum())
+                    .build();
+        }
+    }
+
+    // Caller holds the lock
+    private void extendWindow(long newEndMs) {
+        long startMs = windowEndMs;
+        readOnlyTransaction.executeWithoutResult(status -> {
+            for (int i = 0; i < leadTimes.length; i++) {
+                int leadIndex = i;
+                long leadMs = leadTimes[i].toMillis();
+                jdbcTemplate.query(connection -> {
+                    var statement = connection.prepareStatement(SELECT_EXPIRING_SQL);
+                    statement.setFetchSize(batchSize);
+                    statement.setTimestamp(1, Timestamp.valueOf(toLocalDateTime(startMs + leadMs)));
+                    statement.setTimestamp(2, Timestamp.valueOf(toLocalDateTime(newEndMs + leadMs)));
+                    return statement;
+                }, (RowCallbackHandler) rs -> {
+                    long notAfterMs = toEpochMs(rs.getTimestamp(2).toLocalDateTime());
+                    wheel.add(notAfterMs - leadMs, pack(rs.getLong(1), leadIndex));
+                });
+            }
+        });
+        windowEndMs = newEndMs;
+    }
+
+    private void notifyBatch(long[] payloads) {
+        // The same notification can arrive twice when an issue event races a window extension
+        Map<Integer, List<Long>> idsByLead = new LinkedHashMap<>();
+        long previous = -1;
+        for (long payload : payloads) {
+            if (payload == previous) {
+                continue;
+            }
+            previous = payload;
+            idsByLead.computeIfAbsent(leadIndex(payload), i -> new ArrayList<>()).add(certificateId(payload));
+        }
+
+        idsByLead.forEach((leadIndex, ids) -> {
+            List<Certificate> certificates = certificateRepository.findByIdInWithOwnerAndIssuer(ids).stream()
+                    .filter(certificate -> !certificate.isRevoked())
+                    .toList();
+            skipped.add(ids.size() - certificates.size());
+            if (certificates.isEmpty()) {
+                return;
+            }
+            fired.add(certificates.size());
+            Duration leadTime = leadTimes[leadIndex];
+
+            eventPublisher.publishEvent(new CertificatesExpiringEvent(leadTime, certificates.stream()
+                    .map(certificate -> new CertificatesExpiringEvent.ExpiringCertificate(
+                            certificate.getId(),
+                            certificate.getSerialNumber(),
+                            certificate.getCommonName(),
+                            certificate.getIssuer() != null ? certificate.getIssuer().getId() : null,
+                            certificate.getOwner().getId(),
+                            certificate.isCa(),
+                            certificate.getNotAfter()))
+                    .toList()));
+
+            if (sendEmails) {
+                Map<Long, List<Certificate>> byOwner = new LinkedHashMap<>();
+                Map<Long, User> owners = new LinkedHashMap<>();
+                for (Certificate certificate : certificates) {
+                    owners.putIfAbsent(certificate.getOwner().getId(), certificate.getOwner());
+                    byOwner.computeIfAbsent(certificate.getOwner().getId(), id -> new ArrayList<>()).add(certificate);
+                }
+                byOwner.forEach((ownerId, owned) -> queueEmail(owners.get(ownerId), owned, leadTime));
+            }
+        });
+    }
+
+    private void queueEmail(User owner, List<Certificate> certificates, Duration leadTime) {
+        emailsQueued.increment();
+        mailExecutor.submit(() -> {
+            try {
+                emailService.sendCertificateExpiryEmail(owner.getEmail(), owner.getName(), certificates, leadTime);
+            } catch (RuntimeException e) {
+                emailFailures.increment();
+                log.warn("Could not send expiry notice to {}: {}", owner.getEmail(), e.getMessage());
+            }
+        });
+    }
+
+    private static long pack(long certificateId, int leadIndex) {
+        return certificateId << LEAD_BITS | leadIndex;
+    }
+
+    private static long certificateId(long payload) {
+        return payload >>> LEAD_BITS;
+    }
+
+    private static int leadIndex(long payload) {
+        return (int) (payload & ((1 << LEAD_BITS) - 1));
+    }
+
+    private static long toEpochMs(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMs) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMs), ZoneId.systemDefault());
+    }
+
+    private static final class LongList {
+        private long[] values = new long[16];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        long[] toSortedArray() {
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
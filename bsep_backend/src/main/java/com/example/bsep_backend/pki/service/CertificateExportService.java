@@ -4,6 +4,11 @@ import com.example.bsep_backend.pki.dto.CertificateExportResponse;
 
 public interface CertificateExportService {
 
+    /**
+     * ETag of an export that is already cached, or null. Never touches the database.
+     */
+    String getCachedETag(String serialNumber, String format);
+
     CertificateExportResponse exportCertificate(String serialNumber, String format);
 
     CertificateExportResponse exportKeystore(String serialNumber, String keystorePassword);
@@ -2,6 +2,8 @@ package com.example.bsep_backend.pki.service;
 
 import com.example.bsep_backend.pki.domain.Issuer;
 import com.example.bsep_backend.pki.domain.Subject;
+import org.bouncycastle.asn1.DERNull;
+import org.bouncycastle.asn1.ocsp.OCSPObjectIdentifiers;
 import org.bouncycastle.asn1.x509.*;
 import org.bouncycastle.asn1.x500.X500Name;
 import org.bouncycastle.cert.X509CertificateHolder;
@@ -19,6 +21,7 @@ import java.security.KeyPairGenerator;
 import java.security.MessageDigest;
 import java.security.Security;
 import java.security.cert.X509Certificate;
+import java.security.spec.ECGenParameterSpec;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.Date;
@@ -37,6 +40,19 @@ public class CertificateGenerator {
         return keyPairGenerator.generateKeyPair();
     }
 
+    /**
+     * RSA 2048 for "RSA", NIST P-256 for "EC". An EC key makes the server side of a TLS handshake
+     * much cheaper, the certificate is still signed with the issuer's RSA key.
+     */
+    public KeyPair generateKeyPair(String algorithm) throws Exception {
+        if ("EC".equalsIgnoreCase(algorithm)) {
+            KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("EC");
+            keyPairGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+            return keyPairGenerator.generateKeyPair();
+        }
+        return generateKeyPair();
+    }
+
     private SubjectKeyIdentifier createSubjectKeyIdentifier(java.security.PublicKey publicKey) throws Exception {
         byte[] encoded = publicKey.getEncoded();
         MessageDigest digest = MessageDigest.getInstance("SHA-1");
@@ -155,4 +171,42 @@ public class CertificateGenerator {
 
         return certConverter.getCertificate(certHolder);
     }
-}
\ No newline at end of file
+
+    /**
+     * Delegated OCSP signing certificate (RFC 6960 4.2.2.2): id-kp-OCSPSigning plus id-pkix-ocsp-nocheck,
+     * so relying parties do not ask the responder about its own certificate.
+     */
+    public X509Certificate generateOCSPResponderCertificate(Subject subject, Issuer issuer,
+                                                          LocalDateTime notBefore, LocalDateTime notAfter,
+                                                          String serialNumber) throws Exception {
+
+        JcaContentSignerBuilder builder = new JcaContentSignerBuilder("SHA256WithRSAEncryption");
+        builder = builder.setProvider("BC");
+        ContentSigner contentSigner = builder.build(issuer.getPrivateKey());
+
+        Date startDate = Date.from(notBefore.atZone(ZoneId.systemDefault()).toInstant());
+        Date endDate = Date.from(notAfter.atZone(ZoneId.systemDefault()).toInstant());
+
+        X509v3CertificateBuilder certGen = new JcaX509v3CertificateBuilder(
+                issuer.getX500Name(),
+                new BigInteger(serialNumber),
+                startDate,
+                endDate,
+                subject.getX500Name(),
+                subject.getPublicKey());
+
+        certGen.addExtension(Extension.basicConstraints, true, new BasicConstraints(false));
+        certGen.addExtension(Extension.keyUsage, true, new KeyUsage(KeyUsage.digitalSignature));
+        certGen.addExtension(Extension.extendedKeyUsage, false, new ExtendedKeyUsage(KeyPurposeId.id_kp_OCSPSigning));
+        certGen.addExtension(OCSPObjectIdentifiers.id_pkix_ocsp_nocheck, false, DERNull.INSTANCE);
+        certGen.addExtension(Extension.subjectKeyIdentifier, false, createSubjectKeyIdentifier(subject.getPublicKey()));
+        certGen.addExtension(Extension.authorityKeyIdentifier, false, createAuthorityKeyIdentifier(issuer.getPublicKey()));
+
+        X509CertificateHolder certHolder = certGen.build(contentSigner);
+
+        JcaX509CertificateConverter certConverter = new JcaX509CertificateConverter();
+        certConverter = certConverter.setProvider("BC");
+
+        return certConverter.getCertificate(certHolder);
+    }
+}
@@ -0,0 +1,454 @@
+package com.example.bsep_backend.pki.service;
+
+import com.example.bsep_backend.domain.User;
+import com.example.bsep_backend.domain.UserRole;
+import com.example.bsep_backend.exception.EntityExistsException;
+import com.example.bsep_backend.exception.ForbiddenOperationException;
+import com.example.bsep_backend.exception.InvalidRequestException;
+import com.example.bsep_backend.exception.NotFoundException;
+import com.example.bsep_backend.pki.domain.CASigningContext;
+import com.example.bsep_backend.pki.domain.Certificate;
+import com.example.bsep_backend.pki.dto.CertificateResponse;
+import com.example.bsep_backend.pki.dto.RenewalMetricsResponse;
+import com.example.bsep_backend.pki.repository.CertificateRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Re-issues certificates that enter their renewal window (pki.renewal.window-ms before notAfter).
+ * <p>
+ * A wave pages through candidates by id, groups them by issuing CA and unlocks each CA key once.
+ * Chunks of one CA are spread over parallel worker lanes; a lane claims its chunk with one batched
+ * conditional update that sets a lease, signs the successors and stores them in one transaction,
+ * marking the old certificates as renewed. The lease, together with the unique renewed_from_id
+ * index, keeps a certificate from being renewed twice by overlapping waves, manual renewals or
+ * other instances. Failed items give their lease back and are retried by the next wave.
+ * <p>
+ * Successors are signed by the current version of the issuing CA: when the CA has been renewed
+ * itself, the renewed_from_id chain is followed to its newest unrevoked successor. A successor keeps
+ * the previous validity length but is capped at that CA's notAfter. Candidates whose successor would
+ * still end inside the window are skipped and reported, since every following wave would renew them
+ * again. When a pass renews CA certificates and skipped some, the wave runs another pass, so a CA
+ * and its children that enter the window together are renewed in the same wave.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CertificateRenewalService {
+
+    public static final String AUDIT_ACTOR = "renewal-engine";
+
+    private static final String SELECT_CANDIDATES_SQL = "SELECT c.id, c.issuer_id, c.not_before, c.not_after, c.is_ca, " +
+            "i.not_after FROM certificates c JOIN certificates i ON i.id = c.issuer_id " +
+            "WHERE c.not_after > ? AND c.not_after <= ? AND c.revoked_at IS NULL AND c.renewed_at IS NULL " +
+            "AND c.id > ? ORDER BY c.id LIMIT ?";
+
+    // The unique renewed_from_id index allows at most one successor per certificate
+    private static final String SELECT_SUCCESSOR_SQL = "SELECT id, not_after FROM certificates " +
+            "WHERE renewed_from_id = ? AND revoked_at IS NULL";
+
+    private static final String SELECT_ISSUER_SQL = "SELECT id, not_after FROM certificates WHERE id = ?";
+
+    // Each pass renews one more level of CAs that entered the window together with their children
+    private static final int MAX_PASSES = 8;
+
+    private static final String CLAIM_SQL = "UPDATE certificates SET renewal_lease_until = ? " +
+            "WHERE id = ? AND renewed_at IS NULL AND revoked_at IS NULL " +
+            "AND (renewal_lease_until IS NULL OR renewal_lease_until < ?)";
+
+    private static final String MARK_RENEWED_SQL = "UPDATE certificates SET renewed_at = ?, renewal_lease_until = NULL " +
+            "WHERE id = ?";
+
+    private static final String RELEASE_SQL = "UPDATE certificates SET renewal_lease_until = NULL WHERE id = ?";
+
+    private final CertificateRepository certificateRepository;
+    private final CertificateService certificateService;
+    private final CAAssignmentService caAssignmentService;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${pki.renewal.enabled:false}")
+    private boolean enabled;
+
+    @Value("${pki.renewal.window-ms:2592000000}")
+    private long windowMs;
+
+    @Value("${pki.renewal.workers:0}")
+    private int workers;
+
+    @Value("${pki.renewal.chunk-size:100}")
+    private int chunkSize;
+
+    @Value("${pki.renewal.page-size:5000}")
+    private int pageSize;
+
+    @Value("${pki.renewal.lease-ms:600000}")
+    private long leaseMs;
+
+    @Value("${pki.renewal.rekey-ca:true}")
+    private boolean rekeyCa;
+
+    private TransactionTemplate transactionTemplate;
+    private ExecutorService lanes;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final LongAdder waves = new LongAdder();
+    private final LongAdder candidates = new LongAdder();
+    private final LongAdder renewed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder fenced = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder signNanos = new LongAdder();
+    private final LongAdder signed = new LongAdder();
+    private volatile LocalDateTime lastWaveStartedAt;
+    private volatile long lastWaveDurationMs;
+    private volatile long lastWaveRenewed;
+    private volatile long lastWaveSkipped;
+
+    private record RenewalResult(int renewed, int renewedCas, int failed, int fenced) {
+    }
+
+    private record Candidate(long id, long issuerId, LocalDateTime notBefore, LocalDateTime notAfter, boolean ca) {
+    }
+
+    private record CurrentIssuer(long id, LocalDateTime notAfter) {
+    }
+
+    private record Candidates(Map<Long, List<Long>> idsByIssuer, Map<Long, Integer> skippedByIssuer) {
+    }
+
+    @PostConstruct
+    void start() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        int threads = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCounter = new AtomicInteger();
+        lanes = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "renewal-lane-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void stop() {
+        lanes.shutdownNow();
+    }
+
+    @Scheduled(fixedDelayString = "${pki.renewal.check-ms:3600000}", initialDelayString = "${pki.renewal.check-ms:3600000}")
+    public void scheduledWave() {
+        if (enabled) {
+            launch();
+        }
+    }
+
+    /**
+     * Starts a wave in the background unless one is already running and returns the current metrics.
+     */
+    public RenewalMetricsResponse trigger() {
+        launch();
+        return getMetrics();
+    }
+
+    /**
+     * Renews one certificate right away under the current version of its CA, signed by the caller.
+     * Fails with 409 if it is being renewed already.
+     */
+    public CertificateResponse renew(String serialNumber, User user) throws Exception {
+        Certificate certificate = certificateRepository.findBySerialNumber(serialNumber)
+                .orElseThrow(() -> new NotFoundException("Certificate not found"));
+        if (certificate.getIssuer() == null) {
+            throw new InvalidRequestException("Root certificates cannot be renewed");
+        }
+        if (certificate.isRevoked()) {
+            throw new InvalidRequestException("Revoked certificates cannot be renewed");
+        }
+        if (certificate.getRenewedAt() != null) {
+            throw new InvalidRequestException("Certificate has already been renewed");
+        }
+        CurrentIssuer current = currentIssuer(certificate.getIssuer().getId());
+        Certificate issuer = certificateRepository.findByIdInWithOwnerAndIssuer(List.of(current.id())).stream()
+                .findFirst()
+                .orElseThrow(() -> new NotFoundException("Issuer certificate not found"));
+        if (user.getRole() != UserRole.ADMIN && (user.getRole() != UserRole.CA
+                || !caAssignmentService.canUserUseCertificate(user, issuer.getSerialNumber()))) {
+            throw new ForbiddenOperationException("You are not allowed to renew this certificate");
+        }
+        CASigningContext context = certificateService.prepareSigningContext(issuer, user);
+
+        List<Certificate> stored = new ArrayList<>();
+        RenewalResult result = renewChunk(context, List.of(certificate.getId()), user.getEmail(), stored);
+        if (result.fenced() > 0) {
+            throw new EntityExistsException("Certificate is already being renewed");
+        }
+        if (stored.isEmpty()) {
+            throw new InvalidRequestException("Certificate could not be renewed");
+        }
+        return certificateService.mapToCertificateResponse(stored.get(0));
+    }
+
+    public RenewalMetricsResponse getMetrics() {
+        long signedCount = signed.sum();
+        return RenewalMetricsResponse.builder()
+                .enabled(enabled)
+                .running(running.get())
+                .waves(waves.sum())
+                .candidates(candidates.sum())
+                .renewed(renewed.sum())
+                .failed(failed.sum())
+                .fenced(fenced.sum())
+                .skipped(skipped.sum())
+                .averageSignMillis(signedCount == 0 ? 0 : signNanos.sum() / 1_000_000.0 / signedCount)
+                .lastWaveStartedAt(lastWaveStartedAt)
+                .lastWaveDurationMs(lastWaveDurationMs)
+                .lastWaveRenewed(lastWaveRenewed)
+                .lastWaveSkipped(lastWaveSkipped)
+                .lastWaveThroughputPerSecond(lastWaveDurationMs == 0 ? 0 : lastWaveRenewed * 1000.0 / lastWaveDurationMs)
+                .build();
+    }
+
+    private void launch() {
+        if (running.compareAndSet(false, true)) {
+            Thread thread = new Thread(this::runWave, "renewal-wave");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    private void runWave() {
+        long start = System.nanoTime();
+        lastWaveStartedAt = LocalDateTime.now();
+        long renewedBefore = renewed.sum();
+        long skippedBefore = skipped.sum();
+        try {
+            for (int pass = 1; ; pass++) {
+                Candidates found = findCandidates();
+                int renewedCas = renewAll(found.idsByIssuer());
+                if (renewedCas == 0 || found.skippedByIssuer().isEmpty() || pass == MAX_PASSES) {
+                    reportSkipped(found.skippedByIssuer());
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.error("Renewal wave failed", e);
+        } finally {
+            waves.increment();
+            lastWaveDurationMs = (System.nanoTime() - start) / 1_000_000;
+            lastWaveRenewed = renewed.sum() - renewedBefore;
+            lastWaveSkipped = skipped.sum() - skippedBefore;
+            if (lastWaveRenewed > 0) {
+                log.info("Renewal wave renewed {} certificates in {} ms", lastWaveRenewed, lastWaveDurationMs);
+            }
+            running.set(false);
+        }
+    }
+
+    // Returns the number of renewed CA certificates
+    private int renewAll(Map<Long, List<Long>> idsByIssuer) throws InterruptedException {
+        List<Future<RenewalResult>> chunks = new ArrayList<>();
+        idsByIssuer.forEach((issuerId, ids) -> {
+            CASigningContext context = signingContext(issuerId, ids.size());
+            if (context == null) {
+                return;
+            }
+            for (int from = 0; from < ids.size(); from += chunkSize) {
+                List<Long> chunk = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+                chunks.add(lanes.submit(() -> renewChunk(context, chunk, AUDIT_ACTOR, null)));
+            }
+        });
+        int renewedCas = 0;
+        for (Future<RenewalResult> chunk : chunks) {
+            try {
+                renewedCas += chunk.get().renewedCas();
+            } catch (ExecutionException e) {
+                log.error("Renewal chunk failed", e.getCause());
+            }
+        }
+        return renewedCas;
+    }
+
+    /**
+     * Groups the certificates in the window by the current version of their CA. Those whose successor
+     * would not outlive the window are only counted per CA.
+     */
+    private Candidates findCandidates() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime windowEnd = now.plusNanos(windowMs * 1_000_000);
+        Timestamp from = Timestamp.valueOf(now);
+        Timestamp to = Timestamp.valueOf(windowEnd);
+        Map<Long, CurrentIssuer> issuers = new HashMap<>();
+        Map<Long, CurrentIssuer> currentIssuers = new HashMap<>();
+        Map<Long, List<Long>> idsByIssuer = new LinkedHashMap<>();
+        Map<Long, Integer> skippedByIssuer = new LinkedHashMap<>();
+        long lastId = 0;
+        while (true) {
+            List<Candidate> page = jdbcTemplate.query(SELECT_CANDIDATES_SQL,
+                    (rs, rowNum) -> {
+                        long issuerId = rs.getLong(2);
+                        issuers.putIfAbsent(issuerId, new CurrentIssuer(issuerId, rs.getTimestamp(6).toLocalDateTime()));
+                        return new Candidate(rs.getLong(1), issuerId, rs.getTimestamp(3).toLocalDateTime(),
+                                rs.getTimestamp(4).toLocalDateTime(), rs.getBoolean(5));
+                    },
+                    from, to, lastId, pageSize);
+            for (Candidate candidate : page) {
+                CurrentIssuer issuer = currentIssuers.computeIfAbsent(candidate.issuerId(),
+                        id -> latestSuccessor(issuers.get(id)));
+                // Same validity length and cap as CertificateService.issueRenewal
+                LocalDateTime successorNotAfter = now.plus(Duration.between(candidate.notBefore(), candidate.notAfter()));
+                if (successorNotAfter.isAfter(issuer.notAfter())) {
+                    successorNotAfter = issuer.notAfter();
+                }
+                if (successorNotAfter.isAfter(windowEnd)) {
+                    idsByIssuer.computeIfAbsent(issuer.id(), id -> new ArrayList<>()).add(candidate.id());
+                } else {
+                    skippedByIssuer.merge(issuer.id(), 1, Integer::sum);
+                }
+            }
+            candidates.add(page.size());
+            if (page.size() < pageSize) {
+                return new Candidates(idsByIssuer, skippedByIssuer);
+            }
+            lastId = page.get(page.size() - 1).id();
+        }
+    }
+
+    private void reportSkipped(Map<Long, Integer> skippedByIssuer) {
+        skippedByIssuer.forEach((issuerId, count) -> {
+            skipped.add(count);
+            log.warn("Skipped {} certificates issued by CA {}: their successors would expire within the renewal window, "
+                    + "renew the CA first", count, issuerId);
+        });
+    }
+
+    private CurrentIssuer currentIssuer(Long issuerId) {
+        return latestSuccessor(jdbcTemplate.queryForObject(SELECT_ISSUER_SQL,
+                (rs, rowNum) -> new CurrentIssuer(rs.getLong(1), rs.getTimestamp(2).toLocalDateTime()), issuerId));
+    }
+
+    private CurrentIssuer latestSuccessor(CurrentIssuer issuer) {
+        CurrentIssuer current = issuer;
+        while (true) {
+            List<CurrentIssuer> successors = jdbcTemplate.query(SELECT_SUCCESSOR_SQL,
+                    (rs, rowNum) -> new CurrentIssuer(rs.getLong(1), rs.getTimestamp(2).toLocalDateTime()), current.id());
+            if (successors.isEmpty()) {
+                return current;
+            }
+            current = successors.get(0);
+        }
+    }
+
+    // Signs on behalf of the CA owner, like auto-approval does
+    private CASigningContext signingContext(Long issuerId, int candidateCount) {
+        try {
+            Certificate issuer = certificateRepository.findByIdInWithOwnerAndIssuer(List.of(issuerId)).stream()
+                    .findFirst()
+                    .orElseThrow(() -> new NotFoundException("Issuer certificate not found"));
+            return certificateService.prepareSigningContext(issuer, issuer.getOwner());
+        } catch (Exception e) {
+            failed.add(candidateCount);
+            log.warn("Cannot renew {} certificates issued by CA {}: {}", candidateCount, issuerId, e.getMessage());
+            return null;
+        }
+    }
+
+    private RenewalResult renewChunk(CASigningContext context, List<Long> ids, String actor, List<Certificate> stored) {
+        List<Long> claimed = claim(ids);
+        int fencedCount = ids.size() - claimed.size();
+        fenced.add(fencedCount);
+        if (claimed.isEmpty()) {
+            return new RenewalResult(0, 0, 0, fencedCount);
+        }
+
+        List<CertificateService.RenewedCertificate> issued = new ArrayList<>(claimed.size());
+        List<Long> release = new ArrayList<>();
+        for (Certificate certificate : certificateRepository.findByIdInWithOwnerAndIssuer(claimed)) {
+            long signStart = System.nanoTime();
+            try {
+                issued.add(certificateService.issueRenewal(certificate, context, rekeyCa));
+                signNanos.add(System.nanoTime() - signStart);
+                signed.increment();
+            } catch (Exception e) {
+                release.add(certificate.getId());
+                log.warn("Failed to renew certificate {}: {}", certificate.getSerialNumber(), e.getMessage());
+            }
+        }
+
+        int renewedCount = 0;
+        int renewedCas = 0;
+        if (!issued.isEmpty()) {
+            try {
+                List<Certificate> saved = transactionTemplate.execute(status -> {
+                    List<Certificate> certificates = new ArrayList<>(issued.size());
+                    List<Object[]> marks = new ArrayList<>(issued.size());
+                    Timestamp renewedAt = Timestamp.valueOf(LocalDateTime.now());
+                    for (CertificateService.RenewedCertificate renewal : issued) {
+                        try {
+                            certificates.add(certificateService.saveRenewal(renewal, actor));
+                        } catch (Exception e) {
+                            throw new IllegalStateException("Could not store renewal of " + renewal.previous().getSerialNumber(), e);
+                        }
+                        marks.add(new Object[]{renewedAt, renewal.previous().getId()});
+                    }
+                    jdbcTemplate.batchUpdate(MARK_RENEWED_SQL, marks);
+                    return certificates;
+                });
+                renewedCount = saved.size();
+                renewedCas = (int) saved.stream().filter(Certificate::isCa).count();
+                if (stored != null) {
+                    stored.addAll(saved);
+                }
+            } catch (RuntimeException e) {
+                log.error("Failed to store {} renewed certificates", issued.size(), e);
+                issued.forEach(renewal -> release.add(renewal.previous().getId()));
+            }
+        }
+
+        if (!release.isEmpty()) {
+            jdbcTemplate.batchUpdate(RELEASE_SQL, release.stream().map(id -> new Object[]{id}).toList());
+        }
+        renewed.add(renewedCount);
+        failed.add(release.size());
+        return new RenewalResult(renewedCount, renewedCas, release.size(), fencedCount);
+    }
+
+    private List<Long> claim(List<Long> ids) {
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp leaseUntil = Timestamp.valueOf(now.plusNanos(leaseMs * 1_000_000));
+        Timestamp nowTimestamp = Timestamp.valueOf(now);
+        List<Object[]> rows = ids.stream().map(id -> new Object[]{leaseUntil, id, nowTimestamp}).toList();
+        int[] counts = transactionTemplate.execute(status -> jdbcTemplate.batchUpdate(CLAIM_SQL, rows));
+
+        List<Long> claimed = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            if (counts[i] > 0) {
+                claimed.add(ids.get(i));
+            }
+        }
+        return claimed;
+    }
+}
@@ -1,12 +1,18 @@
 package com.example.bsep_backend.pki.service;
 
+import com.example.bsep_backend.audit.domain.AuditEventType;
+import com.example.bsep_backend.audit.service.AuditLogService;
 import com.example.bsep_backend.domain.User;
 import com.example.bsep_backend.domain.UserRole;
+import com.example.bsep_backend.exception.ForbiddenOperationException;
+import com.example.bsep_backend.exception.InvalidRequestException;
 import com.example.bsep_backend.exception.NotFoundException;
 import com.example.bsep_backend.pki.domain.*;
 import com.example.bsep_backend.pki.dto.CreateCertificateRequest;
 import com.example.bsep_backend.pki.dto.CertificateResponse;
+import com.example.bsep_backend.pki.dto.ChainValidationResponse;
 import com.example.bsep_backend.pki.repository.CertificateRepository;
+import com.example.bsep_backend.pki.repository.RevocationJournalRepository;
 import com.example.bsep_backend.pki.service.CAAssignmentService;
 import com.example.bsep_backend.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
@@ -18,17 +24,22 @@ import org.bouncycastle.asn1.x509.GeneralNames;
 import org.bouncycastle.openssl.jcajce.JcaPEMKeyConverter;
 import org.bouncycastle.operator.jcajce.JcaContentVerifierProviderBuilder;
 import org.bouncycastle.pkcs.PKCS10CertificationRequest;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.security.KeyPair;
 import java.security.KeyStore;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.cert.X509Certificate;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 @RequiredArgsConstructor
@@ -40,6 +51,12 @@ public class CertificateService {
     private final KeyStoreService keyStoreService;
     private final CAAssignmentService caAssignmentService;
     private final UserRepository userRepository;
+    private final AuditLogService auditLogService;
+    private final RevocationJournalRepository revocationJournalRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ChainValidationService chainValidationService;
+
+    private final AtomicLong lastSerialNumber = new AtomicLong();
 
     public Certificate createRootCertificate(User admin, String commonName) throws Exception {
         KeyPair keyPair = certificateGenerator.generateKeyPair();
@@ -68,6 +85,8 @@ public class CertificateService {
                 .certificateData(Base64.getEncoder().encodeToString(x509Certificate.getEncoded()))
                 .owner(admin)
                 .organization(admin.getOrganization())
+                .spkiSha256(KeyFingerprints.spkiSha256(x509Certificate.getPublicKey()))
+                .subjectKeyIdentifier(KeyFingerprints.subjectKeyIdentifier(x509Certificate))
                 .createdAt(LocalDateTime.now())
                 .build();
 
@@ -75,6 +94,10 @@ public class CertificateService {
 
         keyStoreService.saveCAKeyStore(serialNumber, keyPair.getPrivate(), x509Certificate, admin);
 
+        auditLogService.record(AuditEventType.ROOT_CERTIFICATE_ISSUED, admin.getEmail(), serialNumber,
+                Map.of("commonName", commonName));
+        eventPublisher.publishEvent(CertificateIssuedEvent.of(savedCertificate));
+
         return savedCertificate;
     }
     public java.util.List<Certificate> getAllCertificates() {
@@ -127,6 +150,12 @@ public class CertificateService {
             throw new IllegalArgumentException("Parent CA certificate has expired");
         }
 
+        if (parentCa.isRevoked()) {
+            throw new IllegalArgumentException("Parent CA certificate has been revoked");
+        }
+
+        requireValidChain(parentCa);
+
         // Chain-based validation for CA users
         if (requestingUser.getRole() == UserRole.CA) {
             boolean canUseParentCA = caAssignmentService.canUserUseCertificate(requestingUser, parentCa.getSerialNumber());
@@ -178,6 +207,8 @@ public class CertificateService {
                 .owner(requestingUser)
                 .issuer(parentCa)
                 .organization(request.getOrganization())
+                .spkiSha256(KeyFingerprints.spkiSha256(signedX509Cert.getPublicKey()))
+                .subjectKeyIdentifier(KeyFingerprints.subjectKeyIdentifier(signedX509Cert))
                 .createdAt(LocalDateTime.now())
                 .build();
 
@@ -193,11 +224,28 @@ public class CertificateService {
         log.info("Successfully created {} certificate with serial number: {}",
                 request.getCertificateType(), serialNumber);
 
+        auditLogService.record(AuditEventType.CERTIFICATE_ISSUED, requestingUser.getEmail(), serialNumber, Map.of(
+                "type", request.getCertificateType(),
+                "commonName", request.getCommonName(),
+                "organization", request.getOrganization(),
+                "issuerSerialNumber", parentCa.getSerialNumber()));
+        eventPublisher.publishEvent(CertificateIssuedEvent.of(certificate));
+
         return certificateRepository.findBySerialNumber(serialNumber)
                 .orElseThrow(() -> new RuntimeException("Failed to retrieve saved certificate"));
     }
 
     public Certificate signCertificateFromCSR(CertificateSigningRequest csr, Certificate parentCa, User caUser) throws Exception {
+        CASigningContext context = prepareSigningContext(parentCa, caUser);
+        IssuedCertificate issued = issueFromCSR(csr, context, caUser);
+        return saveIssued(issued, context, caUser);
+    }
+
+    /**
+     * Validates that the user may sign with the CA and unlocks its private key. The result can be
+     * reused for any number of CSRs signed by the same CA.
+     */
+    public CASigningContext prepareSigningContext(Certificate parentCa, User caUser) throws Exception {
         if (!parentCa.isCa()) {
             throw new IllegalArgumentException("Parent certificate is not a CA certificate");
         }
@@ -206,18 +254,37 @@ public class CertificateService {
             throw new IllegalArgumentException("Parent CA certificate has expired");
         }
 
+        if (parentCa.isRevoked()) {
+            throw new IllegalArgumentException("Parent CA certificate has been revoked");
+        }
+
+        requireValidChain(parentCa);
+
         if (caUser.getRole() == UserRole.CA) {
             boolean canUseParentCA = caAssignmentService.canUserUseCertificate(caUser, parentCa.getSerialNumber());
             if (!canUseParentCA) {
                 throw new IllegalArgumentException("CA users can only use certificates from their assigned chain");
             }
-            if (!csr.getOrganization().equals(caUser.getOrganization())) {
-                throw new IllegalArgumentException("CA users can only issue certificates for their organization");
-            }
         }
 
         PrivateKey parentPrivateKey = keyStoreService.getPrivateKey(parentCa.getSerialNumber());
         X509Certificate parentX509Cert = getX509Certificate(parentCa.getCertificateData());
+        X500Name issuerX500Name = new X500Name(parentX509Cert.getSubjectDN().getName());
+
+        Issuer issuer = new Issuer(parentPrivateKey, parentX509Cert.getPublicKey(), issuerX500Name);
+        return new CASigningContext(parentCa, parentX509Cert, issuer);
+    }
+
+    /**
+     * Verifies the CSR and signs the certificate without touching the database, so it is safe to
+     * call from several threads with the same context. The result is stored with {@link #saveIssued}.
+     */
+    public IssuedCertificate issueFromCSR(CertificateSigningRequest csr, CASigningContext context, User caUser) throws Exception {
+        Certificate parentCa = context.getCa();
+
+        if (caUser.getRole() == UserRole.CA && !csr.getOrganization().equals(caUser.getOrganization())) {
+            throw new IllegalArgumentException("CA users can only issue certificates for their organization");
+        }
 
         byte[] csrBytes = Base64.getDecoder().decode(csr.getCsrData());
         PKCS10CertificationRequest pkcs10Request = new PKCS10CertificationRequest(csrBytes);
@@ -231,10 +298,8 @@ public class CertificateService {
         PublicKey requesterPublicKey = new JcaPEMKeyConverter()
                 .setProvider("BC")
                 .getPublicKey(pkcs10Request.getSubjectPublicKeyInfo());
-        log.info("=== CSR Public Key Details ===");
-        log.info("Algorithm: {}, Format: {}", requesterPublicKey.getAlgorithm(), requesterPublicKey.getFormat());
-        log.info("Public Key: {}", requesterPublicKey);
-        log.info("==============================");
+        log.debug("CSR {} public key algorithm: {}, format: {}",
+                csr.getId(), requesterPublicKey.getAlgorithm(), requesterPublicKey.getFormat());
         X500Name subjectX500Name = pkcs10Request.getSubject();
 
         LocalDateTime notBefore = LocalDateTime.now();
@@ -246,10 +311,7 @@ public class CertificateService {
         String serialNumber = generateSerialNumber();
         boolean isCA = false; // end-entity
 
-        X500Name issuerX500Name = new X500Name(parentX509Cert.getSubjectDN().getName());
-
         Subject subject = new Subject(requesterPublicKey, subjectX500Name);
-        Issuer issuer = new Issuer(parentPrivateKey, parentX509Cert.getPublicKey(), issuerX500Name);
 
         //if any
 //        List<String> sans = new ArrayList<>();
@@ -266,7 +328,7 @@ public class CertificateService {
         List<String> sans = List.of("DNS:localhost", "IP:127.0.0.1");
 
         X509Certificate signedX509Cert = certificateGenerator.generateCertificateWithSAN(
-                subject, issuer, notBefore, notAfter, serialNumber, sans, isCA);
+                subject, context.getIssuer(), notBefore, notAfter, serialNumber, sans, isCA);
 
         // Build database entity
         Certificate certificate = Certificate.builder()
@@ -280,18 +342,247 @@ public class CertificateService {
                 .owner(csr.getRequester())
                 .issuer(parentCa)
                 .organization(csr.getOrganization())
+                .spkiSha256(KeyFingerprints.spkiSha256(signedX509Cert.getPublicKey()))
+                .subjectKeyIdentifier(KeyFingerprints.subjectKeyIdentifier(signedX509Cert))
                 .createdAt(LocalDateTime.now())
                 .build();
 
+        KeyStoreService.PreparedKeystore keystore = keyStoreService.prepareEECertificate(serialNumber, signedX509Cert, csr.getRequester());
+
+        return new IssuedCertificate(csr, certificate, keystore);
+    }
+
+    public Certificate saveIssued(IssuedCertificate issued, CASigningContext context, User caUser) {
+        Certificate certificate = certificateRepository.save(issued.certificate());
+        keyStoreService.storeEECertificate(issued.keystore());
+
+        CertificateSigningRequest csr = issued.csr();
+        log.info("Issued end-entity certificate {} from CSR {}", certificate.getSerialNumber(), csr.getId());
+
+        auditLogService.record(AuditEventType.CERTIFICATE_ISSUED, caUser.getEmail(), certificate.getSerialNumber(), Map.of(
+                "type", CertificateType.END_ENTITY,
+                "commonName", csr.getCommonName(),
+                "organization", csr.getOrganization(),
+                "issuerSerialNumber", context.getCa().getSerialNumber(),
+                "csrId", csr.getId()));
+        eventPublisher.publishEvent(CertificateIssuedEvent.of(certificate));
+
+        return certificate;
+    }
+
+    /**
+     * Issues an end-entity TLS server certificate for a key pair generated by the caller, which keeps
+     * the private key. Used for the backend's own HTTPS identity, where there is no CSR to store.
+     */
+    @Transactional
+    public Certificate issueServerCertificate(CASigningContext context, PublicKey publicKey, String commonName,
+                                              List<String> sans, int validityDays, User caUser) throws Exception {
+        Certificate parentCa = context.getCa();
+
+        LocalDateTime notBefore = LocalDateTime.now();
+        LocalDateTime notAfter = notBefore.plusDays(validityDays);
+        if (notAfter.isAfter(parentCa.getNotAfter())) {
+            notAfter = parentCa.getNotAfter();
+        }
+
+        String serialNumber = generateSerialNumber();
+        X500Name subjectName = new X500Name("CN=" + commonName + ", O=" + parentCa.getOrganization());
+        X509Certificate signedX509Cert = certificateGenerator.generateCertificateWithSAN(
+                new Subject(publicKey, subjectName), context.getIssuer(), notBefore, notAfter, serialNumber, sans, false);
+
+        Certificate certificate = certificateRepository.save(Certificate.builder()
+                .serialNumber(serialNumber)
+                .commonName(commonName)
+                .notBefore(notBefore)
+                .notAfter(notAfter)
+                .type(CertificateType.END_ENTITY)
+                .isCa(false)
+                .certificateData(Base64.getEncoder().encodeToString(signedX509Cert.getEncoded()))
+                .owner(caUser)
+                .issuer(parentCa)
+                .organization(parentCa.getOrganization())
+                .spkiSha256(KeyFingerprints.spkiSha256(signedX509Cert.getPublicKey()))
+                .subjectKeyIdentifier(KeyFingerprints.subjectKeyIdentifier(signedX509Cert))
+                .createdAt(LocalDateTime.now())
+                .build());
+        keyStoreService.storeEECertificate(keyStoreService.prepareEECertificate(serialNumber, signedX509Cert, caUser));
+
+        log.info("Issued server TLS certificate {} for {}", serialNumber, commonName);
+        auditLogService.record(AuditEventType.CERTIFICATE_ISSUED, caUser.getEmail(), serialNumber, Map.of(
+                "type", CertificateType.END_ENTITY,
+                "commonName", commonName,
+                "organization", parentCa.getOrganization(),
+                "issuerSerialNumber", parentCa.getSerialNumber(),
+                "purpose", "server-tls"));
+        eventPublisher.publishEvent(CertificateIssuedEvent.of(certificate));
+
+        return certificate;
+    }
+
+    /**
+     * Revokes a certificate and appends it to the issuer's revocation journal. Admins can revoke
+     * anything, CA users certificates issued from their chain, and other users their own certificates.
+     */
+    @Transactional
+    public CertificateResponse revokeCertificate(String serialNumber, RevocationReason reason, User user) {
+        Certificate certificate = certificateRepository.findBySerialNumber(serialNumber)
+                .orElseThrow(() -> new NotFoundException("Certificate not found"));
+
+        if (certificate.isRevoked()) {
+            throw new InvalidRequestException("Certificate is already revoked");
+        }
+        if (certificate.getIssuer() == null) {
+            throw new InvalidRequestException("Root certificates cannot be revoked");
+        }
+        if (!canRevoke(certificate, user)) {
+            throw new ForbiddenOperationException("You are not allowed to revoke this certificate");
+        }
+
+        LocalDateTime revokedAt = LocalDateTime.now();
+        certificate.setRevokedAt(revokedAt);
+        certificate.setRevocationReason(reason);
         certificateRepository.save(certificate);
 
-        keyStoreService.saveEECertificate(serialNumber, signedX509Cert, csr.getRequester());
+        revocationJournalRepository.save(RevocationJournalEntry.builder()
+                .issuer(certificate.getIssuer())
+                .serialNumber(serialNumber)
+                .revokedAt(revokedAt)
+                .reason(reason)
+                .build());
+
+        log.info("Certificate {} revoked by {} ({})", serialNumber, user.getEmail(), reason);
+        auditLogService.record(AuditEventType.CERTIFICATE_REVOKED, user.getEmail(), serialNumber, Map.of(
+                "reason", reason,
+                "issuerSerialNumber", certificate.getIssuer().getSerialNumber()));
 
-        log.info("Issued end-entity certificate {} from CSR {}", serialNumber, csr.getId());
+        eventPublisher.publishEvent(CertificatesRevokedEvent.of(certificate.getIssuer().getId(), serialNumber));
 
+        return mapToCertificateResponse(certificate);
+    }
+
+    boolean canRevoke(Certificate certificate, User user) {
+        if (user.getRole() == UserRole.ADMIN) {
+            return true;
+        } else if (user.getRole() == UserRole.CA) {
+            return caAssignmentService.canUserUseCertificate(user, certificate.getIssuer().getSerialNumber());
+        }
+        return certificate.getOwner() != null && certificate.getOwner().getId().equals(user.getId());
+    }
+
+    public record IssuedCertificate(CertificateSigningRequest csr, Certificate certificate, KeyStoreService.PreparedKeystore keystore) {
+    }
+
+    /**
+     * A successor signed by {@link #issueRenewal}. CA successors carry their private key, end-entity
+     * successors the prepared keystore.
+     */
+    public record RenewedCertificate(Certificate previous, Certificate certificate, X509Certificate x509Certificate,
+                                     PrivateKey privateKey, KeyStoreService.PreparedKeystore keystore) {
+    }
+
+    /**
+     * Signs a successor for the certificate with the same subject, SANs and validity length, without
+     * touching the database, so it is safe to call from several threads with the same context.
+     * CA certificates get a new key pair (or keep their key when rekeyCa is false); end-entity
+     * certificates keep the subject's key, which for CSR-issued certificates is the CSR's key.
+     * The result is stored with {@link #saveRenewal}.
+     */
+    public RenewedCertificate issueRenewal(Certificate previous, CASigningContext context, boolean rekeyCa) throws Exception {
+        Certificate parentCa = context.getCa();
+        X509Certificate previousX509 = getX509Certificate(previous.getCertificateData());
+
+        PublicKey publicKey = previousX509.getPublicKey();
+        PrivateKey privateKey = null;
+        if (previous.isCa()) {
+            if (rekeyCa) {
+                KeyPair keyPair = certificateGenerator.generateKeyPair();
+                publicKey = keyPair.getPublic();
+                privateKey = keyPair.getPrivate();
+            } else {
+                privateKey = keyStoreService.getPrivateKey(previous.getSerialNumber());
+            }
+        }
+
+        LocalDateTime notBefore = LocalDateTime.now();
+        LocalDateTime notAfter = notBefore.plus(Duration.between(previous.getNotBefore(), previous.getNotAfter()));
+        if (notAfter.isAfter(parentCa.getNotAfter())) {
+            notAfter = parentCa.getNotAfter();
+        }
+
+        String serialNumber = generateSerialNumber();
+        Subject subject = new Subject(publicKey, X500Name.getInstance(previousX509.getSubjectX500Principal().getEncoded()));
+        X509Certificate signedX509Cert = certificateGenerator.generateCertificateWithSAN(
+                subject, context.getIssuer(), notBefore, notAfter, serialNumber,
+                subjectAlternativeNames(previousX509), previous.isCa());
+
+        Certificate certificate = Certificate.builder()
+                .serialNumber(serialNumber)
+                .commonName(previous.getCommonName())
+                .notBefore(notBefore)
+                .notAfter(notAfter)
+                .type(previous.getType())
+                .isCa(previous.isCa())
+                .certificateData(Base64.getEncoder().encodeToString(signedX509Cert.getEncoded()))
+                .owner(previous.getOwner())
+                .issuer(parentCa)
+                .organization(previous.getOrganization())
+                .spkiSha256(KeyFingerprints.spkiSha256(signedX509Cert.getPublicKey()))
+                .subjectKeyIdentifier(KeyFingerprints.subjectKeyIdentifier(signedX509Cert))
+                .renewedFrom(previous)
+                .createdAt(LocalDateTime.now())
+                .build();
+
+        KeyStoreService.PreparedKeystore keystore = previous.isCa() ? null
+                : keyStoreService.prepareEECertificate(serialNumber, signedX509Cert, previous.getOwner());
+
+        return new RenewedCertificate(previous, certificate, signedX509Cert, privateKey, keystore);
+    }
+
+    /**
+     * Stores a renewed certificate. Must run inside the transaction that marks the previous one as renewed.
+     */
+    public Certificate saveRenewal(RenewedCertificate renewed, String actor) throws Exception {
+        Certificate certificate = certificateRepository.save(renewed.certificate());
+        if (renewed.privateKey() != null) {
+            keyStoreService.saveCAKeyStore(certificate.getSerialNumber(), renewed.privateKey(),
+                    renewed.x509Certificate(), certificate.getOwner());
+        } else {
+            keyStoreService.storeEECertificate(renewed.keystore());
+        }
+
+        auditLogService.record(AuditEventType.CERTIFICATE_RENEWED, actor, certificate.getSerialNumber(), Map.of(
+                "renewedFromSerialNumber", renewed.previous().getSerialNumber(),
+                "issuerSerialNumber", certificate.getIssuer().getSerialNumber(),
+                "type", certificate.getType()));
+        eventPublisher.publishEvent(CertificateIssuedEvent.of(certificate));
         return certificate;
     }
 
+    private static List<String> subjectAlternativeNames(X509Certificate certificate) throws Exception {
+        var names = certificate.getSubjectAlternativeNames();
+        if (names == null) {
+            return null;
+        }
+        List<String> sans = new ArrayList<>();
+        for (List<?> name : names) {
+            int type = (Integer) name.get(0);
+            if (type == GeneralName.dNSName) {
+                sans.add("DNS:" + name.get(1));
+            } else if (type == GeneralName.iPAddress) {
+                sans.add("IP:" + name.get(1));
+            }
+        }
+        return sans;
+    }
+
+    // Catches expired, revoked or broken CAs above the direct parent as well
+    private void requireValidChain(Certificate parentCa) {
+        ChainValidationResponse validation = chainValidationService.validate(parentCa.getSerialNumber(), null);
+        if (!validation.isValid()) {
+            throw new IllegalArgumentException("Parent CA chain is not valid: " + validation.getStatus()
+                    + (validation.getFailedSerialNumber() != null ? " at " + validation.getFailedSerialNumber() : ""));
+        }
+    }
 
     private X509Certificate getX509Certificate(String base64CertData) throws Exception {
         byte[] certBytes = Base64.getDecoder().decode(base64CertData);
@@ -333,13 +624,25 @@ public class CertificateService {
                 .toList();
     }
 
+    public List<CertificateResponse> getCertificateResponsesBySpkiSha256(String spkiSha256) {
+        return certificateRepository.findBySpkiSha256WithOwnerAndIssuer(spkiSha256).stream()
+                .map(this::mapToCertificateResponse)
+                .toList();
+    }
+
+    public List<CertificateResponse> getCertificateResponsesBySubjectKeyIdentifier(String subjectKeyIdentifier) {
+        return certificateRepository.findBySubjectKeyIdentifierWithOwnerAndIssuer(subjectKeyIdentifier).stream()
+                .map(this::mapToCertificateResponse)
+                .toList();
+    }
+
     public List<CertificateResponse> getAvailableParentCAResponses(User user) {
         return getAvailableParentCAs(user).stream()
                 .map(this::mapToCertificateResponse)
                 .toList();
     }
 
-    private CertificateResponse mapToCertificateResponse(Certificate certificate) {
+    CertificateResponse mapToCertificateResponse(Certificate certificate) {
         return CertificateResponse.builder()
                 .id(certificate.getId())
                 .serialNumber(certificate.getSerialNumber())
@@ -356,11 +659,18 @@ public class CertificateService {
                     certificate.getOwner().getName() + " " + certificate.getOwner().getSurname() : null)
                 .issuerSerialNumber(certificate.getIssuer() != null ? certificate.getIssuer().getSerialNumber() : null)
                 .issuerCommonName(certificate.getIssuer() != null ? certificate.getIssuer().getCommonName() : null)
+                .revoked(certificate.isRevoked())
+                .revokedAt(certificate.getRevokedAt())
+                .revocationReason(certificate.getRevocationReason())
+                .renewedAt(certificate.getRenewedAt())
                 .certificateData(null) // Don't include certificate data by default (only for specific download requests)
                 .build();
     }
 
+    // Serials used to be plain epoch millis, which collide when certificates are issued in parallel.
+    // Millis * 1000 plus a counter stays unique, increasing and above every serial issued before.
     private String generateSerialNumber() {
-        return String.valueOf(System.currentTimeMillis());
+        long serial = lastSerialNumber.updateAndGet(last -> Math.max(last + 1, System.currentTimeMillis() * 1000));
+        return String.valueOf(serial);
     }
 }
\ No newline at end of file
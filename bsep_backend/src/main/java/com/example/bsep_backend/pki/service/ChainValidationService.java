@@ -0,0 +1,461 @@
+package com.example.bsep_backend.pki.service;
+
+import com.example.bsep_backend.exception.InvalidRequestException;
+import com.example.bsep_backend.pki.domain.CertificateChainLink;
+import com.example.bsep_backend.pki.domain.CertificateIssuedEvent;
+import com.example.bsep_backend.pki.domain.CertificatesRevokedEvent;
+import com.example.bsep_backend.pki.dto.BatchChainValidationResponse;
+import com.example.bsep_backend.pki.dto.ChainValidationResponse;
+import com.example.bsep_backend.pki.dto.ChainValidationResponse.Status;
+import com.example.bsep_backend.pki.repository.CertificateRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.ByteArrayInputStream;
+import java.security.cert.CertPath;
+import java.security.cert.CertPathValidator;
+import java.security.cert.CertPathValidatorException;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateExpiredException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.CertificateNotYetValidException;
+import java.security.cert.PKIXCertPathChecker;
+import java.security.cert.PKIXParameters;
+import java.security.cert.PKIXReason;
+import java.security.cert.TrustAnchor;
+import java.security.cert.X509Certificate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Validates certificates against the root certificates stored in the database.
+ * <p>
+ * Chains are assembled from the issuer links and checked with the PKIX {@link CertPathValidator}
+ * (signatures, validity periods, basic constraints and path length), while revocation is answered by
+ * the {@link RevocationIndex} through a path checker, so no CRL or OCSP fetch is involved. Parsed CA
+ * certificates are cached by id, so validating many leaves below the same CA parses each leaf only.
+ * <p>
+ * Results are cached per leaf and time bucket (pki.chain-validation.bucket-ms). A result is not cached
+ * when a validity boundary of the chain falls inside its bucket, so a cached answer holds for every
+ * instant of the bucket. Revocation drops every result whose chain contains a revoked certificate and
+ * issuance drops the result of the issued serial. Revocation is always checked as of now, also when
+ * validating at another instant.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ChainValidationService {
+
+    private static final int QUERY_CHUNK = 1000;
+
+    private final CertificateRepository certificateRepository;
+    private final RevocationIndex revocationIndex;
+
+    @Value("${pki.chain-validation.bucket-ms:300000}")
+    private long bucketMs;
+
+    @Value("${pki.chain-validation.max-cached-results:100000}")
+    private int maxCachedResults;
+
+    @Value("${pki.chain-validation.max-cached-cas:10000}")
+    private int maxCachedCas;
+
+    @Value("${pki.chain-validation.max-batch:10000}")
+    private int maxBatch;
+
+    @Value("${pki.chain-validation.max-depth:16}")
+    private int maxDepth;
+
+    @Value("${pki.chain-validation.threads:0}")
+    private int threads;
+
+    private ExecutorService executor;
+
+    private final Map<Long, Node> caNodes = new ConcurrentHashMap<>();
+    private final Map<String, CachedResult> results = new ConcurrentHashMap<>();
+    // Bumped on every invalidation so a validation that raced it does not cache a stale result
+    private final AtomicLong generation = new AtomicLong();
+
+    private final ThreadLocal<CertificateFactory> certificateFactory = ThreadLocal.withInitial(() -> {
+        try {
+            return CertificateFactory.getInstance("X.509");
+        } catch (CertificateException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private record Node(long id, String serialNumber, Long issuerId, boolean isCa, X509Certificate certificate) {
+    }
+
+    private record CachedResult(long bucket, ChainValidationResponse response) {
+    }
+
+    private record Chains(Map<String, Node> leaves, Map<Long, Node> issuers) {
+    }
+
+    @PostConstruct
+    void start() {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "chain-validate-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    public ChainValidationResponse validate(String serialNumber, LocalDateTime at) {
+        LocalDateTime instant = at != null ? at : LocalDateTime.now();
+        ChainValidationResponse cached = cachedResult(serialNumber, instant);
+        if (cached != null) {
+            return cached;
+        }
+        return validateLeaf(serialNumber, loadChains(List.of(serialNumber)), instant);
+    }
+
+    /**
+     * Validates up to pki.chain-validation.max-batch certificates. Leaves and their issuers are loaded
+     * with one query per chunk and chain level, then the path validations run on all cores.
+     */
+    public BatchChainValidationResponse validateAll(List<String> serialNumbers, LocalDateTime at) {
+        if (serialNumbers.size() > maxBatch) {
+            throw new InvalidRequestException("At most " + maxBatch + " certificates can be validated at once");
+        }
+        long started = System.currentTimeMillis();
+        LocalDateTime instant = at != null ? at : LocalDateTime.now();
+
+        ChainValidationResponse[] responses = new ChainValidationResponse[serialNumbers.size()];
+        List<Integer> misses = new ArrayList<>();
+        for (int i = 0; i < responses.length; i++) {
+            responses[i] = cachedResult(serialNumbers.get(i), instant);
+            if (responses[i] == null) {
+                misses.add(i);
+            }
+        }
+
+        if (!misses.isEmpty()) {
+            Chains chains = loadChains(misses.stream().map(serialNumbers::get).toList());
+            int partitions = Math.min(misses.size(), Runtime.getRuntime().availableProcessors() * 4);
+            int partitionSize = (misses.size() + partitions - 1) / partitions;
+            List<Future<?>> futures = new ArrayList<>(partitions);
+            for (int from = 0; from < misses.size(); from += partitionSize) {
+                List<Integer> partition = misses.subList(from, Math.min(from + partitionSize, misses.size()));
+                futures.add(executor.submit(() -> {
+                    for (int index : partition) {
+                        String serialNumber = serialNumbers.get(index);
+                        responses[index] = validateLeaf(serialNumber, chains, instant);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Chain validation was interrupted", e);
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Chain validation failed", e.getCause());
+                }
+            }
+        }
+
+        int valid = 0;
+        int cachedCount = 0;
+        for (ChainValidationResponse response : responses) {
+            if (response.isValid()) {
+                valid++;
+            }
+            if (response.isCached()) {
+                cachedCount++;
+            }
+        }
+        return BatchChainValidationResponse.builder()
+                .valid(valid)
+                .invalid(responses.length - valid)
+                .cached(cachedCount)
+                .durationMs(System.currentTimeMillis() - started)
+                .results(List.of(responses))
+                .build();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCertificatesRevoked(CertificatesRevokedEvent event) {
+        Set<String> revoked = new HashSet<>();
+        event.serialNumbersByIssuer().values().forEach(revoked::addAll);
+        generation.incrementAndGet();
+        results.values().removeIf(cached -> !Collections.disjoint(cached.response().getChain(), revoked));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCertificateIssued(CertificateIssuedEvent event) {
+        generation.incrementAndGet();
+        results.remove(event.serialNumber());
+    }
+
+    private ChainValidationResponse cachedResult(String serialNumber, LocalDateTime at) {
+        CachedResult cached = results.get(serialNumber);
+        if (cached == null || cached.bucket() != bucket(at)) {
+            return null;
+        }
+        return cached.response().toBuilder().validatedAt(at).cached(true).build();
+    }
+
+    private ChainValidationResponse validateLeaf(String serialNumber, Chains chains, LocalDateTime at) {
+        Node leaf = chains.leaves().get(serialNumber);
+        if (leaf == null) {
+            return ChainValidationResponse.builder()
+                    .serialNumber(serialNumber)
+                    .status(Status.NOT_FOUND)
+                    .message("Certificate not found")
+                    .validatedAt(at)
+                    .build();
+        }
+        long startGeneration = generation.get();
+
+        // Leaf first, root last
+        List<Node> chain = new ArrayList<>();
+        chain.add(leaf);
+        Node current = leaf;
+        while (current.issuerId() != null && chain.size() <= maxDepth) {
+            current = chains.issuers().get(current.issuerId());
+            if (current == null) {
+                break;
+            }
+            chain.add(current);
+        }
+
+        ChainValidationResponse response = check(chain, at).toBuilder()
+                .serialNumber(serialNumber)
+                .chain(chain.stream().map(Node::serialNumber).toList())
+                .validatedAt(at)
+                .build();
+        cache(serialNumber, chain, at, response, startGeneration);
+        return response;
+    }
+
+    private ChainValidationResponse check(List<Node> chain, LocalDateTime at) {
+        Node root = chain.get(chain.size() - 1);
+        if (root.issuerId() != null) {
+            return failure(Status.UNTRUSTED, "Chain does not lead to a trusted root", root);
+        }
+        Date date = Date.from(at.atZone(ZoneId.systemDefault()).toInstant());
+        try {
+            // The anchor is trusted as is, so its own validity period is checked separately
+            root.certificate().checkValidity(date);
+        } catch (CertificateExpiredException e) {
+            return failure(Status.EXPIRED, "Root certificate has expired", root);
+        } catch (CertificateNotYetValidException e) {
+            return failure(Status.NOT_YET_VALID, "Root certificate is not yet valid", root);
+        }
+        if (chain.size() == 1) {
+            return ChainValidationResponse.builder().valid(true).status(Status.VALID).build();
+        }
+
+        List<X509Certificate> path = new ArrayList<>(chain.size() - 1);
+        Set<Certificate> revoked = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Node node : chain.subList(0, chain.size() - 1)) {
+            path.add(node.certificate());
+            if (revocationIndex.isRevoked(node.issuerId(), node.serialNumber())) {
+                revoked.add(node.certificate());
+            }
+        }
+
+        try {
+            CertPath certPath = certificateFactory.get().generateCertPath(path);
+            PKIXParameters parameters = new PKIXParameters(Set.of(new TrustAnchor(root.certificate(), null)));
+            parameters.setRevocationEnabled(false);
+            parameters.addCertPathChecker(new RevocationChecker(revoked));
+            parameters.setDate(date);
+            CertPathValidator.getInstance("PKIX").validate(certPath, parameters);
+            return ChainValidationResponse.builder().valid(true).status(Status.VALID).build();
+        } catch (CertPathValidatorException e) {
+            Node failed = e.getIndex() >= 0 && e.getIndex() < path.size() ? chain.get(e.getIndex()) : null;
+            return failure(statusFor(e.getReason()), e.getMessage(), failed);
+        } catch (Exception e) {
+            return failure(Status.INVALID, e.getMessage(), null);
+        }
+    }
+
+    private static Status statusFor(CertPathValidatorException.Reason reason) {
+        if (reason instanceof CertPathValidatorException.BasicReason basic) {
+            return switch (basic) {
+                case EXPIRED -> Status.EXPIRED;
+                case NOT_YET_VALID -> Status.NOT_YET_VALID;
+                case REVOKED -> Status.REVOKED;
+                case INVALID_SIGNATURE -> Status.INVALID_SIGNATURE;
+                default -> Status.INVALID;
+            };
+        }
+        return reason == PKIXReason.NO_TRUST_ANCHOR ? Status.UNTRUSTED : Status.INVALID;
+    }
+
+    private static ChainValidationResponse failure(Status status, String message, Node failed) {
+        return ChainValidationResponse.builder()
+                .status(status)
+                .message(message)
+                .failedSerialNumber(failed != null ? failed.serialNumber() : null)
+                .build();
+    }
+
+    private void cache(String serialNumber, List<Node> chain, LocalDateTime at, ChainValidationResponse response,
+                       long startGeneration) {
+        long bucket = bucket(at);
+        long bucketStart = bucket * bucketMs;
+        long bucketEnd = bucketStart + bucketMs;
+        for (Node node : chain) {
+            if (within(node.certificate().getNotBefore(), bucketStart, bucketEnd)
+                    || within(node.certificate().getNotAfter(), bucketStart, bucketEnd)) {
+                return;
+            }
+        }
+        if (results.size() >= maxCachedResults) {
+            results.values().removeIf(cached -> cached.bucket() != bucket);
+            if (results.size() >= maxCachedResults) {
+                results.clear();
+            }
+        }
+        results.put(serialNumber, new CachedResult(bucket, response));
+        // An invalidation that ran meanwhile may have missed this entry
+        if (generation.get() != startGeneration) {
+            results.remove(serialNumber);
+        }
+    }
+
+    private long bucket(LocalDateTime at) {
+        return at.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() / bucketMs;
+    }
+
+    private static boolean within(Date boundary, long startMs, long endMs) {
+        long time = boundary.getTime();
+        return time >= startMs && time < endMs;
+    }
+
+    // Loads the leaves and every issuer above them, taking issuers from the CA cache where possible
+    private Chains loadChains(Collection<String> serialNumbers) {
+        Map<String, Node> leaves = new HashMap<>();
+        Map<Long, Node> issuers = new HashMap<>();
+        Set<Long> frontier = new LinkedHashSet<>();
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(serialNumbers));
+        for (int from = 0; from < distinct.size(); from += QUERY_CHUNK) {
+            for (CertificateChainLink link : certificateRepository.findChainLinksBySerialNumbers(
+                    distinct.subList(from, Math.min(from + QUERY_CHUNK, distinct.size())))) {
+                Node node = toNode(link);
+                if (node != null) {
+                    leaves.put(node.serialNumber(), node);
+                    if (node.issuerId() != null) {
+                        frontier.add(node.issuerId());
+                    }
+                }
+            }
+        }
+
+        for (int depth = 0; depth < maxDepth && !frontier.isEmpty(); depth++) {
+            List<Long> toLoad = new ArrayList<>();
+            List<Node> found = new ArrayList<>();
+            for (Long id : frontier) {
+                Node node = caNodes.get(id);
+                if (node != null) {
+                    found.add(node);
+                } else {
+                    toLoad.add(id);
+                }
+            }
+            for (int from = 0; from < toLoad.size(); from += QUERY_CHUNK) {
+                for (CertificateChainLink link : certificateRepository.findChainLinksByIds(
+                        toLoad.subList(from, Math.min(from + QUERY_CHUNK, toLoad.size())))) {
+                    Node node = toNode(link);
+                    if (node != null) {
+                        if (caNodes.size() >= maxCachedCas) {
+                            caNodes.clear();
+                        }
+                        caNodes.put(node.id(), node);
+                        found.add(node);
+                    }
+                }
+            }
+            frontier.clear();
+            for (Node node : found) {
+                issuers.put(node.id(), node);
+                if (node.issuerId() != null && !issuers.containsKey(node.issuerId())) {
+                    frontier.add(node.issuerId());
+                }
+            }
+        }
+        return new Chains(leaves, issuers);
+    }
+
+    private Node toNode(CertificateChainLink link) {
+        try {
+            X509Certificate certificate = (X509Certificate) certificateFactory.get()
+                    .generateCertificate(new ByteArrayInputStream(Base64.getDecoder().decode(link.certificateData())));
+            return new Node(link.id(), link.serialNumber(), link.issuerId(), link.isCa(), certificate);
+        } catch (CertificateException | IllegalArgumentException e) {
+            log.warn("Stored certificate {} could not be parsed: {}", link.serialNumber(), e.getMessage());
+            return null;
+        }
+    }
+
+    private static final class RevocationChecker extends PKIXCertPathChecker {
+
+        private final Set<Certificate> revoked;
+
+        RevocationChecker(Set<Certificate> revoked) {
+            this.revoked = revoked;
+        }
+
+        @Override
+        public void init(boolean forward) throws CertPathValidatorException {
+            if (forward) {
+                throw new CertPathValidatorException("Forward checking is not supported");
+            }
+        }
+
+        @Override
+        public boolean isForwardCheckingSupported() {
+            return false;
+        }
+
+        @Override
+        public Set<String> getSupportedExtensions() {
+            return null;
+        }
+
+        @Override
+        public void check(Certificate certificate, Collection<String> unresolvedCritExts) throws CertPathValidatorException {
+            if (revoked.contains(certificate)) {
+                throw new CertPathValidatorException("Certificate has been revoked", null, null, -1,
+                        CertPathValidatorException.BasicReason.REVOKED);
+            }
+        }
+    }
+}
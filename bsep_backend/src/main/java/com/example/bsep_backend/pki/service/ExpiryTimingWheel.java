@@ -0,0 +1,135 @@
+package com.example.bsep_backend.pki.service;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Hierarchical timing wheel of long payloads.
+ * <p>
+ * Level 0 has one slot per tick, every higher level covers SLOTS times the span of the one below.
+ * Adding or expiring an entry is O(1); entries in a higher level are moved down (cascaded) when the
+ * wheel reaches their slot. Each entry costs two longs (deadline and payload) in a primitive array,
+ * so a few million entries stay within a few tens of MB. Not thread safe; callers synchronize.
+ */
+final class ExpiryTimingWheel {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+
+    private final long tickMs;
+    private final Slot[][] levels = new Slot[LEVELS][SLOTS];
+    private final Slot overflow = new Slot();
+    private long currentTick;
+    private long size;
+
+    ExpiryTimingWheel(long tickMs, long startMs) {
+        this.tickMs = tickMs;
+        this.currentTick = startMs / tickMs;
+        for (Slot[] level : levels) {
+            for (int i = 0; i < SLOTS; i++) {
+                level[i] = new Slot();
+            }
+        }
+    }
+
+    /**
+     * Schedules the payload. Returns false, without storing it, if the deadline is not after the
+     * current tick.
+     */
+    boolean add(long deadlineMs, long payload) {
+        long tick = deadlineMs / tickMs;
+        long delta = tick - currentTick;
+        if (delta <= 0) {
+            return false;
+        }
+        place(tick, delta, deadlineMs, payload);
+        size++;
+        return true;
+    }
+
+    /**
+     * Moves the wheel to nowMs and hands every payload whose deadline has passed to the consumer.
+     */
+    void advanceTo(long nowMs, LongConsumer expired) {
+        long target = nowMs / tickMs;
+        while (currentTick < target) {
+            currentTick++;
+            cascade();
+            Slot slot = levels[0][(int) (currentTick & MASK)];
+            size -= slot.size;
+            slot.drain(expired);
+        }
+    }
+
+    long size() {
+        return size;
+    }
+
+    private void place(long tick, long delta, long deadlineMs, long payload) {
+        for (int level = 0; level < LEVELS; level++) {
+            if (delta < 1L << (SLOT_BITS * (level + 1))) {
+                levels[level][(int) ((tick >>> (SLOT_BITS * level)) & MASK)].add(deadlineMs, payload);
+                return;
+            }
+        }
+        overflow.add(deadlineMs, payload);
+    }
+
+    // When a lower level wraps around, the next slot of the level above is redistributed
+    private void cascade() {
+        for (int level = 1; level <= LEVELS; level++) {
+            if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) != 0) {
+                return;
+            }
+            Slot slot = level == LEVELS ? overflow : levels[level][(int) ((currentTick >>> (SLOT_BITS * level)) & MASK)];
+            Slot moved = slot.detach();
+            for (int i = 0; i < moved.size; i++) {
+                long tick = moved.deadlines[i] / tickMs;
+                long delta = tick - currentTick;
+                if (delta < 0) {
+                    delta = 0;
+                    tick = currentTick;
+                }
+                place(tick, delta, moved.deadlines[i], moved.payloads[i]);
+            }
+        }
+    }
+
+    private static final class Slot {
+        private long[] deadlines = new long[0];
+        private long[] payloads = new long[0];
+        private int size;
+
+        void add(long deadlineMs, long payload) {
+            if (size == deadlines.length) {
+                int capacity = Math.max(4, size * 2);
+                deadlines = Arrays.copyOf(deadlines, capacity);
+                payloads = Arrays.copyOf(payloads, capacity);
+            }
+            deadlines[size] = deadlineMs;
+            payloads[size] = payload;
+            size++;
+        }
+
+        void drain(LongConsumer consumer) {
+            Slot drained = detach();
+            for (int i = 0; i < drained.size; i++) {
+                consumer.accept(drained.payloads[i]);
+            }
+        }
+
+        // Hands the contents over and releases the arrays, so emptied slots do not keep their peak capacity
+        Slot detach() {
+            Slot contents = new Slot();
+            contents.deadlines = deadlines;
+            contents.payloads = payloads;
+            contents.size = size;
+            deadlines = new long[0];
+            payloads = new long[0];
+            size = 0;
+            return contents;
+        }
+    }
+}
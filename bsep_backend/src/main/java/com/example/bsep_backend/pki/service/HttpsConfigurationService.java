@@ -1,6 +1,7 @@
 package com.example.bsep_backend.pki.service;
 
 import com.example.bsep_backend.pki.dto.HttpsConfigurationResponse;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 public interface HttpsConfigurationService {
 
@@ -8,5 +9,9 @@ public interface HttpsConfigurationService {
 
     String generateApplicationProperties(String certificateSerialNumber, String keystorePassword, int port);
 
-    void exportHttpsConfigurationBundle(String certificateSerialNumber, String keystorePassword, String outputPath) throws Exception;
+    /**
+     * ZIP with the PKCS12 keystore (full chain), the PEM chain, application.properties and certificate
+     * and SAN details, written incrementally to the response.
+     */
+    StreamingResponseBody exportHttpsConfigurationBundle(String certificateSerialNumber, String keystorePassword, int port);
 }
\ No newline at end of file
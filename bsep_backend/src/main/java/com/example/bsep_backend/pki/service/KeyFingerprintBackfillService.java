@@ -0,0 +1,203 @@
+package com.example.bsep_backend.pki.service;
+
+import com.example.bsep_backend.pki.dto.FingerprintBackfillResponse;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.pkcs.PKCS10CertificationRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fills spki_sha256 and subject_key_identifier for rows stored before the columns existed.
+ * <p>
+ * Rows are read in keyset pages (id > last id), hashed in parallel and written back with one JDBC
+ * batch per page, so the job never holds more than a page in memory or a long transaction open.
+ * Rows that cannot be parsed are counted as failed and skipped.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class KeyFingerprintBackfillService {
+
+    private static final String SELECT_CERTIFICATES_SQL = "SELECT id, certificate_data FROM certificates " +
+            "WHERE spki_sha256 IS NULL AND certificate_data IS NOT NULL AND id > ? ORDER BY id LIMIT ?";
+
+    private static final String UPDATE_CERTIFICATES_SQL = "UPDATE certificates " +
+            "SET spki_sha256 = ?, subject_key_identifier = ? WHERE id = ?";
+
+    private static final String SELECT_CSRS_SQL = "SELECT id, csr_data FROM certificate_signing_requests " +
+            "WHERE spki_sha256 IS NULL AND id > ? ORDER BY id LIMIT ?";
+
+    private static final String UPDATE_CSRS_SQL = "UPDATE certificate_signing_requests " +
+            "SET spki_sha256 = ?, subject_key_identifier = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CSRParser csrParser;
+
+    @Value("${pki.fingerprints.backfill-on-startup:true}")
+    private boolean backfillOnStartup;
+
+    @Value("${pki.fingerprints.backfill-page-size:500}")
+    private int pageSize;
+
+    @Value("${pki.fingerprints.backfill-threads:0}")
+    private int backfillThreads;
+
+    private ExecutorService hashPool;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final LongAdder certificatesUpdated = new LongAdder();
+    private final LongAdder csrsUpdated = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private volatile long durationMs;
+
+    private record Row(long id, String data) {
+    }
+
+    private record Fingerprint(long id, String spkiSha256, String subjectKeyIdentifier) {
+    }
+
+    private interface Hasher {
+        Fingerprint hash(Row row) throws Exception;
+    }
+
+    @PostConstruct
+    void start() {
+        int threads = backfillThreads > 0 ? backfillThreads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCounter = new AtomicInteger();
+        hashPool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "fingerprint-backfill-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void stop() {
+        hashPool.shutdownNow();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        if (backfillOnStartup) {
+            launch();
+        }
+    }
+
+    /**
+     * Starts the job in the background unless it is already running and returns the current progress.
+     */
+    public FingerprintBackfillResponse trigger() {
+        launch();
+        return getStatus();
+    }
+
+    public FingerprintBackfillResponse getStatus() {
+        return FingerprintBackfillResponse.builder()
+                .running(running.get())
+                .certificatesUpdated(certificatesUpdated.sum())
+                .csrsUpdated(csrsUpdated.sum())
+                .failed(failed.sum())
+                .durationMs(durationMs)
+                .build();
+    }
+
+    private void launch() {
+        if (running.compareAndSet(false, true)) {
+            Thread thread = new Thread(this::run, "fingerprint-backfill");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    private void run() {
+        long start = System.nanoTime();
+        certificatesUpdated.reset();
+        csrsUpdated.reset();
+        failed.reset();
+        try {
+            backfill(SELECT_CERTIFICATES_SQL, UPDATE_CERTIFICATES_SQL, this::hashCertificate, certificatesUpdated);
+            backfill(SELECT_CSRS_SQL, UPDATE_CSRS_SQL, this::hashCSR, csrsUpdated);
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            if (certificatesUpdated.sum() + csrsUpdated.sum() + failed.sum() > 0) {
+                log.info("Fingerprint backfill finished in {} ms: {} certificates, {} CSRs, {} failed",
+                        elapsedMs, certificatesUpdated.sum(), csrsUpdated.sum(), failed.sum());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.error("Fingerprint backfill failed", e);
+        } finally {
+            durationMs = (System.nanoTime() - start) / 1_000_000;
+            running.set(false);
+        }
+    }
+
+    private void backfill(String selectSql, String updateSql, Hasher hasher, LongAdder updated) throws InterruptedException {
+        long lastId = 0;
+        while (true) {
+            List<Row> page = jdbcTemplate.query(selectSql,
+                    (rs, rowNum) -> new Row(rs.getLong(1), rs.getString(2)), lastId, pageSize);
+            if (page.isEmpty()) {
+                return;
+            }
+            lastId = page.get(page.size() - 1).id();
+
+            List<Future<Fingerprint>> futures = new ArrayList<>(page.size());
+            for (Row row : page) {
+                futures.add(hashPool.submit(() -> hasher.hash(row)));
+            }
+
+            List<Object[]> updates = new ArrayList<>(page.size());
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    Fingerprint fingerprint = futures.get(i).get();
+                    updates.add(new Object[]{fingerprint.spkiSha256(), fingerprint.subjectKeyIdentifier(), fingerprint.id()});
+                } catch (ExecutionException e) {
+                    failed.increment();
+                    log.warn("Could not compute fingerprint for row {}: {}", page.get(i).id(), e.getCause().getMessage());
+                }
+            }
+            if (!updates.isEmpty()) {
+                jdbcTemplate.batchUpdate(updateSql, updates);
+                updated.add(updates.size());
+            }
+        }
+    }
+
+    private Fingerprint hashCertificate(Row row) throws Exception {
+        byte[] der = Base64.getDecoder().decode(row.data());
+        X509Certificate certificate = (X509Certificate) CertificateFactory.getInstance("X.509")
+                .generateCertificate(new ByteArrayInputStream(der));
+        return new Fingerprint(row.id(),
+                KeyFingerprints.spkiSha256(certificate.getPublicKey()),
+                KeyFingerprints.subjectKeyIdentifier(certificate));
+    }
+
+    // RECEIVED rows still hold the raw upload (PEM or DER), parsed ones hold DER; decode handles both
+    private Fingerprint hashCSR(Row row) {
+        PKCS10CertificationRequest csr = csrParser.decode(Base64.getDecoder().decode(row.data()));
+        return new Fingerprint(row.id(),
+                KeyFingerprints.spkiSha256(csr.getSubjectPublicKeyInfo()),
+                KeyFingerprints.subjectKeyIdentifier(csr.getSubjectPublicKeyInfo()));
+    }
+}
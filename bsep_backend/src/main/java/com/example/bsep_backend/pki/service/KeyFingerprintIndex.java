@@ -0,0 +1,101 @@
+package com.example.bsep_backend.pki.service;
+
+import com.example.bsep_backend.mapper.EntityMapper;
+import com.example.bsep_backend.pki.domain.CSRStatus;
+import com.example.bsep_backend.pki.dto.PublicKeyLookupResponse;
+import com.example.bsep_backend.pki.repository.CSRRepository;
+import com.example.bsep_backend.pki.repository.CertificateRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Duplicate detection and lookups over the indexed public-key fingerprints.
+ * <p>
+ * A key is a duplicate while another CSR for it is still in play or a certificate for it has not
+ * expired or been revoked. Each check is a single index probe. The database has no unique constraint (old rows may
+ * legitimately share keys), so concurrent ingestion of the same key is serialized with
+ * {@link #reserve}, which only covers this instance.
+ */
+@Service
+@RequiredArgsConstructor
+public class KeyFingerprintIndex {
+
+    // Approved CSRs are not listed: their certificate is saved with the approval and is checked
+    // instead, so the key becomes usable again once that certificate expires or is revoked
+
+    // Uploads also count CSRs still waiting for the pipeline
+    public static final Set<CSRStatus> UPLOAD_BLOCKING_STATUSES =
+            EnumSet.of(CSRStatus.RECEIVED, CSRStatus.PENDING);
+
+    // The pipeline only counts CSRs that have already been accepted, otherwise two RECEIVED rows
+    // would reject each other
+    public static final Set<CSRStatus> PIPELINE_BLOCKING_STATUSES =
+            EnumSet.of(CSRStatus.PENDING);
+
+    private static final Pageable FIRST = PageRequest.of(0, 1);
+
+    private final CSRRepository csrRepository;
+    private final CertificateRepository certificateRepository;
+    private final CertificateService certificateService;
+    private final EntityMapper entityMapper;
+
+    private final Set<String> reserved = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Returns a message describing the existing CSR or certificate for this key, or null if there is none.
+     */
+    public String findDuplicate(String spkiSha256, Set<CSRStatus> blockingStatuses, Long excludeCsrId) {
+        List<Long> csrIds = csrRepository.findIdsBySpkiSha256AndStatusIn(spkiSha256, blockingStatuses,
+                excludeCsrId != null ? excludeCsrId : -1L, FIRST);
+        if (!csrIds.isEmpty()) {
+            return "A CSR for this public key already exists (CSR " + csrIds.get(0) + ")";
+        }
+        List<String> serialNumbers = certificateRepository.findValidSerialNumbersBySpkiSha256(spkiSha256,
+                LocalDateTime.now(), FIRST);
+        if (!serialNumbers.isEmpty()) {
+            return "A valid certificate for this public key already exists (serial " + serialNumbers.get(0) + ")";
+        }
+        return null;
+    }
+
+    /**
+     * Claims the key until {@link #release} so that two workers cannot accept it at the same time.
+     */
+    public boolean reserve(String spkiSha256) {
+        return reserved.add(spkiSha256);
+    }
+
+    public void release(String spkiSha256) {
+        reserved.remove(spkiSha256);
+    }
+
+    public PublicKeyLookupResponse findBySpkiSha256(String spkiSha256) {
+        String fingerprint = KeyFingerprints.normalize(spkiSha256);
+        return PublicKeyLookupResponse.builder()
+                .spkiSha256(fingerprint)
+                .certificates(certificateService.getCertificateResponsesBySpkiSha256(fingerprint))
+                .csrs(csrRepository.findBySpkiSha256WithDetails(fingerprint).stream()
+                        .map(entityMapper::mapCSRToResponse)
+                        .toList())
+                .build();
+    }
+
+    public PublicKeyLookupResponse findBySubjectKeyIdentifier(String subjectKeyIdentifier) {
+        String keyIdentifier = KeyFingerprints.normalize(subjectKeyIdentifier);
+        return PublicKeyLookupResponse.builder()
+                .subjectKeyIdentifier(keyIdentifier)
+                .certificates(certificateService.getCertificateResponsesBySubjectKeyIdentifier(keyIdentifier))
+                .csrs(csrRepository.findBySubjectKeyIdentifierWithDetails(keyIdentifier).stream()
+                        .map(entityMapper::mapCSRToResponse)
+                        .toList())
+                .build();
+    }
+}
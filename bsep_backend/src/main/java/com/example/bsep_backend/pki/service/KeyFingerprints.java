@@ -0,0 +1,83 @@
+package com.example.bsep_backend.pki.service;
+
+import org.bouncycastle.asn1.ASN1OctetString;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.SubjectKeyIdentifier;
+import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.security.cert.X509Certificate;
+import java.util.HexFormat;
+import java.util.Locale;
+
+/**
+ * Public-key fingerprints stored as indexed columns on certificates and CSRs.
+ * <p>
+ * spkiSha256 is the SHA-256 of the DER SubjectPublicKeyInfo. The subject key identifier is SHA-1
+ * over the same bytes, which is what {@link CertificateGenerator} puts into issued certificates,
+ * so a CSR and the certificate issued from it share both values. Values are lowercase hex.
+ */
+public final class KeyFingerprints {
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    private KeyFingerprints() {
+    }
+
+    public static String spkiSha256(byte[] subjectPublicKeyInfo) {
+        return HEX.formatHex(digest("SHA-256", subjectPublicKeyInfo));
+    }
+
+    public static String spkiSha256(PublicKey publicKey) {
+        return spkiSha256(publicKey.getEncoded());
+    }
+
+    public static String spkiSha256(SubjectPublicKeyInfo publicKeyInfo) {
+        return spkiSha256(encoded(publicKeyInfo));
+    }
+
+    public static String subjectKeyIdentifier(byte[] subjectPublicKeyInfo) {
+        return HEX.formatHex(digest("SHA-1", subjectPublicKeyInfo));
+    }
+
+    public static String subjectKeyIdentifier(SubjectPublicKeyInfo publicKeyInfo) {
+        return subjectKeyIdentifier(encoded(publicKeyInfo));
+    }
+
+    /**
+     * Uses the certificate's own SKI extension when present, so externally issued certificates are
+     * indexed by the value they actually carry.
+     */
+    public static String subjectKeyIdentifier(X509Certificate certificate) {
+        byte[] extension = certificate.getExtensionValue(Extension.subjectKeyIdentifier.getId());
+        if (extension != null) {
+            byte[] octets = ASN1OctetString.getInstance(extension).getOctets();
+            return HEX.formatHex(SubjectKeyIdentifier.getInstance(octets).getKeyIdentifier());
+        }
+        return subjectKeyIdentifier(certificate.getPublicKey().getEncoded());
+    }
+
+    // Accepts upper case and colon separated input (as printed by openssl)
+    public static String normalize(String fingerprint) {
+        return fingerprint.replace(":", "").trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static byte[] encoded(SubjectPublicKeyInfo publicKeyInfo) {
+        try {
+            return publicKeyInfo.getEncoded();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Public key cannot be encoded", e);
+        }
+    }
+
+    private static byte[] digest(String algorithm, byte[] data) {
+        try {
+            return MessageDigest.getInstance(algorithm).digest(data);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(algorithm + " not available", e);
+        }
+    }
+}
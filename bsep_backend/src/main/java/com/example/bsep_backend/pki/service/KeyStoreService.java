@@ -8,10 +8,13 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.io.ByteArrayOutputStream;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -51,10 +54,8 @@ public class KeyStoreService {
 
         keyStore.setKeyEntry(alias, privateKey, keyPassword.toCharArray(), new Certificate[]{certificate});
 
-        try (FileOutputStream fos = new FileOutputStream(keystoreFile.toFile())) {
-            keyStore.store(fos, keystorePassword.toCharArray());
-            log.info("Keystore saved with password: {}", keystorePassword);
-        }
+        writeKeystoreFile(keystoreFile, serialize(keyStore, keystorePassword));
+        log.info("Keystore saved with password: {}", keystorePassword);
 
         // Encrypt and store passwords in database
         String userSpecificKey = passwordEncryptionService.generateUserSpecificKey(user.getId());
@@ -127,50 +128,90 @@ public class KeyStoreService {
         return passwordEncryptionService.decryptPassword(passwords[1], userSpecificKey, keystorePasswordEntity.getSalt());
     }
 
+    /**
+     * An EE keystore built in memory together with its encrypted password entity. Nothing is on disk
+     * or in the database until it is passed to {@link #storeEECertificate}.
+     */
+    public record PreparedKeystore(String alias, byte[] content, KeystorePassword password) {
+    }
+
     @Transactional
     public void saveEECertificate(String alias, Certificate certificate, User user) throws Exception {
-        Path keystoreDir = Paths.get(keystorePath);
-        if (!Files.exists(keystoreDir)) {
-            Files.createDirectories(keystoreDir);
-        }
+        storeEECertificate(prepareEECertificate(alias, certificate, user));
+    }
 
+    /**
+     * Builds the EE keystore and its encrypted password entity without writing or saving either,
+     * so bulk issuance can do the expensive key derivation in parallel and persist the rows in batches.
+     */
+    public PreparedKeystore prepareEECertificate(String alias, Certificate certificate, User user) throws Exception {
         // Generate secure random password for keystore
         String keystorePassword = passwordEncryptionService.generateRandomPassword();
 
         // Create keystore for EE certificate
-        String keystoreFileName = alias + "_ee.jks";
-        Path keystoreFile = keystoreDir.resolve(keystoreFileName);
-
         KeyStore keyStore = KeyStore.getInstance("JKS");
         keyStore.load(null, keystorePassword.toCharArray());
 
         // Store EE certificate as TrustedCertificateEntry (no private key)
         keyStore.setCertificateEntry(alias, certificate);
+        byte[] content = serialize(keyStore, keystorePassword);
 
-        try (FileOutputStream fos = new FileOutputStream(keystoreFile.toFile())) {
-            keyStore.store(fos, keystorePassword.toCharArray());
-            log.info("EE Certificate keystore saved: {}", keystoreFile);
-        }
-
-        // Encrypt and store password in database
+        // Encrypt password for storing in database
         String userSpecificKey = passwordEncryptionService.generateUserSpecificKey(user.getId());
         String salt = passwordEncryptionService.generateSalt();
 
         String encryptedKeystorePassword = passwordEncryptionService.encryptPassword(keystorePassword, userSpecificKey, salt);
 
-        // Store keystore password (no key password needed for TrustedCertificateEntry)
-        KeystorePassword keystorePasswordEntity = KeystorePassword.builder()
+        // Keystore password (no key password needed for TrustedCertificateEntry)
+        return new PreparedKeystore(alias + "_ee", content, KeystorePassword.builder()
                 .keystoreAlias(alias + "_ee")
                 .encryptedPassword(encryptedKeystorePassword)
                 .salt(salt)
                 .user(user)
-                .build();
-
-        keystorePasswordRepository.save(keystorePasswordEntity);
+                .build());
+    }
 
+    /**
+     * Writes a prepared EE keystore and saves its password. Inside a transaction the file is removed
+     * again if the transaction rolls back, so no keystore is left without its row.
+     */
+    public void storeEECertificate(PreparedKeystore keystore) {
+        Path keystoreFile = Paths.get(keystorePath).resolve(keystore.alias() + ".jks");
+        try {
+            writeKeystoreFile(keystoreFile, keystore.content());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write keystore " + keystoreFile, e);
+        }
+        keystorePasswordRepository.save(keystore.password());
         log.info("EE certificate stored in keystore: {} as TrustedCertificateEntry", keystoreFile);
     }
 
+    private static byte[] serialize(KeyStore keyStore, String password) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        keyStore.store(out, password.toCharArray());
+        return out.toByteArray();
+    }
+
+    private void writeKeystoreFile(Path keystoreFile, byte[] content) throws IOException {
+        Files.createDirectories(keystoreFile.getParent());
+        Files.write(keystoreFile, content);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        try {
+                            Files.deleteIfExists(keystoreFile);
+                            log.info("Removed keystore {} after rollback", keystoreFile);
+                        } catch (IOException e) {
+                            log.warn("Could not remove keystore {} after rollback", keystoreFile, e);
+                        }
+                    }
+                }
+            });
+        }
+    }
+
     public Certificate getEECertificate(String alias) throws Exception {
         String eeAlias = alias + "_ee";
         Path keystoreFile = Paths.get(keystorePath, eeAlias + ".jks");
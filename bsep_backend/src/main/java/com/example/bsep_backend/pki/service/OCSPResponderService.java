@@ -0,0 +1,543 @@
+package com.example.bsep_backend.pki.service;
+
+import com.example.bsep_backend.pki.domain.Certificate;
+import com.example.bsep_backend.pki.domain.CertificateStatus;
+import com.example.bsep_backend.pki.domain.CertificatesRevokedEvent;
+import com.example.bsep_backend.pki.domain.Issuer;
+import com.example.bsep_backend.pki.domain.Subject;
+import com.example.bsep_backend.pki.dto.OCSPMetricsResponse;
+import com.example.bsep_backend.pki.repository.CertificateRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.asn1.nist.NISTObjectIdentifiers;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.ocsp.BasicOCSPResp;
+import org.bouncycastle.cert.ocsp.BasicOCSPRespBuilder;
+import org.bouncycastle.cert.ocsp.CertificateID;
+import org.bouncycastle.cert.ocsp.OCSPReq;
+import org.bouncycastle.cert.ocsp.OCSPRespBuilder;
+import org.bouncycastle.cert.ocsp.Req;
+import org.bouncycastle.cert.ocsp.RevokedStatus;
+import org.bouncycastle.cert.ocsp.UnknownStatus;
+import org.bouncycastle.operator.DigestCalculatorProvider;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * RFC 6960 OCSP responder for every CA in the database.
+ * <p>
+ * Each CA gets a short-lived delegated responder certificate whose key stays in memory, so the CA
+ * key is only unlocked when that certificate is renewed. Single-certificate responses are signed
+ * once and cached per (CA, serial, hash algorithm) until their refresh time; a background job
+ * re-signs, in batches, the entries that are about to go stale and were asked for within the last
+ * refresh interval, and drops the stale ones nobody asked for. Entries already known to be good are
+ * re-checked against the {@link RevocationIndex}; only the rare good entry the index reports as
+ * revoked is reloaded from the database, with one query per batch. Revocations evict the affected
+ * entries. Answers for unknown serials are never cached, since anyone can ask for arbitrary serials,
+ * and the cache stops taking new entries once it holds max-cached-responses.
+ * Request nonces are ignored (RFC 6960 allows this) so that cached responses can be served.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OCSPResponderService {
+
+    private static final String SIGNATURE_ALGORITHM = "SHA256WithRSAEncryption";
+    private static final List<AlgorithmIdentifier> CERT_ID_ALGORITHMS = List.of(
+            CertificateID.HASH_SHA1, new AlgorithmIdentifier(NISTObjectIdentifiers.id_sha256));
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final CertificateRepository certificateRepository;
+    private final KeyStoreService keyStoreService;
+    private final CertificateGenerator certificateGenerator;
+    private final RevocationIndex revocationIndex;
+
+    @Value("${pki.ocsp.response-validity-ms:14400000}")
+    private long responseValidityMs;
+
+    @Value("${pki.ocsp.response-refresh-ms:3600000}")
+    private long responseRefreshMs;
+
+    @Value("${pki.ocsp.unknown-refresh-ms:60000}")
+    private long unknownRefreshMs;
+
+    @Value("${pki.ocsp.refresh-check-ms:60000}")
+    private long refreshCheckMs;
+
+    @Value("${pki.ocsp.max-cached-responses:200000}")
+    private int maxCachedResponses;
+
+    @Value("${pki.ocsp.refresh-batch-size:500}")
+    private int refreshBatchSize;
+
+    @Value("${pki.ocsp.responder-validity-days:30}")
+    private int responderValidityDays;
+
+    @Value("${pki.ocsp.signing-threads:0}")
+    private int signingThreads;
+
+    private ExecutorService signingPool;
+    private DigestCalculatorProvider digestCalculatorProvider;
+    private final SecureRandom random = new SecureRandom();
+
+    // Keyed by hash algorithm OID + issuer key hash, as found in a request's CertID
+    private volatile Map<String, Responder> respondersByKeyHash = Map.of();
+    private volatile long respondersLoadedAt;
+
+    private final Map<CacheKey, CachedResponse> cache = new ConcurrentHashMap<>();
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder signed = new LongAdder();
+    private final LongAdder refreshed = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    private byte[] malformedRequest;
+    private byte[] unauthorized;
+    private byte[] internalError;
+
+    public record OCSPResponse(byte[] encoded, String etag, Instant thisUpdate, Instant nextUpdate, Instant refreshAt) {
+
+        // Error responses carry no validity window and must not be cached
+        public boolean isCacheable() {
+            return thisUpdate != null;
+        }
+    }
+
+    @PostConstruct
+    void start() throws Exception {
+        digestCalculatorProvider = new JcaDigestCalculatorProviderBuilder().build();
+        OCSPRespBuilder builder = new OCSPRespBuilder();
+        malformedRequest = builder.build(OCSPRespBuilder.MALFORMED_REQUEST, null).getEncoded();
+        unauthorized = builder.build(OCSPRespBuilder.UNAUTHORIZED, null).getEncoded();
+        internalError = builder.build(OCSPRespBuilder.INTERNAL_ERROR, null).getEncoded();
+
+        int threads = signingThreads > 0 ? signingThreads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCounter = new AtomicInteger();
+        signingPool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "ocsp-sign-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void stop() {
+        signingPool.shutdownNow();
+    }
+
+    public OCSPResponse respond(byte[] encodedRequest) {
+        requests.increment();
+        OCSPReq request;
+        try {
+            request = new OCSPReq(encodedRequest);
+        } catch (IOException | RuntimeException e) {
+            return error(malformedRequest);
+        }
+        Req[] items = request.getRequestList();
+        if (items.length == 0) {
+            return error(malformedRequest);
+        }
+
+        try {
+            if (items.length == 1) {
+                return respondSingle(items[0].getCertID());
+            }
+            return respondMultiple(items);
+        } catch (Exception e) {
+            log.error("Failed to build OCSP response", e);
+            return error(internalError);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCertificatesRevoked(CertificatesRevokedEvent event) {
+        event.serialNumbersByIssuer().forEach((issuerId, serialNumbers) -> {
+            for (String serialNumber : serialNumbers) {
+                for (AlgorithmIdentifier algorithm : CERT_ID_ALGORITHMS) {
+                    cache.remove(new CacheKey(issuerId, serialNumber, algorithm.getAlgorithm().getId()));
+                }
+            }
+        });
+    }
+
+    /**
+     * Re-signs cached responses that reach their refresh time before the next run and were asked for
+     * within the last refresh interval, evicts the others once they go stale and renews responder
+     * certificates close to expiry.
+     */
+    @Scheduled(fixedDelayString = "${pki.ocsp.refresh-check-ms:60000}",
+            initialDelayString = "${pki.ocsp.refresh-check-ms:60000}")
+    public void refreshCache() {
+        long now = System.currentTimeMillis();
+        Instant horizon = Instant.ofEpochMilli(now + refreshCheckMs);
+        long activeSince = now - responseRefreshMs;
+
+        // Stale entries nobody asked for are dropped instead of re-signed; a later request signs anew
+        cache.entrySet().removeIf(entry -> entry.getValue().lastAccess < activeSince
+                && !entry.getValue().response.refreshAt().isAfter(Instant.ofEpochMilli(now)));
+
+        for (Responder responder : Set.copyOf(respondersByKeyHash.values())) {
+            if (responder.delegate == null) {
+                continue;
+            }
+            try {
+                responder.delegate();
+            } catch (Exception e) {
+                log.error("Failed to renew OCSP responder certificate for CA {}", responder.caSerialNumber, e);
+            }
+        }
+
+        Map<Long, List<CacheKey>> due = cache.entrySet().stream()
+                .filter(entry -> entry.getValue().response.refreshAt().isBefore(horizon)
+                        && entry.getValue().lastAccess >= activeSince)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.groupingBy(CacheKey::caId));
+        if (due.isEmpty()) {
+            return;
+        }
+
+        Map<Long, Responder> respondersByCa = respondersByKeyHash.values().stream()
+                .collect(Collectors.toMap(responder -> responder.caId, Function.identity(), (a, b) -> a));
+        List<Future<?>> batches = new ArrayList<>();
+        due.forEach((caId, keys) -> {
+            Responder responder = respondersByCa.get(caId);
+            if (responder == null) {
+                keys.forEach(cache::remove);
+                return;
+            }
+            for (int from = 0; from < keys.size(); from += refreshBatchSize) {
+                List<CacheKey> batch = keys.subList(from, Math.min(from + refreshBatchSize, keys.size()));
+                batches.add(signingPool.submit(() -> refreshBatch(responder, batch)));
+            }
+        });
+        for (Future<?> batch : batches) {
+            try {
+                batch.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                log.error("OCSP refresh batch failed", e.getCause());
+            }
+        }
+    }
+
+    public OCSPMetricsResponse getMetrics() {
+        return OCSPMetricsResponse.builder()
+                .requests(requests.sum())
+                .cacheHits(cacheHits.sum())
+                .signed(signed.sum())
+                .refreshed(refreshed.sum())
+                .errors(errors.sum())
+                .cachedResponses(cache.size())
+                .responders(respondersByKeyHash.size() / CERT_ID_ALGORITHMS.size())
+                .build();
+    }
+
+    private OCSPResponse respondSingle(CertificateID certId) throws Exception {
+        Responder responder = responder(certId);
+        if (responder == null) {
+            return error(unauthorized);
+        }
+
+        CacheKey key = new CacheKey(responder.caId, certId.getSerialNumber().toString(), certId.getHashAlgOID().getId());
+        CachedResponse cached = cache.get(key);
+        if (cached != null && Instant.now().isBefore(cached.response.refreshAt())) {
+            cached.lastAccess = System.currentTimeMillis();
+            cacheHits.increment();
+            return cached.response;
+        }
+
+        Map<String, CertificateStatus> statuses = loadStatuses(List.of(key.serialNumber()));
+        OCSPResponse response = sign(responder, List.of(certId), statuses);
+        CertificateStatus status = statuses.get(key.serialNumber());
+        // Unknown serials are not cached, otherwise random serials would fill the cache and keep the
+        // refresh job signing; the cap is enforced here so the cache never grows past it
+        if (isKnown(responder, status) && (cached != null || cache.size() < maxCachedResponses)) {
+            cache.put(key, new CachedResponse(response, certId, status));
+        } else if (cached != null) {
+            cache.remove(key);
+        }
+        return response;
+    }
+
+    // Rare in practice; answered directly without caching
+    private OCSPResponse respondMultiple(Req[] items) throws Exception {
+        Responder responder = null;
+        List<CertificateID> certIds = new ArrayList<>(items.length);
+        for (Req item : items) {
+            Responder itemResponder = responder(item.getCertID());
+            if (itemResponder == null || (responder != null && responder != itemResponder)) {
+                // One response is signed by one responder, so all CertIDs must name the same CA
+                return error(unauthorized);
+            }
+            responder = itemResponder;
+            certIds.add(item.getCertID());
+        }
+        Map<String, CertificateStatus> statuses = loadStatuses(certIds.stream()
+                .map(certId -> certId.getSerialNumber().toString())
+                .toList());
+        OCSPResponse response = sign(responder, certIds, statuses);
+        return new OCSPResponse(response.encoded(), null, null, null, null);
+    }
+
+    private void refreshBatch(Responder responder, List<CacheKey> keys) {
+        Map<String, CertificateStatus> statuses = new HashMap<>();
+        List<String> toLoad = new ArrayList<>();
+        for (CacheKey key : keys) {
+            CachedResponse cached = cache.get(key);
+            if (cached == null) {
+                continue;
+            }
+            CertificateStatus known = cached.status;
+            // Issued certificates never disappear, so a good answer only changes through revocation
+            if (known != null && !known.isRevoked() && !revocationIndex.isRevoked(known)) {
+                statuses.put(key.serialNumber(), known);
+            } else {
+                toLoad.add(key.serialNumber());
+            }
+        }
+        if (!toLoad.isEmpty()) {
+            statuses.putAll(loadStatuses(toLoad));
+        }
+        for (CacheKey key : keys) {
+            CachedResponse cached = cache.get(key);
+            if (cached == null) {
+                continue;
+            }
+            CertificateStatus status = statuses.get(key.serialNumber());
+            if (!isKnown(responder, status)) {
+                cache.remove(key);
+                continue;
+            }
+            try {
+                OCSPResponse response = sign(responder, List.of(cached.certId), statuses);
+                // Replace only if no revocation evicted the entry meanwhile
+                cache.computeIfPresent(key, (k, current) -> {
+                    current.response = response;
+                    current.status = status;
+                    return current;
+                });
+                refreshed.increment();
+            } catch (Exception e) {
+                log.warn("Failed to re-sign OCSP response for serial {}: {}", key.serialNumber(), e.getMessage());
+            }
+        }
+    }
+
+    private Map<String, CertificateStatus> loadStatuses(List<String> serialNumbers) {
+        return certificateRepository.findStatusesBySerialNumbers(serialNumbers).stream()
+                .collect(Collectors.toMap(CertificateStatus::serialNumber, Function.identity(), (a, b) -> a));
+    }
+
+    private OCSPResponse sign(Responder responder, List<CertificateID> certIds,
+                              Map<String, CertificateStatus> statuses) throws Exception {
+        Delegate delegate = responder.delegate();
+        Instant now = Instant.now();
+        Instant nextUpdate = now.plusMillis(responseValidityMs);
+        long refreshMs = responseRefreshMs;
+
+        BasicOCSPRespBuilder builder = new BasicOCSPRespBuilder(delegate.certificate.getSubjectPublicKeyInfo(),
+                digestCalculatorProvider.get(CertificateID.HASH_SHA1));
+        for (CertificateID certId : certIds) {
+            CertificateStatus status = statuses.get(certId.getSerialNumber().toString());
+            org.bouncycastle.cert.ocsp.CertificateStatus ocspStatus;
+            if (!isKnown(responder, status)) {
+                ocspStatus = new UnknownStatus();
+                // The serial may still be issued later, so HTTP caches keep unknown answers only briefly
+                refreshMs = Math.min(refreshMs, unknownRefreshMs);
+            } else if (status.isRevoked()) {
+                ocspStatus = new RevokedStatus(toDate(status.revokedAt()), status.revocationReason().getCode());
+            } else {
+                ocspStatus = org.bouncycastle.cert.ocsp.CertificateStatus.GOOD;
+            }
+            builder.addResponse(certId, ocspStatus, Date.from(now), Date.from(nextUpdate), null);
+        }
+
+        BasicOCSPResp basic = builder.build(
+                new JcaContentSignerBuilder(SIGNATURE_ALGORITHM).setProvider("BC").build(delegate.privateKey),
+                new X509CertificateHolder[]{delegate.certificate},
+                Date.from(now));
+        byte[] encoded = new OCSPRespBuilder().build(OCSPRespBuilder.SUCCESSFUL, basic).getEncoded();
+        signed.increment();
+        String etag = "\"" + HEX.formatHex(MessageDigest.getInstance("SHA-256").digest(encoded), 0, 16) + "\"";
+        return new OCSPResponse(encoded, etag, now, nextUpdate, now.plusMillis(refreshMs));
+    }
+
+    // Known means issued by this responder's CA, any other serial is answered as unknown
+    private static boolean isKnown(Responder responder, CertificateStatus status) {
+        return status != null && responder.caId.equals(status.issuerId());
+    }
+
+    private Responder responder(CertificateID certId) {
+        String key = keyHashKey(certId.getHashAlgOID().getId(), certId.getIssuerKeyHash());
+        Responder responder = respondersByKeyHash.get(key);
+        if (responder == null && System.currentTimeMillis() - respondersLoadedAt > refreshCheckMs) {
+            // A CA may have been created since the last load
+            loadResponders();
+            responder = respondersByKeyHash.get(key);
+        }
+        if (responder == null) {
+            return null;
+        }
+        byte[] nameHash = responder.nameHashes.get(certId.getHashAlgOID().getId());
+        return Arrays.equals(nameHash, certId.getIssuerNameHash()) ? responder : null;
+    }
+
+    private synchronized void loadResponders() {
+        if (System.currentTimeMillis() - respondersLoadedAt <= refreshCheckMs) {
+            return;
+        }
+        Map<Long, Responder> existing = respondersByKeyHash.values().stream()
+                .collect(Collectors.toMap(responder -> responder.caId, Function.identity(), (a, b) -> a));
+        Map<String, Responder> loaded = new HashMap<>();
+        for (Certificate ca : certificateRepository.findByIsCaTrue()) {
+            try {
+                Responder responder = existing.get(ca.getId());
+                if (responder == null) {
+                    responder = new Responder(ca.getId(), ca.getSerialNumber(),
+                            new X509CertificateHolder(Base64.getDecoder().decode(ca.getCertificateData())));
+                }
+                for (AlgorithmIdentifier algorithm : CERT_ID_ALGORITHMS) {
+                    CertificateID probe = new CertificateID(digestCalculatorProvider.get(algorithm),
+                            responder.caCertificate, BigInteger.ONE);
+                    responder.nameHashes.put(algorithm.getAlgorithm().getId(), probe.getIssuerNameHash());
+                    loaded.put(keyHashKey(algorithm.getAlgorithm().getId(), probe.getIssuerKeyHash()), responder);
+                }
+            } catch (Exception e) {
+                log.warn("CA {} cannot be used for OCSP: {}", ca.getSerialNumber(), e.getMessage());
+            }
+        }
+        respondersByKeyHash = Map.copyOf(loaded);
+        respondersLoadedAt = System.currentTimeMillis();
+    }
+
+    private OCSPResponse error(byte[] encoded) {
+        errors.increment();
+        return new OCSPResponse(encoded, null, null, null, null);
+    }
+
+    private static String keyHashKey(String algorithmOid, byte[] issuerKeyHash) {
+        return algorithmOid + ":" + HEX.formatHex(issuerKeyHash);
+    }
+
+    private static Date toDate(LocalDateTime dateTime) {
+        return Date.from(dateTime.atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    private record CacheKey(Long caId, String serialNumber, String hashAlgorithmOid) {
+    }
+
+    private static final class CachedResponse {
+        private final CertificateID certId;
+        private volatile OCSPResponse response;
+        // Status the response was signed with
+        private volatile CertificateStatus status;
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        CachedResponse(OCSPResponse response, CertificateID certId, CertificateStatus status) {
+            this.response = response;
+            this.certId = certId;
+            this.status = status;
+        }
+    }
+
+    private record Delegate(X509CertificateHolder certificate, PrivateKey privateKey, Instant renewAt) {
+    }
+
+    private final class Responder {
+        private final Long caId;
+        private final String caSerialNumber;
+        private final X509CertificateHolder caCertificate;
+        private final Map<String, byte[]> nameHashes = new ConcurrentHashMap<>();
+        private volatile Delegate delegate;
+
+        Responder(Long caId, String caSerialNumber, X509CertificateHolder caCertificate) {
+            this.caId = caId;
+            this.caSerialNumber = caSerialNumber;
+            this.caCertificate = caCertificate;
+        }
+
+        Delegate delegate() throws Exception {
+            Delegate current = delegate;
+            if (current != null && Instant.now().isBefore(current.renewAt())) {
+                return current;
+            }
+            synchronized (this) {
+                if (delegate == null || !Instant.now().isBefore(delegate.renewAt())) {
+                    delegate = issueDelegate();
+                }
+                return delegate;
+            }
+        }
+
+        // Unlocks the CA key once per responder certificate
+        private Delegate issueDelegate() throws Exception {
+            PrivateKey caKey = keyStoreService.getPrivateKey(caSerialNumber);
+            X509Certificate caX509 = new JcaX509CertificateConverter()
+                    .setProvider("BC").getCertificate(caCertificate);
+            KeyPair keyPair = certificateGenerator.generateKeyPair();
+
+            LocalDateTime notBefore = LocalDateTime.now().minusMinutes(5);
+            LocalDateTime notAfter = notBefore.plusDays(responderValidityDays);
+            LocalDateTime caNotAfter = LocalDateTime.ofInstant(caX509.getNotAfter().toInstant(), ZoneId.systemDefault());
+            if (notAfter.isAfter(caNotAfter)) {
+                notAfter = caNotAfter;
+            }
+
+            X500Name subject = new X500Name("CN=OCSP Responder " + caSerialNumber + ",O=PKI Organization,C=RS");
+            String serialNumber = new BigInteger(63, random).toString();
+            X509Certificate responderCertificate = certificateGenerator.generateOCSPResponderCertificate(
+                    new Subject(keyPair.getPublic(), subject),
+                    new Issuer(caKey, caX509.getPublicKey(), caCertificate.getSubject()),
+                    notBefore, notAfter, serialNumber);
+
+            // Renew after two thirds of the lifetime so relying parties never see an expired responder
+            long lifetimeMs = Duration.between(notBefore, notAfter).toMillis();
+            Instant renewAt = notBefore.atZone(ZoneId.systemDefault()).toInstant().plusMillis(lifetimeMs * 2 / 3);
+
+            log.info("Issued OCSP responder certificate {} for CA {}", serialNumber, caSerialNumber);
+            return new Delegate(new X509CertificateHolder(responderCertificate.getEncoded()), keyPair.getPrivate(), renewAt);
+        }
+    }
+}
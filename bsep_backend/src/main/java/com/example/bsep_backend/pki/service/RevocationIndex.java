@@ -0,0 +1,388 @@
+package com.example.bsep_backend.pki.service;
+
+import com.example.bsep_backend.pki.domain.Certificate;
+import com.example.bsep_backend.pki.domain.CertificateStatus;
+import com.example.bsep_backend.pki.domain.CertificatesRevokedEvent;
+import com.example.bsep_backend.pki.dto.RevocationIndexResponse;
+import com.example.bsep_backend.pki.repository.CertificateRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory set of revoked serial numbers per issuing CA, so revocation checks do not query the
+ * database per serial.
+ * <p>
+ * Serial numbers are decimal longs, so each CA keeps a sorted {@code long[]} (or, with
+ * pki.revocation-index.off-heap, a direct buffer outside the Java heap) searched with a binary
+ * search, plus a small sorted set of recent revocations that is merged into the array once it
+ * reaches merge-threshold entries. Serials that do not fit in a long go to a plain string set.
+ * The index is rebuilt from the certificates table when the application starts and updated from
+ * {@link CertificatesRevokedEvent} after each revocation commits; until the first load completes,
+ * lookups fall back to the database.
+ * <p>
+ * Footprint: 8 bytes per revoked certificate, so 10M revoked certificates take about 80 MB
+ * (on or off heap) plus a 1.25 MB on-heap sample used to narrow the search and, for the length of
+ * one merge, a second copy of the CA's array. Only revoked serials are stored, so 10M issued
+ * certificates with a typical revocation rate of a few percent need a few MB. A roaring bitmap was
+ * not used: it would have to be keyed by row id, while OCSP and chain validation only know the
+ * serial, and timestamp-based serials are far too sparse for bitmap containers to pay off.
+ * RevocationIndexBenchmark (test sources) measures lookups and footprint.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RevocationIndex {
+
+    private static final String SELECT_REVOKED_SQL = "SELECT issuer_id, serial_number FROM certificates " +
+            "WHERE revoked_at IS NOT NULL AND issuer_id IS NOT NULL";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final CertificateRepository certificateRepository;
+
+    @Value("${pki.revocation-index.off-heap:false}")
+    private boolean offHeap;
+
+    @Value("${pki.revocation-index.merge-threshold:4096}")
+    private int mergeThreshold;
+
+    @Value("${pki.revocation-index.fetch-size:10000}")
+    private int fetchSize;
+
+    private TransactionTemplate readOnlyTransaction;
+
+    private final Map<Long, Segment> segments = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+    private volatile long loadDurationMs;
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder fallbackLookups = new LongAdder();
+
+    @PostConstruct
+    void init() {
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.nanoTime();
+        Map<Long, LongList> numeric = new HashMap<>();
+        Map<Long, Set<String>> other = new HashMap<>();
+
+        // A read-only transaction lets the driver stream the result with the fetch size instead of buffering it
+        readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+            var statement = connection.prepareStatement(SELECT_REVOKED_SQL);
+            statement.setFetchSize(fetchSize);
+            return statement;
+        }, (RowCallbackHandler) rs -> {
+            long issuerId = rs.getLong(1);
+            String serialNumber = rs.getString(2);
+            Long serial = parse(serialNumber);
+            if (serial != null) {
+                numeric.computeIfAbsent(issuerId, id -> new LongList()).add(serial);
+            } else {
+                other.computeIfAbsent(issuerId, id -> new HashSet<>()).add(serialNumber);
+            }
+        }));
+
+        Set<Long> issuerIds = new HashSet<>(numeric.keySet());
+        issuerIds.addAll(other.keySet());
+        long total = 0;
+        for (Long issuerId : issuerIds) {
+            LongList serials = numeric.getOrDefault(issuerId, new LongList());
+            Set<String> strings = other.getOrDefault(issuerId, Set.of());
+            segment(issuerId).replace(serials.toSortedArray(), strings);
+            total += serials.size + strings.size();
+        }
+        loaded = true;
+        loadDurationMs = (System.nanoTime() - start) / 1_000_000;
+        log.info("Revocation index loaded {} revoked serials for {} CAs in {} ms ({})",
+                total, issuerIds.size(), loadDurationMs, offHeap ? "off-heap" : "on-heap");
+    }
+
+    // Runs before the other listeners so caches refilled by them already see the revocation
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onCertificatesRevoked(CertificatesRevokedEvent event) {
+        event.serialNumbersByIssuer().forEach((issuerId, serialNumbers) -> segment(issuerId).addAll(serialNumbers));
+    }
+
+    public boolean isRevoked(Long issuerId, String serialNumber) {
+        if (!loaded) {
+            fallbackLookups.increment();
+            return certificateRepository.findStatusesBySerialNumbers(List.of(serialNumber)).stream()
+                    .anyMatch(status -> issuerId.equals(status.issuerId()) && status.isRevoked());
+        }
+        lookups.increment();
+        Segment segment = segments.get(issuerId);
+        return segment != null && segment.contains(serialNumber);
+    }
+
+    public boolean isRevoked(Certificate certificate) {
+        if (certificate.getIssuer() == null) {
+            // Roots cannot be revoked through the API
+            return certificate.isRevoked();
+        }
+        return isRevoked(certificate.getIssuer().getId(), certificate.getSerialNumber());
+    }
+
+    public boolean isRevoked(CertificateStatus status) {
+        return status.issuerId() != null && isRevoked(status.issuerId(), status.serialNumber());
+    }
+
+    public RevocationIndexResponse getStats() {
+        long revoked = 0;
+        long pending = 0;
+        long bytes = 0;
+        for (Segment segment : segments.values()) {
+            Segment.Snapshot snapshot = segment.snapshot;
+            revoked += snapshot.sorted.size() + snapshot.other.size() + segment.recent.size();
+            pending += segment.recent.size();
+            bytes += (long) snapshot.sorted.size() * Long.BYTES;
+        }
+        return RevocationIndexResponse.builder()
+                .loaded(loaded)
+                .offHeap(offHeap)
+                .certificateAuthorities(segments.size())
+                .revokedSerials(revoked)
+                .pendingMerge(pending)
+                .sortedArrayBytes(bytes)
+                .lookups(lookups.sum())
+                .fallbackLookups(fallbackLookups.sum())
+                .loadDurationMs(loadDurationMs)
+                .build();
+    }
+
+    private Segment segment(Long issuerId) {
+        return segments.computeIfAbsent(issuerId, id -> new Segment());
+    }
+
+    private static Long parse(String serialNumber) {
+        try {
+            return Long.parseLong(serialNumber);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private SortedLongs sortedLongs(long[] sorted) {
+        return offHeap ? new OffHeapSortedLongs(sorted) : new HeapSortedLongs(sorted);
+    }
+
+    /**
+     * Revoked serials of one CA. Readers never lock: they see an immutable snapshot plus the
+     * concurrent set of recent revocations. A serial is added to the set before the merged snapshot
+     * is published and removed only afterwards, so it is always visible in at least one of them.
+     */
+    private final class Segment {
+        private volatile Snapshot snapshot = new Snapshot(sortedLongs(new long[0]), Set.of());
+        private final ConcurrentSkipListSet<Long> recent = new ConcurrentSkipListSet<>();
+
+        private record Snapshot(SortedLongs sorted, Set<String> other) {
+        }
+
+        boolean contains(String serialNumber) {
+            Long serial = parse(serialNumber);
+            Snapshot current = snapshot;
+            if (serial == null) {
+                return current.other.contains(serialNumber);
+            }
+            return current.sorted.contains(serial) || recent.contains(serial);
+        }
+
+        synchronized void addAll(Collection<String> serialNumbers) {
+            Set<String> other = null;
+            for (String serialNumber : serialNumbers) {
+                Long serial = parse(serialNumber);
+                if (serial != null) {
+                    if (!snapshot.sorted.contains(serial)) {
+                        recent.add(serial);
+                    }
+                } else if (!snapshot.other.contains(serialNumber)) {
+                    if (other == null) {
+                        other = new HashSet<>(snapshot.other);
+                    }
+                    other.add(serialNumber);
+                }
+            }
+            if (other != null) {
+                snapshot = new Snapshot(snapshot.sorted, Set.copyOf(other));
+            }
+            if (recent.size() >= mergeThreshold) {
+                merge();
+            }
+        }
+
+        synchronized void replace(long[] sorted, Set<String> other) {
+            // Revocations that arrived during the rebuild stay in the recent set and are merged in too
+            snapshot = new Snapshot(sortedLongs(sorted), Set.copyOf(other));
+            recent.removeIf(snapshot.sorted::contains);
+            if (recent.size() >= mergeThreshold) {
+                merge();
+            }
+        }
+
+        private void merge() {
+            long[] additions = recent.stream().mapToLong(Long::longValue).toArray();
+            SortedLongs current = snapshot.sorted;
+            long[] merged = new long[current.size() + additions.length];
+            int i = 0;
+            int j = 0;
+            int k = 0;
+            while (i < current.size() && j < additions.length) {
+                long left = current.get(i);
+                if (left <= additions[j]) {
+                    merged[k++] = left;
+                    i++;
+                } else {
+                    merged[k++] = additions[j++];
+                }
+            }
+            while (i < current.size()) {
+                merged[k++] = current.get(i++);
+            }
+            while (j < additions.length) {
+                merged[k++] = additions[j++];
+            }
+            snapshot = new Snapshot(sortedLongs(merged), snapshot.other);
+            for (long addition : additions) {
+                recent.remove(addition);
+            }
+        }
+    }
+
+    /**
+     * Sorted serials with a sample of every FENCE_STRIDE-th value kept on the heap. The sample is
+     * small enough to stay in the CPU cache, so a lookup touches only one short block of the large
+     * array instead of missing the cache on almost every step of a plain binary search.
+     */
+    private abstract static class SortedLongs {
+        private static final int FENCE_STRIDE = 64;
+
+        private final long[] fences;
+
+        SortedLongs(long[] sorted) {
+            fences = new long[(sorted.length + FENCE_STRIDE - 1) / FENCE_STRIDE];
+            for (int i = 0; i < fences.length; i++) {
+                fences[i] = sorted[i * FENCE_STRIDE];
+            }
+        }
+
+        abstract int size();
+
+        abstract long get(int index);
+
+        boolean contains(long value) {
+            int fence = Arrays.binarySearch(fences, value);
+            if (fence >= 0) {
+                return true;
+            }
+            int block = -fence - 2;
+            if (block < 0) {
+                return false;
+            }
+            int low = block * FENCE_STRIDE + 1;
+            int high = Math.min(low + FENCE_STRIDE - 1, size()) - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long current = get(mid);
+                if (current < value) {
+                    low = mid + 1;
+                } else if (current > value) {
+                    high = mid - 1;
+                } else {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final class HeapSortedLongs extends SortedLongs {
+        private final long[] values;
+
+        HeapSortedLongs(long[] sorted) {
+            super(sorted);
+            values = sorted;
+        }
+
+        @Override
+        int size() {
+            return values.length;
+        }
+
+        @Override
+        long get(int index) {
+            return values[index];
+        }
+    }
+
+    // Freed by the garbage collector together with the buffer object once a merge replaces it
+    private static final class OffHeapSortedLongs extends SortedLongs {
+        private final LongBuffer values;
+
+        OffHeapSortedLongs(long[] sorted) {
+            super(sorted);
+            values = ByteBuffer.allocateDirect(sorted.length * Long.BYTES)
+                    .order(ByteOrder.nativeOrder())
+                    .asLongBuffer()
+                    .put(sorted)
+                    .flip();
+        }
+
+        @Override
+        int size() {
+            return values.limit();
+        }
+
+        @Override
+        long get(int index) {
+            return values.get(index);
+        }
+    }
+
+    private static final class LongList {
+        private long[] values = new long[16];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        long[] toSortedArray() {
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
@@ -0,0 +1,434 @@
+package com.example.bsep_backend.pki.service;
+
+import com.example.bsep_backend.config.ProfiledJsseImplementation;
+import com.example.bsep_backend.config.TlsProfileConfig;
+import com.example.bsep_backend.exception.InvalidRequestException;
+import com.example.bsep_backend.exception.NotFoundException;
+import com.example.bsep_backend.pki.domain.CASigningContext;
+import com.example.bsep_backend.pki.domain.Certificate;
+import com.example.bsep_backend.pki.domain.CertificatesRevokedEvent;
+import com.example.bsep_backend.pki.dto.ServerTlsStatusResponse;
+import com.example.bsep_backend.pki.repository.CertificateRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.ssl.SslBundle;
+import org.springframework.boot.ssl.SslBundleKey;
+import org.springframework.boot.ssl.SslBundleRegistry;
+import org.springframework.boot.ssl.SslBundles;
+import org.springframework.boot.ssl.SslStoreBundle;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Serves the backend's own HTTPS connector from a certificate issued by this PKI and replaces it
+ * without a restart.
+ * <p>
+ * The connector is bound to the SSL bundle pki.server-tls.bundle-name. The identity (key and chain)
+ * lives in a PKCS12 file; when the file changes on disk it is loaded and pushed into the bundle
+ * registry, which makes the web server reload its SSL host config while open connections keep
+ * their sessions. Before notAfter - pki.server-tls.renew-before-ms, or when the certificate is
+ * revoked, a new key pair is certified by the configured CA, written to the file atomically and
+ * applied the same way. Every reload probes the connector with full handshakes before and after the
+ * swap and records their latency and the certificate actually served.
+ * <p>
+ * A new certificate is capped at the CA's notAfter, so it must still outlive the renewal threshold
+ * or every check would issue another one: validity-days not longer than renew-before-ms is rejected
+ * at startup, and expiry rotations are skipped (and reported in the status) while the CA itself
+ * expires within the threshold.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ServerTlsIdentityService {
+
+    private static final String KEY_ALIAS = "server";
+    private static final int PROBE_TIMEOUT_MS = 5000;
+
+    private final CertificateRepository certificateRepository;
+    private final CertificateService certificateService;
+    private final CertificateGenerator certificateGenerator;
+    private final CertificateChainCache chainCache;
+    private final SslBundles sslBundles;
+    private final SslBundleRegistry sslBundleRegistry;
+
+    @Value("${pki.server-tls.enabled:false}")
+    private boolean enabled;
+
+    @Value("${pki.server-tls.bundle-name:server}")
+    private String bundleName;
+
+    @Value("${pki.server-tls.issuer-serial-number:}")
+    private String issuerSerialNumber;
+
+    @Value("${pki.server-tls.common-name:localhost}")
+    private String commonName;
+
+    @Value("${pki.server-tls.subject-alternative-names:DNS:localhost,IP:127.0.0.1}")
+    private List<String> subjectAlternativeNames;
+
+    @Value("${pki.server-tls.key-algorithm:RSA}")
+    private String keyAlgorithm;
+
+    @Value("${pki.server-tls.validity-days:90}")
+    private int validityDays;
+
+    @Value("${pki.server-tls.renew-before-ms:1209600000}")
+    private long renewBeforeMs;
+
+    @Value("${pki.server-tls.keystore-file:tls/server.p12}")
+    private Path keystoreFile;
+
+    @Value("${pki.server-tls.keystore-password:password}")
+    private String keystorePassword;
+
+    @Value("${pki.server-tls.probe-handshakes:20}")
+    private int probeHandshakes;
+
+    @Value("${server.port:8443}")
+    private int serverPort;
+
+    private volatile Identity current;
+    private volatile long fileLastModified;
+    private volatile boolean rotationRequested;
+    private volatile LocalDateTime lastReloadAt;
+    private volatile String lastReloadReason;
+    private volatile String lastError;
+    private volatile String rotationSkippedReason;
+    private volatile HandshakeProbe probeBefore;
+    private volatile HandshakeProbe probeAfter;
+    private final LongAdder reloads = new LongAdder();
+    private final LongAdder rotations = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    private record Identity(String serialNumber, String subject, Instant notAfter, X509Certificate[] chain) {
+
+        static Identity of(X509Certificate[] chain) {
+            X509Certificate leaf = chain[0];
+            return new Identity(leaf.getSerialNumber().toString(), leaf.getSubjectX500Principal().getName(),
+                    leaf.getNotAfter().toInstant(), chain);
+        }
+    }
+
+    private record HandshakeProbe(double p50Millis, double maxMillis, int failed, String servedSerialNumber) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        if (Duration.ofDays(validityDays).toMillis() <= renewBeforeMs) {
+            throw new IllegalStateException("pki.server-tls.validity-days (" + validityDays
+                    + ") must be longer than pki.server-tls.renew-before-ms (" + renewBeforeMs + ")");
+        }
+        synchronized (this) {
+            try {
+                if (Files.exists(keystoreFile)) {
+                    reloadFromFile("startup");
+                }
+            } catch (Exception e) {
+                fail("Could not load server TLS identity from " + keystoreFile, e);
+            }
+        }
+        check();
+    }
+
+    /**
+     * Reloads the identity when the keystore file was replaced and rotates it when it is about to
+     * expire or was revoked.
+     */
+    @Scheduled(fixedDelayString = "${pki.server-tls.check-ms:60000}", initialDelayString = "${pki.server-tls.check-ms:60000}")
+    public synchronized void check() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            if (Files.exists(keystoreFile) && Files.getLastModifiedTime(keystoreFile).toMillis() != fileLastModified) {
+                reloadFromFile("keystore file changed");
+            }
+            Identity identity = current;
+            if (rotationRequested) {
+                rotate("certificate revoked", false);
+            } else if (identity == null) {
+                rotate("no identity issued yet", false);
+            } else if (!Instant.now().plusMillis(renewBeforeMs).isBefore(identity.notAfter())) {
+                rotate("certificate expires at " + identity.notAfter(), true);
+            }
+        } catch (Exception e) {
+            fail("Server TLS identity check failed", e);
+        }
+    }
+
+    /**
+     * Issues and applies a new identity right away.
+     */
+    public synchronized ServerTlsStatusResponse rotateNow() {
+        if (!enabled) {
+            throw new InvalidRequestException("Server TLS identity management is disabled");
+        }
+        try {
+            rotate("manual", false);
+        } catch (NotFoundException | InvalidRequestException e) {
+            throw e;
+        } catch (Exception e) {
+            fail("Server TLS identity rotation failed", e);
+            throw new IllegalStateException("Server TLS identity rotation failed: " + e.getMessage(), e);
+        }
+        return getStatus();
+    }
+
+    public ServerTlsStatusResponse getStatus() {
+        Identity identity = current;
+        HandshakeProbe before = probeBefore;
+        HandshakeProbe after = probeAfter;
+        long handshakes = ProfiledJsseImplementation.handshakes();
+        long fullHandshakes = Math.min(ProfiledJsseImplementation.fullHandshakes(), handshakes);
+        return ServerTlsStatusResponse.builder()
+                .enabled(enabled)
+                .bundleName(bundleName)
+                .serialNumber(identity != null ? identity.serialNumber() : null)
+                .subject(identity != null ? identity.subject() : null)
+                .notAfter(identity != null ? toLocal(identity.notAfter()) : null)
+                .renewAt(identity != null ? toLocal(identity.notAfter().minusMillis(renewBeforeMs)) : null)
+                .keystoreFile(keystoreFile.toString())
+                .reloads(reloads.sum())
+                .rotations(rotations.sum())
+                .failures(failures.sum())
+                .lastReloadAt(lastReloadAt)
+                .lastReloadReason(lastReloadReason)
+                .lastError(lastError)
+                .rotationSkippedReason(rotationSkippedReason)
+                .probeHandshakes(probeHandshakes)
+                .handshakeMillisBeforeP50(before != null ? before.p50Millis() : 0)
+                .handshakeMillisBeforeMax(before != null ? before.maxMillis() : 0)
+                .handshakeMillisAfterP50(after != null ? after.p50Millis() : 0)
+                .handshakeMillisAfterMax(after != null ? after.maxMillis() : 0)
+                .failedHandshakes((before != null ? before.failed() : 0) + (after != null ? after.failed() : 0))
+                .servedSerialNumber(after != null ? after.servedSerialNumber() : null)
+                .keyAlgorithm(identity != null ? identity.chain()[0].getPublicKey().getAlgorithm() : null)
+                .handshakes(handshakes)
+                .fullHandshakes(fullHandshakes)
+                .resumedHandshakes(handshakes - fullHandshakes)
+                .resumptionRate(handshakes > 0 ? (double) (handshakes - fullHandshakes) / handshakes : 0)
+                .sessionCacheSize(ProfiledJsseImplementation.sessionCacheSize())
+                .sessionTimeoutSeconds(ProfiledJsseImplementation.sessionTimeoutSeconds())
+                .sessionTickets(TlsProfileConfig.sessionTicketsEnabled())
+                .build();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCertificatesRevoked(CertificatesRevokedEvent event) {
+        Identity identity = current;
+        if (identity != null && event.serialNumbersByIssuer().values().stream()
+                .anyMatch(serialNumbers -> serialNumbers.contains(identity.serialNumber()))) {
+            // Picked up by the next check, revocation itself should not wait for a signature
+            rotationRequested = true;
+        }
+    }
+
+    // onlyIfOutlives: skip when the new certificate would itself be due for renewal right away
+    private void rotate(String reason, boolean onlyIfOutlives) throws Exception {
+        if (issuerSerialNumber == null || issuerSerialNumber.isBlank()) {
+            throw new InvalidRequestException("pki.server-tls.issuer-serial-number is not configured");
+        }
+        Certificate ca = certificateRepository.findBySerialNumber(issuerSerialNumber)
+                .orElseThrow(() -> new NotFoundException("Server TLS issuer CA not found"));
+        if (onlyIfOutlives && !LocalDateTime.now().plus(Duration.ofMillis(renewBeforeMs)).isBefore(ca.getNotAfter())) {
+            String skipped = "issuer CA " + issuerSerialNumber + " expires at " + ca.getNotAfter()
+                    + ", a new certificate would be due for renewal right away; renew the CA";
+            if (!skipped.equals(rotationSkippedReason)) {
+                log.warn("Server TLS rotation skipped: {}", skipped);
+            }
+            rotationSkippedReason = skipped;
+            return;
+        }
+        CASigningContext context = certificateService.prepareSigningContext(ca, ca.getOwner());
+        KeyPair keyPair = certificateGenerator.generateKeyPair(keyAlgorithm);
+        Certificate certificate = certificateService.issueServerCertificate(context, keyPair.getPublic(), commonName,
+                subjectAlternativeNames, validityDays, ca.getOwner());
+
+        X509Certificate[] chain = chainCache.getChain(certificate).toArray(new X509Certificate[0]);
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        keyStore.load(null, null);
+        keyStore.setKeyEntry(KEY_ALIAS, keyPair.getPrivate(), keystorePassword.toCharArray(), chain);
+        writeKeystore(keyStore);
+
+        rotationRequested = false;
+        rotations.increment();
+        apply(keyStore, Identity.of(chain), "rotated: " + reason);
+    }
+
+    private void reloadFromFile(String reason) throws Exception {
+        long lastModified = Files.getLastModifiedTime(keystoreFile).toMillis();
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        try (InputStream in = Files.newInputStream(keystoreFile)) {
+            keyStore.load(in, keystorePassword.toCharArray());
+        }
+        java.security.cert.Certificate[] chain = keyStore.getCertificateChain(KEY_ALIAS);
+        if (chain == null || chain.length == 0) {
+            throw new InvalidRequestException("Keystore " + keystoreFile + " has no key entry '" + KEY_ALIAS + "'");
+        }
+        fileLastModified = lastModified;
+        Identity identity = Identity.of(Arrays.copyOf(chain, chain.length, X509Certificate[].class));
+        Identity active = current;
+        if (active != null && active.serialNumber().equals(identity.serialNumber())) {
+            return;
+        }
+        apply(keyStore, identity, reason);
+    }
+
+    // Written next to the target and moved over it, so a watcher never reads half a keystore
+    private void writeKeystore(KeyStore keyStore) throws IOException, GeneralSecurityException {
+        Path directory = keystoreFile.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, "server", ".p12.tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temporary)) {
+                keyStore.store(out, keystorePassword.toCharArray());
+            }
+            Files.move(temporary, keystoreFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        fileLastModified = Files.getLastModifiedTime(keystoreFile).toMillis();
+    }
+
+    private void apply(KeyStore keyStore, Identity identity, String reason) {
+        SslBundle active = sslBundles.getBundle(bundleName);
+        List<X509Certificate> trusted = new ArrayList<>(Arrays.asList(identity.chain()));
+        trusted.addAll(chainOf(active));
+
+        HandshakeProbe before = probe(trusted);
+        sslBundleRegistry.updateBundle(bundleName, SslBundle.of(
+                SslStoreBundle.of(keyStore, keystorePassword, null),
+                SslBundleKey.of(keystorePassword, KEY_ALIAS),
+                active.getOptions(), active.getProtocol()));
+        HandshakeProbe after = probe(trusted);
+
+        current = identity;
+        probeBefore = before;
+        probeAfter = after;
+        lastReloadAt = LocalDateTime.now();
+        lastReloadReason = reason;
+        lastError = null;
+        rotationSkippedReason = null;
+        reloads.increment();
+        log.info("Server TLS identity {} ({}) applied to bundle '{}': {}; handshake p50 {} ms -> {} ms, {} failed, serving {}",
+                identity.serialNumber(), identity.subject(), bundleName, reason, before.p50Millis(), after.p50Millis(),
+                before.failed() + after.failed(), after.servedSerialNumber());
+    }
+
+    // Full handshakes only: every session is invalidated so the next one cannot resume it
+    private HandshakeProbe probe(List<X509Certificate> trusted) {
+        if (probeHandshakes <= 0 || serverPort <= 0) {
+            return new HandshakeProbe(0, 0, 0, null);
+        }
+        SSLSocketFactory factory;
+        try {
+            factory = probeContext(trusted).getSocketFactory();
+        } catch (GeneralSecurityException | IOException e) {
+            log.warn("Could not prepare handshake probe: {}", e.getMessage());
+            return new HandshakeProbe(0, 0, probeHandshakes, null);
+        }
+        long[] nanos = new long[probeHandshakes];
+        int completed = 0;
+        int failed = 0;
+        String served = null;
+        for (int i = 0; i < probeHandshakes; i++) {
+            long started = System.nanoTime();
+            try (SSLSocket socket = (SSLSocket) factory.createSocket()) {
+                socket.connect(new InetSocketAddress("localhost", serverPort), PROBE_TIMEOUT_MS);
+                socket.setSoTimeout(PROBE_TIMEOUT_MS);
+                socket.startHandshake();
+                nanos[completed++] = System.nanoTime() - started;
+                SSLSession session = socket.getSession();
+                served = ((X509Certificate) session.getPeerCertificates()[0]).getSerialNumber().toString();
+                session.invalidate();
+            } catch (IOException e) {
+                failed++;
+                log.debug("Handshake probe failed: {}", e.getMessage());
+            }
+        }
+        if (completed == 0) {
+            return new HandshakeProbe(0, 0, failed, null);
+        }
+        long[] sorted = Arrays.copyOf(nanos, completed);
+        Arrays.sort(sorted);
+        return new HandshakeProbe(sorted[completed / 2] / 1e6, sorted[completed - 1] / 1e6, failed, served);
+    }
+
+    private static SSLContext probeContext(List<X509Certificate> trusted) throws GeneralSecurityException, IOException {
+        KeyStore trustStore = KeyStore.getInstance("PKCS12");
+        trustStore.load(null, null);
+        for (int i = 0; i < trusted.size(); i++) {
+            trustStore.setCertificateEntry("trusted-" + i, trusted.get(i));
+        }
+        TrustManagerFactory trustManagerFactory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagerFactory.init(trustStore);
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(null, trustManagerFactory.getTrustManagers(), null);
+        return context;
+    }
+
+    private static List<X509Certificate> chainOf(SslBundle bundle) {
+        List<X509Certificate> chain = new ArrayList<>();
+        KeyStore keyStore = bundle.getStores().getKeyStore();
+        if (keyStore == null) {
+            return chain;
+        }
+        try {
+            String alias = bundle.getKey().getAlias();
+            for (String name : alias != null ? List.of(alias) : Collections.list(keyStore.aliases())) {
+                java.security.cert.Certificate[] certificates = keyStore.getCertificateChain(name);
+                if (certificates != null) {
+                    for (java.security.cert.Certificate certificate : certificates) {
+                        chain.add((X509Certificate) certificate);
+                    }
+                }
+            }
+        } catch (GeneralSecurityException e) {
+            log.debug("Could not read the active bundle's chain: {}", e.getMessage());
+        }
+        return chain;
+    }
+
+    private void fail(String message, Exception e) {
+        failures.increment();
+        lastError = e.getMessage();
+        log.error("{}: {}", message, e.getMessage(), e);
+    }
+
+    private static LocalDateTime toLocal(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,268 @@
+package com.example.bsep_backend.pki.service;
+
+import com.example.bsep_backend.audit.domain.AuditEventType;
+import com.example.bsep_backend.audit.service.AuditLogService;
+import com.example.bsep_backend.domain.User;
+import com.example.bsep_backend.domain.UserRole;
+import com.example.bsep_backend.exception.ForbiddenOperationException;
+import com.example.bsep_backend.exception.InvalidRequestException;
+import com.example.bsep_backend.exception.NotFoundException;
+import com.example.bsep_backend.pki.domain.Certificate;
+import com.example.bsep_backend.pki.domain.CertificatesRevokedEvent;
+import com.example.bsep_backend.pki.domain.RevocationReason;
+import com.example.bsep_backend.pki.dto.SubtreeRevocationResponse;
+import com.example.bsep_backend.pki.repository.CertificateRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Revokes a CA certificate together with every certificate issued below it.
+ * <p>
+ * The subtree is resolved with one recursive query instead of walking issuer links level by level.
+ * Certificates are then revoked in chunks, each chunk committing its certificate updates, revocation
+ * journal entries and CA assignment deactivations with JDBC batches in its own transaction, so a very
+ * large subtree never holds one huge transaction and progress can be polled while the job runs.
+ * A single {@link CertificatesRevokedEvent} covering everything that was committed is published when
+ * the job ends, so CRLs and caches are refreshed once rather than per certificate.
+ * <p>
+ * Descendants of a compromised CA are revoked with reason CA_COMPROMISE; otherwise they inherit the
+ * reason given for the subtree root.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SubtreeRevocationService {
+
+    private static final String SUBTREE_SQL = "WITH RECURSIVE subtree AS (" +
+            "SELECT id, issuer_id, serial_number, is_ca, revoked_at, 0 AS depth FROM certificates WHERE id = ? " +
+            "UNION ALL " +
+            "SELECT c.id, c.issuer_id, c.serial_number, c.is_ca, c.revoked_at, s.depth + 1 FROM certificates c " +
+            "JOIN subtree s ON c.issuer_id = s.id) " +
+            "SELECT id, issuer_id, serial_number, is_ca FROM subtree WHERE revoked_at IS NULL ORDER BY depth, id";
+
+    private static final String REVOKE_SQL = "UPDATE certificates SET revoked_at = ?, revocation_reason = ? " +
+            "WHERE id = ? AND revoked_at IS NULL";
+
+    private static final String JOURNAL_SQL = "INSERT INTO revocation_journal (issuer_id, serial_number, revoked_at, reason) " +
+            "VALUES (?, ?, ?, ?)";
+
+    private static final String DEACTIVATE_ASSIGNMENTS_SQL = "UPDATE ca_assignments SET is_active = false " +
+            "WHERE ca_certificate_id = ? AND is_active = true";
+
+    private final CertificateRepository certificateRepository;
+    private final CertificateService certificateService;
+    private final AuditLogService auditLogService;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${pki.subtree-revocation.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${pki.subtree-revocation.job-retention-ms:3600000}")
+    private long jobRetentionMs;
+
+    private TransactionTemplate transactionTemplate;
+    private TransactionTemplate readOnlyTransaction;
+    private ExecutorService executor;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    private record Node(long id, long issuerId, String serialNumber, boolean isCa) {
+    }
+
+    @PostConstruct
+    void start() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        // Jobs run one at a time; overlapping subtrees would only compete for the same rows
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "subtree-revocation");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Checks that the caller may revoke the certificate and queues the job. Returns immediately;
+     * use {@link #getJob} to follow progress.
+     */
+    public SubtreeRevocationResponse revokeSubtree(String serialNumber, RevocationReason reason, User user) {
+        Long rootId = readOnlyTransaction.execute(status -> {
+            Certificate certificate = certificateRepository.findBySerialNumber(serialNumber)
+                    .orElseThrow(() -> new NotFoundException("Certificate not found"));
+            if (certificate.getIssuer() == null) {
+                throw new InvalidRequestException("Root certificates cannot be revoked");
+            }
+            if (!certificateService.canRevoke(certificate, user)) {
+                throw new ForbiddenOperationException("You are not allowed to revoke this certificate");
+            }
+            return certificate.getId();
+        });
+
+        purgeFinishedJobs();
+        Job job = new Job(UUID.randomUUID().toString(), serialNumber, reason, user);
+        jobs.put(job.id, job);
+        executor.submit(() -> run(job, rootId));
+        return job.toResponse();
+    }
+
+    public SubtreeRevocationResponse getJob(String jobId, User user) {
+        Job job = jobs.get(jobId);
+        if (job == null) {
+            throw new NotFoundException("Revocation job not found");
+        }
+        if (user.getRole() != UserRole.ADMIN && !job.requestedBy.getId().equals(user.getId())) {
+            throw new ForbiddenOperationException("You are not allowed to view this revocation job");
+        }
+        return job.toResponse();
+    }
+
+    private void run(Job job, long rootId) {
+        Map<Long, List<String>> revokedByIssuer = new HashMap<>();
+        try {
+            List<Node> subtree = jdbcTemplate.query(SUBTREE_SQL, (rs, rowNum) -> new Node(
+                    rs.getLong(1), rs.getLong(2), rs.getString(3), rs.getBoolean(4)), rootId);
+            job.total.set(subtree.size());
+            log.info("Revoking subtree of {}: {} certificates", job.rootSerialNumber, subtree.size());
+
+            for (int from = 0; from < subtree.size(); from += chunkSize) {
+                List<Node> chunk = subtree.subList(from, Math.min(from + chunkSize, subtree.size()));
+                List<Node> revoked = transactionTemplate.execute(status -> revokeChunk(job, rootId, chunk));
+                for (Node node : revoked) {
+                    revokedByIssuer.computeIfAbsent(node.issuerId(), id -> new ArrayList<>()).add(node.serialNumber());
+                }
+                job.revoked.addAndGet(revoked.size());
+            }
+            job.status = SubtreeRevocationResponse.Status.COMPLETED;
+        } catch (RuntimeException e) {
+            log.error("Subtree revocation of {} failed", job.rootSerialNumber, e);
+            job.error = e.getMessage();
+            job.status = SubtreeRevocationResponse.Status.FAILED;
+        } finally {
+            job.finishedAt = LocalDateTime.now();
+            // Committed chunks stay revoked even if a later chunk failed, so they are always announced
+            if (!revokedByIssuer.isEmpty()) {
+                eventPublisher.publishEvent(new CertificatesRevokedEvent(revokedByIssuer));
+            }
+            auditLogService.record(AuditEventType.CERTIFICATE_SUBTREE_REVOKED, job.requestedBy.getEmail(),
+                    job.rootSerialNumber, Map.of(
+                            "reason", job.reason,
+                            "jobId", job.id,
+                            "status", job.status,
+                            "revokedCertificates", job.revoked.get(),
+                            "deactivatedAssignments", job.deactivatedAssignments.get()));
+        }
+    }
+
+    private List<Node> revokeChunk(Job job, long rootId, List<Node> chunk) {
+        Timestamp revokedAt = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> updates = new ArrayList<>(chunk.size());
+        for (Node node : chunk) {
+            updates.add(new Object[]{revokedAt, reasonFor(job, node, rootId).name(), node.id()});
+        }
+        int[] counts = jdbcTemplate.batchUpdate(REVOKE_SQL, updates);
+
+        // Rows revoked concurrently by someone else already have their journal entry
+        List<Node> revoked = new ArrayList<>(chunk.size());
+        List<Object[]> journal = new ArrayList<>(chunk.size());
+        List<Object[]> assignments = new ArrayList<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            if (counts[i] == 0) {
+                continue;
+            }
+            Node node = chunk.get(i);
+            revoked.add(node);
+            journal.add(new Object[]{node.issuerId(), node.serialNumber(), revokedAt, reasonFor(job, node, rootId).name()});
+            if (node.isCa()) {
+                assignments.add(new Object[]{node.id()});
+            }
+        }
+        if (!journal.isEmpty()) {
+            jdbcTemplate.batchUpdate(JOURNAL_SQL, journal);
+        }
+        if (!assignments.isEmpty()) {
+            int deactivated = 0;
+            for (int count : jdbcTemplate.batchUpdate(DEACTIVATE_ASSIGNMENTS_SQL, assignments)) {
+                deactivated += Math.max(count, 0);
+            }
+            job.deactivatedAssignments.addAndGet(deactivated);
+        }
+        return revoked;
+    }
+
+    private static RevocationReason reasonFor(Job job, Node node, long rootId) {
+        if (node.id() == rootId) {
+            return job.reason;
+        }
+        return job.reason == RevocationReason.KEY_COMPROMISE || job.reason == RevocationReason.CA_COMPROMISE
+                ? RevocationReason.CA_COMPROMISE : job.reason;
+    }
+
+    private void purgeFinishedJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minusNanos(jobRetentionMs * 1_000_000);
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(cutoff));
+    }
+
+    private static final class Job {
+        private final String id;
+        private final String rootSerialNumber;
+        private final RevocationReason reason;
+        private final User requestedBy;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final AtomicLong total = new AtomicLong();
+        private final AtomicLong revoked = new AtomicLong();
+        private final AtomicLong deactivatedAssignments = new AtomicLong();
+        private volatile SubtreeRevocationResponse.Status status = SubtreeRevocationResponse.Status.RUNNING;
+        private volatile LocalDateTime finishedAt;
+        private volatile String error;
+
+        Job(String id, String rootSerialNumber, RevocationReason reason, User requestedBy) {
+            this.id = id;
+            this.rootSerialNumber = rootSerialNumber;
+            this.reason = reason;
+            this.requestedBy = requestedBy;
+        }
+
+        SubtreeRevocationResponse toResponse() {
+            return SubtreeRevocationResponse.builder()
+                    .jobId(id)
+                    .rootSerialNumber(rootSerialNumber)
+                    .reason(reason)
+                    .status(status)
+                    .totalCertificates(total.get())
+                    .revokedCertificates(revoked.get())
+                    .deactivatedAssignments(deactivatedAssignments.get())
+                    .startedAt(startedAt)
+                    .finishedAt(finishedAt)
+                    .error(error)
+                    .build();
+        }
+    }
+}
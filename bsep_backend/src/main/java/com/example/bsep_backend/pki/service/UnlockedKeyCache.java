@@ -0,0 +1,76 @@
+package com.example.bsep_backend.pki.service;
+
+import com.example.bsep_backend.pki.domain.CertificatesRevokedEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.security.PrivateKey;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps CA private keys unlocked for pki.unlocked-keys.ttl-ms.
+ * <p>
+ * Unlocking a key decrypts the keystore passwords and loads the keystore file, which dominates the
+ * cost of exports that include the key. Bursts of requests for the same CA unlock it once: concurrent
+ * callers wait for the first unlock instead of repeating it. Keys of revoked CAs are dropped at once.
+ */
+@Service
+@RequiredArgsConstructor
+public class UnlockedKeyCache {
+
+    private final KeyStoreService keyStoreService;
+
+    @Value("${pki.unlocked-keys.ttl-ms:300000}")
+    private long ttlMs;
+
+    @Value("${pki.unlocked-keys.max-entries:256}")
+    private int maxEntries;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public PrivateKey getPrivateKey(String serialNumber) throws Exception {
+        if (entries.size() >= maxEntries && !entries.containsKey(serialNumber)) {
+            long now = System.currentTimeMillis();
+            entries.values().removeIf(entry -> entry.expiresAt <= now);
+            if (entries.size() >= maxEntries) {
+                entries.clear();
+            }
+        }
+        return entries.computeIfAbsent(serialNumber, Entry::new).unlock();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCertificatesRevoked(CertificatesRevokedEvent event) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        event.serialNumbersByIssuer().values().forEach(serialNumbers -> serialNumbers.forEach(entries::remove));
+    }
+
+    private final class Entry {
+        private final String serialNumber;
+        private volatile PrivateKey key;
+        private volatile long expiresAt;
+
+        Entry(String serialNumber) {
+            this.serialNumber = serialNumber;
+        }
+
+        PrivateKey unlock() throws Exception {
+            PrivateKey current = key;
+            if (current != null && expiresAt > System.currentTimeMillis()) {
+                return current;
+            }
+            synchronized (this) {
+                if (key == null || expiresAt <= System.currentTimeMillis()) {
+                    key = keyStoreService.getPrivateKey(serialNumber);
+                    expiresAt = System.currentTimeMillis() + ttlMs;
+                }
+                return key;
+            }
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.bsep_backend.pki.service.impl;
 
+import com.example.bsep_backend.audit.domain.AuditEventType;
+import com.example.bsep_backend.audit.service.AuditLogService;
 import com.example.bsep_backend.domain.User;
 import com.example.bsep_backend.domain.UserRole;
 import com.example.bsep_backend.exception.NotFoundException;
@@ -20,6 +22,7 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -31,6 +34,7 @@ public class CAAssignmentServiceImpl implements CAAssignmentService {
     private final CAAssignmentRepository caAssignmentRepository;
     private final CertificateRepository certificateRepository;
     private final UserRepository userRepository;
+    private final AuditLogService auditLogService;
 
     @Override
     @Transactional
@@ -73,6 +77,10 @@ public class CAAssignmentServiceImpl implements CAAssignmentService {
 
         log.info("CA certificate {} assigned to user {} by admin {}",
                 caCertificate.getCommonName(), caUser.getEmail(), admin.getEmail());
+        auditLogService.record(AuditEventType.CA_ASSIGNED, admin.getEmail(), caCertificate.getSerialNumber(), Map.of(
+                "assignmentId", savedAssignment.getId(),
+                "caUser", caUser.getEmail(),
+                "organization", caUser.getOrganization()));
 
         return mapToResponse(savedAssignment);
     }
@@ -87,6 +95,8 @@ public class CAAssignmentServiceImpl implements CAAssignmentService {
         caAssignmentRepository.save(assignment);
 
         log.info("CA assignment {} revoked by admin {}", assignmentId, admin.getEmail());
+        auditLogService.record(AuditEventType.CA_ASSIGNMENT_REVOKED, admin.getEmail(),
+                assignment.getCaCertificate().getSerialNumber(), Map.of("assignmentId", assignmentId));
     }
 
     @Override
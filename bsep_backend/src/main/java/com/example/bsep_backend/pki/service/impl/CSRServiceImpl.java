@@ -1,8 +1,14 @@
 package com.example.bsep_backend.pki.service.impl;
 
+import com.example.bsep_backend.audit.domain.AuditEventType;
+import com.example.bsep_backend.audit.service.AuditLogService;
 import com.example.bsep_backend.domain.User;
 import com.example.bsep_backend.domain.UserRole;
+import com.example.bsep_backend.exception.EntityExistsException;
+import com.example.bsep_backend.exception.ForbiddenOperationException;
+import com.example.bsep_backend.exception.InvalidRequestException;
 import com.example.bsep_backend.exception.NotFoundException;
+import com.example.bsep_backend.mapper.EntityMapper;
 import com.example.bsep_backend.pki.domain.CSRStatus;
 import com.example.bsep_backend.pki.domain.Certificate;
 import com.example.bsep_backend.pki.domain.CertificateSigningRequest;
@@ -13,34 +19,24 @@ import com.example.bsep_backend.pki.dto.ReviewCSRRequest;
 import com.example.bsep_backend.pki.dto.CreateCertificateRequest;
 import com.example.bsep_backend.pki.repository.CSRRepository;
 import com.example.bsep_backend.pki.repository.CertificateRepository;
+import com.example.bsep_backend.pki.service.CSRIngestionPipeline;
+import com.example.bsep_backend.pki.service.CSRParser;
 import com.example.bsep_backend.pki.service.CSRService;
+import com.example.bsep_backend.pki.service.CSRStatusNotifier;
 import com.example.bsep_backend.pki.service.CertificateService;
+import com.example.bsep_backend.pki.service.KeyFingerprintIndex;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.bouncycastle.asn1.*;
-import org.bouncycastle.asn1.x500.RDN;
-import org.bouncycastle.asn1.x500.style.BCStyle;
-import org.bouncycastle.asn1.x509.Extensions;
-import org.bouncycastle.asn1.x509.GeneralName;
-import org.bouncycastle.asn1.x509.GeneralNames;
-import org.bouncycastle.operator.jcajce.JcaContentVerifierProviderBuilder;
 import org.bouncycastle.pkcs.PKCS10CertificationRequest;
-import org.bouncycastle.pkcs.jcajce.JcaPKCS10CertificationRequestBuilder;
-import org.bouncycastle.operator.ContentSigner;
-import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
-import org.bouncycastle.asn1.x500.X500Name;
-import org.bouncycastle.util.io.pem.PemReader;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.StringReader;
-import java.security.KeyPair;
-import java.security.KeyPairGenerator;
+import java.io.IOException;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.Base64;
 import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -50,6 +46,12 @@ public class CSRServiceImpl implements CSRService {
     private final CSRRepository csrRepository;
     private final CertificateRepository certificateRepository;
     private final CertificateService certificateService;
+    private final AuditLogService auditLogService;
+    private final CSRIngestionPipeline ingestionPipeline;
+    private final CSRParser csrParser;
+    private final KeyFingerprintIndex fingerprintIndex;
+    private final CSRStatusNotifier statusNotifier;
+    private final EntityMapper entityMapper;
 
 //    @Override
 //    @Transactional
@@ -123,7 +125,8 @@ public class CSRServiceImpl implements CSRService {
     @Override
     @Transactional
     public CSRResponse reviewCSR(Long csrId, ReviewCSRRequest request, User reviewer) {
-        CertificateSigningRequest csr = csrRepository.findById(csrId)
+        // Locked so bulk review and auto-approval cannot review the same CSR concurrently
+        CertificateSigningRequest csr = csrRepository.findByIdForUpdate(csrId)
                 .orElseThrow(() -> new NotFoundException("CSR not found"));
 
         if (csr.getStatus() != CSRStatus.PENDING) {
@@ -156,6 +159,10 @@ public class CSRServiceImpl implements CSRService {
                 csr.setStatus(CSRStatus.APPROVED);
                 log.info("CSR {} approved and certificate {} issued by {}",
                         csrId, issuedCertificate.getSerialNumber(), reviewer.getEmail());
+                auditLogService.record(AuditEventType.CSR_APPROVED, reviewer.getEmail(), "csr:" + csrId, Map.of(
+                        "commonName", csr.getCommonName(),
+                        "issuerSerialNumber", selectedCA.getSerialNumber(),
+                        "issuedSerialNumber", issuedCertificate.getSerialNumber()));
             } catch (Exception e) {
                 log.error("Failed to issue certificate for approved CSR {}: {}", csrId, e.getMessage());
                 throw new RuntimeException("Failed to issue certificate from approved CSR", e);
@@ -164,10 +171,15 @@ public class CSRServiceImpl implements CSRService {
             csr.setStatus(CSRStatus.REJECTED);
             csr.setRejectionReason(request.getRejectionReason());
             log.info("CSR {} rejected by {}: {}", csrId, reviewer.getEmail(), request.getRejectionReason());
+            auditLogService.record(AuditEventType.CSR_REJECTED, reviewer.getEmail(), "csr:" + csrId, Map.of(
+                    "commonName", csr.getCommonName(),
+                    "reason", String.valueOf(request.getRejectionReason())));
         }
 
         CertificateSigningRequest savedCSR = csrRepository.save(csr);
-        return mapToResponse(savedCSR);
+        CSRResponse response = mapToResponse(savedCSR);
+        statusNotifier.publishAfterCommit(response);
+        return response;
     }
 
     @Override
@@ -220,106 +232,52 @@ public class CSRServiceImpl implements CSRService {
 
     @Override
     public CSRResponse uploadCSR(MultipartFile csrFile, int validityDays, User requester) {
+        byte[] content;
         try {
-            String pemContent = new String(csrFile.getBytes());
-            byte[] csrBytes;
-            if (pemContent.contains("-----BEGIN")) {
-                try (PemReader pemReader = new PemReader(new StringReader(pemContent))) {
-                    csrBytes = pemReader.readPemObject().getContent();
-                }
-            } else {
-                csrBytes = csrFile.getBytes();
-            }
-
-            PKCS10CertificationRequest csr = new PKCS10CertificationRequest(csrBytes);
-
-            boolean isValid = csr.isSignatureValid(
-                    new JcaContentVerifierProviderBuilder().build(csr.getSubjectPublicKeyInfo()));
-            if (!isValid) {
-                log.error("Invalid CSR signature");
-                throw new IllegalArgumentException("Invalid CSR signature");
-            }
-
-            X500Name subject = csr.getSubject();
-            String commonName = getRDNValue(subject, BCStyle.CN);
-            String organization = getRDNValue(subject, BCStyle.O);
-            String country = getRDNValue(subject, BCStyle.C);
-
-            List<String> sanList = extractSANs(csr);
-
-            CertificateSigningRequest entity = CertificateSigningRequest.builder()
-                    .csrData(Base64.getEncoder().encodeToString(csrBytes))
-                    .commonName(commonName)
-                    .organization(organization)
-                    .country(country)
-                    .requestedValidityDays(validityDays)
-                    .status(CSRStatus.PENDING)
-                    .createdAt(LocalDateTime.now())
-                    .requester(requester)
-                    .build();
-
-            return mapToResponse(csrRepository.save(entity));
-
-        } catch (Exception e) {
-            log.error("Failed to process CSR", e);
-            throw new RuntimeException("Failed to process CSR", e);
+            content = csrFile.getBytes();
+        } catch (IOException e) {
+            throw new InvalidRequestException("CSR file could not be read");
+        }
+        if (content.length == 0) {
+            throw new InvalidRequestException("CSR file is empty");
         }
-    }
 
-    private List<String> extractSANs(PKCS10CertificationRequest csr) {
-        List<String> result = new ArrayList<>();
-        try {
-            ASN1Set attributes = ASN1Set.getInstance(csr.getAttributes());
-            for (int i = 0; i < attributes.size(); i++) {
-                ASN1Sequence seq = (ASN1Sequence) attributes.getObjectAt(i);
-                if (seq.size() > 1 && seq.getObjectAt(1) instanceof ASN1Set) {
-                    ASN1Set set = (ASN1Set) seq.getObjectAt(1);
-                    if (set.size() > 0 && set.getObjectAt(0) instanceof Extensions) {
-                        Extensions extensions = (Extensions) set.getObjectAt(0);
-                        GeneralNames gns = GeneralNames.fromExtensions(extensions, org.bouncycastle.asn1.x509.Extension.subjectAlternativeName);
-                        if (gns != null) {
-                            for (GeneralName gn : gns.getNames()) {
-                                result.add(gn.getName().toString());
-                            }
-                        }
-                    }
-                }
-            }
-        } catch (Exception ignored) {
+        // Decoding and hashing the key is cheap and lets duplicates be refused right away;
+        // signature verification and the rest of parsing run on the ingestion pipeline workers
+        PKCS10CertificationRequest decoded = csrParser.decode(content);
+        String spkiSha256 = csrParser.spkiSha256(decoded);
+        String duplicate = fingerprintIndex.findDuplicate(spkiSha256, KeyFingerprintIndex.UPLOAD_BLOCKING_STATUSES, null);
+        if (duplicate != null) {
+            throw new EntityExistsException(duplicate);
         }
-        return result;
+
+        CertificateSigningRequest entity = CertificateSigningRequest.builder()
+                .csrData(Base64.getEncoder().encodeToString(content))
+                .spkiSha256(spkiSha256)
+                .requestedValidityDays(validityDays)
+                .status(CSRStatus.RECEIVED)
+                .createdAt(LocalDateTime.now())
+                .requester(requester)
+                .build();
+
+        CertificateSigningRequest saved = csrRepository.save(entity);
+        ingestionPipeline.submit(saved.getId());
+        return mapToResponse(saved);
     }
 
+    @Override
+    public CSRResponse getCSRStatus(Long csrId, User user) {
+        CertificateSigningRequest csr = csrRepository.findById(csrId)
+                .orElseThrow(() -> new NotFoundException("CSR not found"));
 
-    private String getRDNValue(X500Name name, ASN1ObjectIdentifier oid) {
-        RDN[] rdns = name.getRDNs(oid);
-        if (rdns != null && rdns.length > 0) {
-            ASN1Encodable value = rdns[0].getFirst().getValue();
-            if (value instanceof ASN1String) {
-                return ((ASN1String) value).getString();
-            }
+        if (user.getRole() != UserRole.ADMIN && !csr.getRequester().getId().equals(user.getId())) {
+            throw new ForbiddenOperationException("You can only track your own CSRs");
         }
-        return null;
+        return mapToResponse(csr);
     }
 
     private CSRResponse mapToResponse(CertificateSigningRequest csr) {
-        return CSRResponse.builder()
-                .id(csr.getId())
-                .commonName(csr.getCommonName())
-                .organization(csr.getOrganization())
-                .country(csr.getCountry())
-                .requestedType(null) // No longer stored in CSR - CA decides during review
-                .validityDays(csr.getRequestedValidityDays())
-                .status(csr.getStatus())
-                .createdAt(csr.getCreatedAt())
-                .reviewedAt(csr.getReviewedAt())
-                .rejectionReason(csr.getRejectionReason())
-                .requesterEmail(csr.getRequester().getEmail())
-                .reviewerEmail(csr.getReviewer() != null ? csr.getReviewer().getEmail() : null)
-                .selectedCaCommonName(null) // No longer stored in CSR - CA decides during review
-                .issuedCertificateSerialNumber(csr.getIssuedCertificate() != null ?
-                        csr.getIssuedCertificate().getSerialNumber() : null)
-                .build();
+        return entityMapper.mapCSRToResponse(csr);
     }
 
 //    private Certificate createCertificateFromCSR(CertificateSigningRequest csr, ReviewCSRRequest reviewRequest, User reviewer) throws Exception {
@@ -4,17 +4,25 @@ import com.example.bsep_backend.exception.NotFoundException;
 import com.example.bsep_backend.pki.domain.Certificate;
 import com.example.bsep_backend.pki.dto.CertificateExportResponse;
 import com.example.bsep_backend.pki.repository.CertificateRepository;
+import com.example.bsep_backend.pki.service.CertificateChainCache;
 import com.example.bsep_backend.pki.service.CertificateExportService;
-import com.example.bsep_backend.pki.service.KeyStoreService;
+import com.example.bsep_backend.pki.service.UnlockedKeyCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.ByteArrayOutputStream;
 import java.security.KeyStore;
+import java.security.MessageDigest;
 import java.security.PrivateKey;
+import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
 import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 @RequiredArgsConstructor
@@ -22,17 +30,37 @@ import java.util.Base64;
 public class CertificateExportServiceImpl implements CertificateExportService {
 
     private final CertificateRepository certificateRepository;
-    private final KeyStoreService keyStoreService;
+    private final UnlockedKeyCache unlockedKeyCache;
+    private final CertificateChainCache chainCache;
+
+    @Value("${pki.export.cache-max-bytes:16777216}")
+    private long cacheMaxBytes;
+
+    // Issued certificates never change, so encoded exports are cached without invalidation
+    private final Map<String, CertificateExportResponse> exportCache = new ConcurrentHashMap<>();
+    private final AtomicLong cachedBytes = new AtomicLong();
+
+    @Override
+    public String getCachedETag(String serialNumber, String format) {
+        CertificateExportResponse cached = exportCache.get(cacheKey(serialNumber, format));
+        return cached != null ? cached.getEtag() : null;
+    }
 
     @Override
     public CertificateExportResponse exportCertificate(String serialNumber, String format) {
+        String cacheKey = cacheKey(serialNumber, format);
+        CertificateExportResponse cached = exportCache.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+
         Certificate certificate = certificateRepository.findBySerialNumber(serialNumber)
                 .orElseThrow(() -> new NotFoundException("Certificate not found"));
 
         try {
             byte[] certData = Base64.getDecoder().decode(certificate.getCertificateData());
 
-            return switch (format.toLowerCase()) {
+            CertificateExportResponse response = switch (format.toLowerCase()) {
                 case "der" -> CertificateExportResponse.builder()
                         .filename(certificate.getCommonName() + ".crt")
                         .contentType("application/x-x509-ca-cert")
@@ -41,9 +69,7 @@ public class CertificateExportServiceImpl implements CertificateExportService {
                         .build();
 
                 case "pem" -> {
-                    String pemContent = "-----BEGIN CERTIFICATE-----\n" +
-                            Base64.getMimeEncoder(64, "\n".getBytes()).encodeToString(certData) +
-                            "\n-----END CERTIFICATE-----";
+                    String pemContent = toPem(certData);
                     yield CertificateExportResponse.builder()
                             .filename(certificate.getCommonName() + ".pem")
                             .contentType("application/x-pem-file")
@@ -59,9 +85,40 @@ public class CertificateExportServiceImpl implements CertificateExportService {
                         .format("CRT")
                         .build();
 
-                default -> throw new IllegalArgumentException("Unsupported format: " + format + "try der, pem or crt");
+                // Leaf first, root last, as expected by TLS servers and most clients
+                case "pem-chain" -> {
+                    StringBuilder bundle = new StringBuilder();
+                    for (X509Certificate chainCertificate : chainCache.getChain(serialNumber)) {
+                        bundle.append(toPem(chainCertificate.getEncoded())).append('\n');
+                    }
+                    yield CertificateExportResponse.builder()
+                            .filename(certificate.getCommonName() + "-chain.pem")
+                            .contentType("application/x-pem-file")
+                            .content(bundle.toString().getBytes())
+                            .format("PEM_CHAIN")
+                            .build();
+                }
+
+                case "p7b" -> CertificateExportResponse.builder()
+                        .filename(certificate.getCommonName() + ".p7b")
+                        .contentType("application/x-pkcs7-certificates")
+                        .content(CertificateFactory.getInstance("X.509")
+                                .generateCertPath(chainCache.getChain(serialNumber))
+                                .getEncoded("PKCS7"))
+                        .format("P7B")
+                        .build();
+
+                default -> throw new IllegalArgumentException("Unsupported format: " + format + ", try der, pem, crt, pem-chain or p7b");
             };
 
+            response.setEtag(etag(certData, format));
+            if (cachedBytes.addAndGet(response.getContent().length) > cacheMaxBytes) {
+                exportCache.clear();
+                cachedBytes.set(response.getContent().length);
+            }
+            exportCache.put(cacheKey, response);
+            return response;
+
         } catch (Exception e) {
             log.error("Error exporting certificate {}: {}", serialNumber, e.getMessage());
             throw new RuntimeException("Failed to export certificate", e);
@@ -78,17 +135,14 @@ public class CertificateExportServiceImpl implements CertificateExportService {
         }
 
         try {
-            PrivateKey privateKey = keyStoreService.getPrivateKey(serialNumber);
-            byte[] certData = Base64.getDecoder().decode(certificate.getCertificateData());
-
-            java.security.cert.CertificateFactory cf = java.security.cert.CertificateFactory.getInstance("X.509");
-            X509Certificate x509Cert = (X509Certificate) cf.generateCertificate(
-                    new java.io.ByteArrayInputStream(certData));
+            PrivateKey privateKey = unlockedKeyCache.getPrivateKey(serialNumber);
 
             KeyStore keyStore = KeyStore.getInstance("PKCS12");
             keyStore.load(null, null);
 
-            java.security.cert.Certificate[] certChain = {x509Cert};
+            // Full chain, so clients do not have to fetch the issuers separately
+            java.security.cert.Certificate[] certChain = chainCache.getChain(serialNumber)
+                    .toArray(new java.security.cert.Certificate[0]);
             keyStore.setKeyEntry("server", privateKey, keystorePassword.toCharArray(), certChain);
 
             ByteArrayOutputStream baos = new ByteArrayOutputStream();
@@ -106,4 +160,20 @@ public class CertificateExportServiceImpl implements CertificateExportService {
             throw new RuntimeException("Failed to export keystore", e);
         }
     }
+
+    // Strong ETag: the leaf fingerprint identifies the content, the format tells the encodings apart
+    private static String etag(byte[] certData, String format) throws Exception {
+        byte[] fingerprint = MessageDigest.getInstance("SHA-256").digest(certData);
+        return "\"" + HexFormat.of().formatHex(fingerprint, 0, 16) + "-" + format.toLowerCase() + "\"";
+    }
+
+    private static String cacheKey(String serialNumber, String format) {
+        return serialNumber + "/" + format.toLowerCase();
+    }
+
+    private static String toPem(byte[] certData) {
+        return "-----BEGIN CERTIFICATE-----\n" +
+                Base64.getMimeEncoder(64, "\n".getBytes()).encodeToString(certData) +
+                "\n-----END CERTIFICATE-----";
+    }
 }
\ No newline at end of file
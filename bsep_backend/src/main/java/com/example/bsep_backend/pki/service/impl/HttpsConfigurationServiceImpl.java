@@ -4,21 +4,30 @@ import com.example.bsep_backend.exception.NotFoundException;
 import com.example.bsep_backend.pki.domain.Certificate;
 import com.example.bsep_backend.pki.dto.HttpsConfigurationResponse;
 import com.example.bsep_backend.pki.repository.CertificateRepository;
-import com.example.bsep_backend.pki.service.CertificateExportService;
+import com.example.bsep_backend.pki.service.CertificateChainCache;
 import com.example.bsep_backend.pki.service.HttpsConfigurationService;
-import com.example.bsep_backend.pki.service.KeyStoreService;
-import com.example.bsep_backend.pki.dto.CertificateExportResponse;
+import com.example.bsep_backend.pki.service.UnlockedKeyCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.KeyStore;
 import java.security.PrivateKey;
 import java.security.cert.X509Certificate;
 import java.util.Base64;
 import java.util.Collection;
 import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 @Service
 @RequiredArgsConstructor
@@ -26,42 +35,26 @@ import java.util.List;
 public class HttpsConfigurationServiceImpl implements HttpsConfigurationService {
 
     private final CertificateRepository certificateRepository;
-    private final CertificateExportService certificateExportService;
-    private final KeyStoreService keyStoreService;
+    private final CertificateChainCache chainCache;
+    private final UnlockedKeyCache unlockedKeyCache;
 
     @Override
     public HttpsConfigurationResponse generateSpringBootSslConfig(String certificateSerialNumber, String keystorePassword) {
-        Certificate certificate = certificateRepository.findBySerialNumber(certificateSerialNumber)
-                .orElseThrow(() -> new NotFoundException("Certificate not found"));
-
-        if (!certificate.isCa()) {
-            throw new IllegalArgumentException("Only CA certificates can be used for HTTPS configuration");
-        }
+        Certificate certificate = loadCaCertificate(certificateSerialNumber);
 
         try {
             // Create a new PKCS12 keystore with the user-provided password
-            var keystoreResponse = createCustomKeystore(certificateSerialNumber, keystorePassword);
-
-            X509Certificate x509Cert = getX509Certificate(certificate.getCertificateData());
-            Collection<List<?>> sanCollection = x509Cert.getSubjectAlternativeNames();
-            String[] sans = extractSubjectAlternativeNames(sanCollection);
+            ByteArrayOutputStream keystore = new ByteArrayOutputStream();
+            writeKeystore(certificate, keystorePassword, keystore);
 
-            String applicationProperties = generateApplicationProperties(certificateSerialNumber, keystorePassword, 8443);
-
-            String certificateInfo = String.format(
-                "Certificate: %s\nSerial Number: %s\nValid From: %s\nValid Until: %s\nIssuer: %s",
-                certificate.getCommonName(),
-                certificate.getSerialNumber(),
-                certificate.getNotBefore(),
-                certificate.getNotAfter(),
-                certificate.getIssuer() != null ? certificate.getIssuer().getCommonName() : "Self-signed"
-            );
+            List<X509Certificate> chain = chainCache.getChain(certificate);
+            String[] sans = extractSubjectAlternativeNames(chain.get(0).getSubjectAlternativeNames());
 
             return HttpsConfigurationResponse.builder()
-                    .applicationProperties(applicationProperties)
-                    .keystoreFile(keystoreResponse.getContent())
-                    .keystoreFilename(keystoreResponse.getFilename())
-                    .certificateInfo(certificateInfo)
+                    .applicationProperties(applicationProperties(certificate, keystorePassword, 8443))
+                    .keystoreFile(keystore.toByteArray())
+                    .keystoreFilename(keystoreFilename(certificate))
+                    .certificateInfo(certificateInfo(certificate))
                     .subjectAlternativeNames(sans)
                     .commonName(certificate.getCommonName())
                     .validityPeriod(certificate.getNotBefore() + " to " + certificate.getNotAfter())
@@ -77,9 +70,67 @@ public class HttpsConfigurationServiceImpl implements HttpsConfigurationService
     public String generateApplicationProperties(String certificateSerialNumber, String keystorePassword, int port) {
         Certificate certificate = certificateRepository.findBySerialNumber(certificateSerialNumber)
                 .orElseThrow(() -> new NotFoundException("Certificate not found"));
+        return applicationProperties(certificate, keystorePassword, port);
+    }
+
+    /**
+     * Loads the certificate once and unlocks its key before the response starts, so a bad serial or
+     * a missing key still fails with a proper status; the ZIP itself is written straight to the response.
+     */
+    @Override
+    public StreamingResponseBody exportHttpsConfigurationBundle(String certificateSerialNumber, String keystorePassword, int port) {
+        Certificate certificate = loadCaCertificate(certificateSerialNumber);
+        PrivateKey privateKey;
+        List<X509Certificate> chain;
+        try {
+            privateKey = unlockedKeyCache.getPrivateKey(certificate.getSerialNumber());
+            chain = chainCache.getChain(certificate);
+        } catch (Exception e) {
+            log.error("Error preparing HTTPS bundle for certificate {}: {}", certificateSerialNumber, e.getMessage());
+            throw new RuntimeException("Failed to prepare HTTPS configuration bundle", e);
+        }
+
+        return outputStream -> {
+            ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(outputStream, 64 * 1024));
+            try {
+                zip.putNextEntry(new ZipEntry(keystoreFilename(certificate)));
+                storeKeystore(privateKey, chain, keystorePassword, zip);
+
+                zip.putNextEntry(new ZipEntry(certificate.getCommonName() + "-chain.pem"));
+                Writer writer = new OutputStreamWriter(zip, StandardCharsets.US_ASCII);
+                for (X509Certificate chainCertificate : chain) {
+                    writer.write(toPem(chainCertificate.getEncoded()));
+                }
+                writer.flush();
+
+                zip.putNextEntry(new ZipEntry("application.properties"));
+                zip.write(applicationProperties(certificate, keystorePassword, port).getBytes(StandardCharsets.UTF_8));
+
+                zip.putNextEntry(new ZipEntry("certificate-info.txt"));
+                zip.write((certificateInfo(certificate) + "\nSubject Alternative Names: "
+                        + String.join(", ", extractSubjectAlternativeNames(chain.get(0).getSubjectAlternativeNames()))
+                        + "\n").getBytes(StandardCharsets.UTF_8));
+
+                // Finished rather than closed, the response stream belongs to the caller
+                zip.finish();
+                zip.flush();
+            } catch (GeneralSecurityException e) {
+                throw new IOException("Failed to write HTTPS configuration bundle", e);
+            }
+        };
+    }
+
+    private Certificate loadCaCertificate(String serialNumber) {
+        Certificate certificate = certificateRepository.findBySerialNumber(serialNumber)
+                .orElseThrow(() -> new NotFoundException("Certificate not found"));
 
-        String keystoreFilename = certificate.getCommonName() + ".p12";
+        if (!certificate.isCa()) {
+            throw new IllegalArgumentException("Only CA certificates can be used for HTTPS configuration");
+        }
+        return certificate;
+    }
 
+    private String applicationProperties(Certificate certificate, String keystorePassword, int port) {
         return String.format("""
                 # HTTPS SSL Configuration
                 server.port=%d
@@ -106,7 +157,7 @@ public class HttpsConfigurationServiceImpl implements HttpsConfigurationService
                 # Valid Until: %s
                 """,
                 port,
-                keystoreFilename,
+                keystoreFilename(certificate),
                 keystorePassword,
                 certificate.getCommonName(),
                 certificate.getSerialNumber(),
@@ -115,16 +166,19 @@ public class HttpsConfigurationServiceImpl implements HttpsConfigurationService
         );
     }
 
-    @Override
-    public void exportHttpsConfigurationBundle(String certificateSerialNumber, String keystorePassword, String outputPath) throws Exception {
-        HttpsConfigurationResponse config = generateSpringBootSslConfig(certificateSerialNumber, keystorePassword);
-        log.info("HTTPS configuration bundle would be exported to: {}", outputPath);
+    private static String certificateInfo(Certificate certificate) {
+        return String.format(
+            "Certificate: %s\nSerial Number: %s\nValid From: %s\nValid Until: %s\nIssuer: %s",
+            certificate.getCommonName(),
+            certificate.getSerialNumber(),
+            certificate.getNotBefore(),
+            certificate.getNotAfter(),
+            certificate.getIssuer() != null ? certificate.getIssuer().getCommonName() : "Self-signed"
+        );
     }
 
-    private X509Certificate getX509Certificate(String base64CertData) throws Exception {
-        byte[] certBytes = Base64.getDecoder().decode(base64CertData);
-        java.security.cert.CertificateFactory cf = java.security.cert.CertificateFactory.getInstance("X.509");
-        return (X509Certificate) cf.generateCertificate(new java.io.ByteArrayInputStream(certBytes));
+    private static String keystoreFilename(Certificate certificate) {
+        return certificate.getCommonName() + ".p12";
     }
 
     private String[] extractSubjectAlternativeNames(Collection<List<?>> sanCollection) {
@@ -138,33 +192,24 @@ public class HttpsConfigurationServiceImpl implements HttpsConfigurationService
                 .toArray(String[]::new);
     }
 
-    private CertificateExportResponse createCustomKeystore(String serialNumber, String password) throws Exception {
-        Certificate certificate = certificateRepository.findBySerialNumber(serialNumber)
-                .orElseThrow(() -> new NotFoundException("Certificate not found"));
-
-        // Get the private key from the existing keystore
-        PrivateKey privateKey = keyStoreService.getPrivateKey(serialNumber);
-        byte[] certData = Base64.getDecoder().decode(certificate.getCertificateData());
-
-        java.security.cert.CertificateFactory cf = java.security.cert.CertificateFactory.getInstance("X.509");
-        X509Certificate x509Cert = (X509Certificate) cf.generateCertificate(
-                new java.io.ByteArrayInputStream(certData));
+    private void writeKeystore(Certificate certificate, String password, OutputStream out) throws Exception {
+        PrivateKey privateKey = unlockedKeyCache.getPrivateKey(certificate.getSerialNumber());
+        storeKeystore(privateKey, chainCache.getChain(certificate), password, out);
+    }
 
-        // Create new PKCS12 keystore with user-provided password
+    // PKCS12 keystore with the user-provided password and the full chain
+    private static void storeKeystore(PrivateKey privateKey, List<X509Certificate> chain, String password,
+                                      OutputStream out) throws IOException, GeneralSecurityException {
         KeyStore keyStore = KeyStore.getInstance("PKCS12");
         keyStore.load(null, null);
+        keyStore.setKeyEntry("server", privateKey, password.toCharArray(),
+                chain.toArray(new java.security.cert.Certificate[0]));
+        keyStore.store(out, password.toCharArray());
+    }
 
-        java.security.cert.Certificate[] certChain = {x509Cert};
-        keyStore.setKeyEntry("server", privateKey, password.toCharArray(), certChain);
-
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        keyStore.store(baos, password.toCharArray());
-
-        return CertificateExportResponse.builder()
-                .filename(certificate.getCommonName() + ".p12")
-                .contentType("application/x-pkcs12")
-                .content(baos.toByteArray())
-                .format("PKCS12")
-                .build();
+    private static String toPem(byte[] certData) {
+        return "-----BEGIN CERTIFICATE-----\n" +
+                Base64.getMimeEncoder(64, "\n".getBytes()).encodeToString(certData) +
+                "\n-----END CERTIFICATE-----\n";
     }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.example.bsep_backend.service.impl;
 
+import com.example.bsep_backend.pki.domain.Certificate;
 import com.example.bsep_backend.service.intr.EmailService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -11,6 +12,11 @@ import org.springframework.stereotype.Service;
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
 
+import java.time.Duration;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.stream.Collectors;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
@@ -48,6 +54,76 @@ public class EmailServiceImpl implements EmailService {
         }
     }
 
+    @Override
+    public void sendCertificateExpiryEmail(String to, String name, List<Certificate> certificates, Duration leadTime) {
+        try {
+            MimeMessage message = mailSender.createMimeMessage();
+            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+
+            helper.setFrom(fromEmail);
+            helper.setTo(to);
+            helper.setSubject("Ističe važenje sertifikata - BSEP");
+            helper.setText(createExpiryEmailContent(name, certificates, leadTime), true);
+
+            mailSender.send(message);
+            log.info("Expiry notice for {} certificates sent to: {}", certificates.size(), to);
+
+        } catch (MessagingException e) {
+            log.error("Failed to send expiry notice to: {}", to, e);
+            throw new RuntimeException("Failed to send expiry notice", e);
+        }
+    }
+
+    private String createExpiryEmailContent(String name, List<Certificate> certificates, Duration leadTime) {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd.MM.yyyy. HH:mm");
+        String rows = certificates.stream()
+                .map(certificate -> """
+                        <tr>
+                            <td style="padding: 6px; border-bottom: 1px solid #eee;">%s</td>
+                            <td style="padding: 6px; border-bottom: 1px solid #eee; font-family: monospace;">%s</td>
+                            <td style="padding: 6px; border-bottom: 1px solid #eee;">%s</td>
+                        </tr>
+                        """.formatted(certificate.getCommonName(), certificate.getSerialNumber(),
+                        certificate.getNotAfter().format(formatter)))
+                .collect(Collectors.joining());
+
+        return """
+            <!DOCTYPE html>
+            <html>
+            <head>
+                <meta charset="UTF-8">
+                <title>Ističe važenje sertifikata</title>
+            </head>
+            <body style="font-family: Arial, sans-serif; line-height: 1.6; color: #333;">
+                <div style="max-width: 600px; margin: 0 auto; padding: 20px;">
+                    <h2 style="color: #2c3e50;">Ističe važenje sertifikata</h2>
+
+                    <p>Pozdrav <strong>%s</strong>,</p>
+
+                    <p>Sledećim sertifikatima ističe važenje za približno %d dana:</p>
+
+                    <table style="width: 100%%; border-collapse: collapse;">
+                        <tr>
+                            <th style="text-align: left; padding: 6px;">Naziv</th>
+                            <th style="text-align: left; padding: 6px;">Serijski broj</th>
+                            <th style="text-align: left; padding: 6px;">Važi do</th>
+                        </tr>
+                        %s
+                    </table>
+
+                    <p>Molimo Vas da na vreme zatražite obnovu sertifikata.</p>
+
+                    <hr style="margin: 20px 0; border: none; border-top: 1px solid #eee;">
+                    <p style="font-size: 12px; color: #666;">
+                        BSEP Team<br>
+                        Ovaj email je automatski generisan, molimo Vas ne odgovarajte na njega.
+                    </p>
+                </div>
+            </body>
+            </html>
+            """.formatted(name, Math.max(1, leadTime.toDays()), rows);
+    }
+
     private String createActivationEmailContent(String username, String activationLink) {
         return """
             <!DOCTYPE html>
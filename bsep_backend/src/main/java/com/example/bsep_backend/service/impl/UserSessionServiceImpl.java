@@ -1,5 +1,7 @@
 package com.example.bsep_backend.service.impl;
 
+import com.example.bsep_backend.audit.domain.AuditEventType;
+import com.example.bsep_backend.audit.service.AuditLogService;
 import com.example.bsep_backend.domain.User;
 import com.example.bsep_backend.domain.UserSession;
 import com.example.bsep_backend.exception.NotFoundException;
@@ -12,6 +14,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Service
@@ -20,6 +23,7 @@ import java.util.UUID;
 public class UserSessionServiceImpl implements UserSessionService {
 
     private final UserSessionRepository userSessionRepository;
+    private final AuditLogService auditLogService;
 
     @Override
     @Transactional
@@ -71,6 +75,8 @@ public class UserSessionServiceImpl implements UserSessionService {
         session.setActive(false);
         userSessionRepository.save(session);
         log.info("Session revoked successfully: {}", sessionId);
+        auditLogService.record(AuditEventType.SESSION_REVOKED, "session:" + sessionId,
+                Map.of("sessionUser", session.getUser().getEmail()));
     }
 
     @Override
@@ -1,5 +1,12 @@
 package com.example.bsep_backend.service.intr;
 
+import com.example.bsep_backend.pki.domain.Certificate;
+
+import java.time.Duration;
+import java.util.List;
+
 public interface EmailService {
     void sendActivationEmail(String to, String name, String activationToken);
-}
\ No newline at end of file
+
+    void sendCertificateExpiryEmail(String to, String name, List<Certificate> certificates, Duration leadTime);
+}
@@ -0,0 +1,12 @@
+-- Runs after Hibernate's ddl-auto=update on every startup (spring.sql.init.mode=always), so every
+-- statement must be idempotent. ddl-auto=update never alters existing columns or constraints.
+
+-- RECEIVED CSRs are stored before parsing, so the subject columns are filled in later
+ALTER TABLE certificate_signing_requests ALTER COLUMN common_name DROP NOT NULL;
+ALTER TABLE certificate_signing_requests ALTER COLUMN organization DROP NOT NULL;
+ALTER TABLE certificate_signing_requests ALTER COLUMN country DROP NOT NULL;
+
+-- Hibernate generates a CHECK listing the CSRStatus values when the table is created
+ALTER TABLE certificate_signing_requests DROP CONSTRAINT IF EXISTS certificate_signing_requests_status_check;
+ALTER TABLE certificate_signing_requests ADD CONSTRAINT certificate_signing_requests_status_check
+    CHECK (status IN ('RECEIVED', 'PENDING', 'APPROVED', 'REJECTED', 'INVALID'));
@@ -0,0 +1,141 @@
+package com.example.bsep_backend.config;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Latencija poziva doAppend na strani producenta pod konkurencijom: {@link RingBufferAppender}
+ * prema logback {@link AsyncAppender}-u (ArrayBlockingQueue), oba sa bufferom od 8192 dogadjaja,
+ * neverBlock=true i bez odbacivanja INFO dogadjaja, ispred istog brzog appender-a. Nije unit test
+ * (surefire ga ne pokrece); pokrece se rucno:
+ * <pre>
+ * ./mvnw -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) \
+ *     com.example.bsep_backend.config.RingBufferAppenderBenchmark
+ * </pre>
+ * Za 1, 4 i 8 producenata ispisuje p50/p99/p99.9/max u ns, ukupan protok i broj odbacenih
+ * dogadjaja. Prvi krug svake kombinacije je zagrevanje i ne ispisuje se.
+ */
+public final class RingBufferAppenderBenchmark {
+
+    private static final int EVENTS_PER_PRODUCER = 200_000;
+    private static final int BUFFER_SIZE = 8192;
+    private static final int[] PRODUCERS = {1, 4, 8};
+    private static final int ROUNDS = 3;
+
+    private RingBufferAppenderBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoggerContext context = new LoggerContext();
+        // Bez MDC adaptera (inace ga postavlja LogbackServiceProvider) svaki append baca NPE
+        context.setMDCAdapter(new LogbackMDCAdapter());
+        Logger logger = context.getLogger("benchmark");
+        for (int producers : PRODUCERS) {
+            for (int round = 0; round < ROUNDS; round++) {
+                run("async", producers, round > 0, context, logger, () -> asyncAppender(context));
+                run("ring", producers, round > 0, context, logger, () -> ringAppender(context));
+            }
+        }
+    }
+
+    private static void run(String name, int producers, boolean report, LoggerContext context, Logger logger,
+                            Supplier<Appender<ILoggingEvent>> factory) throws InterruptedException {
+        CountingAppender sink = new CountingAppender();
+        sink.setContext(context);
+        sink.start();
+        Appender<ILoggingEvent> appender = factory.get();
+        ((ch.qos.logback.core.spi.AppenderAttachable<ILoggingEvent>) appender).addAppender(sink);
+        appender.start();
+
+        long[][] latencies = new long[producers][EVENTS_PER_PRODUCER];
+        CountDownLatch ready = new CountDownLatch(producers);
+        CountDownLatch go = new CountDownLatch(1);
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            long[] samples = latencies[p];
+            threads[p] = new Thread(() -> {
+                ready.countDown();
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < EVENTS_PER_PRODUCER; i++) {
+                    LoggingEvent event = new LoggingEvent(Logger.FQCN, logger, Level.INFO,
+                            "Issued certificate {} for CSR {}", null, new Object[]{i, "csr"});
+                    long start = System.nanoTime();
+                    appender.doAppend(event);
+                    samples[i] = System.nanoTime() - start;
+                }
+            }, "producer-" + p);
+            threads[p].start();
+        }
+        ready.await();
+        long started = System.nanoTime();
+        go.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsed = System.nanoTime() - started;
+        appender.stop();
+
+        long total = (long) producers * EVENTS_PER_PRODUCER;
+        long dropped = total - sink.count.sum();
+        if (report) {
+            long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+            System.out.printf("%-5s producers=%d  p50=%5d  p99=%6d  p99.9=%7d  max=%9d ns  %6.2f M events/s  dropped=%d%n",
+                    name, producers, percentile(all, 0.50), percentile(all, 0.99), percentile(all, 0.999),
+                    all[all.length - 1], total * 1000.0 / elapsed, dropped);
+        }
+    }
+
+    private static Appender<ILoggingEvent> asyncAppender(LoggerContext context) {
+        AsyncAppender appender = new AsyncAppender();
+        appender.setContext(context);
+        appender.setName("async");
+        appender.setQueueSize(BUFFER_SIZE);
+        appender.setDiscardingThreshold(0);
+        appender.setNeverBlock(true);
+        return appender;
+    }
+
+    private static Appender<ILoggingEvent> ringAppender(LoggerContext context) {
+        RingBufferAppender appender = new RingBufferAppender();
+        appender.setContext(context);
+        appender.setName("ring");
+        appender.setBufferSize(BUFFER_SIZE);
+        appender.setWaitStrategy("sleeping");
+        appender.setNeverBlock(true);
+        return appender;
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * percentile))];
+    }
+
+    // Formatira poruku kao pravi encoder, ali ne pise nigde
+    private static final class CountingAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+        private final LongAdder count = new LongAdder();
+
+        @Override
+        protected void append(ILoggingEvent event) {
+            if (event.getFormattedMessage().isEmpty()) {
+                throw new IllegalStateException();
+            }
+            count.increment();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.bsep_backend.passwordmanager.service;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * Cena jedne stavke password manager-a: direktna RSA-OAEP enkripcija lozinke prema envelope
+ * enkripciji ({@link EnvelopeEncryptionService}). Nije unit test (surefire ga ne pokreće);
+ * pokreće se ručno:
+ * <pre>
+ * ./mvnw -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) \
+ *     com.example.bsep_backend.passwordmanager.service.EnvelopeEncryptionBenchmark
+ * </pre>
+ * Meri čuvanje nove stavke (legacy i seal), deljenje jedne stavke kao u SharedPasswordService
+ * (provera ključa podataka pa wrap, sa parsiranjem sertifikata) i jednu stavku bulk deljenja kao u
+ * BulkPasswordShareService (javni ključ primaoca je već izvučen). Ispisuje µs po operaciji; prva
+ * dva kruga su zagrevanje.
+ */
+public final class EnvelopeEncryptionBenchmark {
+
+    private static final int OPERATIONS = 3000;
+    private static final int ROUNDS = 5;
+    private static final String SHORT_SECRET = "correct-horse-battery-staple-42!";
+    private static final String LONG_SECRET = "x".repeat(2000);
+
+    private EnvelopeEncryptionBenchmark() {
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        Object run() throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String certificateData = selfSignedCertificate();
+        RSAPasswordEncryptionService rsa = new RSAPasswordEncryptionService();
+        EnvelopeEncryptionService envelope = new EnvelopeEncryptionService(rsa);
+
+        byte[] dataKey = envelope.generateDataKey();
+        String ciphertext = envelope.encrypt(dataKey, SHORT_SECRET);
+        PublicKey publicKey = rsa.getPublicKey(certificateData);
+
+        for (int round = 0; round < ROUNDS; round++) {
+            boolean report = round > 1;
+            measure("legacy RSA-only", report, () -> rsa.encryptPassword(SHORT_SECRET, certificateData));
+            measure("envelope seal", report, () -> envelope.seal(SHORT_SECRET, certificateData));
+            measure("envelope seal (2000 chars)", report, () -> envelope.seal(LONG_SECRET, certificateData));
+            measure("share", report, () -> {
+                if (!envelope.opens(dataKey, ciphertext)) {
+                    throw new IllegalStateException("Data key does not open the ciphertext");
+                }
+                return rsa.wrapKey(dataKey, certificateData);
+            });
+            measure("bulk share item", report, () -> rsa.wrapKey(dataKey, publicKey));
+            if (report) {
+                System.out.println();
+            }
+        }
+    }
+
+    private static void measure(String name, boolean report, Operation operation) throws Exception {
+        Object sink = null;
+        long started = System.nanoTime();
+        for (int i = 0; i < OPERATIONS; i++) {
+            sink = operation.run();
+        }
+        long elapsed = System.nanoTime() - started;
+        if (sink == null) {
+            throw new IllegalStateException();
+        }
+        if (report) {
+            System.out.printf("%-28s %7.1f us/op%n", name, elapsed / 1000.0 / OPERATIONS);
+        }
+    }
+
+    // RSA 2048, kao ključevi koje PKI izdaje za krajnje korisnike
+    private static String selfSignedCertificate() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+        X500Name subject = new X500Name("CN=benchmark");
+        Date notBefore = new Date();
+        Date notAfter = new Date(notBefore.getTime() + 86_400_000L);
+        byte[] encoded = new JcaX509v3CertificateBuilder(subject, BigInteger.ONE, notBefore, notAfter, subject,
+                keyPair.getPublic())
+                .build(new JcaContentSignerBuilder("SHA256WithRSA").build(keyPair.getPrivate()))
+                .getEncoded();
+        return Base64.getEncoder().encodeToString(encoded);
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.bsep_backend.pki.service;
+
+import com.example.bsep_backend.pki.domain.CertificateExportRow;
+import com.example.bsep_backend.pki.domain.CertificateType;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CertificateBulkExportWriterTest {
+
+    private static final int ROWS = 1_000_000;
+    private static final String CERTIFICATE_DATA = "MIIB".repeat(50);
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+    // Rows are generated lazily, like a database cursor, and never exist all at once
+    private static Stream<CertificateExportRow> syntheticRows(int count) {
+        return LongStream.rangeClosed(1, count).mapToObj(id -> new CertificateExportRow(id, String.valueOf(id),
+                "cert-" + id, "Org", CertificateType.END_ENTITY, false, NOW, NOW.plusYears(1), null, "1",
+                CERTIFICATE_DATA));
+    }
+
+    @Test
+    void writesMillionRowsAsNdjsonIncrementally() throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        long[] bytesAtHalfway = new long[1];
+
+        long written = CertificateBulkExportWriter.writeNdjson(syntheticRows(ROWS)
+                .peek(row -> {
+                    if (row.id() == ROWS / 2) {
+                        bytesAtHalfway[0] = out.bytes;
+                    }
+                }), out);
+
+        assertEquals(ROWS, written);
+        assertEquals(ROWS, out.newlines);
+        assertTrue(bytesAtHalfway[0] > 0, "output must be written while rows are still being read");
+    }
+
+    @Test
+    void writesMillionRowsAsZipOfPemBundles() throws Exception {
+        PipedInputStream in = new PipedInputStream(64 * 1024);
+        PipedOutputStream out = new PipedOutputStream(in);
+        CompletableFuture<long[]> read = CompletableFuture.supplyAsync(() -> countZip(in));
+
+        long written;
+        try (out) {
+            written = CertificateBulkExportWriter.writeZip(syntheticRows(ROWS), out, 1000);
+        }
+
+        long[] counts = read.get();
+        assertEquals(ROWS, written);
+        assertEquals(ROWS / 1000, counts[0]);
+        assertEquals(ROWS, counts[1]);
+    }
+
+    @Test
+    void labelsZipEntriesWithoutCommonNameBySerialNumber() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Stream<CertificateExportRow> rows = Stream.of(new CertificateExportRow(1L, "4242", null, "Org",
+                CertificateType.END_ENTITY, false, NOW, NOW.plusYears(1), null, "1", CERTIFICATE_DATA));
+
+        assertEquals(1, CertificateBulkExportWriter.writeZip(rows, out, 1000));
+
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            zip.getNextEntry();
+            String pem = new String(zip.readAllBytes(), StandardCharsets.US_ASCII);
+            assertTrue(pem.startsWith("# 4242 4242\n-----BEGIN CERTIFICATE-----"));
+        }
+    }
+
+    private static long[] countZip(InputStream in) {
+        long entries = 0;
+        long certificates = 0;
+        try (ZipInputStream zip = new ZipInputStream(in)) {
+            byte[] marker = "-----BEGIN".getBytes();
+            byte[] buffer = new byte[8192];
+            int matched = 0;
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                entries++;
+                assertTrue(entry.getName().endsWith(".pem"));
+                int read;
+                while ((read = zip.read(buffer)) > 0) {
+                    for (int i = 0; i < read; i++) {
+                        matched = buffer[i] == marker[matched] ? matched + 1 : (buffer[i] == marker[0] ? 1 : 0);
+                        if (matched == marker.length) {
+                            certificates++;
+                            matched = 0;
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return new long[]{entries, certificates};
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        private long bytes;
+        private long newlines;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+            if (b == '\n') {
+                newlines++;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+            for (int i = off; i < off + len; i++) {
+                if (b[i] == '\n') {
+                    newlines++;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.example.bsep_backend.pki.service;
+
+import com.example.bsep_backend.domain.User;
+import com.example.bsep_backend.pki.domain.CASigningContext;
+import com.example.bsep_backend.pki.domain.Certificate;
+import com.example.bsep_backend.pki.dto.RenewalMetricsResponse;
+import com.example.bsep_backend.pki.repository.CertificateRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CertificateRenewalServiceTest {
+
+    private static final long ROOT_ID = 1;
+    private static final long CA_ID = 10;
+    private static final long CHILD_ID = 20;
+    private static final LocalDateTime NOW = LocalDateTime.now();
+
+    private final User owner = new User();
+    // The certificates table, by id
+    private final Map<Long, Row> rows = new TreeMap<>();
+    private long nextId = 100;
+
+    private CertificateRenewalService service;
+
+    private static final class Row {
+        private final long id;
+        private final Long issuerId;
+        private final LocalDateTime notBefore;
+        private final LocalDateTime notAfter;
+        private final boolean ca;
+        private final Long renewedFromId;
+        private LocalDateTime renewedAt;
+        private LocalDateTime leaseUntil;
+
+        Row(long id, Long issuerId, LocalDateTime notBefore, LocalDateTime notAfter, boolean ca, Long renewedFromId) {
+            this.id = id;
+            this.issuerId = issuerId;
+            this.notBefore = notBefore;
+            this.notAfter = notAfter;
+            this.ca = ca;
+            this.renewedFromId = renewedFromId;
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        rows.put(ROOT_ID, new Row(ROOT_ID, null, NOW.minusYears(1), NOW.plusYears(10), true, null));
+
+        CertificateRepository certificateRepository = mock(CertificateRepository.class);
+        when(certificateRepository.findByIdInWithOwnerAndIssuer(any())).thenAnswer(invocation ->
+                invocation.<Collection<Long>>getArgument(0).stream().map(id -> entity(rows.get(id))).toList());
+
+        CertificateService certificateService = mock(CertificateService.class);
+        when(certificateService.prepareSigningContext(any(), any())).thenAnswer(invocation -> {
+            CASigningContext context = mock(CASigningContext.class);
+            Certificate ca = invocation.getArgument(0);
+            when(context.getCa()).thenReturn(ca);
+            return context;
+        });
+        when(certificateService.issueRenewal(any(), any(), anyBoolean())).thenAnswer(invocation -> {
+            Certificate previous = invocation.getArgument(0);
+            Certificate parentCa = invocation.<CASigningContext>getArgument(1).getCa();
+            LocalDateTime notAfter = NOW.plus(Duration.between(previous.getNotBefore(), previous.getNotAfter()));
+            if (notAfter.isAfter(parentCa.getNotAfter())) {
+                notAfter = parentCa.getNotAfter();
+            }
+            Certificate successor = Certificate.builder()
+                    .isCa(previous.isCa())
+                    .issuer(parentCa)
+                    .notBefore(NOW)
+                    .notAfter(notAfter)
+                    .renewedFrom(previous)
+                    .build();
+            return new CertificateService.RenewedCertificate(previous, successor, null, null, null);
+        });
+        when(certificateService.saveRenewal(any(), any())).thenAnswer(invocation -> {
+            Certificate successor = invocation.<CertificateService.RenewedCertificate>getArgument(0).certificate();
+            successor.setId(nextId++);
+            rows.put(successor.getId(), new Row(successor.getId(), successor.getIssuer().getId(), successor.getNotBefore(),
+                    successor.getNotAfter(), successor.isCa(), successor.getRenewedFrom().getId()));
+            return successor;
+        });
+
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class, this::executeSql);
+
+        service = new CertificateRenewalService(certificateRepository, certificateService, null, jdbcTemplate,
+                transactionManager);
+        ReflectionTestUtils.setField(service, "windowMs", Duration.ofDays(30).toMillis());
+        ReflectionTestUtils.setField(service, "workers", 2);
+        ReflectionTestUtils.setField(service, "chunkSize", 100);
+        ReflectionTestUtils.setField(service, "pageSize", 1000);
+        ReflectionTestUtils.setField(service, "leaseMs", 600_000L);
+        ReflectionTestUtils.invokeMethod(service, "start");
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(service, "stop");
+    }
+
+    @Test
+    void renewsCaAndItsChildrenEnteringTheWindowInOneWave() {
+        rows.put(CA_ID, new Row(CA_ID, ROOT_ID, NOW.minusYears(1), NOW.plusDays(10), true, null));
+        rows.put(CHILD_ID, new Row(CHILD_ID, CA_ID, NOW.minusDays(80), NOW.plusDays(10), false, null));
+
+        ReflectionTestUtils.invokeMethod(service, "runWave");
+
+        Row caSuccessor = successorOf(CA_ID);
+        Row childSuccessor = successorOf(CHILD_ID);
+        assertEquals(ROOT_ID, caSuccessor.issuerId);
+        assertEquals(caSuccessor.id, childSuccessor.issuerId);
+        assertEquals(NOW.plusDays(90), childSuccessor.notAfter);
+
+        RenewalMetricsResponse metrics = service.getMetrics();
+        assertEquals(2, metrics.getRenewed());
+        assertEquals(0, metrics.getSkipped());
+    }
+
+    @Test
+    void renewsChildrenUnderTheSuccessorOfAnAlreadyRenewedCa() {
+        rows.put(CA_ID, new Row(CA_ID, ROOT_ID, NOW.minusYears(1), NOW.plusDays(10), true, null));
+        rows.get(CA_ID).renewedAt = NOW.minusDays(1);
+        rows.put(11L, new Row(11, ROOT_ID, NOW.minusDays(1), NOW.plusYears(1), true, CA_ID));
+        rows.put(CHILD_ID, new Row(CHILD_ID, CA_ID, NOW.minusDays(80), NOW.plusDays(10), false, null));
+
+        ReflectionTestUtils.invokeMethod(service, "runWave");
+
+        assertEquals(11L, successorOf(CHILD_ID).issuerId);
+        assertEquals(1, service.getMetrics().getRenewed());
+        assertEquals(0, service.getMetrics().getSkipped());
+    }
+
+    @Test
+    void skipsChildrenWhoseCaCannotBeRenewedPastTheWindow() {
+        // The root itself expires inside the window, so neither the CA nor its child can leave it
+        rows.put(ROOT_ID, new Row(ROOT_ID, null, NOW.minusYears(1), NOW.plusDays(20), true, null));
+        rows.put(CA_ID, new Row(CA_ID, ROOT_ID, NOW.minusYears(1), NOW.plusDays(10), true, null));
+        rows.put(CHILD_ID, new Row(CHILD_ID, CA_ID, NOW.minusDays(80), NOW.plusDays(10), false, null));
+
+        ReflectionTestUtils.invokeMethod(service, "runWave");
+
+        assertEquals(0, service.getMetrics().getRenewed());
+        assertEquals(2, service.getMetrics().getSkipped());
+    }
+
+    private Row successorOf(long id) {
+        Row successor = rows.values().stream()
+                .filter(row -> row.renewedFromId != null && row.renewedFromId == id)
+                .findFirst()
+                .orElse(null);
+        assertNotNull(successor, "certificate " + id + " was not renewed");
+        assertNotNull(rows.get(id).renewedAt);
+        return successor;
+    }
+
+    private Certificate entity(Row row) {
+        return Certificate.builder()
+                .id(row.id)
+                .serialNumber(String.valueOf(row.id))
+                .isCa(row.ca)
+                .notBefore(row.notBefore)
+                .notAfter(row.notAfter)
+                .owner(owner)
+                .issuer(row.issuerId != null ? Certificate.builder().id(row.issuerId).build() : null)
+                .build();
+    }
+
+    // Evaluates the statements CertificateRenewalService issues against the rows above
+    private Object executeSql(InvocationOnMock invocation) throws Exception {
+        Object[] arguments = invocation.getRawArguments();
+        String method = invocation.getMethod().getName();
+        String sql = (String) arguments[0];
+        if (method.equals("batchUpdate")) {
+            List<Object[]> batch = invocation.getArgument(1);
+            int[] counts = new int[batch.size()];
+            for (int i = 0; i < batch.size(); i++) {
+                counts[i] = update(sql, batch.get(i));
+            }
+            return counts;
+        }
+        RowMapper<?> mapper = (RowMapper<?>) arguments[1];
+        Object[] parameters = (Object[]) arguments[2];
+        List<Object> results = new ArrayList<>();
+        for (Object[] values : select(sql, parameters)) {
+            results.add(mapper.mapRow(resultSet(values), results.size()));
+        }
+        return method.equals("queryForObject") ? results.get(0) : results;
+    }
+
+    private List<Object[]> select(String sql, Object[] parameters) {
+        List<Object[]> result = new ArrayList<>();
+        if (sql.contains("renewed_from_id = ?")) {
+            long renewedFromId = (Long) parameters[0];
+            rows.values().stream()
+                    .filter(row -> row.renewedFromId != null && row.renewedFromId == renewedFromId)
+                    .forEach(row -> result.add(new Object[]{row.id, timestamp(row.notAfter)}));
+        } else if (sql.contains("JOIN certificates i")) {
+            LocalDateTime from = ((Timestamp) parameters[0]).toLocalDateTime();
+            LocalDateTime to = ((Timestamp) parameters[1]).toLocalDateTime();
+            long afterId = (Long) parameters[2];
+            rows.values().stream()
+                    .filter(row -> row.issuerId != null && row.renewedAt == null && row.id > afterId)
+                    .filter(row -> row.notAfter.isAfter(from) && !row.notAfter.isAfter(to))
+                    .forEach(row -> result.add(new Object[]{row.id, row.issuerId, timestamp(row.notBefore),
+                            timestamp(row.notAfter), row.ca, timestamp(rows.get(row.issuerId).notAfter)}));
+        } else {
+            Row row = rows.get((Long) parameters[0]);
+            result.add(new Object[]{row.id, timestamp(row.notAfter)});
+        }
+        return result;
+    }
+
+    private int update(String sql, Object[] parameters) {
+        if (sql.contains("SET renewed_at")) {
+            Row row = rows.get((Long) parameters[1]);
+            row.renewedAt = ((Timestamp) parameters[0]).toLocalDateTime();
+            row.leaseUntil = null;
+            return 1;
+        }
+        if (sql.contains("renewal_lease_until = NULL")) {
+            rows.get((Long) parameters[0]).leaseUntil = null;
+            return 1;
+        }
+        Row row = rows.get((Long) parameters[1]);
+        LocalDateTime now = ((Timestamp) parameters[2]).toLocalDateTime();
+        if (row.renewedAt != null || (row.leaseUntil != null && !row.leaseUntil.isBefore(now))) {
+            return 0;
+        }
+        row.leaseUntil = ((Timestamp) parameters[0]).toLocalDateTime();
+        return 1;
+    }
+
+    private static ResultSet resultSet(Object[] values) {
+        return mock(ResultSet.class, invocation -> {
+            Object value = values[(Integer) invocation.getArgument(0) - 1];
+            return switch (invocation.getMethod().getName()) {
+                case "getLong" -> ((Number) value).longValue();
+                case "getBoolean" -> value;
+                case "getTimestamp" -> value;
+                default -> throw new UnsupportedOperationException(invocation.getMethod().getName());
+            };
+        });
+    }
+
+    private static Timestamp timestamp(LocalDateTime value) {
+        return Timestamp.valueOf(value);
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.bsep_backend.pki.service;
+
+import com.example.bsep_backend.pki.domain.CertificatesRevokedEvent;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Lookup latency and footprint of {@link RevocationIndex} with 10M revoked serials in one CA, on and
+ * off heap. Not a unit test (surefire does not pick it up); run it by hand with a large heap:
+ * <pre>
+ * ./mvnw -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -Xmx4g -cp target/test-classes:target/classes:$(cat target/cp.txt) \
+ *     com.example.bsep_backend.pki.service.RevocationIndexBenchmark
+ * </pre>
+ * Serials are timestamp-like longs, loaded through the revocation event in chunks of 1M so the
+ * merge path is exercised. Lookups use random string serials, so parsing is included.
+ */
+public final class RevocationIndexBenchmark {
+
+    private static final long CA_ID = 1L;
+    private static final int REVOKED = 10_000_000;
+    private static final int LOAD_CHUNK = 1_000_000;
+    private static final int LOOKUPS = 1 << 20;
+    private static final int ROUNDS = 5;
+
+    private RevocationIndexBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        for (boolean offHeap : new boolean[]{false, true}) {
+            run(offHeap);
+        }
+    }
+
+    private static void run(boolean offHeap) {
+        RevocationIndex index = new RevocationIndex(null, null, null);
+        ReflectionTestUtils.setField(index, "offHeap", offHeap);
+        ReflectionTestUtils.setField(index, "mergeThreshold", 4096);
+        ReflectionTestUtils.setField(index, "loaded", true);
+
+        long base = 1_700_000_000_000_000L;
+        Random random = new Random(1);
+        long started = System.nanoTime();
+        List<String> chunk = new ArrayList<>(LOAD_CHUNK);
+        for (int i = 0; i < REVOKED; i++) {
+            chunk.add(Long.toString(base + (long) i * 7 + random.nextInt(7)));
+            if (chunk.size() == LOAD_CHUNK) {
+                index.onCertificatesRevoked(new CertificatesRevokedEvent(Map.of(CA_ID, chunk)));
+                chunk = new ArrayList<>(LOAD_CHUNK);
+            }
+        }
+        System.out.printf("off-heap=%s: loaded %d serials in %d ms%n", offHeap, REVOKED,
+                (System.nanoTime() - started) / 1_000_000);
+
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        System.out.printf("  heap used: %.1f MB%n", (runtime.totalMemory() - runtime.freeMemory()) / 1e6);
+
+        String[] queries = new String[LOOKUPS];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = Long.toString(base + (long) (random.nextDouble() * REVOKED * 7));
+        }
+        int hits = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long roundStarted = System.nanoTime();
+            for (String serialNumber : queries) {
+                if (index.isRevoked(CA_ID, serialNumber)) {
+                    hits++;
+                }
+            }
+            System.out.printf("  round %d: %.1f ns/lookup%n", round + 1,
+                    (System.nanoTime() - roundStarted) / (double) queries.length);
+        }
+        System.out.println("  hits: " + hits + ", stats: " + index.getStats());
+    }
+}
@@ -12,20 +12,21 @@ if (!fs.existsSync(logsDir)) {
   fs.mkdirSync(logsDir);
 }
 
+function currentLogFilePath() {
+  // UTC+2 timezone
+  const now = new Date();
+  const utcPlus2 = new Date(now.getTime() + 2 * 60 * 60 * 1000);
+  const today = utcPlus2.toISOString().split("T")[0];
+  return path.join(logsDir, `app-${today}.log`);
+}
+
 app.post("/api/logs", (req, res) => {
   try {
     const { timestamp, level, logger, message, thread } = req.body;
 
     const logEntry = `${timestamp} [${thread}] ${level} ${logger} - ${message}\n`;
 
-    // UTC+2 timezone
-    const now = new Date();
-    const utcPlus2 = new Date(now.getTime() + 2 * 60 * 60 * 1000);
-    const today = utcPlus2.toISOString().split("T")[0];
-    const logFileName = `app-${today}.log`;
-    const logFilePath = path.join(logsDir, logFileName);
-
-    fs.appendFileSync(logFilePath, logEntry, "utf8");
+    fs.appendFileSync(currentLogFilePath(), logEntry, "utf8");
 
     console.log(`Log received: ${level} - ${message}`);
     res.status(200).json({ status: "success", message: "Log saved" });
@@ -35,6 +36,46 @@ app.post("/api/logs", (req, res) => {
   }
 });
 
+// Bulk prijem: gzip NDJSON paket logova (jedan JSON objekat po liniji)
+app.post(
+  "/api/logs/bulk",
+  express.raw({ type: "application/x-ndjson", limit: "20mb" }),
+  (req, res) => {
+    const lines = req.body.toString("utf8").split("\n");
+    let logEntries = "";
+    let accepted = 0;
+    let rejected = 0;
+
+    for (const line of lines) {
+      if (!line.trim()) {
+        continue;
+      }
+      try {
+        const { timestamp, level, logger, message, thread } = JSON.parse(line);
+        logEntries += `${timestamp} [${thread}] ${level} ${logger} - ${message}\n`;
+        accepted++;
+      } catch (error) {
+        rejected++;
+      }
+    }
+
+    if (accepted === 0) {
+      return res
+        .status(rejected > 0 ? 400 : 200)
+        .json({ status: rejected > 0 ? "error" : "success", accepted, rejected });
+    }
+
+    fs.appendFile(currentLogFilePath(), logEntries, "utf8", (error) => {
+      if (error) {
+        console.error("Error saving log batch:", error);
+        return res.status(500).json({ status: "error", message: "Failed to save logs" });
+      }
+      console.log(`Log batch received: ${accepted} entries`);
+      res.status(200).json({ status: "success", accepted, rejected });
+    });
+  }
+);
+
 app.listen(PORT, () => {
   console.log(`Log server running on http://localhost:${PORT}`);
   console.log(`Logs will be saved to: ${logsDir}`);